@@ -1,63 +1,87 @@
 package com.messenger.core.aspect;
 
+import com.messenger.core.metrics.LatencyRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
 
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замер задержек методов сервисов и запросов репозиториев.
+ * <p>
+ * Каждый вызов записывается в гистограмму {@link LatencyRegistry}, откуда перцентили
+ * отдаются через {@code /api/admin/performance/latency}. Медленные вызовы
+ * дополнительно логируются, как и раньше.
+ */
 @Aspect
 @Component
 @Slf4j
 public class PerformanceAspect {
 
-    @Around("execution(* com.messenger.core.service.*.*(..))")
+    private static final String REPOSITORY_PACKAGE = "com.messenger.core.repository";
+
+    private final LatencyRegistry latencyRegistry;
+    private final long slowServiceNanos;
+    private final long slowRepositoryNanos;
+
+    public PerformanceAspect(LatencyRegistry latencyRegistry,
+                             @Value("${performance.latency.slow-service-ms:100}") long slowServiceMs,
+                             @Value("${performance.latency.slow-repository-ms:50}") long slowRepositoryMs) {
+        this.latencyRegistry = latencyRegistry;
+        this.slowServiceNanos = TimeUnit.MILLISECONDS.toNanos(slowServiceMs);
+        this.slowRepositoryNanos = TimeUnit.MILLISECONDS.toNanos(slowRepositoryMs);
+    }
+
+    @Around("execution(* com.messenger.core.service..*.*(..))")
     public Object logExecutionTime(ProceedingJoinPoint joinPoint) throws Throwable {
-        long startTime = System.currentTimeMillis();
+        LatencyRegistry.Timer timer = latencyRegistry.timer(LatencyRegistry.Kind.SERVICE,
+                joinPoint.getTarget().getClass(), ((MethodSignature) joinPoint.getSignature()).getMethod(),
+                key -> ClassUtils.getUserClass(key.type()).getSimpleName() + "." + key.method().getName());
+        return measure(joinPoint, timer, slowServiceNanos, "SLOW METHOD");
+    }
 
-        String methodName = joinPoint.getSignature().getDeclaringTypeName() + "." + joinPoint.getSignature().getName();
+    @Around("execution(* com.messenger.core.repository..*.*(..))")
+    public Object logRepositoryExecutionTime(ProceedingJoinPoint joinPoint) throws Throwable {
+        // Target репозитория — SimpleJpaRepository, поэтому имя берём из интерфейса прокси
+        LatencyRegistry.Timer timer = latencyRegistry.timer(LatencyRegistry.Kind.REPOSITORY,
+                joinPoint.getThis().getClass(), ((MethodSignature) joinPoint.getSignature()).getMethod(),
+                key -> repositoryName(key.type(), key.method().getDeclaringClass()) + "." + key.method().getName());
+        return measure(joinPoint, timer, slowRepositoryNanos, "SLOW REPOSITORY");
+    }
 
+    private Object measure(ProceedingJoinPoint joinPoint, LatencyRegistry.Timer timer,
+                           long slowThresholdNanos, String slowLabel) throws Throwable {
+        long startTime = System.nanoTime();
         try {
             Object result = joinPoint.proceed();
-            long endTime = System.currentTimeMillis();
-            long duration = endTime - startTime;
+            long duration = System.nanoTime() - startTime;
+            timer.record(duration);
 
-            if (duration > 100) { // Логируем только медленные запросы
-                log.warn("SLOW METHOD: {} took {}ms", methodName, duration);
-            } else {
-                log.debug("Method {} took {}ms", methodName, duration);
+            if (duration > slowThresholdNanos) {
+                log.warn("{}: {} took {}ms", slowLabel, timer.getName(), TimeUnit.NANOSECONDS.toMillis(duration));
             }
-
             return result;
         } catch (Exception e) {
-            long endTime = System.currentTimeMillis();
+            long duration = System.nanoTime() - startTime;
+            timer.record(duration);
             log.error("Method {} failed after {}ms with error: {}",
-                methodName, endTime - startTime, e.getMessage());
+                timer.getName(), TimeUnit.NANOSECONDS.toMillis(duration), e.getMessage());
             throw e;
         }
     }
 
-    @Around("execution(* com.messenger.core.repository.*.*(..))")
-    public Object logRepositoryExecutionTime(ProceedingJoinPoint joinPoint) throws Throwable {
-        long startTime = System.currentTimeMillis();
-
-        String methodName = joinPoint.getSignature().getDeclaringTypeName() + "." + joinPoint.getSignature().getName();
-
-        try {
-            Object result = joinPoint.proceed();
-            long endTime = System.currentTimeMillis();
-            long duration = endTime - startTime;
-
-            if (duration > 50) { // Логируем медленные запросы к БД
-                log.warn("SLOW REPOSITORY: {} took {}ms", methodName, duration);
+    private static String repositoryName(Class<?> proxyType, Class<?> declaringType) {
+        for (Class<?> candidate : ClassUtils.getAllInterfacesForClassAsSet(proxyType)) {
+            if (candidate.getName().startsWith(REPOSITORY_PACKAGE)) {
+                return candidate.getSimpleName();
             }
-
-            return result;
-        } catch (Exception e) {
-            long endTime = System.currentTimeMillis();
-            log.error("Repository method {} failed after {}ms with error: {}",
-                methodName, endTime - startTime, e.getMessage());
-            throw e;
         }
+        return declaringType.getSimpleName();
     }
 }
@@ -1,8 +1,10 @@
 package com.messenger.core.config;
 
 
+import com.messenger.core.security.GatewayIdentityVerifier;
 import com.messenger.core.service.user.UserService;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import jakarta.servlet.FilterChain;
@@ -34,6 +36,9 @@ import java.util.List;
  *   <li>Если присутствуют заголовки {@code X-Internal-Service} и {@code X-Service-Auth}
  *       с корректными значениями — запрос помечается как внутренний сервисный
  *       и получает роль {@code ROLE_INTERNAL_SERVICE} без проверки JWT.</li>
+ *   <li>Если Gateway передал подписанные заголовки идентичности ({@code X-User-Id},
+ *       {@code X-Identity-Signature}) и подпись верна — JWT повторно не проверяется:
+ *       Gateway уже сделал это.</li>
  *   <li>В остальных случаях извлекается JWT из заголовка {@code Authorization},
  *       валидируется подпись и срок действия, после чего пользователь получает
  *       роль {@code ROLE_USER} и помещается в {@link SecurityContextHolder}.</li>
@@ -48,6 +53,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private String jwtSecret;
 
     private final UserService userService;
+    private final GatewayIdentityVerifier gatewayIdentityVerifier;
+
+    private volatile JwtParser jwtParser;
 
     /**
      * Основной метод фильтрации. Определяет тип запроса (внутренний сервис / внешний клиент)
@@ -83,6 +91,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
+        Long gatewayUserId = gatewayIdentityVerifier.verify(request);
+        if (gatewayUserId != null) {
+            String username = request.getHeader(GatewayIdentityVerifier.USERNAME_HEADER);
+            request.setAttribute(GatewayIdentityVerifier.VERIFIED_USER_ID_ATTRIBUTE, gatewayUserId);
+
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                        username, null, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
+            log.debug("Идентичность пользователя '{}' подтверждена подписью Gateway", username);
+
+            filterChain.doFilter(request, response);
+            return;
+        }
+
         String token = getTokenFromRequest(request);
 
         if (token != null && validateToken(token)) {
@@ -136,10 +161,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
      */
     public String getUsernameFromToken(String token) {
         try {
-            SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
+            Claims claims = getParser()
                     .parseClaimsJws(token)
                     .getBody();
             return claims.getSubject();
@@ -213,11 +235,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 return false;
             }
 
-            SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-            Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token);
+            getParser().parseClaimsJws(token);
             return true;
         } catch (io.jsonwebtoken.security.SignatureException e) {
             log.error("Недействительная подпись JWT (возможно, другой секретный ключ): {}", e.getMessage());
@@ -227,4 +245,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return false;
         }
     }
+
+    /**
+     * Парсер JWT с ключом подписи. Строится один раз при первом обращении.
+     */
+    private JwtParser getParser() {
+        JwtParser parser = jwtParser;
+        if (parser == null) {
+            synchronized (this) {
+                parser = jwtParser;
+                if (parser == null) {
+                    SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+                    parser = Jwts.parserBuilder().setSigningKey(key).build();
+                    jwtParser = parser;
+                }
+            }
+        }
+        return parser;
+    }
 }
@@ -0,0 +1,122 @@
+package com.messenger.core.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Обслуживание секционированной по хешу {@code chat_id} таблицы {@code messages}.
+ * <p>
+ * Таблицу, секции, первичный ключ {@code (id, chat_id)} и индексы создают миграции
+ * ({@code V3__partition_messages.sql}, {@code V4__hot_path_indexes.sql}). При старте здесь
+ * только сверяется число секций с {@code app.messages.partitions}: переразбиение требует
+ * ручной миграции.
+ * <p>
+ * Периодическое обслуживание: досоздаёт недостающие секции (только если модуль существующих
+ * совпадает с настройкой), собирает статистику родительской таблицы (autovacuum анализирует
+ * только секции, не родителя) и предупреждает, когда индексы секции перерастают бюджет
+ * памяти — сигнал увеличить {@code app.messages.partitions}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MessagePartitioning implements SmartInitializingSingleton {
+
+    private static final Pattern BOUND = Pattern.compile("modulus (\\d+), remainder (\\d+)");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.messages.partitions:32}")
+    private int partitions = 32;
+
+    @Value("${app.messages.partition-index-budget-mb:512}")
+    private long indexBudgetMb = 512;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!"p".equals(relationKind())) {
+            log.warn("[PARTITION] messages is not a partitioned table, check Flyway migrations");
+            return;
+        }
+        int existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_inherits WHERE inhparent = 'messages'::regclass", Integer.class);
+        if (existing != partitions) {
+            log.warn("[PARTITION] messages has {} partitions, configured {}: re-partitioning requires a manual migration",
+                    existing, partitions);
+        }
+    }
+
+    /**
+     * Досоздать недостающие секции, обновить статистику родителя и проверить размер индексов секций.
+     */
+    @Scheduled(fixedDelayString = "${app.messages.partition-maintenance-interval-ms:21600000}",
+               initialDelayString = "${app.messages.partition-maintenance-interval-ms:21600000}")
+    public void maintain() {
+        if (!"p".equals(relationKind())) {
+            return;
+        }
+        List<String> bounds = jdbcTemplate.queryForList(
+                "SELECT pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'messages'::regclass", String.class);
+        Set<Integer> present = new HashSet<>();
+        Set<Integer> moduli = new HashSet<>();
+        for (String bound : bounds) {
+            Matcher matcher = BOUND.matcher(bound);
+            if (matcher.find()) {
+                moduli.add(Integer.parseInt(matcher.group(1)));
+                present.add(Integer.parseInt(matcher.group(2)));
+            }
+        }
+        // Секции с другим модулем пересекаются с новыми: разбиение расходится с настройкой, о чём
+        // предупреждает старт, и досоздавать по настройке нельзя
+        if (!moduli.isEmpty() && !moduli.equals(Set.of(partitions))) {
+            log.debug("[PARTITION] messages partitioned with modulus {}, configured {}: skipping recreation",
+                    moduli, partitions);
+        } else {
+            for (int remainder = 0; remainder < partitions; remainder++) {
+                if (!present.contains(remainder)) {
+                    log.warn("[PARTITION] messages partition for remainder {} is missing, recreating", remainder);
+                    createPartition(remainder);
+                }
+            }
+        }
+
+        jdbcTemplate.execute("ANALYZE messages");
+
+        long budget = indexBudgetMb * 1024 * 1024;
+        List<Map<String, Object>> sizes = jdbcTemplate.queryForList(
+                "SELECT c.relname AS name, pg_indexes_size(c.oid) AS index_bytes FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'messages'::regclass " +
+                "ORDER BY index_bytes DESC");
+        long largest = sizes.isEmpty() ? 0 : ((Number) sizes.get(0).get("index_bytes")).longValue();
+        if (largest > budget) {
+            log.warn("[PARTITION] {} indexes take {} MB (budget {} MB): increase app.messages.partitions",
+                    sizes.get(0).get("name"), largest / (1024 * 1024), indexBudgetMb);
+        } else {
+            log.info("[PARTITION] messages: {} partitions, largest index set {} MB", sizes.size(), largest / (1024 * 1024));
+        }
+    }
+
+    /** relkind таблицы messages: {@code p} — секционирована, {@code r} — обычная, null — нет таблицы */
+    private String relationKind() {
+        return jdbcTemplate.queryForObject(
+                "SELECT (SELECT c.relkind::text FROM pg_class c WHERE c.oid = to_regclass('messages'))", String.class);
+    }
+
+    private void createPartition(int remainder) {
+        jdbcTemplate.execute(String.format(
+                "CREATE TABLE IF NOT EXISTS messages_p%03d PARTITION OF messages FOR VALUES WITH (MODULUS %d, REMAINDER %d)",
+                remainder, partitions, remainder));
+    }
+}
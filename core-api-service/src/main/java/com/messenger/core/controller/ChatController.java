@@ -1,13 +1,17 @@
 package com.messenger.core.controller;
 
 import com.messenger.core.dto.ChatDto;
+import com.messenger.core.service.chat.ChatListCache;
 import com.messenger.core.service.chat.ChatService;
 import com.messenger.core.service.OptimizedDataService;
 import com.messenger.core.service.user.UserContextResolver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import jakarta.servlet.http.HttpServletRequest;
 import java.util.List;
 
@@ -20,16 +24,29 @@ public class ChatController {
     private final ChatService chatService;
     private final OptimizedDataService optimizedDataService;
     private final UserContextResolver userContextResolver;
+    private final ChatListCache chatListCache;
 
     /**
-     * Получить все чаты пользователя (оптимизированная версия)
+     * Получить все чаты пользователя (оптимизированная версия).
+     * Поддерживает {@code If-None-Match}: если список не менялся, возвращается 304
+     * без обращения к БД.
      */
     @GetMapping
     public ResponseEntity<List<ChatDto>> getUserChats(HttpServletRequest request) {
         Long userId = getCurrentUserId(request);
+
+        String etag = chatListCache.getETag(userId);
+        if (etag != null && new ServletWebRequest(request).checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
         // Используем оптимизированный сервис для минимизации запросов к БД
-        List<ChatDto> chats = optimizedDataService.getOptimizedUserChats(userId);
-        return ResponseEntity.ok(chats);
+        ChatListCache.Entry entry = chatListCache.get(userId,
+                () -> optimizedDataService.getOptimizedUserChats(userId));
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(entry.getETag())
+                .body(entry.getChats());
     }
 
     /**
@@ -1,11 +1,15 @@
 package com.messenger.core.controller;
 
 import com.messenger.core.dto.MessageDto;
+import com.messenger.core.dto.UploadSessionDto;
+import com.messenger.core.dto.request.InitUploadRequest;
 import com.messenger.core.service.chat.ChatAccessService;
 import com.messenger.core.service.FileStorageService;
 import com.messenger.core.service.message.MessageService;
+import com.messenger.core.service.upload.ChunkedUploadService;
 import com.messenger.core.service.user.UserContextResolver;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.Resource;
@@ -29,6 +33,7 @@ public class FileController {
     private final MessageService messageService;
     private final ChatAccessService chatAccessService;
     private final UserContextResolver userContextResolver;
+    private final ChunkedUploadService chunkedUploadService;
 
     /**
      * Загрузить файл в чат
@@ -52,6 +57,71 @@ public class FileController {
         return ResponseEntity.ok(message);
     }
 
+    /**
+     * Начать возобновляемую загрузку файла по частям
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<UploadSessionDto> initChunkedUpload(
+            @Valid @RequestBody InitUploadRequest uploadRequest,
+            HttpServletRequest request) throws IOException {
+
+        Long userId = getCurrentUserId(request);
+        return ResponseEntity.ok(chunkedUploadService.initUpload(userId, uploadRequest));
+    }
+
+    /**
+     * Получить состояние загрузки (сколько байт уже получено сервером)
+     */
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<UploadSessionDto> getChunkedUploadStatus(
+            @PathVariable String uploadId,
+            HttpServletRequest request) {
+
+        Long userId = getCurrentUserId(request);
+        return ResponseEntity.ok(chunkedUploadService.getStatus(userId, uploadId));
+    }
+
+    /**
+     * Загрузить очередной чанк. Тело запроса — сырые байты (application/octet-stream)
+     */
+    @PutMapping(value = "/uploads/{uploadId}/chunks", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadSessionDto> uploadChunk(
+            @PathVariable String uploadId,
+            @RequestParam("offset") long offset,
+            HttpServletRequest request) throws IOException {
+
+        Long userId = getCurrentUserId(request);
+        return ResponseEntity.ok(chunkedUploadService.appendChunk(userId, uploadId, offset, request.getInputStream()));
+    }
+
+    /**
+     * Завершить загрузку: проверить SHA-256 и создать файловое сообщение
+     */
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<MessageDto> completeChunkedUpload(
+            @PathVariable String uploadId,
+            @RequestParam("checksum") String checksum,
+            HttpServletRequest request) throws IOException {
+
+        Long userId = getCurrentUserId(request);
+        MessageDto message = chunkedUploadService.completeUpload(userId, uploadId, checksum);
+        log.info("Chunked upload {} finished with message {}", uploadId, message.getId());
+        return ResponseEntity.ok(message);
+    }
+
+    /**
+     * Отменить загрузку
+     */
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<Void> cancelChunkedUpload(
+            @PathVariable String uploadId,
+            HttpServletRequest request) {
+
+        Long userId = getCurrentUserId(request);
+        chunkedUploadService.cancelUpload(userId, uploadId);
+        return ResponseEntity.noContent().build();
+    }
+
     /**
      * Скачать файл
      */
@@ -54,15 +54,16 @@ public class MessageController {
     }
 
     /**
-     * Редактировать сообщение
+     * Редактировать сообщение. chatId — ключ секционирования messages: поиск идёт в одной секции
      */
     @PutMapping("/{messageId}")
     public ResponseEntity<MessageDto> editMessage(
             @PathVariable Long messageId,
+            @RequestParam Long chatId,
             @RequestBody MessageDto.EditMessageRequest request,
             HttpServletRequest httpRequest) {
         Long userId = getCurrentUserId(httpRequest);
-        MessageDto message = messageService.editMessage(messageId, userId, request);
+        MessageDto message = messageService.editMessage(messageId, chatId, userId, request);
         return ResponseEntity.ok(message);
     }
 
@@ -72,9 +73,10 @@ public class MessageController {
     @DeleteMapping("/{messageId}")
     public ResponseEntity<Void> deleteMessage(
             @PathVariable Long messageId,
+            @RequestParam Long chatId,
             HttpServletRequest request) {
         Long userId = getCurrentUserId(request);
-        messageService.deleteMessage(messageId, userId);
+        messageService.deleteMessage(messageId, chatId, userId);
         return ResponseEntity.ok().build();
     }
 
@@ -95,14 +97,15 @@ public class MessageController {
     }
 
     /**
-     * Отметить сообщения как прочитанные
+     * Отметить сообщения чата как прочитанные
      */
-    @PostMapping("/read")
+    @PostMapping("/chat/{chatId}/read")
     public ResponseEntity<Void> markMessagesAsRead(
+            @PathVariable Long chatId,
             @RequestBody List<Long> messageIds,
             HttpServletRequest request) {
         Long userId = getCurrentUserId(request);
-        messageService.markMessagesAsRead(userId, messageIds);
+        messageService.markMessagesAsRead(userId, chatId, messageIds);
         return ResponseEntity.ok().build();
     }
 
@@ -136,9 +139,10 @@ public class MessageController {
     @GetMapping("/{messageId}/read-status")
     public ResponseEntity<List<MessageReadStatusDto>> getMessageReadStatuses(
             @PathVariable Long messageId,
+            @RequestParam Long chatId,
             HttpServletRequest request) {
         Long userId = getCurrentUserId(request);
-        List<MessageReadStatusDto> statuses = messageService.getMessageReadStatuses(messageId, userId);
+        List<MessageReadStatusDto> statuses = messageService.getMessageReadStatuses(messageId, chatId, userId);
         return ResponseEntity.ok(statuses);
     }
 
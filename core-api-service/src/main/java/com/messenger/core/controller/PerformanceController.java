@@ -1,16 +1,21 @@
 package com.messenger.core.controller;
 
+import com.messenger.core.dto.LatencyStatsDto;
+import com.messenger.core.metrics.LatencyRegistry;
 import com.messenger.core.service.PerformanceMonitoringService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/admin/performance")
 @RequiredArgsConstructor
 public class PerformanceController {
 
     private final PerformanceMonitoringService performanceMonitoringService;
+    private final LatencyRegistry latencyRegistry;
 
     /**
      * Получить статистику Hibernate
@@ -38,4 +43,24 @@ public class PerformanceController {
         performanceMonitoringService.enableStatistics();
         return ResponseEntity.ok("Statistics enabled");
     }
+
+    /**
+     * Перцентили задержек методов сервисов и запросов репозиториев,
+     * отсортированные по p99 от самых медленных
+     */
+    @GetMapping("/latency")
+    public ResponseEntity<List<LatencyStatsDto>> getLatency(
+            @RequestParam(required = false) LatencyRegistry.Kind kind,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(latencyRegistry.snapshot(kind, limit));
+    }
+
+    /**
+     * Сбросить гистограммы задержек
+     */
+    @PostMapping("/latency/reset")
+    public ResponseEntity<String> resetLatency() {
+        latencyRegistry.reset();
+        return ResponseEntity.ok("Latency histograms reset");
+    }
 }
@@ -0,0 +1,36 @@
+package com.messenger.core.controller;
+
+import com.messenger.core.dto.SyncDto;
+import com.messenger.core.service.sync.SyncService;
+import com.messenger.core.service.user.UserContextResolver;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/sync")
+@RequiredArgsConstructor
+public class SyncController {
+
+    private final SyncService syncService;
+    private final UserContextResolver userContextResolver;
+
+    /**
+     * Изменения чатов, сообщений и прочтений после токена из предыдущего ответа.
+     * Без {@code since} (или со слишком старым токеном) возвращает {@code fullResync=true}
+     * и токен, с которого продолжать после полной загрузки.
+     */
+    @GetMapping
+    public ResponseEntity<SyncDto> sync(@RequestParam(required = false) String since,
+                                        HttpServletRequest request) {
+        Long userId = userContextResolver.resolveUserId(request);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(syncService.sync(userId, since));
+    }
+}
@@ -2,16 +2,24 @@ package com.messenger.core.controller;
 
 import com.messenger.core.dto.UserDto;
 import com.messenger.core.service.encryption.EncryptionService;
+import com.messenger.core.service.user.UserContextResolver;
 import com.messenger.core.service.user.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * Контроллер для управления пользователями и их профилями.
@@ -34,6 +42,9 @@ public class UserController {
     /** Сервис управления E2EE-ключами пользователей. */
     private final EncryptionService encryptionService;
 
+    /** Проверенный ID текущего пользователя для операций с ключами. */
+    private final UserContextResolver userContextResolver;
+
 
     /**
      * Получить всех пользователей, кроме текущего.
@@ -140,6 +151,8 @@ public class UserController {
 
     /**
      * Получить информацию о текущем пользователе.
+     * ETag строится из {@code User.updatedAt}: при совпадении с {@code If-None-Match}
+     * возвращается 304 без загрузки профиля.
      *
      * @param httpRequest HTTP-запрос для извлечения заголовка {@code x-user-id}
      * @return DTO текущего пользователя или описание ошибки
@@ -153,7 +166,17 @@ public class UserController {
         }
         try {
             Long currentUserId = Long.parseLong(userIdHeader);
-            return ResponseEntity.ok(userService.getUserInfo(currentUserId, currentUserId));
+            String etag = profileETag(currentUserId);
+            if (etag == null) {
+                return ResponseEntity.ok(userService.getUserInfo(currentUserId, currentUserId));
+            }
+            if (new ServletWebRequest(httpRequest).checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .eTag(etag)
+                    .body(userService.getUserInfo(currentUserId, currentUserId));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().body(Map.of("error", "Некорректный формат ID"));
         } catch (RuntimeException e) {
@@ -259,13 +282,17 @@ public class UserController {
      *
      * @param userId ID пользователя
      * @param body   тело запроса: {@code { "publicKey": "..." }}
-     * @return статус сохранения
+     * @return статус сохранения; 403, если ключ чужой
      */
     @PostMapping("/{userId}/public-key")
     @PreAuthorize("hasRole('ROLE_USER')")
     public ResponseEntity<?> savePublicKey(
             @PathVariable Long userId,
-            @RequestBody Map<String, String> body) {
+            @RequestBody Map<String, String> body,
+            HttpServletRequest httpRequest) {
+        if (!isOwner(userId, httpRequest)) {
+            return forbiddenKeys();
+        }
         String publicKey = body.get("publicKey");
         if (publicKey == null || publicKey.isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("error", "publicKey обязателен"));
@@ -296,13 +323,17 @@ public class UserController {
      *
      * @param userId ID пользователя
      * @param body   тело запроса с полями identityKey, signedPreKey, oneTimePreKeys, signedPreKeySignature
-     * @return статус {@code ok} или {@code generated} с новым bundle
+     * @return статус {@code ok} или {@code generated} с новым bundle; 403, если bundle чужой
      */
     @PostMapping("/{userId}/prekey-bundle")
     @PreAuthorize("hasRole('ROLE_USER')")
     public ResponseEntity<?> savePreKeyBundle(
             @PathVariable Long userId,
-            @RequestBody Map<String, String> body) {
+            @RequestBody Map<String, String> body,
+            HttpServletRequest httpRequest) {
+        if (!isOwner(userId, httpRequest)) {
+            return forbiddenKeys();
+        }
         String identityKey          = body.get("identityKey");
         String signedPreKey         = body.get("signedPreKey");
         String oneTimePreKeys       = body.get("oneTimePreKeys");
@@ -326,14 +357,17 @@ public class UserController {
     /**
      * Получить X3DH prekey bundle пользователя.
      * Если ключи отсутствуют — возвращается автоматически сгенерированный bundle.
+     * Собственный bundle возвращается без одноразового ключа.
      *
-     * @param userId ID пользователя
+     * @param userId      ID пользователя
+     * @param httpRequest HTTP-запрос для определения запрашивающего
      * @return prekey bundle или 404, если данные неполные
      */
     @GetMapping("/{userId}/prekey-bundle")
     @PreAuthorize("hasRole('ROLE_USER')")
-    public ResponseEntity<?> getPreKeyBundle(@PathVariable Long userId) {
-        Map<String, String> bundle = encryptionService.getPreKeyBundle(userId);
+    public ResponseEntity<?> getPreKeyBundle(@PathVariable Long userId, HttpServletRequest httpRequest) {
+        Map<String, String> bundle = encryptionService.getPreKeyBundle(userId,
+                userContextResolver.resolveUserId(httpRequest));
         if (bundle == null || bundle.isEmpty()
                 || bundle.get("identityKey") == null || bundle.get("identityKey").isEmpty()
                 || bundle.get("signedPreKey") == null || bundle.get("signedPreKey").isEmpty()
@@ -346,23 +380,76 @@ public class UserController {
     /**
      * Получить PreKeyBundleProtocol для протокола Double Ratchet.
      *
-     * @param userId ID пользователя
-     * @return расширенный bundle с разобранным списком oneTimePreKeys или 404
+     * @param userId      ID пользователя
+     * @param httpRequest HTTP-запрос для определения запрашивающего
+     * @return расширенный bundle со списком из выданного одноразового ключа или 404
      */
     @GetMapping("/{userId}/prekey-bundle-protocol")
     @PreAuthorize("hasRole('ROLE_USER')")
-    public ResponseEntity<?> getPreKeyBundleProtocol(@PathVariable Long userId) {
-        Map<String, Object> bundle = encryptionService.getPreKeyBundleProtocol(userId);
-        Object oneTimePreKeysObj = bundle.get("oneTimePreKeys");
+    public ResponseEntity<?> getPreKeyBundleProtocol(@PathVariable Long userId, HttpServletRequest httpRequest) {
+        Map<String, Object> bundle = encryptionService.getPreKeyBundleProtocol(userId,
+                userContextResolver.resolveUserId(httpRequest));
+        // Пустой oneTimePreKeys допустим: запас исчерпан, X3DH обходится без одноразового ключа
         if (bundle.isEmpty()
                 || bundle.get("identityKey") == null || ((String) bundle.get("identityKey")).isEmpty()
                 || bundle.get("signedPreKey") == null || ((String) bundle.get("signedPreKey")).isEmpty()
-                || !(oneTimePreKeysObj instanceof List) || ((List<?>) oneTimePreKeysObj).isEmpty()) {
+                || !(bundle.get("oneTimePreKeys") instanceof List)) {
             return ResponseEntity.notFound().build();
         }
         return ResponseEntity.ok(bundle);
     }
 
+    /**
+     * Получить X3DH prekey bundle в компактном бинарном формате
+     * (см. {@code EncryptionServiceImpl#encodeBundle}). Выдаёт одноразовый ключ так же, как JSON-вариант.
+     *
+     * @param userId      ID пользователя
+     * @param httpRequest HTTP-запрос для определения запрашивающего
+     * @return bundle в {@code application/octet-stream}
+     */
+    @GetMapping(value = "/{userId}/prekey-bundle-binary", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @PreAuthorize("hasRole('ROLE_USER')")
+    public ResponseEntity<byte[]> getPreKeyBundleBinary(@PathVariable Long userId, HttpServletRequest httpRequest) {
+        return ResponseEntity.ok(encryptionService.getPreKeyBundleBinary(userId,
+                userContextResolver.resolveUserId(httpRequest)));
+    }
+
+    /**
+     * Догрузить одноразовые prekey (обычно в ответ на уведомление {@code PREKEYS_LOW}).
+     *
+     * @param userId ID пользователя
+     * @param body   тело запроса: {@code { "keys": ["base64", ...] }}
+     * @return {@code { "available": N }} — запас после загрузки; 403, если запас чужой
+     */
+    @PostMapping("/{userId}/one-time-prekeys")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    public ResponseEntity<?> uploadOneTimePreKeys(
+            @PathVariable Long userId,
+            @RequestBody Map<String, List<String>> body,
+            HttpServletRequest httpRequest) {
+        if (!isOwner(userId, httpRequest)) {
+            return forbiddenKeys();
+        }
+        try {
+            long available = encryptionService.uploadOneTimePreKeys(userId, body.get("keys"));
+            return ResponseEntity.ok(Map.of("available", available));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Сколько одноразовых prekey пользователя ещё не выдано.
+     *
+     * @param userId ID пользователя
+     * @return {@code { "available": N }}
+     */
+    @GetMapping("/{userId}/one-time-prekeys/count")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    public ResponseEntity<?> countOneTimePreKeys(@PathVariable Long userId) {
+        return ResponseEntity.ok(Map.of("available", encryptionService.countOneTimePreKeys(userId)));
+    }
+
     /**
      * Сохранить зашифрованный бекап E2EE-ключей текущего пользователя.
      * Сервер хранит только зашифрованный blob — пароль шифрования серверу неизвестен.
@@ -421,4 +508,39 @@ public class UserController {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
+
+    /**
+     * Ключи пользователя может менять только он сам: подменённый чужой ключ
+     * позволил бы читать переписку с этим пользователем.
+     *
+     * @param userId      владелец ключей из пути
+     * @param httpRequest HTTP-запрос с подписанной Gateway идентичностью или JWT
+     * @return {@code true}, если запрос от владельца
+     */
+    private boolean isOwner(Long userId, HttpServletRequest httpRequest) {
+        Long requesterId = userContextResolver.resolveUserId(httpRequest);
+        if (!userId.equals(requesterId)) {
+            log.warn("Пользователь {} пытался изменить ключи пользователя {}", requesterId, userId);
+            return false;
+        }
+        return true;
+    }
+
+    private static ResponseEntity<Map<String, String>> forbiddenKeys() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Можно изменять только собственные ключи"));
+    }
+
+    /**
+     * ETag профиля по времени последнего изменения пользователя.
+     *
+     * @param userId ID пользователя
+     * @return ETag или {@code null}, если версия неизвестна
+     */
+    private String profileETag(Long userId) {
+        Optional<LocalDateTime> version = userService.getProfileVersion(userId);
+        return version
+                .map(updatedAt -> "W/\"profile-" + userId + "-"
+                        + updatedAt.toInstant(ZoneOffset.UTC).toEpochMilli() + "\"")
+                .orElse(null);
+    }
 }
@@ -0,0 +1,23 @@
+package com.messenger.core.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Перцентили задержки одного метода сервиса или запроса репозитория (в миллисекундах).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LatencyStatsDto {
+    private String name;
+    private String kind;
+    private long count;
+    private double meanMs;
+    private double p50Ms;
+    private double p90Ms;
+    private double p99Ms;
+    private double p999Ms;
+    private double maxMs;
+}
@@ -0,0 +1,38 @@
+package com.messenger.core.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Изменения для клиента после токена синхронизации ({@code GET /api/sync?since=}).
+ * <p>
+ * Клиент применяет дельту идемпотентно (upsert по id): из-за перекрытия окна одно и то же
+ * изменение может прийти дважды. Если {@code fullResync} — дельта недоступна, и клиент
+ * загружает список чатов и историю заново.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncDto {
+
+    /** Токен для следующего запроса */
+    private String token;
+
+    /** Дельту выдать нельзя: токена нет, он устарел или изменений слишком много */
+    private boolean fullResync;
+
+    /** Все текущие чаты пользователя: чаты, которых здесь нет, клиент удаляет у себя */
+    private List<Long> chatIds;
+
+    /** Изменившиеся чаты (новое сообщение, переименование, участники, непрочитанные) */
+    private List<ChatDto> chats;
+
+    /** Новые, отредактированные и удалённые ({@code isDeleted}) сообщения */
+    private List<MessageDto> messages;
+
+    /** Новые отметки о прочтении */
+    private List<MessageReadStatusDto> readStatuses;
+}
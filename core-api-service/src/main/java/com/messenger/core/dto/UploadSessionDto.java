@@ -0,0 +1,24 @@
+package com.messenger.core.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Состояние chunked-загрузки. Клиент после обрыва соединения
+ * запрашивает его и продолжает отправку с receivedBytes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionDto {
+    private String uploadId;
+    private Long chatId;
+    private String fileName;
+    private Long fileSize;
+    private Long receivedBytes;
+    private Integer maxChunkSize;
+    private LocalDateTime expiresAt;
+}
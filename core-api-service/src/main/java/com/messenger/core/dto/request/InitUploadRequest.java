@@ -0,0 +1,24 @@
+package com.messenger.core.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+@Data
+public class InitUploadRequest {
+    @NotNull
+    private Long chatId;
+
+    @NotBlank
+    private String fileName;
+
+    @NotBlank
+    private String mimeType;
+
+    @NotNull
+    @Positive
+    private Long fileSize;
+
+    private String caption;
+}
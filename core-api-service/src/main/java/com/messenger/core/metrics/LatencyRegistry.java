@@ -0,0 +1,106 @@
+package com.messenger.core.metrics;
+
+import com.messenger.core.dto.LatencyStatsDto;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Реестр гистограмм задержек по методам сервисов и запросам репозиториев.
+ * <p>
+ * Ключ — пара (класс бина, {@link Method}); имя метрики строится один раз при первой
+ * записи, а не на каждом вызове.
+ */
+@Component
+public class LatencyRegistry {
+
+    /** Тип замеряемого вызова */
+    public enum Kind { SERVICE, REPOSITORY }
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final Map<MethodKey, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * Найти или создать таймер для метода.
+     *
+     * @param kind   тип вызова
+     * @param type   класс бина, через который вызван метод
+     * @param method вызванный метод
+     * @param naming построение имени метрики (вызывается только при создании таймера)
+     * @return таймер метода
+     */
+    public Timer timer(Kind kind, Class<?> type, Method method, Function<MethodKey, String> naming) {
+        MethodKey key = new MethodKey(type, method);
+        Timer timer = timers.get(key);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(key, k -> new Timer(naming.apply(k), kind));
+        }
+        return timer;
+    }
+
+    /**
+     * Снимки всех гистограмм, от самого медленного p99 к самому быстрому.
+     *
+     * @param kind  фильтр по типу вызова ({@code null} — все)
+     * @param limit максимальное количество записей
+     */
+    public List<LatencyStatsDto> snapshot(Kind kind, int limit) {
+        return timers.values().stream()
+                .filter(timer -> kind == null || timer.kind == kind)
+                .map(Timer::toDto)
+                .filter(stats -> stats.getCount() > 0)
+                .sorted(Comparator.comparingDouble(LatencyStatsDto::getP99Ms).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Сбросить все накопленные измерения.
+     */
+    public void reset() {
+        timers.clear();
+    }
+
+    /** Ключ таймера: класс бина и метод */
+    public record MethodKey(Class<?> type, Method method) {
+    }
+
+    /**
+     * Гистограмма одного метода вместе с его именем.
+     */
+    public static final class Timer {
+        private final String name;
+        private final Kind kind;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private Timer(String name, Kind kind) {
+            this.name = name;
+            this.kind = kind;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void record(long nanos) {
+            histogram.record(nanos);
+        }
+
+        private LatencyStatsDto toDto() {
+            LatencyHistogram.Snapshot s = histogram.snapshot();
+            return new LatencyStatsDto(name, kind.name(), s.getCount(),
+                    s.getMeanNanos() / NANOS_PER_MILLI,
+                    s.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                    s.getValueAtPercentile(90) / NANOS_PER_MILLI,
+                    s.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                    s.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+                    s.getMaxNanos() / NANOS_PER_MILLI);
+        }
+    }
+}
@@ -8,15 +8,26 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+        // История чата по времени
+        @Index(name = "idx_messages_chat_created_at", columnList = "chat_id, created_at"),
+        // Последнее сообщение и непрочитанные чата
+        @Index(name = "idx_messages_chat_id_id", columnList = "chat_id, id"),
+        // Дельта синхронизации: изменения сообщений чата после момента
+        @Index(name = "idx_messages_chat_updated_at", columnList = "chat_id, updated_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @EqualsAndHashCode(exclude = {"sender", "chat", "replyToMessage"})
 public class Message {
 
+    // Таблица секционирована по chat_id (см. db/migration/V3__partition_messages.sql): первичный ключ (id, chat_id).
+    // Идентификатор из последовательности, чтобы вставки шли JDBC-батчами. Каждый экземпляр берёт свой пул
+    // из 50 значений, поэтому между экземплярами id не монотонен: порядок сообщений — по created_at, id
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "messages_seq")
+    @SequenceGenerator(name = "messages_seq", sequenceName = "messages_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "content", nullable = false, columnDefinition = "TEXT")
@@ -64,9 +75,10 @@ public class Message {
     @JoinColumn(name = "chat_id", nullable = false)
     private Chat chat;
 
-    // Ссылка на отвечаемое сообщение (для функции ответа)
+    // Ссылка на отвечаемое сообщение (для функции ответа).
+    // Без внешнего ключа: на секционированную таблицу можно сослаться только по (id, chat_id)
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "reply_to_message_id")
+    @JoinColumn(name = "reply_to_message_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Message replyToMessage;
 
     @PrePersist
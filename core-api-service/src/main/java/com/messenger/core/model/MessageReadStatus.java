@@ -8,7 +8,8 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "message_read_status",
-       uniqueConstraints = @UniqueConstraint(columnNames = {"message_id", "user_id"}))
+       uniqueConstraints = @UniqueConstraint(columnNames = {"message_id", "user_id"}),
+       indexes = @Index(name = "idx_message_read_status_read_at", columnList = "read_at"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -18,8 +19,9 @@ public class MessageReadStatus {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Без внешнего ключа: messages секционирована, уникален только (id, chat_id)
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "message_id", nullable = false)
+    @JoinColumn(name = "message_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Message message;
 
     @ManyToOne(fetch = FetchType.LAZY)
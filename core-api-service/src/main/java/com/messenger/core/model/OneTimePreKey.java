@@ -0,0 +1,51 @@
+package com.messenger.core.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Одноразовый prekey X3DH. Каждая строка выдаётся ровно одному собеседнику и удаляется при выдаче.
+ * <p>
+ * Пользователь хранится как {@code user_id} без связи с {@link User}: выдача ключа не читает
+ * и не блокирует строку {@code users}. Идентификатор — из последовательности, чтобы загрузка
+ * сотен ключей шла JDBC-батчами (при IDENTITY Hibernate вставляет по одной строке).
+ */
+@Entity
+@Table(name = "one_time_prekeys",
+       indexes = @Index(name = "idx_one_time_prekeys_user_id", columnList = "user_id, id"),
+       uniqueConstraints = @UniqueConstraint(name = "uq_one_time_prekeys_user_key", columnNames = {"user_id", "public_key"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OneTimePreKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "one_time_prekeys_seq")
+    @SequenceGenerator(name = "one_time_prekeys_seq", sequenceName = "one_time_prekeys_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /** Публичный ключ в Base64 (uncompressed EC-точка, 65 байт) */
+    @Column(name = "public_key", nullable = false, length = 255)
+    private String publicKey;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public OneTimePreKey(Long userId, String publicKey) {
+        this.userId = userId;
+        this.publicKey = publicKey;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
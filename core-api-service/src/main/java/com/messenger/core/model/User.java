@@ -10,6 +10,13 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * Ядро пользователя: учётные данные, имя, аватар, присутствие.
+ * <p>
+ * Сущность подгружается для каждого отправителя сообщения и участника чата, поэтому в строке
+ * нет TEXT-полей: ключи E2EE — в {@link UserKeys} и {@link OneTimePreKey}, бекап ключей —
+ * в {@link UserKeyBackup}, bio — в {@link UserProfile}.
+ */
 @Entity
 @Table(name = "users")
 @Data
@@ -40,9 +47,6 @@ public class User {
     @Column(name = "profile_picture_url")
     private String profilePictureUrl;
 
-    @Column(columnDefinition = "TEXT")
-    private String bio;
-
     @Column(name = "is_online")
     private Boolean isOnline = false;
 
@@ -55,30 +59,6 @@ public class User {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
-    @Column(name = "public_key", columnDefinition = "TEXT")
-    private String publicKey;
-
-    @Column(name = "identity_key", columnDefinition = "TEXT")
-    private String identityKey;
-
-    @Column(name = "signed_prekey", columnDefinition = "TEXT")
-    private String signedPreKey;
-
-    @Column(name = "signed_prekey_signature", columnDefinition = "TEXT")
-    private String signedPreKeySignature;
-
-    @Column(name = "one_time_prekeys", columnDefinition = "TEXT") // JSON-массив
-    private String oneTimePreKeys;
-
-    /**
-     * Зашифрованный бекап приватных ключей E2EE.
-     * Хранится в формате JSON: { iv, salt, ciphertext } — всё в Base64.
-     * Ключ шифрования (KEK) производится из пароля пользователя только на клиенте.
-     * Сервер не знает пароль и не может расшифровать данные.
-     */
-    @Column(name = "encrypted_key_backup", columnDefinition = "TEXT")
-    private String encryptedKeyBackup;
-
     // Чаты, в которых участвует пользователь
     @ManyToMany(mappedBy = "participants", fetch = FetchType.LAZY)
     @BatchSize(size = 16)
@@ -0,0 +1,37 @@
+package com.messenger.core.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Зашифрованный бекап приватных ключей E2EE.
+ * Хранится в формате JSON: { iv, salt, ciphertext } — всё в Base64.
+ * Ключ шифрования (KEK) производится из пароля пользователя только на клиенте.
+ * Сервер не знает пароль и не может расшифровать данные.
+ */
+@Entity
+@Table(name = "user_key_backups")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserKeyBackup {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "encrypted_payload", columnDefinition = "TEXT", nullable = false)
+    private String encryptedPayload;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,50 @@
+package com.messenger.core.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Публичные ключи E2EE пользователя (identity, signed prekey X3DH).
+ * <p>
+ * Вынесены из {@link User}: сущность пользователя грузится для каждого отправителя и участника
+ * чата, а ключи нужны только при установке сессии. Читает и пишет их только {@code EncryptionServiceImpl}.
+ */
+@Entity
+@Table(name = "user_keys")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserKeys {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "public_key", columnDefinition = "TEXT")
+    private String publicKey;
+
+    @Column(name = "identity_key", columnDefinition = "TEXT")
+    private String identityKey;
+
+    @Column(name = "signed_prekey", columnDefinition = "TEXT")
+    private String signedPreKey;
+
+    @Column(name = "signed_prekey_signature", columnDefinition = "TEXT")
+    private String signedPreKeySignature;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public UserKeys(Long userId) {
+        this.userId = userId;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,25 @@
+package com.messenger.core.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Редко читаемые поля профиля. Нужны только на странице профиля,
+ * поэтому не раздувают строку {@code users}, которая читается в каждом списке чатов.
+ */
+@Entity
+@Table(name = "user_profiles")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserProfile {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(columnDefinition = "TEXT")
+    private String bio;
+}
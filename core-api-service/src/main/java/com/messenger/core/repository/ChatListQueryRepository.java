@@ -0,0 +1,176 @@
+package com.messenger.core.repository;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.messenger.core.dto.ChatDto;
+import com.messenger.core.dto.MessageDto;
+import com.messenger.core.dto.UserDto;
+import com.messenger.core.model.Chat;
+import com.messenger.core.model.Message;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Список чатов пользователя одним SQL-запросом, строки сразу в {@link ChatDto}.
+ * <p>
+ * Для каждого чата, где пользователь — участник, LATERAL-подзапросы собирают участников
+ * (JSON-массивом), последнее неудалённое сообщение с отправителем, число его прочтений
+ * и счётчик непрочитанных. Сущности Hibernate не создаются, persistence context не растёт,
+ * число запросов не зависит от количества чатов.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ChatListQueryRepository {
+
+    /** Карточка пользователя JSON-объектом в форме {@link UserDto} */
+    private static String userJson(String alias) {
+        return "json_build_object('id', " + alias + ".id, 'username', " + alias + ".username, "
+                + "'email', " + alias + ".email, 'firstName', " + alias + ".first_name, "
+                + "'lastName', " + alias + ".last_name, 'profilePictureUrl', " + alias + ".profile_picture_url, "
+                + "'isOnline', " + alias + ".is_online, 'lastSeen', " + alias + ".last_seen)";
+    }
+
+    // Без private: план запроса проверяет QueryPlanTest
+    static final String SELECT_USER_CHATS =
+            "SELECT c.id, c.chat_name, c.chat_type, c.chat_description, c.chat_avatar_url, "
+            + "       c.created_at, c.last_message_at, "
+            + "       (SELECT " + userJson("cb") + "::text FROM users cb WHERE cb.id = c.created_by_user_id) AS created_by, "
+            + "       p.participants, "
+            + "       lm.id AS lm_id, lm.content AS lm_content, lm.message_type AS lm_type, lm.is_edited AS lm_edited, "
+            + "       lm.created_at AS lm_created_at, lm.updated_at AS lm_updated_at, lm.file_url AS lm_file_url, "
+            + "       lm.file_name AS lm_file_name, lm.file_size AS lm_file_size, lm.mime_type AS lm_mime_type, "
+            + "       lm.thumbnail_url AS lm_thumbnail_url, lm.sender AS lm_sender, lm.read_count AS lm_read_count, "
+            + "       unread.cnt AS unread_count "
+            + "FROM chat_participants me "
+            + "JOIN chats c ON c.id = me.chat_id "
+            + "LEFT JOIN LATERAL ("
+            + "    SELECT json_agg(" + userJson("pu") + " ORDER BY pu.id)::text AS participants "
+            + "    FROM chat_participants cp JOIN users pu ON pu.id = cp.user_id "
+            + "    WHERE cp.chat_id = c.id"
+            + ") p ON true "
+            + "LEFT JOIN LATERAL ("
+            + "    SELECT m.*, " + userJson("su") + "::text AS sender, "
+            + "           (SELECT COUNT(*) FROM message_read_status r WHERE r.message_id = m.id) AS read_count "
+            + "    FROM messages m LEFT JOIN users su ON su.id = m.sender_id "
+            + "    WHERE m.chat_id = c.id AND m.is_deleted = false "
+            + "    ORDER BY m.created_at DESC, m.id DESC LIMIT 1"
+            + ") lm ON true "
+            + "LEFT JOIN LATERAL ("
+            + "    SELECT COUNT(*) AS cnt FROM messages m "
+            + "    WHERE m.chat_id = c.id AND m.sender_id <> :userId AND m.is_deleted = false "
+            + "      AND NOT EXISTS (SELECT 1 FROM message_read_status r "
+            + "                      WHERE r.message_id = m.id AND r.user_id = :userId)"
+            + ") unread ON true "
+            + "WHERE me.user_id = :userId ";
+
+    static final String ORDER_BY = "ORDER BY c.last_message_at DESC NULLS LAST, c.id DESC";
+
+    private static final TypeReference<List<UserDto>> USER_LIST = new TypeReference<>() {};
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Все чаты пользователя, свежие сверху.
+     */
+    public List<ChatDto> findUserChats(Long userId) {
+        return jdbcTemplate.query(SELECT_USER_CHATS + ORDER_BY,
+                new MapSqlParameterSource("userId", userId),
+                (rs, rowNum) -> mapRow(rs, userId));
+    }
+
+    /**
+     * Только перечисленные чаты пользователя (дельта синхронизации).
+     */
+    public List<ChatDto> findUserChats(Long userId, Collection<Long> chatIds) {
+        if (chatIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(SELECT_USER_CHATS + "AND c.id IN (:chatIds) " + ORDER_BY,
+                new MapSqlParameterSource("userId", userId).addValue("chatIds", chatIds),
+                (rs, rowNum) -> mapRow(rs, userId));
+    }
+
+    private ChatDto mapRow(ResultSet rs, Long userId) throws SQLException {
+        ChatDto dto = new ChatDto();
+        dto.setId(rs.getLong("id"));
+        dto.setChatName(rs.getString("chat_name"));
+        dto.setChatType(Chat.ChatType.valueOf(rs.getString("chat_type")));
+        dto.setChatDescription(rs.getString("chat_description"));
+        dto.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at")));
+        dto.setLastMessageAt(toLocalDateTime(rs.getTimestamp("last_message_at")));
+        dto.setCreatedBy(readJson(rs.getString("created_by"), UserDto.class));
+
+        String participants = rs.getString("participants");
+        dto.setParticipants(participants != null ? readJson(participants, USER_LIST) : List.of());
+
+        // Для личного чата аватар — аватар собеседника, если он задан
+        String avatarUrl = rs.getString("chat_avatar_url");
+        if (dto.getChatType() == Chat.ChatType.PRIVATE) {
+            avatarUrl = dto.getParticipants().stream()
+                    .filter(participant -> !participant.getId().equals(userId))
+                    .map(UserDto::getProfilePictureUrl)
+                    .filter(url -> url != null)
+                    .findFirst()
+                    .orElse(avatarUrl);
+        }
+        dto.setChatAvatarUrl(avatarUrl);
+
+        long lastMessageId = rs.getLong("lm_id");
+        if (!rs.wasNull()) {
+            MessageDto message = new MessageDto();
+            message.setId(lastMessageId);
+            message.setChatId(dto.getId());
+            message.setContent(rs.getString("lm_content"));
+            message.setMessageType(Message.MessageType.valueOf(rs.getString("lm_type")));
+            message.setIsEdited(rs.getBoolean("lm_edited"));
+            message.setIsDeleted(false);
+            message.setCreatedAt(toLocalDateTime(rs.getTimestamp("lm_created_at")));
+            message.setUpdatedAt(toLocalDateTime(rs.getTimestamp("lm_updated_at")));
+            message.setFileUrl(rs.getString("lm_file_url"));
+            message.setFileName(rs.getString("lm_file_name"));
+            long fileSize = rs.getLong("lm_file_size");
+            message.setFileSize(rs.wasNull() ? null : fileSize);
+            message.setMimeType(rs.getString("lm_mime_type"));
+            message.setThumbnailUrl(rs.getString("lm_thumbnail_url"));
+            message.setSender(readJson(rs.getString("lm_sender"), UserDto.class));
+            message.setReadCount(rs.getInt("lm_read_count"));
+            dto.setLastMessage(message);
+        }
+
+        dto.setUnreadCount(rs.getInt("unread_count"));
+        return dto;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private <T> T readJson(String json, Class<T> type) throws SQLException {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (Exception e) {
+            throw new SQLException("Некорректный JSON в строке списка чатов", e);
+        }
+    }
+
+    private <T> T readJson(String json, TypeReference<T> type) throws SQLException {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (Exception e) {
+            throw new SQLException("Некорректный JSON в строке списка чатов", e);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -63,4 +64,14 @@ public interface ChatRepository extends JpaRepository<Chat, Long> {
     // Поиск чатов по названию для пользователя
     @Query("SELECT c FROM Chat c JOIN c.participants p WHERE p.id = :userId AND LOWER(c.chatName) LIKE LOWER(CONCAT('%', :name, '%'))")
     List<Chat> searchChatsByName(@Param("name") String name, @Param("userId") Long userId);
+
+    // ID всех чатов пользователя
+    @Query("SELECT c.id FROM Chat c JOIN c.participants p WHERE p.id = :userId")
+    List<Long> findChatIdsByUserId(@Param("userId") Long userId);
+
+    // ID чатов пользователя, изменившихся после момента синхронизации
+    @Query("SELECT c.id FROM Chat c JOIN c.participants p WHERE p.id = :userId " +
+           "AND (c.updatedAt > :since OR c.lastMessageAt > :since)")
+    List<Long> findChatIdsByUserIdChangedSince(@Param("userId") Long userId,
+                                               @Param("since") LocalDateTime since);
 }
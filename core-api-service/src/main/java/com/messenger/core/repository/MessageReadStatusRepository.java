@@ -1,11 +1,14 @@
 package com.messenger.core.repository;
 
 import com.messenger.core.model.MessageReadStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -92,4 +95,25 @@ public interface MessageReadStatusRepository extends JpaRepository<MessageReadSt
            "AND NOT EXISTS (SELECT 1 FROM MessageReadStatus mrs WHERE mrs.message.id = m.id AND mrs.user.id = :userId) " +
            "GROUP BY m.chat.id")
     List<Object[]> countUnreadMessagesForChats(@Param("chatIds") List<Long> chatIds, @Param("userId") Long userId);
+
+    /**
+     * Отметки о прочтении в чатах после момента синхронизации
+     */
+    @Query("SELECT mrs FROM MessageReadStatus mrs " +
+           "LEFT JOIN FETCH mrs.user " +
+           "JOIN FETCH mrs.message m " +
+           "WHERE m.chat.id IN :chatIds AND mrs.readAt > :since " +
+           "ORDER BY mrs.readAt ASC")
+    List<MessageReadStatus> findReadSinceInChats(@Param("chatIds") List<Long> chatIds,
+                                                 @Param("since") LocalDateTime since,
+                                                 Pageable pageable);
+
+    /**
+     * Удалить статусы прочтения всех сообщений чата. Внешнего ключа на секционированную
+     * таблицу messages нет (V3), поэтому при удалении чата их нужно убрать явно
+     */
+    @Modifying
+    @Query("DELETE FROM MessageReadStatus mrs WHERE mrs.message.id IN (" +
+           "SELECT m.id FROM Message m WHERE m.chat.id = :chatId)")
+    int deleteByChatId(@Param("chatId") Long chatId);
 }
@@ -8,7 +8,9 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
@@ -58,19 +60,48 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     @Query("SELECT COUNT(m) FROM Message m WHERE m.chat.id = :chatId AND m.isDeleted = false")
     Long countMessagesByChatId(@Param("chatId") Long chatId);
 
+    // Сообщение по ID внутри известного чата: условие на chat_id сводит поиск к одной секции
+    @Query("SELECT m FROM Message m WHERE m.id = :id AND m.chat.id = :chatId")
+    Optional<Message> findByIdAndChatId(@Param("id") Long id, @Param("chatId") Long chatId);
+
+    // Сообщения с отправителями по ID внутри известного чата — одна секция, как findByIdAndChatId
+    @Query("SELECT m FROM Message m " +
+           "LEFT JOIN FETCH m.sender " +
+           "WHERE m.chat.id = :chatId AND m.id IN :messageIds")
+    List<Message> findMessagesByIdsInChatWithSender(@Param("chatId") Long chatId,
+                                                    @Param("messageIds") List<Long> messageIds);
+
     // Batch loading для сообщений с отправителями
     @Query("SELECT m FROM Message m " +
            "LEFT JOIN FETCH m.sender " +
            "WHERE m.id IN :messageIds")
     List<Message> findMessagesByIdsWithSender(@Param("messageIds") List<Long> messageIds);
 
-    // Найти последние сообщения для списка чатов
+    // Найти последние сообщения для списка чатов. Идентификаторы выдаются пулами по экземплярам и не растут
+    // монотонно, поэтому последнее ищется по created_at; при равном времени побеждает больший id — он идёт последним
     @Query("SELECT DISTINCT m1 FROM Message m1 " +
            "LEFT JOIN FETCH m1.sender " +
-           "WHERE m1.id IN (" +
-           "  SELECT MAX(m2.id) FROM Message m2 " +
+           "WHERE m1.isDeleted = false AND (m1.chat.id, m1.createdAt) IN (" +
+           "  SELECT m2.chat.id, MAX(m2.createdAt) FROM Message m2 " +
            "  WHERE m2.chat.id IN :chatIds AND m2.isDeleted = false " +
            "  GROUP BY m2.chat.id" +
-           ")")
+           ") " +
+           "ORDER BY m1.createdAt ASC, m1.id ASC")
     List<Message> findLastMessagesByChatIds(@Param("chatIds") List<Long> chatIds);
+
+    // Последнее неудалённое сообщение одного чата (индекс chat_id, created_at, без загрузки всей истории)
+    @Query("SELECT m FROM Message m " +
+           "LEFT JOIN FETCH m.sender " +
+           "WHERE m.chat.id = :chatId AND m.isDeleted = false " +
+           "ORDER BY m.createdAt DESC, m.id DESC LIMIT 1")
+    Optional<Message> findLastMessageByChatId(@Param("chatId") Long chatId);
+
+    // Новые, изменённые и удалённые сообщения чатов после момента синхронизации (индекс chat_id, updated_at)
+    @Query("SELECT m FROM Message m " +
+           "LEFT JOIN FETCH m.sender " +
+           "WHERE m.chat.id IN :chatIds AND m.updatedAt > :since " +
+           "ORDER BY m.updatedAt ASC, m.id ASC")
+    List<Message> findChangedSinceInChats(@Param("chatIds") List<Long> chatIds,
+                                          @Param("since") LocalDateTime since,
+                                          Pageable pageable);
 }
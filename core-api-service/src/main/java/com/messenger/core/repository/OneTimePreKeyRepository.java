@@ -0,0 +1,55 @@
+package com.messenger.core.repository;
+
+import com.messenger.core.model.OneTimePreKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OneTimePreKeyRepository extends JpaRepository<OneTimePreKey, Long> {
+
+    /**
+     * Атомарно забрать самый старый ключ пользователя.
+     * <p>
+     * {@code SKIP LOCKED}: параллельные выдачи берут разные строки и не ждут друг друга;
+     * {@code DELETE ... RETURNING} — выдача и удаление одним запросом, ключ не достанется двоим.
+     * {@code remaining} считается по снимку до удаления, поэтому минус один.
+     */
+    @Query(value = "WITH claimed AS (" +
+                   "  DELETE FROM one_time_prekeys WHERE id = (" +
+                   "    SELECT id FROM one_time_prekeys WHERE user_id = :userId " +
+                   "    ORDER BY id LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+                   "  RETURNING id, public_key) " +
+                   "SELECT c.id AS \"id\", c.public_key AS \"publicKey\", " +
+                   "  (SELECT COUNT(*) FROM one_time_prekeys k WHERE k.user_id = :userId) - 1 AS \"remaining\" " +
+                   "FROM claimed c",
+           nativeQuery = true)
+    Optional<ClaimedPreKey> claimOne(@Param("userId") Long userId);
+
+    long countByUserId(Long userId);
+
+    /** Какие из ключей уже есть в запасе пользователя */
+    @Query("SELECT k.publicKey FROM OneTimePreKey k WHERE k.userId = :userId AND k.publicKey IN :keys")
+    List<String> findStoredPublicKeys(@Param("userId") Long userId, @Param("keys") Collection<String> keys);
+
+    @Modifying
+    @Query("DELETE FROM OneTimePreKey k WHERE k.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    /**
+     * Выданный ключ и сколько ключей пользователя осталось после выдачи.
+     */
+    interface ClaimedPreKey {
+        Long getId();
+
+        String getPublicKey();
+
+        Long getRemaining();
+    }
+}
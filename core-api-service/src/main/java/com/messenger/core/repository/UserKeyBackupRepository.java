@@ -0,0 +1,9 @@
+package com.messenger.core.repository;
+
+import com.messenger.core.model.UserKeyBackup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserKeyBackupRepository extends JpaRepository<UserKeyBackup, Long> {
+}
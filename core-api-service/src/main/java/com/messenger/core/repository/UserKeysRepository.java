@@ -0,0 +1,9 @@
+package com.messenger.core.repository;
+
+import com.messenger.core.model.UserKeys;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserKeysRepository extends JpaRepository<UserKeys, Long> {
+}
@@ -0,0 +1,9 @@
+package com.messenger.core.repository;
+
+import com.messenger.core.model.UserProfile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserProfileRepository extends JpaRepository<UserProfile, Long> {
+}
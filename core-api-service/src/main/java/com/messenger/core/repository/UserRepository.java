@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +28,53 @@ public interface UserRepository extends JpaRepository<User, Long> {
            "(f.requester.id = :userId OR f.receiver.id = :userId) AND f.status = 'ACCEPTED'")
     List<User> findFriendsByUserId(@Param("userId") Long userId);
 
+    // Только отметка изменения профиля — для ETag без загрузки сущности
+    @Query("SELECT u.updatedAt FROM User u WHERE u.id = :id")
+    Optional<LocalDateTime> findUpdatedAtById(@Param("id") Long id);
+
     // Проверить, существует ли пользователь с данным username или email
     boolean existsByUsernameOrEmail(String username, String email);
+
+    // Те же выборки без сущностей: только колонки карточки, ничего не попадает в persistence context
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email, u.firstName AS firstName, u.lastName AS lastName, " +
+           "u.profilePictureUrl AS profilePictureUrl, u.isOnline AS isOnline, u.lastSeen AS lastSeen " +
+           "FROM User u WHERE " +
+           "LOWER(u.username) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
+           "LOWER(u.firstName) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
+           "LOWER(u.lastName) LIKE LOWER(CONCAT('%', :query, '%'))")
+    List<UserSummary> searchUserSummaries(@Param("query") String query);
+
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email, u.firstName AS firstName, u.lastName AS lastName, " +
+           "u.profilePictureUrl AS profilePictureUrl, u.isOnline AS isOnline, u.lastSeen AS lastSeen " +
+           "FROM User u WHERE u.id <> :excludedId ORDER BY u.id")
+    List<UserSummary> findAllSummariesExcept(@Param("excludedId") Long excludedId);
+
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email, u.firstName AS firstName, u.lastName AS lastName, " +
+           "u.profilePictureUrl AS profilePictureUrl, u.isOnline AS isOnline, u.lastSeen AS lastSeen " +
+           "FROM Friendship f JOIN User u ON u.id = CASE WHEN f.requester.id = :userId " +
+           "THEN f.receiver.id ELSE f.requester.id END " +
+           "WHERE (f.requester.id = :userId OR f.receiver.id = :userId) AND f.status = 'ACCEPTED'")
+    List<UserSummary> findFriendSummariesByUserId(@Param("userId") Long userId);
+
+    /**
+     * Карточка пользователя для списков (поиск, друзья, все пользователи): read-only проекция
+     * без пароля, TEXT-полей и связей.
+     */
+    interface UserSummary {
+        Long getId();
+
+        String getUsername();
+
+        String getEmail();
+
+        String getFirstName();
+
+        String getLastName();
+
+        String getProfilePictureUrl();
+
+        Boolean getIsOnline();
+
+        LocalDateTime getLastSeen();
+    }
 }
@@ -0,0 +1,93 @@
+package com.messenger.core.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * Проверка подписанных заголовков идентичности, которые проставляет Gateway
+ * после того, как сам проверил JWT.
+ * <p>
+ * Подпись — HMAC-SHA256 над {@code userId \n username \n timestamp} общим секретом
+ * {@code gateway.identity.secret}. Если подпись верна и метка времени свежая,
+ * запрос аутентифицируется без повторной проверки JWT.
+ */
+@Component
+@Slf4j
+public class GatewayIdentityVerifier {
+
+    public static final String USER_ID_HEADER = "X-User-Id";
+    public static final String USERNAME_HEADER = "X-Username";
+    public static final String TIMESTAMP_HEADER = "X-Identity-Timestamp";
+    public static final String SIGNATURE_HEADER = "X-Identity-Signature";
+
+    /** Атрибут запроса с ID пользователя, подтверждённым подписью Gateway */
+    public static final String VERIFIED_USER_ID_ATTRIBUTE = GatewayIdentityVerifier.class.getName() + ".userId";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final ThreadLocal<Mac> mac;
+    private final long maxClockSkewMillis;
+
+    public GatewayIdentityVerifier(@Value("${gateway.identity.secret}") String secret,
+                                   @Value("${gateway.identity.max-clock-skew-seconds:60}") long maxClockSkewSeconds) {
+        SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.maxClockSkewMillis = maxClockSkewSeconds * 1000;
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(ALGORITHM);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Не удалось инициализировать " + ALGORITHM, e);
+            }
+        });
+    }
+
+    /**
+     * Проверить заголовки идентичности Gateway.
+     *
+     * @param request входящий HTTP-запрос
+     * @return ID пользователя, если подпись верна; {@code null} если заголовков нет или они невалидны
+     */
+    public Long verify(HttpServletRequest request) {
+        String userIdHeader = request.getHeader(USER_ID_HEADER);
+        String username = request.getHeader(USERNAME_HEADER);
+        String timestampHeader = request.getHeader(TIMESTAMP_HEADER);
+        String signature = request.getHeader(SIGNATURE_HEADER);
+
+        if (userIdHeader == null || username == null || timestampHeader == null || signature == null) {
+            return null;
+        }
+
+        try {
+            long timestamp = Long.parseLong(timestampHeader);
+            if (Math.abs(System.currentTimeMillis() - timestamp) > maxClockSkewMillis) {
+                log.warn("Заголовки идентичности Gateway устарели (timestamp={})", timestamp);
+                return null;
+            }
+
+            Long userId = Long.parseLong(userIdHeader);
+            byte[] expected = mac.get().doFinal(
+                    (userId + "\n" + username + "\n" + timestamp).getBytes(StandardCharsets.UTF_8));
+            byte[] actual = Base64.getUrlDecoder().decode(signature);
+
+            if (!MessageDigest.isEqual(expected, actual)) {
+                log.warn("Неверная подпись заголовков идентичности для пользователя {}", userIdHeader);
+                return null;
+            }
+            return userId;
+        } catch (IllegalArgumentException e) {
+            log.warn("Некорректные заголовки идентичности Gateway: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -12,6 +12,7 @@ import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -85,6 +86,61 @@ public class FileStorageService {
         return fileInfo;
     }
 
+    /**
+     * Сохранить файл, собранный из чанков, в директорию чата.
+     * Файл перемещается (без копирования) из временной директории загрузок.
+     *
+     * @param assembledFile    временный файл с полностью полученными данными
+     * @param chatId           ID чата
+     * @param originalFileName исходное имя файла
+     * @param mimeType         MIME-тип файла
+     * @return информация о сохранённом файле
+     */
+    public FileInfo storeAssembledFile(Path assembledFile, Long chatId,
+                                       String originalFileName, String mimeType) throws IOException {
+        Path chatDir = Paths.get(uploadDir, "chat_" + chatId);
+        Files.createDirectories(chatDir);
+
+        String cleanName = StringUtils.cleanPath(originalFileName);
+        String storedFileName = UUID.randomUUID() + getFileExtension(cleanName);
+        Path targetLocation = chatDir.resolve(storedFileName);
+        long size = Files.size(assembledFile);
+
+        try {
+            Files.move(assembledFile, targetLocation, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(assembledFile, targetLocation, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        FileInfo fileInfo = new FileInfo();
+        fileInfo.setFileName(cleanName);
+        fileInfo.setStoredFileName(storedFileName);
+        fileInfo.setFileUrl("/api/files/chat_" + chatId + "/" + storedFileName);
+        fileInfo.setFileSize(size);
+        fileInfo.setMimeType(mimeType);
+
+        if (isImage(mimeType)) {
+            try {
+                String thumbnailName = createThumbnail(targetLocation, chatDir);
+                fileInfo.setThumbnailUrl("/api/files/chat_" + chatId + "/" + thumbnailName);
+            } catch (Exception e) {
+                log.error("Failed to create thumbnail for {}: {}", cleanName, e.getMessage());
+            }
+        }
+
+        log.info("Assembled file stored successfully: {} -> {}", cleanName, storedFileName);
+        return fileInfo;
+    }
+
+    /**
+     * Директория для незавершённых chunked-загрузок.
+     */
+    public Path getIncomingDir() throws IOException {
+        Path incoming = Paths.get(uploadDir, ".incoming");
+        Files.createDirectories(incoming);
+        return incoming;
+    }
+
     /**
      * Создать миниатюру для изображения
      */
@@ -203,17 +259,22 @@ public class FileStorageService {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("Файл пустой");
         }
+        validateFileMetadata(file.getOriginalFilename(), file.getContentType(), file.getSize());
+    }
 
-        if (file.getSize() > maxFileSize) {
+    /**
+     * Валидация метаданных файла (используется и для chunked-загрузок,
+     * когда содержимое ещё не получено)
+     */
+    public void validateFileMetadata(String fileName, String contentType, long size) {
+        if (size > maxFileSize) {
             throw new IllegalArgumentException("Размер файла превышает максимально допустимый: " + (maxFileSize / 1024 / 1024) + "MB");
         }
 
-        String contentType = file.getContentType();
         if (contentType == null || !isAllowedType(contentType)) {
             throw new IllegalArgumentException("Недопустимый тип файла: " + contentType);
         }
 
-        String fileName = file.getOriginalFilename();
         if (fileName == null || fileName.contains("..")) {
             throw new IllegalArgumentException("Недопустимое имя файла");
         }
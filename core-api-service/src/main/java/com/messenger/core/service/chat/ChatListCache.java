@@ -0,0 +1,313 @@
+package com.messenger.core.service.chat;
+
+import com.messenger.core.dto.ChatDto;
+import com.messenger.core.dto.UserDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Материализованный список чатов пользователя с версионным ETag.
+ * <p>
+ * Список собирается через {@code OptimizedDataService} один раз и отдаётся из памяти,
+ * пока не придёт событие, которое его меняет: новое сообщение, прочтение, изменение
+ * состава участников или профиля участника. Каждая сборка получает новую версию,
+ * из которой строится ETag — клиент с актуальной версией получает 304 без обращения к БД.
+ * <p>
+ * Инвалидация выполняется после коммита транзакции: иначе параллельный запрос может
+ * пересобрать список из ещё не закоммиченных данных и закешировать устаревшее состояние.
+ * <p>
+ * Память ограничена: списков не больше {@code max-entries} (LRU), каждый живёт не дольше
+ * {@code ttl-ms}, индексы зрителей повторяют закешированные списки, а отметки инвалидаций
+ * удаляются, как только не осталось сборок, начатых до них.
+ */
+@Component
+@Slf4j
+public class ChatListCache {
+
+    /** Отметок инвалидации, после которых они чистятся по самой старой незавершённой сборке */
+    private static final int STAMP_PRUNE_THRESHOLD = 1_024;
+
+    /** Списков в памяти; сверх лимита вытесняется давно не запрашивавшийся */
+    @Value("${app.chat-list-cache.max-entries:10000}")
+    private int maxEntries = 10_000;
+
+    /** Список старше этого пересобирается, даже если инвалидаций не было */
+    @Value("${app.chat-list-cache.ttl-ms:600000}")
+    private long ttlMs = 600_000;
+
+    /** Версия на старте: ETag, выданные до перезапуска, не совпадут с новыми */
+    private final AtomicLong versions = new AtomicLong(System.currentTimeMillis());
+
+    /** Логические часы инвалидаций */
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * userId → список, LRU. Все поля ниже меняются только под {@code synchronized (this)}:
+     * индексы зрителей хранят ровно те чаты и участников, что есть в закешированных списках.
+     */
+    private final Map<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Когда последний раз инвалидировались пользователь, чат и участник.
+     * Список, собранный до инвалидации любого из своих чатов или участников, не сохраняется.
+     * Отметка старше начала всех идущих сборок уже ни на что не влияет и удаляется.
+     */
+    private final Map<Long, Long> userStamps = new HashMap<>();
+    private final Map<Long, Long> chatStamps = new HashMap<>();
+    private final Map<Long, Long> memberStamps = new HashMap<>();
+
+    /** Момент начала (по {@link #clock}) идущих сборок → их число */
+    private final NavigableMap<Long, Integer> inFlight = new TreeMap<>();
+
+    /** chatId → пользователи, в чьих закешированных списках есть этот чат */
+    private final Map<Long, Set<Long>> viewersByChat = new HashMap<>();
+
+    /** userId участника → пользователи, в чьих списках он отображается */
+    private final Map<Long, Set<Long>> viewersByMember = new HashMap<>();
+
+    /**
+     * Текущий ETag списка чатов пользователя, если список закеширован.
+     *
+     * @param userId ID пользователя
+     * @return ETag или {@code null}, если списка в кеше нет
+     */
+    public String getETag(Long userId) {
+        Entry entry = fresh(userId);
+        return entry != null ? entry.etag : null;
+    }
+
+    /**
+     * Получить список чатов из кеша или собрать его.
+     *
+     * @param userId ID пользователя
+     * @param loader сборка списка из БД
+     * @return закешированный список с ETag
+     */
+    public Entry get(Long userId, Supplier<List<ChatDto>> loader) {
+        Entry cached = fresh(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long startedAt;
+        synchronized (this) {
+            startedAt = clock.get();
+            inFlight.merge(startedAt, 1, Integer::sum);
+        }
+        Entry entry;
+        try {
+            List<ChatDto> chats = List.copyOf(loader.get());
+            entry = new Entry(chats, "W/\"chats-" + userId + "-" + versions.incrementAndGet() + "\"",
+                    System.currentTimeMillis());
+        } finally {
+            synchronized (this) {
+                inFlight.computeIfPresent(startedAt, (at, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+
+        synchronized (this) {
+            if (!changedSince(userId, entry.chats, startedAt)) {
+                remove(userId);
+                entries.put(userId, entry);
+                index(userId, entry.chats);
+                if (entries.size() > maxEntries) {
+                    remove(entries.keySet().iterator().next());
+                }
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Сбросить списки всех пользователей, у которых есть этот чат
+     * (новое/изменённое сообщение, прочтение, изменение чата).
+     */
+    public void invalidateChat(Long chatId) {
+        afterCommit(() -> {
+            synchronized (this) {
+                stamp(chatStamps, chatId, clock.incrementAndGet());
+                evict(viewersByChat.get(chatId));
+            }
+        });
+    }
+
+    /**
+     * Сбросить списки конкретных пользователей (добавление в чат).
+     */
+    public void invalidateUsers(Collection<Long> userIds) {
+        afterCommit(() -> {
+            synchronized (this) {
+                long now = clock.incrementAndGet();
+                for (Long userId : userIds) {
+                    stamp(userStamps, userId, now);
+                }
+                evict(userIds);
+            }
+        });
+    }
+
+    /**
+     * Сбросить списки, где пользователь отображается как участник (изменение профиля),
+     * и его собственный список.
+     */
+    public void invalidateMember(Long userId) {
+        afterCommit(() -> {
+            synchronized (this) {
+                long now = clock.incrementAndGet();
+                stamp(memberStamps, userId, now);
+                stamp(userStamps, userId, now);
+                evict(viewersByMember.get(userId));
+                evict(List.of(userId));
+            }
+        });
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /** Размер служебных структур: отметок инвалидации и индексов зрителей */
+    synchronized int trackedCount() {
+        return userStamps.size() + chatStamps.size() + memberStamps.size()
+                + viewersByChat.size() + viewersByMember.size();
+    }
+
+    private synchronized Entry fresh(Long userId) {
+        Entry entry = entries.get(userId);
+        if (entry != null && System.currentTimeMillis() - entry.createdAt > ttlMs) {
+            remove(userId);
+            return null;
+        }
+        return entry;
+    }
+
+    private boolean changedSince(Long userId, List<ChatDto> chats, long startedAt) {
+        if (userStamps.getOrDefault(userId, 0L) > startedAt) {
+            return true;
+        }
+        for (ChatDto chat : chats) {
+            if (chatStamps.getOrDefault(chat.getId(), 0L) > startedAt) {
+                return true;
+            }
+            if (chat.getParticipants() != null) {
+                for (UserDto participant : chat.getParticipants()) {
+                    if (memberStamps.getOrDefault(participant.getId(), 0L) > startedAt) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Запомнить инвалидацию. Отметка нужна только сборкам, начатым раньше неё: когда их не
+     * осталось, отметки не новее самой старой идущей сборки удаляются.
+     */
+    private void stamp(Map<Long, Long> stamps, Long id, long now) {
+        stamps.put(id, now);
+        if (userStamps.size() + chatStamps.size() + memberStamps.size() > STAMP_PRUNE_THRESHOLD) {
+            long watermark = inFlight.isEmpty() ? clock.get() : inFlight.firstKey();
+            userStamps.values().removeIf(stamp -> stamp <= watermark);
+            chatStamps.values().removeIf(stamp -> stamp <= watermark);
+            memberStamps.values().removeIf(stamp -> stamp <= watermark);
+        }
+    }
+
+    private void index(Long userId, List<ChatDto> chats) {
+        for (ChatDto chat : chats) {
+            viewersByChat.computeIfAbsent(chat.getId(), id -> new HashSet<>()).add(userId);
+            if (chat.getParticipants() != null) {
+                for (UserDto participant : chat.getParticipants()) {
+                    viewersByMember.computeIfAbsent(participant.getId(), id -> new HashSet<>()).add(userId);
+                }
+            }
+        }
+    }
+
+    /** Убрать список пользователя вместе с его записями в индексах зрителей */
+    private void remove(Long userId) {
+        Entry entry = entries.remove(userId);
+        if (entry == null) {
+            return;
+        }
+        for (ChatDto chat : entry.chats) {
+            unindex(viewersByChat, chat.getId(), userId);
+            if (chat.getParticipants() != null) {
+                for (UserDto participant : chat.getParticipants()) {
+                    unindex(viewersByMember, participant.getId(), userId);
+                }
+            }
+        }
+    }
+
+    private static void unindex(Map<Long, Set<Long>> viewers, Long key, Long userId) {
+        Set<Long> users = viewers.get(key);
+        if (users != null && users.remove(userId) && users.isEmpty()) {
+            viewers.remove(key);
+        }
+    }
+
+    private void evict(Collection<Long> userIds) {
+        if (userIds == null) {
+            return;
+        }
+        // Копия: remove() меняет те же множества индексов
+        List<Long> evicted = List.copyOf(userIds);
+        for (Long userId : evicted) {
+            remove(userId);
+        }
+        log.debug("Chat list cache invalidated for users {}", evicted);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Закешированный список чатов и его ETag.
+     */
+    public static final class Entry {
+        private final List<ChatDto> chats;
+        private final String etag;
+        private final long createdAt;
+
+        private Entry(List<ChatDto> chats, String etag, long createdAt) {
+            this.chats = chats;
+            this.etag = etag;
+            this.createdAt = createdAt;
+        }
+
+        public List<ChatDto> getChats() {
+            return chats;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+    }
+}
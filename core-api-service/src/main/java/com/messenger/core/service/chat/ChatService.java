@@ -9,6 +9,7 @@ import com.messenger.core.repository.MessageRepository;
 import com.messenger.core.repository.UserRepository;
 import com.messenger.core.repository.MessageReadStatusRepository;
 import com.messenger.core.service.message.MessageService;
+import com.messenger.core.service.message.archive.MessageArchiveService;
 import com.messenger.core.service.user.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -36,6 +37,8 @@ public class ChatService {
     private final MessageService messageService;
     private final KafkaTemplate<String, Object> kafkaTemplate;
     private final MessageReadStatusRepository messageReadStatusRepository;
+    private final ChatListCache chatListCache;
+    private final MessageArchiveService messageArchiveService;
 
     /**
      * Получить все чаты пользователя
@@ -317,6 +320,7 @@ public class ChatService {
             participants.remove(user);
             chat.setParticipants(participants);
             chatRepository.save(chat);
+            chatListCache.invalidateChat(chatId);
 
             // Уведомляем другого участника
             chat.getParticipants().forEach(participant -> {
@@ -351,6 +355,8 @@ public class ChatService {
             } else {
                 // Если больше нет участников, удаляем чат
                 chatRepository.delete(chat);
+                chatListCache.invalidateChat(chatId);
+                messageArchiveService.deleteChatArchive(chatId);
             }
         } else {
             // Если обычный участник покидает чат
@@ -450,7 +456,10 @@ public class ChatService {
         if (chat.getCreatedBy() == null || !chat.getCreatedBy().getId().equals(userId)) {
             throw new IllegalArgumentException("Только создатель чата может удалить чат");
         }
+        messageReadStatusRepository.deleteByChatId(chatId);
         chatRepository.delete(chat);
+        chatListCache.invalidateChat(chatId);
+        messageArchiveService.deleteChatArchive(chatId);
     }
 
     /**
@@ -472,6 +481,11 @@ public class ChatService {
         // Обновляем время последнего сообщения в чате
         chat.setLastMessageAt(LocalDateTime.now());
         chatRepository.save(chat);
+
+        // Системное сообщение сопровождает любое изменение состава: новым участникам
+        // чат ещё не попал в закешированный список, поэтому сбрасываем и их
+        chatListCache.invalidateChat(chat.getId());
+        chatListCache.invalidateUsers(chat.getParticipants().stream().map(User::getId).collect(Collectors.toList()));
     }
 
     /**
@@ -499,15 +513,10 @@ public class ChatService {
                 .collect(Collectors.toList()));
         }
 
-        // Получаем последнее сообщение
-        if (chat.getMessages() != null && !chat.getMessages().isEmpty()) {
-            Message lastMessage = chat.getMessages().stream()
-                .max(Comparator.comparing(Message::getCreatedAt))
-                .orElse(null);
-
-            if (lastMessage != null) {
-                dto.setLastMessage(messageService.convertToDto(lastMessage));
-            }
+        // Последнее сообщение — отдельным запросом, а не через ленивую коллекцию всей истории чата
+        if (chat.getId() != null) {
+            messageRepository.findLastMessageByChatId(chat.getId())
+                .ifPresent(lastMessage -> dto.setLastMessage(messageService.convertToDto(lastMessage)));
         }
 
         return dto;
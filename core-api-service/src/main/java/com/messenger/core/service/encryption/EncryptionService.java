@@ -2,6 +2,7 @@ package com.messenger.core.service.encryption;
 
 import com.messenger.core.service.user.UserService;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -36,38 +37,67 @@ public interface EncryptionService {
      * @param userId               ID пользователя
      * @param identityKey          идентификационный ключ
      * @param signedPreKey         подписанный предварительный ключ
-     * @param oneTimePreKeys       одноразовые предварительные ключи (JSON-массив)
+     * @param oneTimePreKeys       одноразовые предварительные ключи (JSON-массив); непустой список
+     *                             заменяет запас ключей, пустой сохраняет его при той же identityKey
      * @param signedPreKeySignature подпись подписанного ключа
      */
     void savePreKeyBundle(Long userId, String identityKey, String signedPreKey,
                           String oneTimePreKeys, String signedPreKeySignature);
 
     /**
-     * Получить X3DH prekey bundle пользователя.
-     * Если ключи отсутствуют — автоматически генерирует новые.
+     * Догрузить одноразовые prekey к уже имеющимся. Ключи, которые уже есть в запасе
+     * пользователя, повторно не сохраняются.
      *
-     * @param userId ID пользователя
-     * @return map с полями identityKey, signedPreKey, oneTimePreKeys, publicKey
+     * @param userId     ID пользователя
+     * @param publicKeys публичные ключи в Base64
+     * @return сколько ключей доступно после загрузки
      */
-    Map<String, String> getPreKeyBundle(Long userId);
+    long uploadOneTimePreKeys(Long userId, List<String> publicKeys);
 
     /**
-     * Получить X3DH prekey bundle пользователя в бинарном виде (JSON → byte[]).
+     * Количество невыданных одноразовых prekey пользователя.
      *
      * @param userId ID пользователя
-     * @return байтовый массив JSON-сериализованного bundle
+     * @return запас ключей
+     */
+    long countOneTimePreKeys(Long userId);
+
+    /**
+     * Получить X3DH prekey bundle пользователя для установки сессии.
+     * Если identity/signed ключи отсутствуют — автоматически генерирует новые.
+     * Одноразовый ключ выдаётся атомарно и больше никому не достанется. Самому владельцу
+     * ключ не выдаётся: сверка собственных ключей клиентом не расходует запас.
+     *
+     * @param userId      ID владельца bundle
+     * @param requesterId ID запрашивающего пользователя
+     * @return map с полями identityKey, signedPreKey, signedPreKeySignature, publicKey,
+     *         oneTimePreKeys (JSON-массив из одного ключа или пустой, если запас исчерпан)
+     *         и oneTimePreKeyId
      */
-    byte[] getPreKeyBundleBinary(Long userId);
+    Map<String, String> getPreKeyBundle(Long userId, Long requesterId);
+
+    /**
+     * Получить X3DH prekey bundle пользователя в компактном бинарном виде:
+     * ключи сырыми байтами с длиной, без JSON и Base64.
+     *
+     * @param userId      ID владельца bundle
+     * @param requesterId ID запрашивающего пользователя
+     * @return закодированный bundle
+     * @throws IllegalStateException если bundle не удалось закодировать; выдача одноразового
+     *                               ключа при этом откатывается
+     */
+    byte[] getPreKeyBundleBinary(Long userId, Long requesterId);
 
     /**
      * Получить PreKeyBundleProtocol для Double Ratchet.
-     * Возвращает расширенный bundle с разобранным списком oneTimePreKeys.
+     * Как {@link #getPreKeyBundle}, но oneTimePreKeys — список (из одного выданного ключа или пустой).
      *
-     * @param userId ID пользователя
+     * @param userId      ID владельца bundle
+     * @param requesterId ID запрашивающего пользователя
      * @return map с полями userId, identityKey, signedPreKey, signedPreKeySignature,
-     *         oneTimePreKeys (List), publicKey
+     *         oneTimePreKeys (List), oneTimePreKeyId, publicKey
      */
-    Map<String, Object> getPreKeyBundleProtocol(Long userId);
+    Map<String, Object> getPreKeyBundleProtocol(Long userId, Long requesterId);
 
     /**
      * Сгенерировать и сохранить новый X3DH prekey bundle для пользователя.
@@ -1,17 +1,29 @@
 package com.messenger.core.service.encryption;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.messenger.core.model.User;
+import com.messenger.core.model.OneTimePreKey;
+import com.messenger.core.model.UserKeyBackup;
+import com.messenger.core.model.UserKeys;
+import com.messenger.core.repository.OneTimePreKeyRepository;
+import com.messenger.core.repository.OneTimePreKeyRepository.ClaimedPreKey;
+import com.messenger.core.repository.UserKeyBackupRepository;
+import com.messenger.core.repository.UserKeysRepository;
 import com.messenger.core.repository.UserRepository;
 import com.messenger.core.service.user.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.security.*;
 import java.security.spec.ECGenParameterSpec;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Реализация {@link EncryptionService} — управление криптографическими данными E2EE пользователей.
@@ -20,6 +32,12 @@ import java.util.*;
  * prekey bundle (X3DH) и зашифрованных бекапов ключей.
  * Взаимодействует с репозиторием напрямую, не через {@link UserService},
  * чтобы избежать циклических зависимостей.
+ * <p>
+ * Ключи и бекап хранятся в своих таблицах ({@code user_keys}, {@code user_key_backups}) и не
+ * нагружают строку {@code users}; от неё нужна только проверка существования пользователя.
+ * Одноразовые prekey лежат в {@code one_time_prekeys}: выдача собеседнику — один
+ * {@code DELETE ... RETURNING}, каждый ключ достаётся ровно одному инициатору сессии.
+ * Владельцу, запрашивающему собственный bundle, одноразовый ключ не выдаётся.
  */
 @Service
 @Transactional
@@ -27,25 +45,51 @@ import java.util.*;
 @RequiredArgsConstructor
 public class EncryptionServiceImpl implements EncryptionService {
 
+    /** Версия бинарного формата {@link #getPreKeyBundleBinary} */
+    static final int BUNDLE_FORMAT_VERSION = 1;
+    private static final int MAX_KEY_LENGTH = 255;
+
     private final UserRepository userRepository;
+    private final UserKeysRepository userKeysRepository;
+    private final UserKeyBackupRepository userKeyBackupRepository;
+    private final OneTimePreKeyRepository oneTimePreKeyRepository;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
     private final ObjectMapper objectMapper;
 
+    /** Ниже этого запаса одноразовых ключей владельцу уходит PREKEYS_LOW */
+    @Value("${app.prekeys.low-watermark:20}")
+    private int lowWatermark = 20;
+
+    /** Максимум ключей в одной загрузке */
+    @Value("${app.prekeys.max-upload:500}")
+    private int maxUpload = 500;
+
+    /** Сколько одноразовых ключей создаёт серверная автогенерация */
+    @Value("${app.prekeys.generate-count:100}")
+    private int generateCount = 100;
+
+    @Value("${app.prekeys.replenish-interval-ms:60000}")
+    private long replenishIntervalMs = 60000;
+
+    /** userId → момент последнего PREKEYS_LOW */
+    private final ConcurrentHashMap<Long, Long> replenishRequestedAt = new ConcurrentHashMap<>();
+
     // ─────────────────────────────────────────────────────────────────────────
     // Публичный ключ
     // ─────────────────────────────────────────────────────────────────────────
 
     @Override
     public void savePublicKey(Long userId, String publicKey) {
-        User user = findUser(userId);
-        user.setPublicKey(publicKey);
-        userRepository.save(user);
+        UserKeys keys = findKeys(userId);
+        keys.setPublicKey(publicKey);
+        userKeysRepository.save(keys);
         log.info("[ENC] Public key saved for user {}", userId);
     }
 
     @Override
     @Transactional(readOnly = true)
     public String getPublicKey(Long userId) {
-        return findUser(userId).getPublicKey();
+        return findKeys(userId).getPublicKey();
     }
 
     // ─────────────────────────────────────────────────────────────────────────
@@ -60,70 +104,106 @@ public class EncryptionServiceImpl implements EncryptionService {
                 || oneTimePreKeys == null || oneTimePreKeys.isEmpty()) {
             throw new IllegalArgumentException("identityKey, signedPreKey и oneTimePreKeys обязательны");
         }
+        requireBase64(identityKey, "identityKey");
+        requireBase64(signedPreKey, "signedPreKey");
+        if (!isNullOrEmpty(signedPreKeySignature)) {
+            requireBase64(signedPreKeySignature, "signedPreKeySignature");
+        }
+        List<String> keys = parseKeyList(oneTimePreKeys);
+        validateKeys(keys);
         log.info("[ENC] Saving prekey bundle for user {}", userId);
-        User user = findUser(userId);
-        user.setIdentityKey(identityKey);
-        user.setSignedPreKey(signedPreKey);
-        user.setOneTimePreKeys(oneTimePreKeys);
-        user.setSignedPreKeySignature(signedPreKeySignature != null ? signedPreKeySignature : "");
-        user.setPublicKey(identityKey);
-        userRepository.save(user);
-        log.info("[ENC] Prekey bundle saved for user {}", userId);
+        UserKeys userKeys = findKeys(userId);
+        // Пустой список при той же identity (перепубликация из бекапа) не сбрасывает запас ключей;
+        // новая identity делает старые одноразовые ключи бесполезными
+        if (!keys.isEmpty() || !identityKey.equals(userKeys.getIdentityKey())) {
+            replaceOneTimePreKeys(userId, keys);
+        }
+        userKeys.setIdentityKey(identityKey);
+        userKeys.setSignedPreKey(signedPreKey);
+        userKeys.setSignedPreKeySignature(signedPreKeySignature != null ? signedPreKeySignature : "");
+        userKeys.setPublicKey(identityKey);
+        userKeysRepository.save(userKeys);
+        log.info("[ENC] Prekey bundle saved for user {} with {} one-time prekeys", userId, keys.size());
+    }
+
+    @Override
+    public long uploadOneTimePreKeys(Long userId, List<String> publicKeys) {
+        if (publicKeys == null || publicKeys.isEmpty()) {
+            throw new IllegalArgumentException("Список ключей пуст");
+        }
+        if (publicKeys.size() > maxUpload) {
+            throw new IllegalArgumentException("За один запрос можно загрузить не больше " + maxUpload + " ключей");
+        }
+        validateKeys(publicKeys);
+        requireUser(userId);
+        // Повтор загрузки (клиент не дождался ответа) не должен дублировать ключи: дубль выдали бы
+        // двум собеседникам. Одновременные загрузки одного ключа отсекает уникальный индекс (V6)
+        Set<String> fresh = new LinkedHashSet<>(publicKeys);
+        fresh.removeAll(oneTimePreKeyRepository.findStoredPublicKeys(userId, fresh));
+        if (!fresh.isEmpty()) {
+            oneTimePreKeyRepository.saveAll(toEntities(userId, new ArrayList<>(fresh)));
+        }
+        replenishRequestedAt.remove(userId);
+        long remaining = oneTimePreKeyRepository.countByUserId(userId);
+        log.info("[ENC] Uploaded {} of {} one-time prekeys for user {}, {} available",
+                fresh.size(), publicKeys.size(), userId, remaining);
+        return remaining;
     }
 
     @Override
-    public Map<String, String> getPreKeyBundle(Long userId) {
-        log.info("[ENC] Getting prekey bundle for user {}", userId);
-        User user = findUser(userId);
+    @Transactional(readOnly = true)
+    public long countOneTimePreKeys(Long userId) {
+        return oneTimePreKeyRepository.countByUserId(userId);
+    }
 
-        boolean needGen = isNullOrEmpty(user.getIdentityKey())
-                || isNullOrEmpty(user.getSignedPreKey())
-                || isNullOrEmpty(user.getOneTimePreKeys());
+    @Override
+    public Map<String, String> getPreKeyBundle(Long userId, Long requesterId) {
+        log.debug("[ENC] Getting prekey bundle for user {}", userId);
+        UserKeys keys = findKeys(userId);
 
-        if (needGen) {
+        if (isNullOrEmpty(keys.getIdentityKey()) || isNullOrEmpty(keys.getSignedPreKey())) {
             log.info("[ENC] Keys missing for user {}, auto-generating...", userId);
-            Map<String, String> generated = generateAndSaveForUser(user);
-            log.info("[ENC] Auto-generated keys for user {}", userId);
-            return generated;
+            generateAndSave(keys);
         }
 
-        log.info("[ENC] Returning existing keys for user {}", userId);
-        return buildStringBundle(user);
+        ClaimedPreKey claimed = claimOneTimePreKey(userId, requesterId);
+        Map<String, String> bundle = new HashMap<>();
+        bundle.put("identityKey", keys.getIdentityKey());
+        bundle.put("signedPreKey", keys.getSignedPreKey());
+        bundle.put("signedPreKeySignature", keys.getSignedPreKeySignature());
+        bundle.put("publicKey", keys.getPublicKey());
+        bundle.put("oneTimePreKeys", toJson(claimed != null ? List.of(claimed.getPublicKey()) : List.of()));
+        if (claimed != null) {
+            bundle.put("oneTimePreKeyId", String.valueOf(claimed.getId()));
+        }
+        return bundle;
     }
 
     @Override
-    public byte[] getPreKeyBundleBinary(Long userId) {
-        Map<String, String> bundle = getPreKeyBundle(userId);
-        if (bundle == null || bundle.isEmpty()) {
-            return new byte[0];
-        }
+    public byte[] getPreKeyBundleBinary(Long userId, Long requesterId) {
+        Map<String, String> bundle = getPreKeyBundle(userId, requesterId);
+        // Ошибку не глушим: исключение откатывает транзакцию, и выданный одноразовый ключ
+        // остаётся в запасе, а не теряется вместе с пустым ответом
         try {
-            return objectMapper.writeValueAsBytes(bundle);
-        } catch (Exception e) {
-            log.error("[ENC] Failed to serialize prekey bundle for user {}", userId, e);
-            return new byte[0];
+            return encodeBundle(userId, bundle);
+        } catch (java.io.IOException e) {
+            throw new IllegalStateException("Не удалось закодировать prekey bundle пользователя " + userId, e);
         }
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public Map<String, Object> getPreKeyBundleProtocol(Long userId) {
-        User user = findUser(userId);
+    public Map<String, Object> getPreKeyBundleProtocol(Long userId, Long requesterId) {
+        UserKeys keys = findKeys(userId);
+        ClaimedPreKey claimed = claimOneTimePreKey(userId, requesterId);
         Map<String, Object> bundle = new HashMap<>();
-        bundle.put("userId", user.getId());
-        bundle.put("identityKey", user.getIdentityKey());
-        bundle.put("signedPreKey", user.getSignedPreKey());
-        bundle.put("signedPreKeySignature", user.getSignedPreKeySignature());
-        bundle.put("publicKey", user.getPublicKey());
-
-        try {
-            @SuppressWarnings("unchecked")
-            List<String> oneTimePreKeysList =
-                    objectMapper.readValue(user.getOneTimePreKeys(), List.class);
-            bundle.put("oneTimePreKeys", oneTimePreKeysList);
-        } catch (Exception e) {
-            log.warn("[ENC] Failed to parse oneTimePreKeys for user {}", userId, e);
-            bundle.put("oneTimePreKeys", Collections.emptyList());
+        bundle.put("userId", userId);
+        bundle.put("identityKey", keys.getIdentityKey());
+        bundle.put("signedPreKey", keys.getSignedPreKey());
+        bundle.put("signedPreKeySignature", keys.getSignedPreKeySignature());
+        bundle.put("publicKey", keys.getPublicKey());
+        bundle.put("oneTimePreKeys", claimed != null ? List.of(claimed.getPublicKey()) : List.of());
+        if (claimed != null) {
+            bundle.put("oneTimePreKeyId", claimed.getId());
         }
         return bundle;
     }
@@ -131,8 +211,7 @@ public class EncryptionServiceImpl implements EncryptionService {
     @Override
     public Map<String, String> generateAndSavePreKeyBundle(Long userId) {
         log.info("[ENC] Force-generating new prekey bundle for user {}", userId);
-        User user = findUser(userId);
-        return generateAndSaveForUser(user);
+        return generateAndSave(findKeys(userId));
     }
 
     // ─────────────────────────────────────────────────────────────────────────
@@ -144,44 +223,197 @@ public class EncryptionServiceImpl implements EncryptionService {
         if (isNullOrEmpty(encryptedPayload)) {
             throw new IllegalArgumentException("encryptedPayload не может быть пустым");
         }
-        User user = findUser(userId);
-        user.setEncryptedKeyBackup(encryptedPayload);
-        userRepository.save(user);
+        requireUser(userId);
+        UserKeyBackup backup = userKeyBackupRepository.findById(userId).orElseGet(UserKeyBackup::new);
+        backup.setUserId(userId);
+        backup.setEncryptedPayload(encryptedPayload);
+        userKeyBackupRepository.save(backup);
         log.info("[ENC] Encrypted key backup saved for user {}", userId);
     }
 
     @Override
     @Transactional(readOnly = true)
     public String getEncryptedKeyBackup(Long userId) {
-        return findUser(userId).getEncryptedKeyBackup();
+        return userKeyBackupRepository.findById(userId)
+                .map(UserKeyBackup::getEncryptedPayload)
+                .orElseGet(() -> {
+                    requireUser(userId);
+                    return null;
+                });
     }
 
     // ─────────────────────────────────────────────────────────────────────────
     // Приватные вспомогательные методы
     // ─────────────────────────────────────────────────────────────────────────
 
-    private User findUser(Long userId) {
-        return userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("Пользователь не найден: " + userId));
+    /** Ключи пользователя; для пользователя без ключей — новая несохранённая запись */
+    private UserKeys findKeys(Long userId) {
+        return userKeysRepository.findById(userId).orElseGet(() -> {
+            requireUser(userId);
+            return new UserKeys(userId);
+        });
+    }
+
+    private void requireUser(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("Пользователь не найден: " + userId);
+        }
     }
 
     private static boolean isNullOrEmpty(String s) {
         return s == null || s.isEmpty();
     }
 
-    private Map<String, String> buildStringBundle(User user) {
-        Map<String, String> bundle = new HashMap<>();
-        bundle.put("identityKey", user.getIdentityKey());
-        bundle.put("signedPreKey", user.getSignedPreKey());
-        bundle.put("oneTimePreKeys", user.getOneTimePreKeys());
-        bundle.put("publicKey", user.getPublicKey());
-        return bundle;
+    /**
+     * Выдать одноразовый ключ собеседнику.
+     *
+     * @return выданный ключ или {@code null}, если запас исчерпан (X3DH допускает bundle без него)
+     *         или bundle запрашивает сам владелец
+     */
+    private ClaimedPreKey claimOneTimePreKey(Long userId, Long requesterId) {
+        if (userId.equals(requesterId)) {
+            return null;
+        }
+        ClaimedPreKey claimed = oneTimePreKeyRepository.claimOne(userId).orElse(null);
+        long remaining = claimed != null ? claimed.getRemaining() : 0;
+        if (remaining < lowWatermark) {
+            requestReplenish(userId, remaining);
+        }
+        return claimed;
+    }
+
+    /**
+     * Попросить владельца догрузить ключи: событие уходит в websocket-server и доставляется
+     * клиенту как {@code PREKEYS_LOW}. Не чаще раза в {@code replenishIntervalMs} на пользователя —
+     * иначе каждая выдача ниже порога порождала бы новое событие.
+     */
+    private void requestReplenish(Long userId, long remaining) {
+        long now = System.currentTimeMillis();
+        boolean[] due = {false};
+        replenishRequestedAt.compute(userId, (id, last) -> {
+            if (last != null && now - last < replenishIntervalMs) {
+                return last;
+            }
+            due[0] = true;
+            return now;
+        });
+        if (!due[0]) {
+            return;
+        }
+        try {
+            Map<String, Object> notification = new HashMap<>();
+            notification.put("type", "PREKEYS_LOW");
+            notification.put("recipientId", userId);
+            notification.put("remaining", remaining);
+            notification.put("timestamp", now);
+            kafkaTemplate.send("websocket-notifications", userId.toString(), notification);
+            log.info("[ENC] User {} has {} one-time prekeys left, replenish requested", userId, remaining);
+        } catch (Exception e) {
+            log.error("[ENC] Failed to request prekey replenish for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private void replaceOneTimePreKeys(Long userId, List<String> keys) {
+        oneTimePreKeyRepository.deleteByUserId(userId);
+        if (!keys.isEmpty()) {
+            oneTimePreKeyRepository.saveAll(toEntities(userId, keys));
+        }
+        replenishRequestedAt.remove(userId);
+    }
+
+    private static List<OneTimePreKey> toEntities(Long userId, List<String> keys) {
+        List<OneTimePreKey> entities = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            entities.add(new OneTimePreKey(userId, key));
+        }
+        return entities;
+    }
+
+    private List<String> parseKeyList(String json) {
+        try {
+            return objectMapper.readValue(json, new TypeReference<List<String>>() {});
+        } catch (Exception e) {
+            throw new IllegalArgumentException("oneTimePreKeys должен быть JSON-массивом строк", e);
+        }
+    }
+
+    /** Ключ должен быть Base64: в бинарном bundle он передаётся сырыми байтами */
+    private static void validateKeys(List<String> keys) {
+        for (String key : keys) {
+            if (isNullOrEmpty(key) || key.length() > MAX_KEY_LENGTH) {
+                throw new IllegalArgumentException("Некорректный одноразовый ключ");
+            }
+            try {
+                Base64.getDecoder().decode(key);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Одноразовый ключ должен быть в Base64", e);
+            }
+        }
+    }
+
+    /** Ключи bundle тоже уходят в бинарный формат сырыми байтами — проверяем Base64 при сохранении */
+    private static void requireBase64(String key, String field) {
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(field + " слишком длинный");
+        }
+        try {
+            Base64.getDecoder().decode(key);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(field + " должен быть в Base64", e);
+        }
+    }
+
+    private String toJson(List<String> keys) {
+        try {
+            return objectMapper.writeValueAsString(keys);
+        } catch (Exception e) {
+            throw new IllegalStateException("Не удалось сериализовать список ключей", e);
+        }
+    }
+
+    /**
+     * Бинарный bundle (big-endian), версия {@value #BUNDLE_FORMAT_VERSION}:
+     * <pre>
+     *   u8   версия
+     *   i64  userId
+     *   u16  длина + байты identityKey
+     *   u16  длина + байты signedPreKey
+     *   u16  длина + байты signedPreKeySignature (0 — подписи нет)
+     *   i64  id одноразового ключа (0 — ключа нет)
+     *   u16  длина + байты одноразового ключа
+     * </pre>
+     * Ключи передаются сырыми байтами, а не Base64 в JSON: около 300 байт вместо ~600 у JSON.
+     */
+    byte[] encodeBundle(Long userId, Map<String, String> bundle) throws java.io.IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(BUNDLE_FORMAT_VERSION);
+        out.writeLong(userId);
+        writeKey(out, bundle.get("identityKey"));
+        writeKey(out, bundle.get("signedPreKey"));
+        writeKey(out, bundle.get("signedPreKeySignature"));
+        String oneTimePreKeyId = bundle.get("oneTimePreKeyId");
+        if (oneTimePreKeyId != null) {
+            out.writeLong(Long.parseLong(oneTimePreKeyId));
+            writeKey(out, parseKeyList(bundle.get("oneTimePreKeys")).get(0));
+        } else {
+            out.writeLong(0);
+            out.writeShort(0);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeKey(DataOutputStream out, String base64) throws java.io.IOException {
+        byte[] raw = isNullOrEmpty(base64) ? new byte[0] : Base64.getDecoder().decode(base64);
+        out.writeShort(raw.length);
+        out.write(raw);
     }
 
     /**
-     * Генерирует EC-ключи (secp256r1), сохраняет их в переданного user и возвращает bundle.
+     * Генерирует EC-ключи (secp256r1), сохраняет их в переданные ключи пользователя и возвращает bundle.
      */
-    private Map<String, String> generateAndSaveForUser(User user) {
+    private Map<String, String> generateAndSave(UserKeys keys) {
         try {
             KeyPairGenerator kpg = KeyPairGenerator.getInstance("EC");
             kpg.initialize(new ECGenParameterSpec("secp256r1"));
@@ -195,13 +427,10 @@ public class EncryptionServiceImpl implements EncryptionService {
             String signedPreKeyPub = ecPublicKeyToBase64(signedPreKeyPair.getPublic());
 
             // One-time prekeys
-            StringBuilder otpkJson = new StringBuilder("[");
-            for (int i = 0; i < 5; i++) {
-                KeyPair otpk = kpg.generateKeyPair();
-                otpkJson.append('"').append(ecPublicKeyToBase64(otpk.getPublic())).append('"');
-                if (i < 4) otpkJson.append(',');
+            List<String> oneTimePreKeys = new ArrayList<>(generateCount);
+            for (int i = 0; i < generateCount; i++) {
+                oneTimePreKeys.add(ecPublicKeyToBase64(kpg.generateKeyPair().getPublic()));
             }
-            otpkJson.append("]");
 
             // Signature
             Signature ecdsaSign = Signature.getInstance("SHA256withECDSA");
@@ -210,17 +439,17 @@ public class EncryptionServiceImpl implements EncryptionService {
             String signature = Base64.getEncoder().encodeToString(ecdsaSign.sign());
 
             // Persist
-            user.setIdentityKey(identityKeyPub);
-            user.setSignedPreKey(signedPreKeyPub);
-            user.setOneTimePreKeys(otpkJson.toString());
-            user.setSignedPreKeySignature(signature);
-            user.setPublicKey(identityKeyPub);
-            userRepository.save(user);
+            keys.setIdentityKey(identityKeyPub);
+            keys.setSignedPreKey(signedPreKeyPub);
+            keys.setSignedPreKeySignature(signature);
+            keys.setPublicKey(identityKeyPub);
+            userKeysRepository.save(keys);
+            replaceOneTimePreKeys(keys.getUserId(), oneTimePreKeys);
 
             Map<String, String> bundle = new HashMap<>();
             bundle.put("identityKey", identityKeyPub);
             bundle.put("signedPreKey", signedPreKeyPub);
-            bundle.put("oneTimePreKeys", otpkJson.toString());
+            bundle.put("oneTimePreKeys", toJson(oneTimePreKeys));
             bundle.put("signedPreKeySignature", signature);
             bundle.put("publicKey", identityKeyPub);
             return bundle;
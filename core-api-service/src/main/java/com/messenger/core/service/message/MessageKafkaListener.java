@@ -7,6 +7,7 @@ import com.messenger.core.model.User;
 import com.messenger.core.repository.MessageRepository;
 import com.messenger.core.repository.ChatRepository;
 import com.messenger.core.repository.UserRepository;
+import com.messenger.core.service.chat.ChatListCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
@@ -29,6 +30,7 @@ public class MessageKafkaListener {
     private final UserRepository userRepository;
     private final ObjectMapper objectMapper;
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ChatListCache chatListCache;
 
     @KafkaListener(topics = "chat-messages", groupId = "core-api-service-group")
     @Transactional
@@ -103,6 +105,7 @@ public class MessageKafkaListener {
             Message savedMessage = messageRepository.save(message);
 
             log.info("[DB] Message saved successfully with ID: {}", savedMessage.getId());
+            chatListCache.invalidateChat(chatId);
 
             // ИСПРАВЛЕНИЕ: Отправляем уведомление в Kafka с реальным ID сообщения
             notifyAboutNewMessage(savedMessage);
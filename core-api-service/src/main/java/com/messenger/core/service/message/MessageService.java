@@ -12,7 +12,9 @@ import com.messenger.core.repository.MessageReadStatusRepository;
 import com.messenger.core.repository.UserRepository;
 import com.messenger.core.service.FileStorageService;
 import com.messenger.core.service.OptimizedDataService;
+import com.messenger.core.service.chat.ChatListCache;
 import com.messenger.core.service.user.UserService;
+import jakarta.persistence.EntityNotFoundException;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -40,6 +42,7 @@ public class MessageService {
     private final KafkaTemplate<String, Object> kafkaTemplate;
     private final MessageReadStatusRepository messageReadStatusRepository;
     private final OptimizedDataService optimizedDataService;
+    private final ChatListCache chatListCache;
 
     public MessageService(MessageRepository messageRepository,
                           ChatRepository chatRepository,
@@ -47,7 +50,8 @@ public class MessageService {
                           UserService userService,
                           KafkaTemplate<String, Object> kafkaTemplate,
                           MessageReadStatusRepository messageReadStatusRepository,
-                          @Lazy OptimizedDataService optimizedDataService) {
+                          @Lazy OptimizedDataService optimizedDataService,
+                          ChatListCache chatListCache) {
         this.messageRepository = messageRepository;
         this.chatRepository = chatRepository;
         this.userRepository = userRepository;
@@ -55,6 +59,7 @@ public class MessageService {
         this.kafkaTemplate = kafkaTemplate;
         this.messageReadStatusRepository = messageReadStatusRepository;
         this.optimizedDataService = optimizedDataService;
+        this.chatListCache = chatListCache;
     }
 
     /**
@@ -151,9 +156,9 @@ public class MessageService {
             message.setThumbnailUrl(request.getThumbnailUrl());
         }
 
-        // Если это ответ на другое сообщение
+        // Если это ответ на другое сообщение (только из того же чата)
         if (request.getReplyToMessageId() != null) {
-            Message replyToMessage = messageRepository.findById(request.getReplyToMessageId())
+            Message replyToMessage = messageRepository.findByIdAndChatId(request.getReplyToMessageId(), chat.getId())
                 .orElse(null);
             message.setReplyToMessage(replyToMessage);
         }
@@ -163,6 +168,7 @@ public class MessageService {
         // Обновляем время последнего сообщения в чате
         chat.setLastMessageAt(LocalDateTime.now());
         chatRepository.save(chat);
+        chatListCache.invalidateChat(chat.getId());
 
         // Отправляем уведомление через Kafka
         notifyAboutNewMessage(savedMessage);
@@ -173,8 +179,8 @@ public class MessageService {
     /**
      * Редактировать сообщение
      */
-    public MessageDto editMessage(Long messageId, Long userId, MessageDto.EditMessageRequest request) {
-        Message message = messageRepository.findById(messageId)
+    public MessageDto editMessage(Long messageId, Long chatId, Long userId, MessageDto.EditMessageRequest request) {
+        Message message = messageRepository.findByIdAndChatId(messageId, chatId)
             .orElseThrow(() -> new RuntimeException("Сообщение не найдено"));
 
         if (!message.getSender().getId().equals(userId)) {
@@ -189,6 +195,7 @@ public class MessageService {
         message.setIsEdited(true);
 
         Message savedMessage = messageRepository.save(message);
+        chatListCache.invalidateChat(savedMessage.getChat().getId());
 
         // Уведомляем об изменении сообщения
         notifyAboutMessageUpdate(savedMessage, "EDITED");
@@ -199,8 +206,8 @@ public class MessageService {
     /**
      * Удалить сообщение
      */
-    public void deleteMessage(Long messageId, Long userId) {
-        Message message = messageRepository.findById(messageId)
+    public void deleteMessage(Long messageId, Long chatId, Long userId) {
+        Message message = messageRepository.findByIdAndChatId(messageId, chatId)
             .orElseThrow(() -> new RuntimeException("Сообщение не найдено"));
 
         if (!message.getSender().getId().equals(userId)) {
@@ -211,6 +218,7 @@ public class MessageService {
         message.setContent("[Сообщение удалено]");
 
         messageRepository.save(message);
+        chatListCache.invalidateChat(message.getChat().getId());
 
         // Уведомляем об удалении сообщения
         notifyAboutMessageUpdate(message, "DELETED");
@@ -310,8 +318,8 @@ public class MessageService {
      * Получить статусы прочтения для сообщения
      */
     @Transactional(readOnly = true)
-    public List<MessageReadStatusDto> getMessageReadStatuses(Long messageId, Long userId) {
-        Message message = messageRepository.findById(messageId)
+    public List<MessageReadStatusDto> getMessageReadStatuses(Long messageId, Long chatId, Long userId) {
+        Message message = messageRepository.findByIdAndChatId(messageId, chatId)
             .orElseThrow(() -> new RuntimeException("Сообщение не найдено"));
 
         // Проверяем доступ
@@ -331,13 +339,17 @@ public class MessageService {
     }
 
     /**
-     * Отметить сообщения как прочитанные
+     * Отметить сообщения чата как прочитанные (ID из другого чата пропускаются)
      */
-    public void markMessagesAsRead(Long userId, List<Long> messageIds) {
+    public void markMessagesAsRead(Long userId, Long chatId, List<Long> messageIds) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
 
-        List<Message> messages = messageRepository.findAllById(messageIds);
+        List<Message> messages = messageRepository.findMessagesByIdsInChatWithSender(chatId, messageIds);
+        boolean changed = false;
 
         for (Message message : messages) {
             // Не отмечаем свои собственные сообщения как прочитанные
@@ -351,11 +363,18 @@ public class MessageService {
                 readStatus.setMessage(message);
                 readStatus.setUser(user);
                 messageReadStatusRepository.save(readStatus);
+                changed = true;
 
                 // Отправляем уведомление о прочтении
                 notifyAboutMessageRead(message, user);
             }
         }
+
+        // Прочтение меняет счётчик непрочитанных читателя и статус последнего сообщения
+        // в списках отправителя и остальных участников
+        if (changed) {
+            chatListCache.invalidateChat(chatId);
+        }
     }
 
     /**
@@ -376,7 +395,7 @@ public class MessageService {
         List<Long> unreadMessageIds = messageReadStatusRepository.findUnreadMessageIdsInChat(chatId, userId);
 
         if (!unreadMessageIds.isEmpty()) {
-            markMessagesAsRead(userId, unreadMessageIds);
+            markMessagesAsRead(userId, chatId, unreadMessageIds);
         }
     }
 
@@ -396,6 +415,7 @@ public class MessageService {
         dto.setContent(message.getContent());
         dto.setMessageType(message.getMessageType());
         dto.setIsEdited(message.getIsEdited());
+        dto.setIsDeleted(message.getIsDeleted());
         dto.setCreatedAt(message.getCreatedAt());
         dto.setUpdatedAt(message.getUpdatedAt());
         dto.setChatId(message.getChat() != null ? message.getChat().getId() : null);
@@ -412,7 +432,7 @@ public class MessageService {
         }
 
         if (message.getReplyToMessage() != null) {
-            dto.setReplyToMessage(convertToDto(message.getReplyToMessage()));
+            dto.setReplyToMessage(convertReplyToDto(message.getReplyToMessage(), dto.getChatId()));
         }
 
         // Добавляем информацию о прочтении
@@ -443,10 +463,25 @@ public class MessageService {
         return dto;
     }
 
+    /**
+     * Сообщение, на которое отвечают. Если его строку перенёс в архив MessageArchiveService,
+     * ссылка остаётся, а отдаётся только ID — само сообщение клиент найдёт в истории чата
+     */
+    private MessageDto convertReplyToDto(Message replyToMessage, Long chatId) {
+        try {
+            return convertToDto(replyToMessage);
+        } catch (EntityNotFoundException e) {
+            MessageDto reply = new MessageDto();
+            reply.setId(replyToMessage.getId());
+            reply.setChatId(chatId);
+            return reply;
+        }
+    }
+
     /**
      * Конвертировать MessageReadStatus в DTO
      */
-    private MessageReadStatusDto convertReadStatusToDto(MessageReadStatus readStatus) {
+    public MessageReadStatusDto convertReadStatusToDto(MessageReadStatus readStatus) {
         MessageReadStatusDto dto = new MessageReadStatusDto();
         dto.setId(readStatus.getId());
         dto.setMessageId(readStatus.getMessage().getId());
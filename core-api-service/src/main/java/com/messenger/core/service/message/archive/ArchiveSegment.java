@@ -0,0 +1,290 @@
+package com.messenger.core.service.message.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Неизменяемый сегмент архива одного чата: сообщения по возрастанию времени, сжатые блоками.
+ * <p>
+ * Формат: {@code MAGIC} | блоки (deflate, до blockSize сообщений) | разреженный индекс —
+ * по записи на блок (ID первого сообщения, смещение, длина, число сообщений) | футер
+ * (ID чата, смещение индекса, число блоков и сообщений, {@code MAGIC}). Файл читается через
+ * {@link MappedByteBuffer}: индекс разбирается при открытии, распаковываются только блоки,
+ * попавшие в запрошенную страницу.
+ */
+public final class ArchiveSegment {
+
+    private static final byte[] MAGIC = "MSGARCH2".getBytes(StandardCharsets.US_ASCII);
+    private static final int INDEX_ENTRY_SIZE = 8 + 8 + 4 + 4;
+    private static final int FOOTER_SIZE = 8 + 8 + 4 + 4 + MAGIC.length;
+
+    private final MappedByteBuffer buffer;
+    private final long chatId;
+    private final int messageCount;
+    private final long[] blockFirstIds;
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+    private final int[] blockCounts;
+
+    private ArchiveSegment(MappedByteBuffer buffer, long chatId, int messageCount,
+                           long[] blockFirstIds, long[] blockOffsets, int[] blockLengths, int[] blockCounts) {
+        this.buffer = buffer;
+        this.chatId = chatId;
+        this.messageCount = messageCount;
+        this.blockFirstIds = blockFirstIds;
+        this.blockOffsets = blockOffsets;
+        this.blockLengths = blockLengths;
+        this.blockCounts = blockCounts;
+    }
+
+    /**
+     * Записать сегмент и сбросить его на диск.
+     *
+     * @param messages сообщения по возрастанию времени
+     */
+    public static void write(Path target, long chatId, List<ArchivedMessage> messages, int blockSize) throws IOException {
+        int blockCount = (messages.size() + blockSize - 1) / blockSize;
+        long[] firstIds = new long[blockCount];
+        long[] offsets = new long[blockCount];
+        int[] lengths = new int[blockCount];
+        int[] counts = new int[blockCount];
+
+        try (FileOutputStream file = new FileOutputStream(target.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.write(MAGIC);
+            long offset = MAGIC.length;
+            for (int block = 0; block < blockCount; block++) {
+                List<ArchivedMessage> slice = messages.subList(block * blockSize,
+                        Math.min(messages.size(), (block + 1) * blockSize));
+                byte[] compressed = compress(slice);
+                firstIds[block] = slice.get(0).id();
+                offsets[block] = offset;
+                lengths[block] = compressed.length;
+                counts[block] = slice.size();
+                out.write(compressed);
+                offset += compressed.length;
+            }
+            for (int block = 0; block < blockCount; block++) {
+                out.writeLong(firstIds[block]);
+                out.writeLong(offsets[block]);
+                out.writeInt(lengths[block]);
+                out.writeInt(counts[block]);
+            }
+            out.writeLong(chatId);
+            out.writeLong(offset);
+            out.writeInt(blockCount);
+            out.writeInt(messages.size());
+            out.write(MAGIC);
+            out.flush();
+            file.getFD().sync();
+        }
+    }
+
+    /**
+     * Отобразить сегмент в память и разобрать индекс.
+     *
+     * @throws IOException если файл обрезан или не является сегментом
+     */
+    public static ArchiveSegment open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int size = buffer.capacity();
+        if (size < MAGIC.length + FOOTER_SIZE) {
+            throw new IOException("Not an archive segment: " + path);
+        }
+        if (!hasMagic(buffer, 0) || !hasMagic(buffer, size - MAGIC.length)) {
+            throw new IOException("Not an archive segment: " + path);
+        }
+        int footer = size - FOOTER_SIZE;
+        long chatId = buffer.getLong(footer);
+        long indexOffset = buffer.getLong(footer + 8);
+        int blockCount = buffer.getInt(footer + 16);
+        int messageCount = buffer.getInt(footer + 20);
+        if (indexOffset + (long) blockCount * INDEX_ENTRY_SIZE != footer) {
+            throw new IOException("Corrupted archive segment index: " + path);
+        }
+
+        long[] firstIds = new long[blockCount];
+        long[] offsets = new long[blockCount];
+        int[] lengths = new int[blockCount];
+        int[] counts = new int[blockCount];
+        for (int block = 0; block < blockCount; block++) {
+            int entry = (int) indexOffset + block * INDEX_ENTRY_SIZE;
+            firstIds[block] = buffer.getLong(entry);
+            offsets[block] = buffer.getLong(entry + 8);
+            lengths[block] = buffer.getInt(entry + 16);
+            counts[block] = buffer.getInt(entry + 20);
+        }
+        return new ArchiveSegment(buffer, chatId, messageCount, firstIds, offsets, lengths, counts);
+    }
+
+    public long getChatId() {
+        return chatId;
+    }
+
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    /** ID самого старого сообщения сегмента */
+    public long getFirstMessageId() {
+        return blockFirstIds.length > 0 ? blockFirstIds[0] : -1;
+    }
+
+    /**
+     * Страница сообщений от новых к старым.
+     *
+     * @param skip  сколько самых новых сообщений сегмента пропустить
+     * @param limit сколько вернуть
+     */
+    public List<ArchivedMessage> readNewestFirst(int skip, int limit) throws IOException {
+        List<ArchivedMessage> result = new ArrayList<>(Math.min(limit, messageCount));
+        for (int block = blockCounts.length - 1; block >= 0 && result.size() < limit; block--) {
+            if (skip >= blockCounts[block]) {
+                skip -= blockCounts[block];
+                continue;
+            }
+            List<ArchivedMessage> messages = readBlock(block);
+            for (int i = messages.size() - 1 - skip; i >= 0 && result.size() < limit; i--) {
+                result.add(messages.get(i));
+            }
+            skip = 0;
+        }
+        return result;
+    }
+
+    private List<ArchivedMessage> readBlock(int block) throws IOException {
+        byte[] compressed = new byte[blockLengths[block]];
+        buffer.get((int) blockOffsets[block], compressed);
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed)))) {
+            List<ArchivedMessage> messages = new ArrayList<>(blockCounts[block]);
+            for (int i = 0; i < blockCounts[block]; i++) {
+                messages.add(readMessage(in));
+            }
+            return messages;
+        }
+    }
+
+    private static byte[] compress(List<ArchivedMessage> messages) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+            for (ArchivedMessage message : messages) {
+                writeMessage(out, message);
+            }
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeMessage(DataOutputStream out, ArchivedMessage message) throws IOException {
+        out.writeLong(message.id());
+        writeNullableLong(out, message.senderId());
+        writeNullableLong(out, message.replyToMessageId());
+        writeString(out, message.content());
+        writeString(out, message.messageType());
+        out.writeBoolean(message.edited());
+        writeTime(out, message.createdAt());
+        writeTime(out, message.updatedAt());
+        writeString(out, message.fileUrl());
+        writeString(out, message.fileName());
+        writeNullableLong(out, message.fileSize());
+        writeString(out, message.mimeType());
+        writeString(out, message.thumbnailUrl());
+        out.writeInt(message.readerIds().length);
+        for (int i = 0; i < message.readerIds().length; i++) {
+            out.writeLong(message.readerIds()[i]);
+            writeTime(out, message.readAt()[i]);
+        }
+    }
+
+    private static ArchivedMessage readMessage(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        Long senderId = readNullableLong(in);
+        Long replyToMessageId = readNullableLong(in);
+        String content = readString(in);
+        String messageType = readString(in);
+        boolean edited = in.readBoolean();
+        LocalDateTime createdAt = readTime(in);
+        LocalDateTime updatedAt = readTime(in);
+        String fileUrl = readString(in);
+        String fileName = readString(in);
+        Long fileSize = readNullableLong(in);
+        String mimeType = readString(in);
+        String thumbnailUrl = readString(in);
+        long[] readerIds = new long[in.readInt()];
+        LocalDateTime[] readAt = new LocalDateTime[readerIds.length];
+        for (int i = 0; i < readerIds.length; i++) {
+            readerIds[i] = in.readLong();
+            readAt[i] = readTime(in);
+        }
+        return new ArchivedMessage(id, senderId, replyToMessageId, content, messageType, edited, createdAt,
+                updatedAt, fileUrl, fileName, fileSize, mimeType, thumbnailUrl, readerIds, readAt);
+    }
+
+    private static boolean hasMagic(MappedByteBuffer buffer, int offset) {
+        byte[] actual = new byte[MAGIC.length];
+        buffer.get(offset, actual);
+        return Arrays.equals(actual, MAGIC);
+    }
+
+    private static void writeNullableLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readNullableLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    // Длина + UTF-8: writeUTF ограничен 64 КБ, а шифртекст сообщения может быть длиннее
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        return length < 0 ? null : new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        return in.readBoolean() ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC) : null;
+    }
+}
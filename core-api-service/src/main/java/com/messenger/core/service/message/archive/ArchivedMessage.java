@@ -0,0 +1,25 @@
+package com.messenger.core.service.message.archive;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сообщение в сегменте архива: строка {@code messages} плюс прочитавшие и время прочтения
+ * ({@code readAt[i]} — для {@code readerIds[i]}), потому что строки {@code message_read_status}
+ * удаляются вместе с сообщением.
+ */
+public record ArchivedMessage(long id,
+                              Long senderId,
+                              Long replyToMessageId,
+                              String content,
+                              String messageType,
+                              boolean edited,
+                              LocalDateTime createdAt,
+                              LocalDateTime updatedAt,
+                              String fileUrl,
+                              String fileName,
+                              Long fileSize,
+                              String mimeType,
+                              String thumbnailUrl,
+                              long[] readerIds,
+                              LocalDateTime[] readAt) {
+}
@@ -0,0 +1,456 @@
+package com.messenger.core.service.message.archive;
+
+import com.messenger.core.dto.MessageDto;
+import com.messenger.core.dto.UserDto;
+import com.messenger.core.model.Message;
+import com.messenger.core.model.User;
+import com.messenger.core.repository.UserRepository;
+import com.messenger.core.service.chat.ChatListCache;
+import com.messenger.core.service.user.UserService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Холодный архив истории чатов.
+ * <p>
+ * Периодическое задание переносит сообщения старше {@code app.archive.min-age-days} из {@code messages}
+ * в неизменяемые сегменты {@code <dir>/<chatId>/<номер>.seg} (см. {@link ArchiveSegment}) и удаляет
+ * их строки вместе со статусами прочтения. Сегмент пишется во временный файл внутри транзакции
+ * удаления и переименовывается только после коммита; оставшийся после сбоя {@code .tmp}
+ * разбирается по тому, есть ли его сообщения в базе. Для каждого чата перенос сериализован
+ * advisory-локом, поэтому каталог можно делить между узлами (общий том).
+ * <p>
+ * Чтение: {@link #getArchivedMessages} продолжает историю чата с того места, где кончились
+ * строки {@code messages}, через отображённые в память сегменты. Сегменты удалённого чата
+ * удаляет {@link #deleteChatArchive}.
+ */
+@Service
+@Slf4j
+public class MessageArchiveService {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMP_SUFFIX = ".seg.tmp";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final ChatListCache chatListCache;
+
+    @Value("${app.archive.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${app.archive.dir:../archive}")
+    private String archiveDir = "../archive";
+
+    @Value("${app.archive.min-age-days:365}")
+    private int minAgeDays = 365;
+
+    @Value("${app.archive.block-size:64}")
+    private int blockSize = 64;
+
+    @Value("${app.archive.max-messages-per-segment:50000}")
+    private int maxMessagesPerSegment = 50000;
+
+    @Value("${app.archive.max-chats-per-run:100}")
+    private int maxChatsPerRun = 100;
+
+    @Value("${app.archive.max-open-segments:256}")
+    private int maxOpenSegments = 256;
+
+    /** Открытые (отображённые) сегменты, LRU: сегменты неизменяемы, поэтому кеш не инвалидируется */
+    private final Map<Path, ArchiveSegment> openSegments = new LinkedHashMap<>(16, 0.75f, true);
+
+    public MessageArchiveService(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 UserRepository userRepository,
+                                 UserService userService,
+                                 ChatListCache chatListCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.userRepository = userRepository;
+        this.userService = userService;
+        this.chatListCache = chatListCache;
+    }
+
+    /**
+     * Перенести в архив сообщения старше порога: по одному сегменту на чат за запуск.
+     */
+    @Scheduled(fixedDelayString = "${app.archive.interval-ms:3600000}",
+               initialDelayString = "${app.archive.interval-ms:3600000}")
+    public void archiveOldMessages() {
+        if (!enabled) {
+            return;
+        }
+        recoverPendingSegments();
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(minAgeDays);
+        List<Long> chatIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT chat_id FROM messages WHERE created_at < ? LIMIT ?",
+                Long.class, Timestamp.valueOf(cutoff), maxChatsPerRun);
+        for (Long chatId : chatIds) {
+            try {
+                archiveChat(chatId, cutoff);
+            } catch (Exception e) {
+                log.error("[ARCHIVE] Failed to archive chat {}: {}", chatId, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Один сегмент для чата: до {@code max-messages-per-segment} самых старых сообщений старше порога.
+     *
+     * @return сколько сообщений удалено из {@code messages}
+     */
+    int archiveChat(Long chatId, LocalDateTime cutoff) throws IOException {
+        Path chatDir = chatDir(chatId);
+        Files.createDirectories(chatDir);
+
+        Path[] written = new Path[1];
+        // Если коммит не состоялся или его исход неизвестен, .tmp разберёт recoverPendingSegments
+        Integer removed = transactionTemplate.execute(status -> {
+            if (!tryLockChat(chatId)) {
+                return 0;
+            }
+            // Удалённые сообщения в историю не попадают — их строки просто удаляются
+            List<Long> idList = new ArrayList<>();
+            List<ArchivedMessage> rows = new ArrayList<>();
+            jdbcTemplate.query(
+                    "SELECT id, sender_id, reply_to_message_id, content, message_type, is_edited, is_deleted, " +
+                    "created_at, updated_at, file_url, file_name, file_size, mime_type, thumbnail_url " +
+                    "FROM messages WHERE chat_id = ? AND created_at < ? ORDER BY created_at, id LIMIT ?",
+                    (RowCallbackHandler) rs -> {
+                        idList.add(rs.getLong("id"));
+                        if (!rs.getBoolean("is_deleted")) {
+                            rows.add(new ArchivedMessage(
+                                    rs.getLong("id"),
+                                    (Long) rs.getObject("sender_id"),
+                                    (Long) rs.getObject("reply_to_message_id"),
+                                    rs.getString("content"),
+                                    rs.getString("message_type"),
+                                    rs.getBoolean("is_edited"),
+                                    toLocalDateTime(rs.getTimestamp("created_at")),
+                                    toLocalDateTime(rs.getTimestamp("updated_at")),
+                                    rs.getString("file_url"),
+                                    rs.getString("file_name"),
+                                    (Long) rs.getObject("file_size"),
+                                    rs.getString("mime_type"),
+                                    rs.getString("thumbnail_url"),
+                                    null,
+                                    null));
+                        }
+                    },
+                    chatId, Timestamp.valueOf(cutoff), maxMessagesPerSegment);
+            if (idList.isEmpty()) {
+                return 0;
+            }
+            Long[] ids = idList.toArray(new Long[0]);
+
+            List<ArchivedMessage> live = withReaders(rows, ids);
+            if (!live.isEmpty()) {
+                try {
+                    written[0] = chatDir.resolve(nextSegmentName(chatDir) + TEMP_SUFFIX);
+                    ArchiveSegment.write(written[0], chatId, live, blockSize);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            // reply_to_message_id ответов не трогаем: внешнего ключа нет, а ID архивного сообщения
+            // по-прежнему находит его в истории (MessageService отдаёт такую ссылку одним ID)
+            jdbcTemplate.update("DELETE FROM message_read_status WHERE message_id = ANY(?)", (Object) ids);
+            return jdbcTemplate.update("DELETE FROM messages WHERE chat_id = ? AND id = ANY(?)", chatId, ids);
+        });
+
+        if (written[0] != null) {
+            publish(written[0]);
+        }
+        if (removed != null && removed > 0) {
+            chatListCache.invalidateChat(chatId);
+            log.info("[ARCHIVE] Chat {}: {} messages moved to cold storage", chatId, removed);
+        }
+        return removed != null ? removed : 0;
+    }
+
+    /**
+     * Архивные сообщения чата от новых к старым.
+     *
+     * @param chatId        ID чата
+     * @param currentUserId ID запрашивающего пользователя (для признака прочтения)
+     * @param skip          сколько самых новых архивных сообщений пропустить
+     * @param limit         сколько вернуть
+     */
+    public List<MessageDto> getArchivedMessages(Long chatId, Long currentUserId, int skip, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        List<ArchivedMessage> page = new ArrayList<>(limit);
+        try {
+            for (Path path : listSegments(chatId)) {
+                ArchiveSegment segment = segment(path);
+                if (skip >= segment.getMessageCount()) {
+                    skip -= segment.getMessageCount();
+                    continue;
+                }
+                page.addAll(segment.readNewestFirst(skip, limit - page.size()));
+                skip = 0;
+                if (page.size() >= limit) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать архив чата " + chatId, e);
+        }
+        if (page.isEmpty()) {
+            return List.of();
+        }
+
+        Set<Long> senderIds = page.stream()
+                .map(ArchivedMessage::senderId)
+                .filter(id -> id != null)
+                .collect(Collectors.toSet());
+        Map<Long, UserDto> senders = userRepository.findAllById(senderIds).stream()
+                .collect(Collectors.toMap(User::getId, userService::convertToDto));
+
+        return page.stream()
+                .map(message -> toDto(message, chatId, currentUserId, senders))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Удалить архив чата после коммита транзакции, удаляющей сам чат.
+     * Вне транзакции удаляет сразу.
+     */
+    public void deleteChatArchive(Long chatId) {
+        Runnable delete = () -> {
+            Path chatDir = chatDir(chatId);
+            synchronized (openSegments) {
+                openSegments.keySet().removeIf(path -> path.startsWith(chatDir));
+            }
+            if (!Files.isDirectory(chatDir)) {
+                return;
+            }
+            try (Stream<Path> files = Files.list(chatDir)) {
+                for (Path path : files.toList()) {
+                    Files.deleteIfExists(path);
+                }
+                Files.deleteIfExists(chatDir);
+                log.info("[ARCHIVE] Chat {}: archive deleted", chatId);
+            } catch (IOException e) {
+                log.error("[ARCHIVE] Failed to delete archive of chat {}: {}", chatId, e.getMessage());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    delete.run();
+                }
+            });
+        } else {
+            delete.run();
+        }
+    }
+
+    /**
+     * Разобрать сегменты, оставшиеся от прерванного переноса: если сообщений сегмента
+     * в базе нет, транзакция закоммичена и сегмент публикуется, иначе он удаляется.
+     * Сегмент уже удалённого чата удаляется без публикации.
+     */
+    void recoverPendingSegments() {
+        Path root = Paths.get(archiveDir);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        List<Path> pending;
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            pending = files.filter(path -> path.getFileName().toString().endsWith(TEMP_SUFFIX)).toList();
+        } catch (IOException e) {
+            log.error("[ARCHIVE] Failed to scan {}: {}", root, e.getMessage());
+            return;
+        }
+        for (Path path : pending) {
+            Long chatId = Long.valueOf(path.getParent().getFileName().toString());
+            transactionTemplate.executeWithoutResult(status -> {
+                // Пока идёт перенос, лок держит тот, кто пишет этот файл
+                if (!tryLockChat(chatId)) {
+                    return;
+                }
+                try {
+                    ArchiveSegment segment;
+                    try {
+                        segment = ArchiveSegment.open(path);
+                    } catch (IOException e) {
+                        log.warn("[ARCHIVE] Discarding incomplete segment {}", path);
+                        Files.deleteIfExists(path);
+                        return;
+                    }
+                    Boolean chatExists = jdbcTemplate.queryForObject(
+                            "SELECT EXISTS (SELECT 1 FROM chats WHERE id = ?)", Boolean.class, chatId);
+                    Boolean stillInDatabase = jdbcTemplate.queryForObject(
+                            "SELECT EXISTS (SELECT 1 FROM messages WHERE chat_id = ? AND id = ?)",
+                            Boolean.class, chatId, segment.getFirstMessageId());
+                    if (!Boolean.TRUE.equals(chatExists)) {
+                        log.warn("[ARCHIVE] Discarding segment {} of deleted chat", path);
+                        Files.deleteIfExists(path);
+                    } else if (Boolean.TRUE.equals(stillInDatabase)) {
+                        log.warn("[ARCHIVE] Discarding uncommitted segment {}", path);
+                        Files.deleteIfExists(path);
+                    } else {
+                        publish(path);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private List<ArchivedMessage> withReaders(List<ArchivedMessage> rows, Long[] ids) {
+        Map<Long, List<Read>> reads = new HashMap<>();
+        jdbcTemplate.query("SELECT message_id, user_id, read_at FROM message_read_status WHERE message_id = ANY(?)",
+                (RowCallbackHandler) rs -> reads.computeIfAbsent(rs.getLong("message_id"), id -> new ArrayList<>())
+                        .add(new Read(rs.getLong("user_id"), toLocalDateTime(rs.getTimestamp("read_at")))),
+                (Object) ids);
+        return rows.stream()
+                .map(row -> {
+                    List<Read> messageReads = reads.getOrDefault(row.id(), List.of());
+                    return new ArchivedMessage(row.id(), row.senderId(), row.replyToMessageId(), row.content(),
+                            row.messageType(), row.edited(), row.createdAt(), row.updatedAt(), row.fileUrl(),
+                            row.fileName(), row.fileSize(), row.mimeType(), row.thumbnailUrl(),
+                            messageReads.stream().mapToLong(Read::userId).toArray(),
+                            messageReads.stream().map(Read::readAt).toArray(LocalDateTime[]::new));
+                })
+                .toList();
+    }
+
+    private MessageDto toDto(ArchivedMessage message, Long chatId, Long currentUserId, Map<Long, UserDto> senders) {
+        MessageDto dto = new MessageDto();
+        dto.setId(message.id());
+        dto.setChatId(chatId);
+        dto.setContent(message.content());
+        dto.setMessageType(Message.MessageType.valueOf(message.messageType()));
+        dto.setIsEdited(message.edited());
+        dto.setIsDeleted(false);
+        dto.setCreatedAt(message.createdAt());
+        dto.setUpdatedAt(message.updatedAt());
+        dto.setFileUrl(message.fileUrl());
+        dto.setFileName(message.fileName());
+        dto.setFileSize(message.fileSize());
+        dto.setMimeType(message.mimeType());
+        dto.setThumbnailUrl(message.thumbnailUrl());
+        if (message.senderId() != null) {
+            dto.setSender(senders.get(message.senderId()));
+        }
+        if (message.replyToMessageId() != null) {
+            MessageDto reply = new MessageDto();
+            reply.setId(message.replyToMessageId());
+            reply.setChatId(chatId);
+            dto.setReplyToMessage(reply);
+        }
+        if (currentUserId != null) {
+            dto.setIsReadByCurrentUser(false);
+            for (int i = 0; i < message.readerIds().length; i++) {
+                if (message.readerIds()[i] == currentUserId) {
+                    dto.setIsReadByCurrentUser(true);
+                    dto.setReadAt(message.readAt()[i]);
+                    break;
+                }
+            }
+        }
+        dto.setReadCount(message.readerIds().length);
+        return dto;
+    }
+
+    /** Сегменты чата от новых к старым */
+    private List<Path> listSegments(Long chatId) throws IOException {
+        Path chatDir = chatDir(chatId);
+        if (!Files.isDirectory(chatDir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(chatDir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted(Comparator.comparing((Path path) -> path.getFileName().toString()).reversed())
+                    .toList();
+        }
+    }
+
+    private ArchiveSegment segment(Path path) throws IOException {
+        synchronized (openSegments) {
+            ArchiveSegment segment = openSegments.get(path);
+            if (segment == null) {
+                segment = ArchiveSegment.open(path);
+                openSegments.put(path, segment);
+                if (openSegments.size() > maxOpenSegments) {
+                    // Отображение освобождается сборщиком мусора вместе с буфером
+                    openSegments.remove(openSegments.keySet().iterator().next());
+                }
+            }
+            return segment;
+        }
+    }
+
+    /** Номер следующего сегмента: имена с ведущими нулями сортируются в порядке записи */
+    private static String nextSegmentName(Path chatDir) throws IOException {
+        try (Stream<Path> files = Files.list(chatDir)) {
+            long last = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX) || name.endsWith(TEMP_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.indexOf('.'))))
+                    .max(Long::compare)
+                    .orElse(0L);
+            return String.format("%010d", last + 1);
+        }
+    }
+
+    private static void publish(Path temp) throws IOException {
+        String name = temp.getFileName().toString();
+        Path target = temp.resolveSibling(name.substring(0, name.length() - TEMP_SUFFIX.length()) + SEGMENT_SUFFIX);
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private boolean tryLockChat(Long chatId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(hashtext('message-archive:' || ?))", Boolean.class, chatId));
+    }
+
+    private Path chatDir(Long chatId) {
+        return Paths.get(archiveDir, String.valueOf(chatId));
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private record Read(long userId, LocalDateTime readAt) {
+    }
+}
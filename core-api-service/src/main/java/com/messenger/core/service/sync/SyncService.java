@@ -0,0 +1,130 @@
+package com.messenger.core.service.sync;
+
+import com.messenger.core.dto.MessageDto;
+import com.messenger.core.dto.MessageReadStatusDto;
+import com.messenger.core.dto.SyncDto;
+import com.messenger.core.model.Message;
+import com.messenger.core.model.MessageReadStatus;
+import com.messenger.core.repository.ChatRepository;
+import com.messenger.core.repository.MessageReadStatusRepository;
+import com.messenger.core.repository.MessageRepository;
+import com.messenger.core.service.OptimizedDataService;
+import com.messenger.core.service.message.MessageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Дельта-синхронизация для переподключившегося клиента.
+ * <p>
+ * Вместо полного списка чатов и первой страницы каждого открытого чата клиент получает только
+ * то, что изменилось после его токена. Источник — индексированные {@code updated_at} сообщений
+ * ({@code chat_id, updated_at}), {@code updated_at}/{@code last_message_at} чатов и
+ * {@code read_at} отметок о прочтении.
+ * <p>
+ * Токен — момент начала предыдущего запроса минус {@code overlap}: транзакция, начатая раньше,
+ * но закоммиченная позже, всё равно попадёт в следующую дельту. Дубликаты клиент схлопывает по id.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SyncService {
+
+    private final ChatRepository chatRepository;
+    private final MessageRepository messageRepository;
+    private final MessageReadStatusRepository messageReadStatusRepository;
+    private final OptimizedDataService optimizedDataService;
+    private final MessageService messageService;
+
+    @Value("${app.sync.max-changes:500}")
+    private int maxChanges = 500;
+
+    @Value("${app.sync.max-age-hours:72}")
+    private long maxAgeHours = 72;
+
+    @Value("${app.sync.overlap-ms:5000}")
+    private long overlapMs = 5000;
+
+    /**
+     * Изменения для пользователя после токена.
+     *
+     * @param since токен из предыдущего ответа; {@code null} — первая синхронизация
+     */
+    @Transactional(readOnly = true)
+    public SyncDto sync(Long userId, String since) {
+        LocalDateTime now = LocalDateTime.now();
+        String nextToken = encodeToken(now.minus(Duration.ofMillis(overlapMs)));
+
+        LocalDateTime from = decodeToken(since);
+        if (from == null || from.isBefore(now.minusHours(maxAgeHours))) {
+            log.info("[SYNC] Full resync for user {}: token {}", userId, since);
+            return fullResync(nextToken);
+        }
+
+        List<Long> chatIds = chatRepository.findChatIdsByUserId(userId);
+        if (chatIds.isEmpty()) {
+            return new SyncDto(nextToken, false, chatIds, List.of(), List.of(), List.of());
+        }
+
+        // Запрашиваем на одну запись больше лимита, чтобы понять, что изменений слишком много
+        PageRequest limit = PageRequest.of(0, maxChanges + 1);
+        List<Message> messages = messageRepository.findChangedSinceInChats(chatIds, from, limit);
+        List<MessageReadStatus> reads = messageReadStatusRepository.findReadSinceInChats(chatIds, from, limit);
+        if (messages.size() > maxChanges || reads.size() > maxChanges) {
+            log.info("[SYNC] Full resync for user {}: more than {} changes since {}", userId, maxChanges, from);
+            return fullResync(nextToken);
+        }
+
+        // Прочтения меняют счётчики непрочитанных, поэтому их чаты тоже отдаются заново
+        Set<Long> changedChatIds = new LinkedHashSet<>(chatRepository.findChatIdsByUserIdChangedSince(userId, from));
+        reads.forEach(read -> changedChatIds.add(read.getMessage().getChat().getId()));
+
+        // Прочитанность своими силами не вычисляется: отметки идут отдельным списком
+        List<MessageDto> messageDtos = messages.stream()
+                .map(messageService::convertToDto)
+                .collect(Collectors.toList());
+        List<MessageReadStatusDto> readDtos = reads.stream()
+                .map(messageService::convertReadStatusToDto)
+                .collect(Collectors.toList());
+
+        log.debug("[SYNC] User {} since {}: {} chats, {} messages, {} reads",
+                userId, from, changedChatIds.size(), messageDtos.size(), readDtos.size());
+        return new SyncDto(nextToken, false, chatIds,
+                optimizedDataService.getOptimizedChats(userId, new ArrayList<>(changedChatIds)),
+                messageDtos, readDtos);
+    }
+
+    private static SyncDto fullResync(String token) {
+        return new SyncDto(token, true, null, List.of(), List.of(), List.of());
+    }
+
+    /** Токен — миллисекунды эпохи в base36; для клиента он непрозрачен */
+    private String encodeToken(LocalDateTime moment) {
+        return Long.toString(moment.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), 36);
+    }
+
+    private LocalDateTime decodeToken(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            Instant instant = Instant.ofEpochMilli(Long.parseLong(token, 36));
+            return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -32,12 +32,18 @@ public class TurnCredentialsServiceImpl implements TurnCredentialsService {
     @Value("${turn.port:3478}")
     private int turnPort;
 
+    /**
+     * Mac не потокобезопасен, а getInstance + init на каждый вызов дороже самой подписи:
+     * у каждого потока свой экземпляр, один раз инициализированный секретом.
+     */
+    private final ThreadLocal<Mac> mac = ThreadLocal.withInitial(this::newMac);
+
     @Override
     public Map<String, Object> generateCredentials(String username) {
         long timestamp = System.currentTimeMillis() / 1000L + TTL_SECONDS;
         // Формат username для coturn: "timestamp:username"
         String turnUsername = timestamp + ":" + username;
-        String credential = generateHmacSha1(turnSecret, turnUsername);
+        String credential = generateHmacSha1(turnUsername);
 
         log.debug("[TURN] Issued credentials for user: {}", username);
 
@@ -54,23 +60,26 @@ public class TurnCredentialsServiceImpl implements TurnCredentialsService {
     }
 
     /**
-     * Вычисляет HMAC-SHA1 подпись.
+     * Вычисляет HMAC-SHA1 подпись секретом TURN.
      *
-     * @param secret секретный ключ
-     * @param data   данные для подписи
+     * @param data данные для подписи
      * @return Base64-закодированная подпись
+     */
+    private String generateHmacSha1(String data) {
+        byte[] rawHmac = mac.get().doFinal(data.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(rawHmac);
+    }
+
+    /**
      * @throws IllegalStateException если алгоритм недоступен (не ожидается в JVM)
      */
-    private String generateHmacSha1(String secret, String data) {
+    private Mac newMac() {
         try {
-            Mac mac = Mac.getInstance(ALGORITHM);
-            SecretKeySpec secretKey = new SecretKeySpec(
-                    secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
-            mac.init(secretKey);
-            byte[] rawHmac = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(rawHmac);
+            Mac instance = Mac.getInstance(ALGORITHM);
+            instance.init(new SecretKeySpec(turnSecret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            return instance;
         } catch (Exception e) {
-            throw new IllegalStateException("Failed to compute HMAC-SHA1", e);
+            throw new IllegalStateException("Failed to initialize HMAC-SHA1", e);
         }
     }
 }
@@ -0,0 +1,327 @@
+package com.messenger.core.service.upload;
+
+import com.messenger.core.dto.MessageDto;
+import com.messenger.core.dto.UploadSessionDto;
+import com.messenger.core.dto.request.InitUploadRequest;
+import com.messenger.core.service.FileStorageService;
+import com.messenger.core.service.chat.ChatAccessService;
+import com.messenger.core.service.message.MessageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Возобновляемая загрузка больших вложений по частям (init / put-chunk / complete).
+ *
+ * Чанки дописываются во временный файл через {@link FileChannel} прямо из тела запроса,
+ * без multipart-спулинга. SHA-256 считается инкрементально по мере записи, поэтому
+ * complete не перечитывает файл. Сообщение создаётся только после проверки контрольной суммы.
+ * Сессия удаляется только после отправки сообщения: если сохранение или отправка упали,
+ * клиент повторяет complete. Брошенные сессии и их временные файлы периодически удаляются.
+ */
+@Service
+@Slf4j
+public class ChunkedUploadService {
+
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    private final FileStorageService fileStorageService;
+    private final MessageService messageService;
+    private final ChatAccessService chatAccessService;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    @Value("${file.upload.chunk.max-size:5242880}")
+    private int maxChunkSize;
+
+    @Value("${file.upload.chunk.session-ttl-minutes:60}")
+    private long sessionTtlMinutes;
+
+    public ChunkedUploadService(FileStorageService fileStorageService,
+                                MessageService messageService,
+                                ChatAccessService chatAccessService) {
+        this.fileStorageService = fileStorageService;
+        this.messageService = messageService;
+        this.chatAccessService = chatAccessService;
+    }
+
+    /**
+     * Начать загрузку: проверить доступ и метаданные, создать пустой временный файл.
+     *
+     * @param userId  ID загружающего пользователя
+     * @param request метаданные файла
+     * @return состояние новой сессии загрузки
+     */
+    public UploadSessionDto initUpload(Long userId, InitUploadRequest request) throws IOException {
+        chatAccessService.verifyParticipant(request.getChatId(), userId);
+        fileStorageService.validateFileMetadata(request.getFileName(), request.getMimeType(), request.getFileSize());
+
+        purgeExpiredSessions();
+
+        String uploadId = UUID.randomUUID().toString();
+        Path partFile = fileStorageService.getIncomingDir().resolve(uploadId + ".part");
+        Files.createFile(partFile);
+
+        UploadSession session = new UploadSession(uploadId, userId, request.getChatId(),
+                StringUtils.cleanPath(request.getFileName()), request.getMimeType(),
+                request.getFileSize(), request.getCaption(), partFile, newDigest());
+        sessions.put(uploadId, session);
+
+        log.info("Chunked upload {} started: {} ({} bytes) to chat {} by user {}",
+                uploadId, session.fileName, session.fileSize, session.chatId, userId);
+        return toDto(session);
+    }
+
+    /**
+     * Получить состояние загрузки (используется клиентом для возобновления после обрыва).
+     */
+    public UploadSessionDto getStatus(Long userId, String uploadId) {
+        UploadSession session = getOwnedSession(userId, uploadId);
+        synchronized (session) {
+            return toDto(session);
+        }
+    }
+
+    /**
+     * Дописать чанк в файл загрузки.
+     * Смещение должно совпадать с количеством уже полученных байт. Повторная отправка
+     * уже принятого чанка (ответ потерялся в сети) игнорируется. При обрыве посреди
+     * чанка файл и контрольная сумма откатываются к последнему целому чанку.
+     *
+     * @param userId   ID пользователя
+     * @param uploadId ID загрузки
+     * @param offset   смещение чанка в файле
+     * @param body     тело запроса с байтами чанка
+     * @return состояние загрузки после записи
+     */
+    public UploadSessionDto appendChunk(Long userId, String uploadId, long offset, InputStream body) throws IOException {
+        UploadSession session = getOwnedSession(userId, uploadId);
+
+        synchronized (session) {
+            if (offset < session.receivedBytes) {
+                log.debug("Chunk at offset {} for upload {} already received, skipping", offset, uploadId);
+                return toDto(session);
+            }
+            if (offset != session.receivedBytes) {
+                throw new IllegalArgumentException("Неверное смещение чанка: ожидалось " + session.receivedBytes + ", получено " + offset);
+            }
+
+            MessageDigest digestSnapshot = cloneDigest(session.digest);
+            long written = 0;
+
+            try (FileChannel channel = FileChannel.open(session.partFile, StandardOpenOption.WRITE);
+                 ReadableByteChannel source = Channels.newChannel(body)) {
+                channel.position(offset);
+                ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE);
+
+                while (source.read(buffer) != -1) {
+                    buffer.flip();
+                    written += buffer.remaining();
+                    if (written > maxChunkSize || offset + written > session.fileSize) {
+                        throw new IllegalArgumentException("Чанк превышает допустимый размер");
+                    }
+                    session.digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            } catch (IOException | RuntimeException e) {
+                rollback(session, offset, digestSnapshot);
+                throw e;
+            }
+
+            session.receivedBytes = offset + written;
+            session.touch();
+            return toDto(session);
+        }
+    }
+
+    /**
+     * Завершить загрузку: проверить размер и SHA-256, переместить файл в директорию чата
+     * и отправить файловое сообщение.
+     *
+     * @param userId   ID пользователя
+     * @param uploadId ID загрузки
+     * @param checksum ожидаемый SHA-256 файла в hex
+     * @return DTO созданного сообщения
+     */
+    public MessageDto completeUpload(Long userId, String uploadId, String checksum) throws IOException {
+        UploadSession session = getOwnedSession(userId, uploadId);
+
+        synchronized (session) {
+            // Пока ждали монитор, параллельный complete мог завершить загрузку
+            if (sessions.get(uploadId) != session) {
+                throw new RuntimeException("Сессия загрузки не найдена");
+            }
+            session.touch();
+            if (session.receivedBytes != session.fileSize) {
+                throw new IllegalStateException("Загрузка не завершена: получено " + session.receivedBytes + " из " + session.fileSize + " байт");
+            }
+
+            // digest() сбрасывает состояние, а complete можно повторить — считаем по копии
+            String actual = HexFormat.of().formatHex(cloneDigest(session.digest).digest());
+            if (checksum == null || !actual.equalsIgnoreCase(checksum.trim())) {
+                abort(session);
+                throw new IllegalArgumentException("Контрольная сумма файла не совпадает");
+            }
+
+            // Файл переносится один раз: при повторе после сбоя отправки он уже в директории чата
+            if (session.storedFile == null) {
+                session.storedFile = fileStorageService.storeAssembledFile(
+                        session.partFile, session.chatId, session.fileName, session.mimeType);
+            }
+            MessageDto message = messageService.sendFileMessage(userId, session.chatId, session.caption, session.storedFile);
+            sessions.remove(uploadId);
+
+            log.info("Chunked upload {} completed: {}", uploadId, session.storedFile.getFileUrl());
+            return message;
+        }
+    }
+
+    /**
+     * Отменить загрузку и удалить временный файл.
+     */
+    public void cancelUpload(Long userId, String uploadId) {
+        UploadSession session = getOwnedSession(userId, uploadId);
+        synchronized (session) {
+            abort(session);
+        }
+    }
+
+    private UploadSession getOwnedSession(Long userId, String uploadId) {
+        UploadSession session = sessions.get(uploadId);
+        if (session == null || session.isExpired(sessionTtlMinutes)) {
+            throw new RuntimeException("Сессия загрузки не найдена");
+        }
+        if (!session.userId.equals(userId)) {
+            throw new IllegalArgumentException("Доступ запрещён: загрузка принадлежит другому пользователю");
+        }
+        return session;
+    }
+
+    private void rollback(UploadSession session, long offset, MessageDigest digestSnapshot) {
+        session.digest = digestSnapshot;
+        try (FileChannel channel = FileChannel.open(session.partFile, StandardOpenOption.WRITE)) {
+            channel.truncate(offset);
+        } catch (IOException e) {
+            log.error("Failed to roll back upload {} to offset {}: {}", session.uploadId, offset, e.getMessage());
+        }
+    }
+
+    private void abort(UploadSession session) {
+        sessions.remove(session.uploadId);
+        deleteFiles(session);
+    }
+
+    /**
+     * Удалить брошенные загрузки вместе с временными файлами. Кроме планировщика вызывается
+     * при каждом initUpload.
+     */
+    @Scheduled(fixedDelayString = "${file.upload.chunk.purge-interval-ms:600000}",
+               initialDelayString = "${file.upload.chunk.purge-interval-ms:600000}")
+    public void purgeExpiredSessions() {
+        sessions.values().removeIf(session -> {
+            if (!session.isExpired(sessionTtlMinutes)) {
+                return false;
+            }
+            deleteFiles(session);
+            log.info("Chunked upload {} expired", session.uploadId);
+            return true;
+        });
+    }
+
+    /** Временный файл, а если он уже перенесён, но сообщение так и не отправлено, — сохранённый */
+    private void deleteFiles(UploadSession session) {
+        try {
+            Files.deleteIfExists(session.partFile);
+        } catch (IOException e) {
+            log.error("Failed to delete part file for upload {}: {}", session.uploadId, e.getMessage());
+        }
+        if (session.storedFile != null) {
+            fileStorageService.deleteFile(session.storedFile.getFileUrl());
+        }
+    }
+
+    private UploadSessionDto toDto(UploadSession session) {
+        return new UploadSessionDto(session.uploadId, session.chatId, session.fileName, session.fileSize,
+                session.receivedBytes, maxChunkSize,
+                session.lastActivityAt.plus(Duration.ofMinutes(sessionTtlMinutes)));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    private static MessageDigest cloneDigest(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Не удалось сохранить состояние контрольной суммы", e);
+        }
+    }
+
+    /**
+     * Состояние одной загрузки. Изменяется только под монитором самой сессии.
+     */
+    private static final class UploadSession {
+        private final String uploadId;
+        private final Long userId;
+        private final Long chatId;
+        private final String fileName;
+        private final String mimeType;
+        private final long fileSize;
+        private final String caption;
+        private final Path partFile;
+        private MessageDigest digest;
+        private long receivedBytes;
+        /** Файл, уже перенесённый в директорию чата, если отправка сообщения не удалась */
+        private FileStorageService.FileInfo storedFile;
+        private volatile LocalDateTime lastActivityAt = LocalDateTime.now();
+
+        private UploadSession(String uploadId, Long userId, Long chatId, String fileName, String mimeType,
+                              long fileSize, String caption, Path partFile, MessageDigest digest) {
+            this.uploadId = uploadId;
+            this.userId = userId;
+            this.chatId = chatId;
+            this.fileName = fileName;
+            this.mimeType = mimeType;
+            this.fileSize = fileSize;
+            this.caption = caption;
+            this.partFile = partFile;
+            this.digest = digest;
+        }
+
+        private void touch() {
+            lastActivityAt = LocalDateTime.now();
+        }
+
+        private boolean isExpired(long ttlMinutes) {
+            return lastActivityAt.plusMinutes(ttlMinutes).isBefore(LocalDateTime.now());
+        }
+    }
+}
@@ -4,7 +4,7 @@ import jakarta.servlet.http.HttpServletRequest;
 
 /**
  * Абстракция для извлечения идентификатора текущего пользователя из HTTP-запроса.
- * Поддерживает два источника: заголовок X-User-Id (Gateway) и JWT-токен.
+ * Поддерживает два источника: подписанный Gateway заголовок X-User-Id и JWT-токен.
  */
 public interface UserContextResolver {
 
@@ -1,6 +1,7 @@
 package com.messenger.core.service.user;
 
 import com.messenger.core.config.JwtAuthenticationFilter;
+import com.messenger.core.security.GatewayIdentityVerifier;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -8,8 +9,9 @@ import org.springframework.stereotype.Service;
 
 /**
  * Реализация {@link UserContextResolver}.
- * Сначала пытается получить ID из заголовка X-User-Id (проставляется Gateway),
- * затем — через JWT-токен из Authorization-заголовка.
+ * Сначала берёт ID, подтверждённый подписью Gateway (заголовок X-User-Id проверяется
+ * в {@link JwtAuthenticationFilter}), затем — через JWT-токен из Authorization-заголовка.
+ * Неподписанный X-User-Id не принимается: его может выставить любой клиент.
  */
 @Slf4j
 @Service
@@ -20,15 +22,10 @@ public class UserContextResolverImpl implements UserContextResolver {
 
     @Override
     public Long resolveUserId(HttpServletRequest request) {
-        // 1. Заголовок от Gateway
-        String userIdHeader = request.getHeader("X-User-Id");
-        if (userIdHeader != null && !userIdHeader.isEmpty()) {
-            try {
-                return Long.parseLong(userIdHeader);
-            } catch (NumberFormatException e) {
-                throw new IllegalArgumentException(
-                        "Неверный формат ID пользователя в заголовке: " + userIdHeader);
-            }
+        // 1. Идентичность, подписанная Gateway
+        Long gatewayUserId = getGatewayUserId(request);
+        if (gatewayUserId != null) {
+            return gatewayUserId;
         }
 
         // 2. JWT-токен
@@ -50,15 +47,10 @@ public class UserContextResolverImpl implements UserContextResolver {
 
     @Override
     public Long resolveUserId(HttpServletRequest request, String tokenParam) {
-        // 1. Заголовок от Gateway — наивысший приоритет
-        String userIdHeader = request.getHeader("X-User-Id");
-        if (userIdHeader != null && !userIdHeader.isEmpty()) {
-            try {
-                return Long.parseLong(userIdHeader);
-            } catch (NumberFormatException e) {
-                throw new IllegalArgumentException(
-                        "Неверный формат ID пользователя в заголовке: " + userIdHeader);
-            }
+        // 1. Идентичность, подписанная Gateway — наивысший приоритет
+        Long gatewayUserId = getGatewayUserId(request);
+        if (gatewayUserId != null) {
+            return gatewayUserId;
         }
 
         // 2. JWT из query-параметра (для GET-запросов ресурсов)
@@ -77,4 +69,9 @@ public class UserContextResolverImpl implements UserContextResolver {
         // 3. JWT из Authorization-заголовка
         return resolveUserId(request);
     }
+
+    private Long getGatewayUserId(HttpServletRequest request) {
+        Object verified = request.getAttribute(GatewayIdentityVerifier.VERIFIED_USER_ID_ATTRIBUTE);
+        return verified instanceof Long userId ? userId : null;
+    }
 }
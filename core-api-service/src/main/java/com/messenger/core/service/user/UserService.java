@@ -7,6 +7,7 @@ import com.messenger.core.service.encryption.EncryptionService;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,6 +25,8 @@ public interface UserService {
 
     UserDto getUserInfo(Long userId, Long currentUserId);
 
+    Optional<LocalDateTime> getProfileVersion(Long userId);
+
     void updateOnlineStatus(Long userId, boolean isOnline);
 
     UserDto updateProfile(Long userId, UserDto.UpdateProfileRequest request);
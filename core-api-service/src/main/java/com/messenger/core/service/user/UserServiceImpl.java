@@ -3,8 +3,12 @@ package com.messenger.core.service.user;
 import com.messenger.core.dto.UserDto;
 import com.messenger.core.model.Friendship;
 import com.messenger.core.model.User;
+import com.messenger.core.model.UserProfile;
 import com.messenger.core.repository.FriendshipRepository;
+import com.messenger.core.repository.UserProfileRepository;
 import com.messenger.core.repository.UserRepository;
+import com.messenger.core.repository.UserRepository.UserSummary;
+import com.messenger.core.service.chat.ChatListCache;
 import com.messenger.core.service.encryption.EncryptionService;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -41,6 +45,8 @@ public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
     private final FriendshipRepository friendshipRepository;
+    private final UserProfileRepository userProfileRepository;
+    private final ChatListCache chatListCache;
 
     /**
      * Self-инъекция через {@code @Lazy} для корректной работы {@code @Cacheable}
@@ -53,9 +59,12 @@ public class UserServiceImpl implements UserService {
     @Value("${file.upload-dir:uploads}")
     private String uploadDir;
 
-    public UserServiceImpl(UserRepository userRepository, FriendshipRepository friendshipRepository) {
+    public UserServiceImpl(UserRepository userRepository, FriendshipRepository friendshipRepository,
+                           UserProfileRepository userProfileRepository, ChatListCache chatListCache) {
         this.userRepository = userRepository;
         this.friendshipRepository = friendshipRepository;
+        this.userProfileRepository = userProfileRepository;
+        this.chatListCache = chatListCache;
     }
 
     /**
@@ -68,7 +77,7 @@ public class UserServiceImpl implements UserService {
      */
     @Transactional(readOnly = true)
     public List<UserDto.UserSearchResult> searchUsers(String query, Long currentUserId) {
-        List<User> users = userRepository.searchUsers(query);
+        List<UserSummary> users = userRepository.searchUserSummaries(query);
 
         return users.stream()
             .filter(user -> !user.getId().equals(currentUserId))
@@ -90,6 +99,8 @@ public class UserServiceImpl implements UserService {
             .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
 
         UserDto dto = self.convertToDto(user);
+        // bio хранится отдельно от строки users и нужен только на странице профиля
+        dto.setBio(userProfileRepository.findById(userId).map(UserProfile::getBio).orElse(null));
 
         if (!userId.equals(currentUserId)) {
             Optional<Friendship.FriendshipStatus> status = self.getFriendshipStatus(currentUserId, userId);
@@ -99,11 +110,24 @@ public class UserServiceImpl implements UserService {
         return dto;
     }
 
+    /**
+     * Версия профиля пользователя — время последнего изменения записи.
+     * Меняется при любом сохранении пользователя (профиль, аватар, онлайн-статус),
+     * поэтому подходит для ETag ответа с профилем.
+     *
+     * @param userId ID пользователя
+     * @return время последнего изменения или пустой {@link Optional}, если пользователь не найден
+     */
+    @Transactional(readOnly = true)
+    public Optional<LocalDateTime> getProfileVersion(Long userId) {
+        return userRepository.findUpdatedAtById(userId);
+    }
+
     /**
      * Обновить статус онлайн-присутствия пользователя.
      * При уходе в офлайн фиксируется время последнего посещения ({@code lastSeen}).
      * При входе в онлайн {@code lastSeen} сбрасывается в {@code null}.
-     * Вызов инвалидирует кеш пользователя.
+     * Вызов инвалидирует кеш пользователя и списки чатов, в которых он отображается.
      *
      * @param userId   ID пользователя
      * @param isOnline {@code true} — онлайн, {@code false} — офлайн
@@ -126,6 +150,7 @@ public class UserServiceImpl implements UserService {
         }
 
         userRepository.save(user);
+        chatListCache.invalidateMember(userId);
     }
 
     /**
@@ -137,6 +162,7 @@ public class UserServiceImpl implements UserService {
      * @return обновлённый DTO пользователя
      * @throws RuntimeException если username или email уже заняты другим пользователем
      */
+    @CacheEvict(value = "users", key = "#userId", beforeInvocation = true)
     public UserDto updateProfile(Long userId, UserDto.UpdateProfileRequest request) {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
@@ -160,9 +186,22 @@ public class UserServiceImpl implements UserService {
         if (request.getFirstName() != null) user.setFirstName(request.getFirstName());
         if (request.getLastName() != null)  user.setLastName(request.getLastName());
         if (request.getProfilePictureUrl() != null) user.setProfilePictureUrl(request.getProfilePictureUrl());
-        if (request.getBio() != null) user.setBio(request.getBio());
+        String bio = null;
+        if (request.getBio() != null) {
+            UserProfile profile = userProfileRepository.findById(userId).orElseGet(() -> new UserProfile(userId, null));
+            profile.setBio(request.getBio());
+            bio = userProfileRepository.save(profile).getBio();
+            // Строка users могла не измениться, а ETag профиля строится по её updatedAt
+            user.setUpdatedAt(LocalDateTime.now());
+        } else {
+            bio = userProfileRepository.findById(userId).map(UserProfile::getBio).orElse(null);
+        }
 
-        return self.convertToDto(userRepository.save(user));
+        User saved = userRepository.save(user);
+        chatListCache.invalidateMember(userId);
+        UserDto dto = self.convertToDto(saved);
+        dto.setBio(bio);
+        return dto;
     }
 
     /**
@@ -174,6 +213,7 @@ public class UserServiceImpl implements UserService {
      * @return URL загруженного аватара
      * @throws IOException если произошла ошибка ввода-вывода при сохранении файла
      */
+    @CacheEvict(value = "users", key = "#userId")
     public String uploadAvatar(Long userId, MultipartFile file) throws IOException {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
@@ -194,6 +234,7 @@ public class UserServiceImpl implements UserService {
         String avatarUrl = "/avatars/" + fileName;
         user.setProfilePictureUrl(avatarUrl);
         userRepository.save(user);
+        chatListCache.invalidateMember(userId);
 
         return avatarUrl;
     }
@@ -217,9 +258,8 @@ public class UserServiceImpl implements UserService {
      */
     @Transactional(readOnly = true)
     public List<UserDto> getAllUsers(Long currentUserId) {
-        return userRepository.findAll().stream()
-            .filter(user -> !user.getId().equals(currentUserId))
-            .map(user -> self.convertToDto(user))
+        return userRepository.findAllSummariesExcept(currentUserId).stream()
+            .map(UserServiceImpl::convertSummaryToDto)
             .collect(Collectors.toList());
     }
 
@@ -231,16 +271,8 @@ public class UserServiceImpl implements UserService {
      */
     @Transactional(readOnly = true)
     public List<UserDto> getFriends(Long userId) {
-        List<Friendship> friendships = friendshipRepository.findAcceptedFriendships(userId);
-
-        return friendships.stream()
-            .map(friendship -> {
-                // Определяем, кто является другом относительно текущего пользователя
-                User friend = friendship.getRequester().getId().equals(userId)
-                    ? friendship.getReceiver()
-                    : friendship.getRequester();
-                return self.convertToDto(friend);
-            })
+        return userRepository.findFriendSummariesByUserId(userId).stream()
+            .map(UserServiceImpl::convertSummaryToDto)
             .collect(Collectors.toList());
     }
 
@@ -274,7 +306,22 @@ public class UserServiceImpl implements UserService {
         dto.setFirstName(user.getFirstName());
         dto.setLastName(user.getLastName());
         dto.setProfilePictureUrl(user.getProfilePictureUrl());
-        dto.setBio(user.getBio());
+        dto.setIsOnline(user.getIsOnline());
+        dto.setLastSeen(user.getLastSeen());
+        return dto;
+    }
+
+    /**
+     * Карточка пользователя из read-only проекции; bio в списки не входит.
+     */
+    private static UserDto convertSummaryToDto(UserSummary user) {
+        UserDto dto = new UserDto();
+        dto.setId(user.getId());
+        dto.setUsername(user.getUsername());
+        dto.setEmail(user.getEmail());
+        dto.setFirstName(user.getFirstName());
+        dto.setLastName(user.getLastName());
+        dto.setProfilePictureUrl(user.getProfilePictureUrl());
         dto.setIsOnline(user.getIsOnline());
         dto.setLastSeen(user.getLastSeen());
         return dto;
@@ -308,14 +355,14 @@ public class UserServiceImpl implements UserService {
     }
 
     /**
-     * Конвертировать сущность {@link User} в {@link UserDto.UserSearchResult}.
+     * Конвертировать проекцию {@link UserSummary} в {@link UserDto.UserSearchResult}.
      * Заполняет статус дружбы и флаг возможности начать чат.
      *
      * @param user          сущность пользователя
      * @param currentUserId ID вызывающего пользователя
      * @return результат поиска с информацией о дружбе
      */
-    private UserDto.UserSearchResult convertToSearchResult(User user, Long currentUserId) {
+    private UserDto.UserSearchResult convertToSearchResult(UserSummary user, Long currentUserId) {
         UserDto.UserSearchResult result = new UserDto.UserSearchResult();
         result.setId(user.getId());
         result.setUsername(user.getUsername());
@@ -0,0 +1,115 @@
+-- Базовая схема core-api. До появления миграций таблицы создавал ddl-auto: update,
+-- поэтому каждый оператор идемпотентен: на существующей базе (baseline-on-migrate)
+-- создаётся только недостающее, на пустой — вся схема.
+
+CREATE TABLE IF NOT EXISTS users (
+    id                  bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username            varchar(255) NOT NULL UNIQUE,
+    email               varchar(255) NOT NULL UNIQUE,
+    password            varchar(255) NOT NULL,
+    first_name          varchar(255),
+    last_name           varchar(255),
+    profile_picture_url varchar(255),
+    is_online           boolean,
+    last_seen           timestamp(6),
+    created_at          timestamp(6),
+    updated_at          timestamp(6)
+);
+
+-- users мог создать Authorization_service со своим, более узким набором колонок
+ALTER TABLE users ADD COLUMN IF NOT EXISTS email varchar(255);
+ALTER TABLE users ADD COLUMN IF NOT EXISTS first_name varchar(255);
+ALTER TABLE users ADD COLUMN IF NOT EXISTS last_name varchar(255);
+ALTER TABLE users ADD COLUMN IF NOT EXISTS profile_picture_url varchar(255);
+ALTER TABLE users ADD COLUMN IF NOT EXISTS is_online boolean;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS last_seen timestamp(6);
+ALTER TABLE users ADD COLUMN IF NOT EXISTS created_at timestamp(6);
+ALTER TABLE users ADD COLUMN IF NOT EXISTS updated_at timestamp(6);
+
+CREATE TABLE IF NOT EXISTS chats (
+    id                 bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    chat_name          varchar(255),
+    chat_type          varchar(255) NOT NULL,
+    chat_description   varchar(255),
+    chat_avatar_url    varchar(255),
+    created_at         timestamp(6),
+    updated_at         timestamp(6),
+    last_message_at    timestamp(6),
+    created_by_user_id bigint REFERENCES users (id)
+);
+
+CREATE TABLE IF NOT EXISTS chat_participants (
+    chat_id bigint NOT NULL REFERENCES chats (id),
+    user_id bigint NOT NULL REFERENCES users (id),
+    PRIMARY KEY (chat_id, user_id)
+);
+
+-- Секции создаёт V3: на старой базе messages ещё обычная таблица и её сначала нужно перестроить
+CREATE TABLE IF NOT EXISTS messages (
+    id                  bigint NOT NULL,
+    content             text NOT NULL,
+    message_type        varchar(255) NOT NULL,
+    is_edited           boolean,
+    is_deleted          boolean,
+    created_at          timestamp(6),
+    updated_at          timestamp(6),
+    file_url            varchar(255),
+    file_name           varchar(255),
+    file_size           bigint,
+    mime_type           varchar(255),
+    thumbnail_url       varchar(255),
+    sender_id           bigint NOT NULL REFERENCES users (id),
+    chat_id             bigint NOT NULL REFERENCES chats (id),
+    reply_to_message_id bigint,
+    PRIMARY KEY (id, chat_id)
+) PARTITION BY HASH (chat_id);
+
+CREATE SEQUENCE IF NOT EXISTS messages_seq INCREMENT BY 50;
+
+-- message_id без внешнего ключа: уникален только (id, chat_id) секционированной messages
+CREATE TABLE IF NOT EXISTS message_read_status (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    message_id bigint NOT NULL,
+    user_id    bigint NOT NULL REFERENCES users (id),
+    read_at    timestamp(6) NOT NULL,
+    UNIQUE (message_id, user_id)
+);
+
+CREATE TABLE IF NOT EXISTS friendships (
+    id           bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    requester_id bigint NOT NULL REFERENCES users (id),
+    receiver_id  bigint NOT NULL REFERENCES users (id),
+    status       varchar(255) NOT NULL,
+    created_at   timestamp(6),
+    updated_at   timestamp(6),
+    UNIQUE (requester_id, receiver_id)
+);
+
+CREATE TABLE IF NOT EXISTS user_keys (
+    user_id                 bigint PRIMARY KEY,
+    public_key              text,
+    identity_key            text,
+    signed_prekey           text,
+    signed_prekey_signature text,
+    updated_at              timestamp(6)
+);
+
+CREATE TABLE IF NOT EXISTS user_key_backups (
+    user_id           bigint PRIMARY KEY,
+    encrypted_payload text NOT NULL,
+    updated_at        timestamp(6)
+);
+
+CREATE TABLE IF NOT EXISTS user_profiles (
+    user_id bigint PRIMARY KEY,
+    bio     text
+);
+
+CREATE TABLE IF NOT EXISTS one_time_prekeys (
+    id         bigint PRIMARY KEY,
+    user_id    bigint NOT NULL,
+    public_key varchar(255) NOT NULL,
+    created_at timestamp(6) NOT NULL
+);
+
+CREATE SEQUENCE IF NOT EXISTS one_time_prekeys_seq INCREMENT BY 50;
@@ -0,0 +1,50 @@
+-- Перенос ключей E2EE, бекапов и bio из старых колонок users в отдельные таблицы
+-- с удалением перенесённых колонок. На базе без старых колонок ничего не делает.
+DO $$
+DECLARE
+    present text[];
+BEGIN
+    SELECT array_agg(column_name::text) INTO present
+    FROM information_schema.columns
+    WHERE table_schema = current_schema() AND table_name = 'users'
+      AND column_name IN ('public_key', 'identity_key', 'signed_prekey', 'signed_prekey_signature',
+                          'one_time_prekeys', 'encrypted_key_backup', 'bio');
+    IF present IS NULL THEN
+        RETURN;
+    END IF;
+    RAISE NOTICE '[MIGRATION] Moving legacy users columns % to side tables', present;
+
+    -- Неполный набор ключевых колонок оставляем как есть
+    IF present @> ARRAY['public_key', 'identity_key', 'signed_prekey', 'signed_prekey_signature'] THEN
+        INSERT INTO user_keys (user_id, public_key, identity_key, signed_prekey, signed_prekey_signature, updated_at)
+        SELECT id, public_key, identity_key, signed_prekey, signed_prekey_signature, now() FROM users
+        WHERE public_key IS NOT NULL OR identity_key IS NOT NULL
+        ON CONFLICT (user_id) DO NOTHING;
+        ALTER TABLE users DROP COLUMN public_key, DROP COLUMN identity_key,
+                          DROP COLUMN signed_prekey, DROP COLUMN signed_prekey_signature;
+    END IF;
+
+    IF 'one_time_prekeys' = ANY (present) THEN
+        -- nextval на каждую строку: каждый id — конец собственного блока последовательности,
+        -- пересечься с блоками, которые Hibernate выделяет себе по allocationSize, он не может
+        INSERT INTO one_time_prekeys (id, user_id, public_key, created_at)
+        SELECT nextval('one_time_prekeys_seq'), u.id, k.key, now()
+        FROM users u CROSS JOIN LATERAL json_array_elements_text(u.one_time_prekeys::json) AS k(key)
+        WHERE u.one_time_prekeys LIKE '[%';
+        ALTER TABLE users DROP COLUMN one_time_prekeys;
+    END IF;
+
+    IF 'encrypted_key_backup' = ANY (present) THEN
+        INSERT INTO user_key_backups (user_id, encrypted_payload, updated_at)
+        SELECT id, encrypted_key_backup, now() FROM users WHERE encrypted_key_backup IS NOT NULL
+        ON CONFLICT (user_id) DO NOTHING;
+        ALTER TABLE users DROP COLUMN encrypted_key_backup;
+    END IF;
+
+    IF 'bio' = ANY (present) THEN
+        INSERT INTO user_profiles (user_id, bio)
+        SELECT id, bio FROM users WHERE bio IS NOT NULL
+        ON CONFLICT (user_id) DO NOTHING;
+        ALTER TABLE users DROP COLUMN bio;
+    END IF;
+END $$;
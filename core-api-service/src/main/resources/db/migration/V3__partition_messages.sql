@@ -0,0 +1,46 @@
+-- messages секционирована по хешу chat_id: все запросы истории, непрочитанных и последнего
+-- сообщения фильтруют по chat_id и читают одну секцию. Старая база с обычной таблицей
+-- (ddl-auto: update) перестраивается однократно: первичный ключ становится (id, chat_id),
+-- messages_seq сдвигается за последний выданный IDENTITY-идентификатор.
+-- Число секций — placeholder message_partitions (app.messages.partitions); на уже
+-- секционированной таблице не меняется, переразбиение — отдельная ручная миграция.
+DO $$
+DECLARE
+    fk record;
+    converted boolean := false;
+BEGIN
+    IF (SELECT c.relkind FROM pg_class c WHERE c.oid = 'messages'::regclass) = 'r' THEN
+        RAISE NOTICE '[MIGRATION] Converting messages into % hash partitions by chat_id', ${message_partitions};
+        -- Внешние ключи на messages(id) невозможны для секционированной таблицы: уникален только (id, chat_id)
+        FOR fk IN SELECT conrelid::regclass::text AS tbl, quote_ident(conname) AS conname FROM pg_constraint
+                  WHERE contype = 'f' AND confrelid = 'messages'::regclass LOOP
+            EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %s', fk.tbl, fk.conname);
+        END LOOP;
+        ALTER TABLE messages RENAME TO messages_unpartitioned;
+        CREATE TABLE messages (LIKE messages_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS)
+            PARTITION BY HASH (chat_id);
+        -- DEFAULT nextval('messages_id_seq') от bigserial: последовательность принадлежит старой
+        -- таблице и не даст её удалить, а id теперь выдаёт messages_seq
+        ALTER TABLE messages ALTER COLUMN id DROP DEFAULT;
+        converted := true;
+    END IF;
+
+    IF NOT EXISTS (SELECT 1 FROM pg_inherits WHERE inhparent = 'messages'::regclass) THEN
+        FOR part IN 0 .. ${message_partitions} - 1 LOOP
+            EXECUTE format('CREATE TABLE messages_p%s PARTITION OF messages FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+                           lpad(part::text, 3, '0'), ${message_partitions}, part);
+        END LOOP;
+    END IF;
+
+    IF converted THEN
+        -- Ключ — после переноса и удаления старой таблицы: имя то же, а построение по готовым данным быстрее
+        INSERT INTO messages SELECT * FROM messages_unpartitioned;
+        DROP TABLE messages_unpartitioned;
+        ALTER TABLE messages ADD PRIMARY KEY (id, chat_id);
+        ALTER TABLE messages ADD FOREIGN KEY (chat_id) REFERENCES chats (id);
+        ALTER TABLE messages ADD FOREIGN KEY (sender_id) REFERENCES users (id);
+        -- Hibernate берёт блок (nextval - allocationSize, nextval]: ставим значение не ниже последнего id
+        PERFORM setval('messages_seq', GREATEST((SELECT COALESCE(MAX(id), 1) FROM messages),
+                                                (SELECT last_value FROM messages_seq)));
+    END IF;
+END $$;
@@ -0,0 +1,15 @@
+-- Индексы под запросы MessageRepository, MessageReadStatusRepository, ChatRepository и
+-- ChatListQueryRepository. Что каждый из них действительно используется, проверяет QueryPlanTest:
+-- новый запрос без подходящего индекса должен приходить вместе со своей миграцией.
+-- Здесь только секционированная messages: CONCURRENTLY на ней не поддерживается.
+
+-- messages (индексы секционированной таблицы создаются в каждой секции)
+-- история и поиск: chat_id = ? ORDER BY created_at DESC
+CREATE INDEX IF NOT EXISTS idx_messages_chat_created_at ON messages (chat_id, created_at);
+-- последнее сообщение чата и MAX(id) GROUP BY chat_id
+CREATE INDEX IF NOT EXISTS idx_messages_chat_id_id ON messages (chat_id, id);
+-- дельта-синхронизация: chat_id IN (...) AND updated_at > ?
+CREATE INDEX IF NOT EXISTS idx_messages_chat_updated_at ON messages (chat_id, updated_at);
+
+-- Индексы обычных таблиц строит V5 конкурентно, не блокируя запись
+ANALYZE messages;
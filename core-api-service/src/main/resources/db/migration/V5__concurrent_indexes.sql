@@ -0,0 +1,39 @@
+-- Индексы обычных таблиц строятся CONCURRENTLY: на рабочей базе запись в message_read_status
+-- и chat_participants не блокируется на время построения. Миграция выполняется вне транзакции
+-- (V5__concurrent_indexes.sql.conf), каждый оператор фиксируется сам.
+
+-- Прерванное построение оставляет INVALID-индекс, который IF NOT EXISTS пропустил бы навсегда
+DO $$
+DECLARE
+    idx record;
+BEGIN
+    FOR idx IN SELECT i.indexrelid::regclass::text AS name FROM pg_index i
+               WHERE NOT i.indisvalid
+                 AND i.indexrelid::regclass::text IN ('idx_message_read_status_user_message',
+                                                      'idx_message_read_status_read_at',
+                                                      'idx_chat_participants_user_chat',
+                                                      'idx_friendships_receiver_id',
+                                                      'idx_one_time_prekeys_user_id') LOOP
+        RAISE NOTICE '[MIGRATION] Dropping invalid index %', idx.name;
+        EXECUTE format('DROP INDEX %s', idx.name);
+    END LOOP;
+END $$;
+
+-- message_read_status
+-- (message_id, user_id) — уникальное ограничение из V1: кто прочитал сообщение, NOT EXISTS непрочитанных
+-- прочитанное пользователем
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_message_read_status_user_message ON message_read_status (user_id, message_id);
+-- дельта-синхронизация: read_at > ?
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_message_read_status_read_at ON message_read_status (read_at);
+
+-- chat_participants: первичный ключ (chat_id, user_id) не помогает искать чаты пользователя
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_chat_participants_user_chat ON chat_participants (user_id, chat_id);
+
+-- friendships: уникальное (requester_id, receiver_id) покрывает исходящие, входящие — отдельно
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_friendships_receiver_id ON friendships (receiver_id);
+
+-- one_time_prekeys: выдача самого старого ключа пользователя
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_one_time_prekeys_user_id ON one_time_prekeys (user_id, id);
+
+ANALYZE message_read_status;
+ANALYZE chat_participants;
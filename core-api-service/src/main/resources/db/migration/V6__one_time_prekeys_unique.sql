@@ -0,0 +1,29 @@
+-- Один и тот же одноразовый ключ не должен лежать в запасе пользователя дважды: две копии
+-- выдали бы двум собеседникам один ключ. Дубли могли появиться из повторной загрузки или
+-- переноса старой колонки users.one_time_prekeys (V2). Уникальный индекс строится CONCURRENTLY
+-- (V6__one_time_prekeys_unique.sql.conf) и затем становится ограничением без повторного построения.
+
+-- Прерванное построение оставляет INVALID-индекс, который IF NOT EXISTS пропустил бы навсегда
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_index i WHERE NOT i.indisvalid
+               AND i.indexrelid::regclass::text = 'uq_one_time_prekeys_user_key') THEN
+        RAISE NOTICE '[MIGRATION] Dropping invalid index uq_one_time_prekeys_user_key';
+        DROP INDEX uq_one_time_prekeys_user_key;
+    END IF;
+END $$;
+
+-- Из копий остаётся самая старая: её клиент загрузил первой
+DELETE FROM one_time_prekeys k
+USING one_time_prekeys older
+WHERE older.user_id = k.user_id AND older.public_key = k.public_key AND older.id < k.id;
+
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uq_one_time_prekeys_user_key ON one_time_prekeys (user_id, public_key);
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uq_one_time_prekeys_user_key') THEN
+        ALTER TABLE one_time_prekeys ADD CONSTRAINT uq_one_time_prekeys_user_key
+            UNIQUE USING INDEX uq_one_time_prekeys_user_key;
+    END IF;
+END $$;
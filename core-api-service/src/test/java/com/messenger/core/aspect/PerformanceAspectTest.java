@@ -0,0 +1,48 @@
+package com.messenger.core.aspect;
+
+import com.messenger.core.dto.LatencyStatsDto;
+import com.messenger.core.metrics.LatencyRegistry;
+import com.messenger.core.service.chat.ChatListCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerformanceAspectTest {
+
+    @Test
+    void testServiceCallsAreRecordedPerMethod() {
+        LatencyRegistry registry = new LatencyRegistry();
+        AspectJProxyFactory factory = new AspectJProxyFactory(new ChatListCache());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new PerformanceAspect(registry, 100, 50));
+        ChatListCache proxy = factory.getProxy();
+
+        proxy.getETag(1L);
+        proxy.getETag(2L);
+        proxy.get(1L, List::of);
+
+        List<LatencyStatsDto> stats = registry.snapshot(LatencyRegistry.Kind.SERVICE, 10);
+        LatencyStatsDto getETag = stats.stream()
+                .filter(s -> s.getName().equals("ChatListCache.getETag"))
+                .findFirst().orElseThrow();
+        assertEquals(2, getETag.getCount());
+        assertTrue(stats.stream().anyMatch(s -> s.getName().equals("ChatListCache.get")));
+    }
+
+    @Test
+    void testFailedCallIsRecordedAndRethrown() {
+        LatencyRegistry registry = new LatencyRegistry();
+        AspectJProxyFactory factory = new AspectJProxyFactory(new ChatListCache());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new PerformanceAspect(registry, 100, 50));
+        ChatListCache proxy = factory.getProxy();
+
+        assertThrows(IllegalStateException.class, () -> proxy.get(1L, () -> {
+            throw new IllegalStateException("db down");
+        }));
+        assertEquals(1, registry.snapshot(null, 10).get(0).getCount());
+    }
+}
@@ -0,0 +1,150 @@
+package com.messenger.core.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.messenger.core.dto.ChatDto;
+import com.messenger.core.repository.ChatListQueryRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Список чатов пользователя с 500 чатами: запрос-проекция {@link ChatListQueryRepository}
+ * против прежней последовательности запросов (чаты, участники, последние сообщения,
+ * счётчики непрочитанных — по отдельному запросу на каждый шаг).
+ * <p>
+ * Нужен живой PostgreSQL; данные создаются в отдельной схеме {@code bench_chat_list},
+ * которая пересоздаётся при каждом запуске. Запуск:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt -Dmdep.includeScope=test
+ * java -Dbench.jdbc.url=jdbc:postgresql://localhost:5432/messenger -Dbench.jdbc.user=postgres -Dbench.jdbc.password=postgres \
+ *      -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main ChatListQuery
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChatListQueryBenchmark {
+
+    private static final String SCHEMA = "bench_chat_list";
+    private static final long USER_ID = 1L;
+
+    @Param({"500"})
+    public int chats;
+
+    @Param({"20"})
+    public int messagesPerChat;
+
+    private JdbcTemplate jdbc;
+    private NamedParameterJdbcTemplate namedJdbc;
+    private ChatListQueryRepository repository;
+
+    @Setup
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("bench.jdbc.url", "jdbc:postgresql://localhost:5432/messenger"),
+                System.getProperty("bench.jdbc.user", "postgres"),
+                System.getProperty("bench.jdbc.password", "postgres"));
+        Properties properties = new Properties();
+        properties.setProperty("currentSchema", SCHEMA);
+        dataSource.setConnectionProperties(properties);
+        jdbc = new JdbcTemplate(dataSource);
+        namedJdbc = new NamedParameterJdbcTemplate(jdbc);
+        repository = new ChatListQueryRepository(namedJdbc, new ObjectMapper().findAndRegisterModules());
+        seed();
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbc.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+    }
+
+    /** Один запрос-проекция */
+    @Benchmark
+    public void projection(Blackhole blackhole) {
+        List<ChatDto> result = repository.findUserChats(USER_ID);
+        blackhole.consume(result);
+    }
+
+    /** Прежняя схема: по запросу на чаты, участников, последние сообщения и непрочитанные */
+    @Benchmark
+    public void legacyMultiQuery(Blackhole blackhole) {
+        MapSqlParameterSource params = new MapSqlParameterSource("userId", USER_ID);
+        List<Long> chatIds = namedJdbc.queryForList(
+                "SELECT c.id FROM chats c JOIN chat_participants cp ON cp.chat_id = c.id " +
+                "WHERE cp.user_id = :userId ORDER BY c.last_message_at DESC", params, Long.class);
+        params.addValue("chatIds", chatIds);
+        blackhole.consume(namedJdbc.queryForList(
+                "SELECT c.*, u.* FROM chats c JOIN chat_participants cp ON cp.chat_id = c.id " +
+                "JOIN users u ON u.id = cp.user_id WHERE c.id IN (:chatIds)", params));
+        blackhole.consume(namedJdbc.queryForList(
+                "SELECT m.*, u.* FROM messages m LEFT JOIN users u ON u.id = m.sender_id WHERE m.id IN (" +
+                "SELECT MAX(m2.id) FROM messages m2 WHERE m2.chat_id IN (:chatIds) AND m2.is_deleted = false " +
+                "GROUP BY m2.chat_id)", params));
+        blackhole.consume(namedJdbc.queryForList(
+                "SELECT m.chat_id, COUNT(*) FROM messages m WHERE m.chat_id IN (:chatIds) " +
+                "AND m.sender_id <> :userId AND m.is_deleted = false AND NOT EXISTS (" +
+                "SELECT 1 FROM message_read_status r WHERE r.message_id = m.id AND r.user_id = :userId) " +
+                "GROUP BY m.chat_id", params));
+    }
+
+    private void seed() {
+        jdbc.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbc.execute("CREATE SCHEMA " + SCHEMA);
+        jdbc.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, username VARCHAR(255), email VARCHAR(255), " +
+                "first_name VARCHAR(255), last_name VARCHAR(255), profile_picture_url VARCHAR(255), " +
+                "is_online BOOLEAN, last_seen TIMESTAMP)");
+        jdbc.execute("CREATE TABLE chats (id BIGINT PRIMARY KEY, chat_name VARCHAR(255), chat_type VARCHAR(32), " +
+                "chat_description VARCHAR(255), chat_avatar_url VARCHAR(255), created_at TIMESTAMP, " +
+                "last_message_at TIMESTAMP, created_by_user_id BIGINT)");
+        jdbc.execute("CREATE TABLE chat_participants (chat_id BIGINT, user_id BIGINT, PRIMARY KEY (chat_id, user_id))");
+        jdbc.execute("CREATE INDEX ON chat_participants (user_id)");
+        jdbc.execute("CREATE TABLE messages (id BIGINT PRIMARY KEY, content TEXT, message_type VARCHAR(32), " +
+                "is_edited BOOLEAN, is_deleted BOOLEAN, created_at TIMESTAMP, updated_at TIMESTAMP, " +
+                "file_url VARCHAR(255), file_name VARCHAR(255), file_size BIGINT, mime_type VARCHAR(255), " +
+                "thumbnail_url VARCHAR(255), sender_id BIGINT, chat_id BIGINT, reply_to_message_id BIGINT)");
+        jdbc.execute("CREATE INDEX ON messages (chat_id, created_at)");
+        jdbc.execute("CREATE TABLE message_read_status (id BIGSERIAL PRIMARY KEY, message_id BIGINT, " +
+                "user_id BIGINT, read_at TIMESTAMP, UNIQUE (message_id, user_id))");
+
+        // Пользователь 1 и по собеседнику на каждый чат
+        jdbc.update("INSERT INTO users SELECT g, 'user' || g, 'user' || g || '@example.com', 'First', 'Last', " +
+                "CASE WHEN g % 2 = 0 THEN 'avatar' || g || '.png' END, g % 3 = 0, now() " +
+                "FROM generate_series(1, ?) g", chats + 1);
+        jdbc.update("INSERT INTO chats SELECT g, 'chat' || g, CASE WHEN g % 4 = 0 THEN 'GROUP' ELSE 'PRIVATE' END, " +
+                "NULL, NULL, now() - interval '30 days', now() - g * interval '1 minute', 1 " +
+                "FROM generate_series(1, ?) g", chats);
+        jdbc.update("INSERT INTO chat_participants SELECT g, 1 FROM generate_series(1, ?) g", chats);
+        jdbc.update("INSERT INTO chat_participants SELECT g, g + 1 FROM generate_series(1, ?) g", chats);
+        jdbc.update("INSERT INTO messages SELECT (c - 1) * ? + n, 'message ' || n, 'TEXT', false, false, " +
+                "now() - (? - n) * interval '1 minute', NULL, NULL, NULL, NULL, NULL, NULL, " +
+                "CASE WHEN n % 2 = 0 THEN 1 ELSE c + 1 END, c, NULL " +
+                "FROM generate_series(1, ?) c CROSS JOIN generate_series(1, ?) n",
+                messagesPerChat, messagesPerChat, chats, messagesPerChat);
+        // Первая половина истории каждого чата прочитана обоими участниками
+        jdbc.update("INSERT INTO message_read_status (message_id, user_id, read_at) " +
+                "SELECT m.id, cp.user_id, now() FROM messages m JOIN chat_participants cp ON cp.chat_id = m.chat_id " +
+                "WHERE (m.id - 1) % ? < ? / 2", messagesPerChat, messagesPerChat);
+        jdbc.execute("ANALYZE");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ChatListQueryBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,83 @@
+package com.messenger.core.benchmark;
+
+import com.messenger.core.metrics.LatencyHistogram;
+import com.messenger.core.metrics.LatencyRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы на замер одного вызова в {@code PerformanceAspect}.
+ * <p>
+ * Сравнивает прежнюю схему (склейка имени метода + {@code currentTimeMillis}) с записью
+ * в гистограмму через {@link LatencyRegistry}. Запуск:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main LatencyRecording
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LatencyRecordingBenchmark {
+
+    private LatencyRegistry registry;
+    private LatencyHistogram histogram;
+    private Method method;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        registry = new LatencyRegistry();
+        histogram = new LatencyHistogram();
+        method = LatencyRegistry.class.getMethod("reset");
+    }
+
+    /** Прежний вариант: строка имени на каждый вызов */
+    @Benchmark
+    public void legacyStringConcat(Blackhole blackhole) {
+        long start = System.currentTimeMillis();
+        String methodName = method.getDeclaringClass().getName() + "." + method.getName();
+        long duration = System.currentTimeMillis() - start;
+        blackhole.consume(methodName);
+        blackhole.consume(duration > 100);
+    }
+
+    /** Только запись в гистограмму */
+    @Benchmark
+    public void histogramRecord() {
+        long start = System.nanoTime();
+        histogram.record(System.nanoTime() - start);
+    }
+
+    /** Полный путь аспекта: поиск таймера в реестре + запись */
+    @Benchmark
+    public void registryLookupAndRecord() {
+        long start = System.nanoTime();
+        LatencyRegistry.Timer timer = registry.timer(LatencyRegistry.Kind.SERVICE, LatencyRegistry.class, method,
+                key -> key.type().getSimpleName() + "." + key.method().getName());
+        timer.record(System.nanoTime() - start);
+    }
+
+    /** Полный путь аспекта при конкурентной записи из нескольких потоков */
+    @Benchmark
+    @Threads(8)
+    public void registryLookupAndRecordContended() {
+        registryLookupAndRecord();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(LatencyRecordingBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
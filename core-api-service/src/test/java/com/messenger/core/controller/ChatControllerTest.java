@@ -4,7 +4,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.messenger.core.dto.ChatDto;
 import com.messenger.core.service.chat.ChatService;
 import com.messenger.core.service.OptimizedDataService;
+import com.messenger.core.config.GlobalExceptionHandler;
 import com.messenger.core.config.JwtAuthenticationFilter;
+import com.messenger.core.service.user.UserContextResolver;
+import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -23,13 +26,20 @@ class ChatControllerTest {
     private OptimizedDataService optimizedDataService;
     @Mock
     private JwtAuthenticationFilter jwtAuthenticationFilter;
+    @Mock
+    private UserContextResolver userContextResolver;
     @InjectMocks
     private ChatController chatController;
     private MockMvc mockMvc;
 
     public ChatControllerTest() {
         MockitoAnnotations.openMocks(this);
-        mockMvc = MockMvcBuilders.standaloneSetup(chatController).build();
+        // Идентичность из X-User-Id: подпись Gateway в этих тестах не проверяется
+        when(userContextResolver.resolveUserId(any(HttpServletRequest.class)))
+                .thenAnswer(inv -> Long.valueOf(inv.<HttpServletRequest>getArgument(0).getHeader("X-User-Id")));
+        mockMvc = MockMvcBuilders.standaloneSetup(chatController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
     }
 
     @Test
@@ -146,8 +156,9 @@ class ChatControllerTest {
     @Test
     void testServiceException() throws Exception {
         when(chatService.getChatInfo(eq(1L), anyLong())).thenThrow(new RuntimeException("Internal error"));
+        // GlobalExceptionHandler отдаёт прочие RuntimeException как 400
         mockMvc.perform(get("/api/chats/1").header("X-User-Id", "1"))
-                .andExpect(status().isInternalServerError());
+                .andExpect(status().isBadRequest());
     }
 
     @Test
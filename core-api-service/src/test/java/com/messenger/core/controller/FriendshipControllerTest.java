@@ -2,6 +2,8 @@ package com.messenger.core.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.messenger.core.service.user.FriendshipService;
+import com.messenger.core.service.user.UserContextResolver;
+import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -17,12 +19,17 @@ import java.util.List;
 class FriendshipControllerTest {
     @Mock
     private FriendshipService friendshipService;
+    @Mock
+    private UserContextResolver userContextResolver;
     @InjectMocks
     private FriendshipController friendshipController;
     private MockMvc mockMvc;
 
     public FriendshipControllerTest() {
         MockitoAnnotations.openMocks(this);
+        // Идентичность из X-User-Id: подпись Gateway в этих тестах не проверяется
+        when(userContextResolver.resolveUserId(any(HttpServletRequest.class)))
+                .thenAnswer(inv -> Long.valueOf(inv.<HttpServletRequest>getArgument(0).getHeader("X-User-Id")));
         mockMvc = MockMvcBuilders.standaloneSetup(friendshipController).build();
     }
 
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.messenger.core.dto.MessageDto;
 import com.messenger.core.service.message.MessageService;
 import com.messenger.core.service.OptimizedDataService;
+import com.messenger.core.service.user.UserContextResolver;
+import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -20,12 +22,17 @@ class MessageControllerTest {
     private MessageService messageService;
     @Mock
     private OptimizedDataService optimizedDataService;
+    @Mock
+    private UserContextResolver userContextResolver;
     @InjectMocks
     private MessageController messageController;
     private MockMvc mockMvc;
 
     public MessageControllerTest() {
         MockitoAnnotations.openMocks(this);
+        // Идентичность из X-User-Id: подпись Gateway в этих тестах не проверяется
+        when(userContextResolver.resolveUserId(any(HttpServletRequest.class)))
+                .thenAnswer(inv -> Long.valueOf(inv.<HttpServletRequest>getArgument(0).getHeader("X-User-Id")));
         mockMvc = MockMvcBuilders.standaloneSetup(messageController).build();
     }
 
@@ -50,7 +57,7 @@ class MessageControllerTest {
     void testGetMessagesByChatId() throws Exception {
         MessageDto msg1 = new MessageDto(); msg1.setId(1L); msg1.setContent("msg1");
         MessageDto msg2 = new MessageDto(); msg2.setId(2L); msg2.setContent("msg2");
-        when(optimizedDataService.getOptimizedChatMessages(eq(5L), anyLong(), eq(0), eq(50))).thenReturn(java.util.List.of(msg1, msg2));
+        when(messageService.getChatMessages(eq(5L), anyLong(), eq(0), anyInt())).thenReturn(java.util.List.of(msg1, msg2));
         mockMvc.perform(get("/api/messages/chat/5")
                 .header("X-User-Id", "1"))
                 .andExpect(status().isOk())
@@ -2,7 +2,10 @@ package com.messenger.core.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.messenger.core.dto.UserDto;
+import com.messenger.core.service.encryption.EncryptionService;
+import com.messenger.core.service.user.UserContextResolver;
 import com.messenger.core.service.user.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -11,8 +14,12 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -20,6 +27,10 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 class UserControllerTest {
     @Mock
     private UserService userService;
+    @Mock
+    private EncryptionService encryptionService;
+    @Mock
+    private UserContextResolver userContextResolver;
     @InjectMocks
     private UserController userController;
     private MockMvc mockMvc;
@@ -28,6 +39,38 @@ class UserControllerTest {
     void setUp() {
         MockitoAnnotations.openMocks(this);
         mockMvc = MockMvcBuilders.standaloneSetup(userController).build();
+        when(userContextResolver.resolveUserId(any(HttpServletRequest.class)))
+                .thenAnswer(inv -> Long.valueOf(inv.<HttpServletRequest>getArgument(0).getHeader("X-User-Id")));
+    }
+
+    @Test
+    void testUploadForeignOneTimePreKeysIsForbidden() throws Exception {
+        mockMvc.perform(post("/api/users/2/one-time-prekeys").header("X-User-Id", "1")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"keys\":[\"BAE=\"]}"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/users/2/prekey-bundle").header("X-User-Id", "1")
+                        .contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isForbidden());
+        verifyNoInteractions(encryptionService);
+    }
+
+    @Test
+    void testUploadOwnOneTimePreKeys() throws Exception {
+        when(encryptionService.uploadOneTimePreKeys(1L, List.of("BAE="))).thenReturn(21L);
+        mockMvc.perform(post("/api/users/1/one-time-prekeys").header("X-User-Id", "1")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"keys\":[\"BAE=\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.available").value(21));
+    }
+
+    @Test
+    void testPreKeyBundlePassesRequester() throws Exception {
+        when(encryptionService.getPreKeyBundle(2L, 1L)).thenReturn(Map.of(
+                "identityKey", "ik", "signedPreKey", "spk", "oneTimePreKeys", "[\"otk\"]"));
+        mockMvc.perform(get("/api/users/2/prekey-bundle").header("X-User-Id", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.identityKey").value("ik"));
+        verify(encryptionService).getPreKeyBundle(2L, 1L);
     }
 
     @Test
@@ -85,6 +128,24 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.id").value(1L));
     }
 
+    @Test
+    void testGetCurrentUserProfile_notModified() throws Exception {
+        LocalDateTime updatedAt = LocalDateTime.of(2024, 5, 1, 12, 0);
+        when(userService.getProfileVersion(1L)).thenReturn(Optional.of(updatedAt));
+        UserDto userDto = new UserDto();
+        userDto.setId(1L);
+        when(userService.getUserInfo(1L, 1L)).thenReturn(userDto);
+
+        String etag = mockMvc.perform(get("/api/users/profile").header("x-user-id", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/users/profile").header("x-user-id", "1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        verify(userService, times(1)).getUserInfo(1L, 1L);
+    }
+
     @Test
     void testGetUserDataInternal() throws Exception {
         UserDto userDto = new UserDto();
@@ -0,0 +1,76 @@
+package com.messenger.core.metrics;
+
+import com.messenger.core.dto.LatencyStatsDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testBucketsAreContiguousAndMonotonic() {
+        int previous = -1;
+        for (long value = 0; value < 100_000; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(index == previous || index == previous + 1, "gap at " + value);
+            assertTrue(value <= LatencyHistogram.upperBoundOf(index));
+            previous = index;
+        }
+    }
+
+    @Test
+    void testRelativeErrorWithinThreePercent() {
+        for (long value = 1_000; value < 10_000_000_000L; value = value * 3 + 7) {
+            long upper = LatencyHistogram.upperBoundOf(LatencyHistogram.indexOf(value));
+            assertTrue(upper >= value);
+            assertTrue((upper - value) / (double) value <= 1.0 / 32, "error too large at " + value);
+        }
+    }
+
+    @Test
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(1000), snapshot.getMaxNanos());
+        assertEquals(500_000, snapshot.getValueAtPercentile(50), 500_000 / 32.0);
+        assertEquals(990_000, snapshot.getValueAtPercentile(99), 990_000 / 32.0);
+        assertEquals(snapshot.getMaxNanos(), snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    void testEmptySnapshot() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getValueAtPercentile(99));
+        assertEquals(0.0, snapshot.getMeanNanos());
+    }
+
+    @Test
+    void testRegistrySortsByP99AndReuseTimer() throws Exception {
+        LatencyRegistry registry = new LatencyRegistry();
+        var fast = registry.timer(LatencyRegistry.Kind.REPOSITORY, String.class, String.class.getMethod("length"),
+                key -> "fast");
+        var slow = registry.timer(LatencyRegistry.Kind.REPOSITORY, String.class, String.class.getMethod("isEmpty"),
+                key -> "slow");
+        assertSame(fast, registry.timer(LatencyRegistry.Kind.REPOSITORY, String.class,
+                String.class.getMethod("length"), key -> "other"));
+
+        fast.record(TimeUnit.MILLISECONDS.toNanos(1));
+        slow.record(TimeUnit.MILLISECONDS.toNanos(40));
+
+        List<LatencyStatsDto> stats = registry.snapshot(null, 10);
+        assertEquals(List.of("slow", "fast"), stats.stream().map(LatencyStatsDto::getName).toList());
+        assertTrue(registry.snapshot(LatencyRegistry.Kind.SERVICE, 10).isEmpty());
+
+        registry.reset();
+        assertTrue(registry.snapshot(null, 10).isEmpty());
+    }
+}
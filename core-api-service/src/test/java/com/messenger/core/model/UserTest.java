@@ -21,8 +21,7 @@ class UserTest {
     @Test
     void testAllArgsConstructorAndGettersSetters() {
         User user = new User(1L, "username", "email", "password", "first", "last",
-                "pic", "bio", false, null, null, null, null,
-                null, null, null, null, null,
+                "pic", false, null, null, null,
                 null, null, null, null);
         assertEquals(1L, user.getId());
         assertEquals("username", user.getUsername());
@@ -31,7 +30,6 @@ class UserTest {
         assertEquals("first", user.getFirstName());
         assertEquals("last", user.getLastName());
         assertEquals("pic", user.getProfilePictureUrl());
-        assertEquals("bio", user.getBio());
         assertFalse(user.getIsOnline());
         assertNull(user.getLastSeen());
         assertNull(user.getCreatedAt());
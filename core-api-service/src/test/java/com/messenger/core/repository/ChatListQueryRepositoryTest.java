@@ -0,0 +1,100 @@
+package com.messenger.core.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.messenger.core.dto.ChatDto;
+import com.messenger.core.model.Chat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ChatListQueryRepositoryTest {
+    private static final String PARTICIPANTS =
+            "[{\"id\":5,\"username\":\"me\",\"profilePictureUrl\":\"me.png\",\"isOnline\":true}," +
+            "{\"id\":6,\"username\":\"peer\",\"profilePictureUrl\":%s,\"lastSeen\":\"2026-01-02T03:04:05.123456\"}]";
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private ChatListQueryRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        repository = new ChatListQueryRepository(jdbcTemplate, new ObjectMapper().findAndRegisterModules());
+    }
+
+    @Test
+    void testPrivateChatTakesPeerAvatar() throws Exception {
+        ChatDto dto = mapRow(row("PRIVATE", String.format(PARTICIPANTS, "\"peer.png\""), null));
+
+        assertEquals("peer.png", dto.getChatAvatarUrl());
+        assertEquals(2, dto.getParticipants().size());
+        assertEquals(LocalDateTime.of(2026, 1, 2, 3, 4, 5, 123456000), dto.getParticipants().get(1).getLastSeen());
+        assertNull(dto.getLastMessage());
+        assertEquals(4, dto.getUnreadCount());
+    }
+
+    @Test
+    void testPrivateChatWithoutPeerAvatarKeepsChatAvatar() throws Exception {
+        ChatDto dto = mapRow(row("PRIVATE", String.format(PARTICIPANTS, "null"), null));
+
+        assertEquals("chat.png", dto.getChatAvatarUrl());
+    }
+
+    @Test
+    void testGroupChatMapsLastMessage() throws Exception {
+        ChatDto dto = mapRow(row("GROUP", String.format(PARTICIPANTS, "\"peer.png\""), 42L));
+
+        assertEquals("chat.png", dto.getChatAvatarUrl());
+        assertEquals(Chat.ChatType.GROUP, dto.getChatType());
+        assertEquals(42L, dto.getLastMessage().getId());
+        assertEquals(10L, dto.getLastMessage().getChatId());
+        assertEquals("hi", dto.getLastMessage().getContent());
+        assertEquals("peer", dto.getLastMessage().getSender().getUsername());
+        assertEquals(2, dto.getLastMessage().getReadCount());
+        assertNull(dto.getLastMessage().getFileSize());
+    }
+
+    @Test
+    void testEmptyChatIdsSkipQuery() {
+        assertTrue(repository.findUserChats(5L, List.of()).isEmpty());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ChatDto mapRow(ResultSet rs) throws Exception {
+        repository.findUserChats(5L);
+        ArgumentCaptor<RowMapper<ChatDto>> mapper = ArgumentCaptor.forClass(RowMapper.class);
+        verify(jdbcTemplate).query(anyString(), any(SqlParameterSource.class), mapper.capture());
+        return mapper.getValue().mapRow(rs, 0);
+    }
+
+    private static ResultSet row(String chatType, String participants, Long lastMessageId) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(10L);
+        when(rs.getString("chat_type")).thenReturn(chatType);
+        when(rs.getString("chat_avatar_url")).thenReturn("chat.png");
+        when(rs.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
+        when(rs.getString("participants")).thenReturn(participants);
+        when(rs.getInt("unread_count")).thenReturn(4);
+        when(rs.getLong("lm_id")).thenReturn(lastMessageId != null ? lastMessageId : 0L);
+        when(rs.getLong("lm_file_size")).thenReturn(0L);
+        // wasNull: после lm_id, затем после lm_file_size
+        when(rs.wasNull()).thenReturn(lastMessageId == null, true);
+        when(rs.getString("lm_content")).thenReturn("hi");
+        when(rs.getString("lm_type")).thenReturn("TEXT");
+        when(rs.getString("lm_sender")).thenReturn("{\"id\":6,\"username\":\"peer\"}");
+        when(rs.getInt("lm_read_count")).thenReturn(2);
+        return rs;
+    }
+}
@@ -7,7 +7,11 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 
-@DataJpaTest
+// Миграции рассчитаны на PostgreSQL (секционирование, DO-блоки): в H2 схему строит Hibernate
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
 class ChatRepositoryTest {
     @Autowired
     private ChatRepository chatRepository;
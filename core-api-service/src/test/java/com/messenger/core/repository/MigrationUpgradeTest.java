@@ -0,0 +1,120 @@
+package com.messenger.core.repository;
+
+import com.messenger.core.config.MessagePartitioning;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Flyway-миграции поверх базы, которую до них вёл {@code ddl-auto: update}: схема и данные
+ * загружаются до Flyway, затем V1–V5 применяются через baseline-on-migrate, а
+ * {@code ddl-auto: validate} сверяет с результатом сущности.
+ */
+@DataJpaTest(properties = "app.messages.partitions=4")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(MigrationUpgradeTest.LegacyDatabaseConfig.class)
+class MigrationUpgradeTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testMessagesArePartitionedWithData() {
+        assertEquals("p", jdbcTemplate.queryForObject(
+                "SELECT relkind::text FROM pg_class WHERE oid = 'messages'::regclass", String.class));
+        assertEquals(4, count("SELECT COUNT(*) FROM pg_inherits WHERE inhparent = 'messages'::regclass"));
+        assertEquals(40, count("SELECT COUNT(*) FROM messages"));
+        assertEquals(8, count("SELECT COUNT(*) FROM messages WHERE reply_to_message_id IS NOT NULL"));
+        assertEquals(13, count("SELECT COUNT(*) FROM message_read_status"));
+        assertEquals(0, count("SELECT COUNT(*) FROM pg_class WHERE relname IN ('messages_unpartitioned', 'messages_id_seq')"));
+    }
+
+    @Test
+    void testMessageSequenceContinuesAfterLegacyIds() {
+        Long next = jdbcTemplate.queryForObject("SELECT nextval('messages_seq')", Long.class);
+        assertTrue(next > 40, "messages_seq must not reissue legacy ids: " + next);
+    }
+
+    @Test
+    void testLegacyUserColumnsAreMoved() {
+        assertEquals(List.of("alice", "carol"), jdbcTemplate.queryForList(
+                "SELECT u.username FROM user_keys k JOIN users u ON u.id = k.user_id ORDER BY 1", String.class));
+        // Повторённый в старой колонке ключ остаётся в одном экземпляре (V6)
+        assertEquals(List.of("otk-a1", "otk-a2"), jdbcTemplate.queryForList(
+                "SELECT public_key FROM one_time_prekeys ORDER BY id", String.class));
+        assertEquals("backup-a", jdbcTemplate.queryForObject(
+                "SELECT encrypted_payload FROM user_key_backups", String.class));
+        assertEquals(2, count("SELECT COUNT(*) FROM user_profiles"));
+        assertEquals(0, count("SELECT COUNT(*) FROM information_schema.columns WHERE table_name = 'users' " +
+                "AND column_name IN ('public_key', 'one_time_prekeys', 'encrypted_key_backup', 'bio')"));
+    }
+
+    @Test
+    void testConcurrentIndexesAreValid() {
+        assertEquals(List.of("idx_chat_participants_user_chat", "idx_friendships_receiver_id",
+                        "idx_message_read_status_read_at", "idx_message_read_status_user_message",
+                        "idx_one_time_prekeys_user_id"),
+                jdbcTemplate.queryForList("SELECT c.relname::text FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid " +
+                        "WHERE i.indisvalid AND c.relname IN ('idx_chat_participants_user_chat', " +
+                        "'idx_friendships_receiver_id', 'idx_message_read_status_read_at', " +
+                        "'idx_message_read_status_user_message', 'idx_one_time_prekeys_user_id') ORDER BY 1",
+                        String.class));
+    }
+
+    @Test
+    void testDuplicateOneTimePreKeyIsRejected() {
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'alice'", Long.class);
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(
+                "INSERT INTO one_time_prekeys (id, user_id, public_key, created_at) " +
+                "VALUES (nextval('one_time_prekeys_seq'), ?, 'otk-a1', now())", userId));
+    }
+
+    @Test
+    void testMaintenanceKeepsPartitionsOfAnotherModulus() {
+        MessagePartitioning partitioning = new MessagePartitioning(jdbcTemplate);
+        ReflectionTestUtils.setField(partitioning, "partitions", 8);
+
+        partitioning.maintain();
+
+        assertEquals(4, count("SELECT COUNT(*) FROM pg_inherits WHERE inhparent = 'messages'::regclass"));
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+
+    @TestConfiguration
+    static class LegacyDatabaseConfig {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.start();
+        }
+
+        /** База в состоянии до Flyway: заполняется раньше, чем её получит FlywayAutoConfiguration */
+        @Bean
+        DataSource dataSource(EmbeddedPostgres postgres) {
+            DataSource dataSource = postgres.getPostgresDatabase();
+            new ResourceDatabasePopulator(
+                    new ClassPathResource("db/legacy/ddl_auto_schema.sql"),
+                    new ClassPathResource("db/legacy/ddl_auto_data.sql")).execute(dataSource);
+            return dataSource;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.messenger.core.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Планы запросов репозиториев на встроенном PostgreSQL со схемой из Flyway-миграций.
+ * <p>
+ * SQL каждого {@code @Query} перехватывается у Hibernate и разбирается через
+ * {@code EXPLAIN (GENERIC_PLAN)} — один план на любые значения параметров. Seq Scan отключён:
+ * если подходящего индекса нет, планировщику остаётся Seq Scan или полный обход индекса без
+ * условия на его первую колонку, и тест падает — запрос, изменённый без своей миграции,
+ * не пройдёт незамеченным.
+ * Заодно {@code ddl-auto: validate} сверяет сущности со схемой миграций.
+ */
+@DataJpaTest(properties = "app.messages.partitions=4")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(QueryPlanTest.EmbeddedPostgresConfig.class)
+class QueryPlanTest {
+    private static final Set<String> HOT_TABLES = Set.of("messages", "message_read_status", "chat_participants");
+    private static final List<Long> CHAT_IDS = List.of(1L, 2L);
+    private static final LocalDateTime SINCE = LocalDateTime.now().minusHours(1);
+
+    private static boolean seeded;
+
+    @Autowired
+    private MessageRepository messageRepository;
+    @Autowired
+    private MessageReadStatusRepository messageReadStatusRepository;
+    @Autowired
+    private ChatRepository chatRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private RecordingInspector inspector;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void seedOnce() {
+        if (seeded) {
+            return;
+        }
+        // Отдельная закоммиченная транзакция: статистика ANALYZE нужна всем тестам класса
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transaction.executeWithoutResult(status -> {
+            jdbcTemplate.execute("INSERT INTO users (id, username, email, password) " +
+                    "SELECT g, 'user' || g, 'user' || g || '@test.local', 'x' FROM generate_series(1, 1000) g");
+            jdbcTemplate.execute("INSERT INTO chats (id, chat_name, chat_type, created_at, updated_at, last_message_at) " +
+                    "SELECT g, 'chat ' || g, CASE WHEN g % 10 = 0 THEN 'GROUP' ELSE 'PRIVATE' END, " +
+                    "now(), now(), now() - g * interval '1 minute' FROM generate_series(1, 2000) g");
+            jdbcTemplate.execute("INSERT INTO chat_participants (chat_id, user_id) " +
+                    "SELECT g, 1 + g % 1000 FROM generate_series(1, 2000) g " +
+                    "UNION ALL SELECT g, 1 + (g + 500) % 1000 FROM generate_series(1, 2000) g");
+            jdbcTemplate.execute("INSERT INTO messages (id, content, message_type, is_edited, is_deleted, " +
+                    "created_at, updated_at, sender_id, chat_id) " +
+                    "SELECT g, 'message ' || g, 'TEXT', false, false, now() - g * interval '1 second', " +
+                    "now() - g * interval '1 second', 1 + g % 1000, 1 + g % 2000 FROM generate_series(1, 100000) g");
+            jdbcTemplate.execute("INSERT INTO message_read_status (message_id, user_id, read_at) " +
+                    "SELECT g, 1 + (g + 500) % 1000, now() - g * interval '1 second' FROM generate_series(1, 100000) g");
+            jdbcTemplate.execute("ANALYZE");
+        });
+        seeded = true;
+    }
+
+    @Test
+    void testMessageRepositoryQueriesUseIndexes() {
+        PageRequest page = PageRequest.of(0, 50);
+        assertUsesIndexes(() -> messageRepository.findByChatIdOrderByCreatedAtDescWithSender(1L, page));
+        assertUsesIndexes(() -> messageRepository.findByChatIdOrderByCreatedAtDesc(1L, page));
+        assertUsesIndexes(() -> messageRepository.findLastMessageByChatIdWithSender(1L, PageRequest.of(0, 1)));
+        assertUsesIndexes(() -> messageRepository.findLastMessageByChatId(1L, PageRequest.of(0, 1)));
+        assertUsesIndexes(() -> messageRepository.searchMessagesInChatWithSender(1L, "hello", page));
+        assertUsesIndexes(() -> messageRepository.searchMessagesInChat(1L, "hello", page));
+        assertUsesIndexes(() -> messageRepository.countMessagesByChatId(1L));
+        assertUsesIndexes(() -> messageRepository.findByIdAndChatId(1L, 1L));
+        assertUsesIndexes(() -> messageRepository.findMessagesByIdsWithSender(List.of(1L, 2L)));
+        assertUsesIndexes(() -> messageRepository.findMessagesByIdsInChatWithSender(1L, List.of(1L, 2L)));
+        assertUsesIndexes(() -> messageRepository.findLastMessagesByChatIds(CHAT_IDS));
+        assertUsesIndexes(() -> messageRepository.findLastMessageByChatId(1L));
+        assertUsesIndexes(() -> messageRepository.findChangedSinceInChats(CHAT_IDS, SINCE, page));
+    }
+
+    @Test
+    void testMessageReadStatusRepositoryQueriesUseIndexes() {
+        assertUsesIndexes(() -> messageReadStatusRepository.findByMessageIdAndUserId(1L, 2L));
+        assertUsesIndexes(() -> messageReadStatusRepository.findByMessageId(1L));
+        assertUsesIndexes(() -> messageReadStatusRepository.findByMessageIdIn(List.of(1L, 2L)));
+        assertUsesIndexes(() -> messageReadStatusRepository.existsByMessageIdAndUserId(1L, 2L));
+        assertUsesIndexes(() -> messageReadStatusRepository.countByMessageId(1L));
+        assertUsesIndexes(() -> messageReadStatusRepository.findUnreadMessageIdsInChat(1L, 2L));
+        assertUsesIndexes(() -> messageReadStatusRepository.countUnreadMessagesInChat(1L, 2L));
+        assertUsesIndexes(() -> messageReadStatusRepository.findByChatIdAndMessageIdIn(1L, List.of(1L, 2L)));
+        assertUsesIndexes(() -> messageReadStatusRepository.countUnreadMessagesForChats(CHAT_IDS, 2L));
+        assertUsesIndexes(() -> messageReadStatusRepository.findReadSinceInChats(CHAT_IDS, SINCE, PageRequest.of(0, 100)));
+    }
+
+    @Test
+    void testChatRepositoryQueriesUseIndexes() {
+        assertUsesIndexes(() -> chatRepository.findChatsByUserIdWithParticipants(2L));
+        assertUsesIndexes(() -> chatRepository.findChatsByUserId(2L));
+        assertUsesIndexes(() -> chatRepository.findPrivateChatBetweenUsers(2L, 3L));
+        assertUsesIndexes(() -> chatRepository.findGroupChatsByUserId(2L));
+        assertUsesIndexes(() -> chatRepository.findChatsByNameContaining("chat"));
+        assertUsesIndexes(() -> chatRepository.isUserParticipant(1L, 2L));
+        assertUsesIndexes(() -> chatRepository.findByIdWithParticipants(1L));
+        assertUsesIndexes(() -> chatRepository.findByIdWithParticipantsAndCreatedBy(1L));
+        assertUsesIndexes(() -> chatRepository.findChatsByIdsWithParticipants(CHAT_IDS));
+        assertUsesIndexes(() -> chatRepository.searchChatsByName("chat", 2L));
+        assertUsesIndexes(() -> chatRepository.findChatIdsByUserId(2L));
+        assertUsesIndexes(() -> chatRepository.findChatIdsByUserIdChangedSince(2L, SINCE));
+    }
+
+    @Test
+    void testChatListQueryUsesIndexes() {
+        String sql = ChatListQueryRepository.SELECT_USER_CHATS + ChatListQueryRepository.ORDER_BY;
+        assertNoUnindexedScans(sql.replace(":userId", "$1"));
+    }
+
+    @Test
+    void testMissingIndexIsReported() {
+        jdbcTemplate.execute("DROP INDEX idx_chat_participants_user_chat");
+
+        AssertionError error = assertThrows(AssertionError.class,
+                () -> assertUsesIndexes(() -> chatRepository.findChatIdsByUserId(2L)));
+        assertTrue(error.getMessage().contains("chat_participants"));
+    }
+
+    /**
+     * Выполнить вызов репозитория и проверить план каждого SELECT, который он отправил в базу.
+     */
+    private void assertUsesIndexes(Runnable repositoryCall) {
+        inspector.statements.clear();
+        repositoryCall.run();
+        List<String> selects = inspector.statements.stream()
+                .filter(sql -> sql.stripLeading().regionMatches(true, 0, "select", 0, 6))
+                .toList();
+        assertFalse(selects.isEmpty(), "Repository call issued no SELECT");
+        for (String sql : selects) {
+            assertNoUnindexedScans(toPositional(sql));
+        }
+    }
+
+    private void assertNoUnindexedScans(String sql) {
+        String plan = jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LOCAL enable_seqscan = off");
+                try (ResultSet rs = statement.executeQuery("EXPLAIN (GENERIC_PLAN, FORMAT JSON) " + sql)) {
+                    rs.next();
+                    return rs.getString(1);
+                }
+            }
+        });
+        Map<String, String[]> indexes = new HashMap<>();
+        jdbcTemplate.query("SELECT c.relname, t.relname, a.attname FROM pg_index i " +
+                "JOIN pg_class c ON c.oid = i.indexrelid JOIN pg_class t ON t.oid = i.indrelid " +
+                "JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = i.indkey[0] " +
+                "WHERE pg_table_is_visible(t.oid)",
+                (RowCallbackHandler) rs -> indexes.put(rs.getString(1), new String[]{rs.getString(2), rs.getString(3)}));
+
+        List<String> violations = new ArrayList<>();
+        try {
+            collectUnindexedScans(objectMapper.readTree(plan).get(0).get("Plan"), indexes, violations);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unreadable EXPLAIN output", e);
+        }
+        assertTrue(violations.isEmpty(), () -> "Unindexed scans " + violations + " in:\n" + sql + "\nplan:\n" + plan);
+    }
+
+    /**
+     * Seq Scan по горячей таблице или обход её индекса без условия на первую колонку:
+     * условие только на вторую колонку составного индекса — тоже полный обход.
+     *
+     * @param indexes имя индекса → [таблица, первая колонка]
+     */
+    private static void collectUnindexedScans(JsonNode node, Map<String, String[]> indexes, List<String> violations) {
+        String type = node.path("Node Type").asText();
+        String relation = node.path("Relation Name").asText("");
+        if ("Seq Scan".equals(type) && isHot(relation)) {
+            violations.add(type + " on " + relation);
+        }
+        String[] index = indexes.get(node.path("Index Name").asText(""));
+        if (index != null && isHot(index[0])) {
+            Pattern leading = Pattern.compile("\\b" + index[1] + " (=|<|>|<=|>=) ");
+            if (!leading.matcher(node.path("Index Cond").asText("")).find()) {
+                violations.add(type + " on " + index[0] + " without condition on " + index[1]);
+            }
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectUnindexedScans(child, indexes, violations);
+        }
+    }
+
+    private static boolean isHot(String table) {
+        return HOT_TABLES.contains(table) || table.startsWith("messages_p");
+    }
+
+    /** JDBC-параметры Hibernate ({@code ?}) в нумерованные параметры PostgreSQL для GENERIC_PLAN */
+    private static String toPositional(String sql) {
+        StringBuilder result = new StringBuilder(sql.length() + 16);
+        int parameter = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '?') {
+                result.append('$').append(++parameter);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    static class RecordingInspector implements StatementInspector {
+        private final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+
+    @TestConfiguration
+    static class EmbeddedPostgresConfig {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.start();
+        }
+
+        @Bean
+        DataSource dataSource(EmbeddedPostgres postgres) {
+            // EXPLAIN с $1 без привязанных значений: обычный Statement должен идти простым протоколом
+            return postgres.getPostgresDatabase(Map.of("preferQueryMode", "extendedForPrepared"));
+        }
+
+        @Bean
+        RecordingInspector recordingInspector() {
+            return new RecordingInspector();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer statementRecording(RecordingInspector inspector) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.messenger.core.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GatewayIdentityVerifierTest {
+
+    private static final String SECRET = "test-identity-secret";
+
+    private GatewayIdentityVerifier verifier;
+
+    @BeforeEach
+    void setUp() {
+        verifier = new GatewayIdentityVerifier(SECRET, 60);
+    }
+
+    private static String sign(String secret, Long userId, String username, long timestamp) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        byte[] signature = mac.doFinal((userId + "\n" + username + "\n" + timestamp).getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+
+    private MockHttpServletRequest request(Long userId, String username, long timestamp, String signature) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-User-Id", userId.toString());
+        request.addHeader("X-Username", username);
+        request.addHeader("X-Identity-Timestamp", Long.toString(timestamp));
+        request.addHeader("X-Identity-Signature", signature);
+        return request;
+    }
+
+    @Test
+    void testVerify_validSignature() throws Exception {
+        long now = System.currentTimeMillis();
+        assertEquals(42L, verifier.verify(request(42L, "alice", now, sign(SECRET, 42L, "alice", now))));
+    }
+
+    @Test
+    void testVerify_spoofedUserId() throws Exception {
+        long now = System.currentTimeMillis();
+        assertNull(verifier.verify(request(1L, "alice", now, sign(SECRET, 42L, "alice", now))));
+    }
+
+    @Test
+    void testVerify_wrongSecret() throws Exception {
+        long now = System.currentTimeMillis();
+        assertNull(verifier.verify(request(42L, "alice", now, sign("other", 42L, "alice", now))));
+    }
+
+    @Test
+    void testVerify_staleTimestamp() throws Exception {
+        long old = System.currentTimeMillis() - 120_000;
+        assertNull(verifier.verify(request(42L, "alice", old, sign(SECRET, 42L, "alice", old))));
+    }
+
+    @Test
+    void testVerify_unsignedHeader() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-User-Id", "42");
+        assertNull(verifier.verify(request));
+    }
+
+    @Test
+    void testVerify_garbageSignature() {
+        long now = System.currentTimeMillis();
+        assertNull(verifier.verify(request(42L, "alice", now, "not base64 !!")));
+    }
+}
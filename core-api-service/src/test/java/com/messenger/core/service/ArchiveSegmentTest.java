@@ -0,0 +1,77 @@
+package com.messenger.core.service;
+
+import com.messenger.core.service.message.archive.ArchiveSegment;
+import com.messenger.core.service.message.archive.ArchivedMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveSegmentTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 3, 1, 12, 0, 0, 123456000);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRoundTripAcrossBlocks() throws IOException {
+        Path path = dir.resolve("0000000001.seg");
+        ArchiveSegment.write(path, 7L, messages(150), 64);
+
+        ArchiveSegment segment = ArchiveSegment.open(path);
+        assertEquals(7L, segment.getChatId());
+        assertEquals(150, segment.getMessageCount());
+        assertEquals(1L, segment.getFirstMessageId());
+
+        List<ArchivedMessage> newest = segment.readNewestFirst(0, 3);
+        assertEquals(List.of(150L, 149L, 148L), newest.stream().map(ArchivedMessage::id).toList());
+        ArchivedMessage last = newest.get(0);
+        assertEquals("x".repeat(70_000), last.content());
+        assertEquals(BASE.plusMinutes(150), last.createdAt());
+        assertNull(last.updatedAt());
+        assertArrayEquals(new long[]{2L, 3L}, last.readerIds());
+        assertArrayEquals(new LocalDateTime[]{BASE.plusDays(1), null}, last.readAt());
+        assertEquals(149L, last.replyToMessageId());
+    }
+
+    @Test
+    void testPageSpanningBlockBoundary() throws IOException {
+        Path path = dir.resolve("0000000001.seg");
+        ArchiveSegment.write(path, 7L, messages(150), 64);
+
+        // Блоки: 1-64, 65-128, 129-150; пропуск 20 новейших начинает со 130
+        List<ArchivedMessage> page = ArchiveSegment.open(path).readNewestFirst(20, 5);
+        assertEquals(List.of(130L, 129L, 128L, 127L, 126L), page.stream().map(ArchivedMessage::id).toList());
+        assertTrue(ArchiveSegment.open(path).readNewestFirst(150, 5).isEmpty());
+    }
+
+    @Test
+    void testTruncatedFileIsRejected() throws IOException {
+        Path path = dir.resolve("0000000001.seg");
+        ArchiveSegment.write(path, 7L, messages(10), 4);
+        byte[] bytes = Files.readAllBytes(path);
+        Path truncated = dir.resolve("0000000002.seg.tmp");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 5));
+
+        assertThrows(IOException.class, () -> ArchiveSegment.open(truncated));
+    }
+
+    private static List<ArchivedMessage> messages(int count) {
+        List<ArchivedMessage> messages = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            messages.add(new ArchivedMessage(id, 2L, id > 1 ? id - 1 : null,
+                    id == count ? "x".repeat(70_000) : "message " + id, "TEXT", id % 2 == 0,
+                    BASE.plusMinutes(id), null, null, null, null, null, null, new long[]{2L, 3L},
+                    new LocalDateTime[]{BASE.plusDays(1), null}));
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,148 @@
+package com.messenger.core.service;
+
+import com.messenger.core.dto.ChatDto;
+import com.messenger.core.dto.UserDto;
+import com.messenger.core.service.chat.ChatListCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatListCacheTest {
+
+    private ChatListCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ChatListCache();
+        loads = new AtomicInteger();
+    }
+
+    private static ChatDto chat(long id, long... participantIds) {
+        ChatDto chat = new ChatDto();
+        chat.setId(id);
+        chat.setParticipants(java.util.Arrays.stream(participantIds).mapToObj(pid -> {
+            UserDto user = new UserDto();
+            user.setId(pid);
+            return user;
+        }).toList());
+        return chat;
+    }
+
+    /** Служебные счётчики кеша: пакетные, а тест лежит в другом пакете */
+    private int cacheInt(String method) {
+        Integer value = ReflectionTestUtils.invokeMethod(cache, method);
+        return value;
+    }
+
+    private ChatListCache.Entry load(long userId, ChatDto... chats) {
+        return cache.get(userId, () -> {
+            loads.incrementAndGet();
+            return List.of(chats);
+        });
+    }
+
+    @Test
+    void testSecondRequestServedFromCache() {
+        ChatListCache.Entry first = load(1L, chat(10L, 1L, 2L));
+        ChatListCache.Entry second = load(1L, chat(10L, 1L, 2L));
+
+        assertEquals(1, loads.get());
+        assertEquals(first.getETag(), second.getETag());
+        assertEquals(first.getETag(), cache.getETag(1L));
+        assertTrue(first.getETag().startsWith("W/\""));
+    }
+
+    @Test
+    void testInvalidateChatEvictsAllViewers() {
+        load(1L, chat(10L, 1L, 2L));
+        load(2L, chat(10L, 1L, 2L));
+        load(3L, chat(20L, 3L));
+        String etag = cache.getETag(1L);
+
+        cache.invalidateChat(10L);
+
+        assertNull(cache.getETag(1L));
+        assertNull(cache.getETag(2L));
+        assertNotNull(cache.getETag(3L));
+        assertNotEquals(etag, load(1L, chat(10L, 1L, 2L)).getETag());
+    }
+
+    @Test
+    void testInvalidateUsersEvictsOnlyThem() {
+        load(1L, chat(10L, 1L, 2L));
+        load(2L, chat(10L, 1L, 2L));
+
+        cache.invalidateUsers(List.of(1L));
+
+        assertNull(cache.getETag(1L));
+        assertNotNull(cache.getETag(2L));
+    }
+
+    @Test
+    void testInvalidateMemberEvictsListsShowingThatUser() {
+        load(1L, chat(10L, 1L, 2L));
+        load(3L, chat(20L, 3L, 4L));
+
+        cache.invalidateMember(2L);
+
+        assertNull(cache.getETag(1L));
+        assertNotNull(cache.getETag(3L));
+    }
+
+    @Test
+    void testListBuiltDuringInvalidationIsNotStored() {
+        ChatListCache.Entry entry = cache.get(1L, () -> {
+            // Сообщение пришло, пока список собирался из БД
+            cache.invalidateChat(10L);
+            return List.of(chat(10L, 1L, 2L));
+        });
+
+        assertNotNull(entry.getChats());
+        assertNull(cache.getETag(1L));
+    }
+
+    @Test
+    void testLeastRecentlyUsedListIsEvictedOverLimit() {
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        load(1L, chat(10L, 1L, 5L));
+        load(2L, chat(20L, 2L, 5L));
+        cache.getETag(1L);
+        load(3L, chat(30L, 3L, 5L));
+
+        assertEquals(2, cacheInt("size"));
+        assertNotNull(cache.getETag(1L));
+        assertNull(cache.getETag(2L));
+        // Вытесненный список убран и из индексов: инвалидация его чата не трогает остальных
+        cache.invalidateChat(20L);
+        assertEquals(2, cacheInt("size"));
+    }
+
+    @Test
+    void testExpiredListIsRebuilt() {
+        ReflectionTestUtils.setField(cache, "ttlMs", -1L);
+        String etag = load(1L, chat(10L, 1L, 2L)).getETag();
+
+        assertNull(cache.getETag(1L));
+        assertNotEquals(etag, load(1L, chat(10L, 1L, 2L)).getETag());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testTrackingStructuresStayBounded() {
+        for (long chatId = 1; chatId <= 5_000; chatId++) {
+            load(chatId, chat(chatId, chatId, chatId + 1));
+            cache.invalidateChat(chatId);
+            cache.invalidateMember(chatId + 1);
+        }
+
+        assertEquals(0, cacheInt("size"));
+        // Без идущих сборок отметки инвалидаций ни на что не влияют и вычищаются
+        assertTrue(cacheInt("trackedCount") <= 1_100, "tracked " + cacheInt("trackedCount"));
+    }
+}
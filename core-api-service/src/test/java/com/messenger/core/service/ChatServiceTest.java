@@ -8,8 +8,10 @@ import com.messenger.core.repository.ChatRepository;
 import com.messenger.core.repository.UserRepository;
 import com.messenger.core.repository.MessageRepository;
 import com.messenger.core.repository.MessageReadStatusRepository;
+import com.messenger.core.service.chat.ChatListCache;
 import com.messenger.core.service.chat.ChatService;
 import com.messenger.core.service.message.MessageService;
+import com.messenger.core.service.message.archive.MessageArchiveService;
 import com.messenger.core.service.user.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -39,6 +41,10 @@ class ChatServiceTest {
     private KafkaTemplate<String, Object> kafkaTemplate;
     @Mock
     private MessageReadStatusRepository messageReadStatusRepository;
+    @Mock
+    private ChatListCache chatListCache;
+    @Mock
+    private MessageArchiveService messageArchiveService;
     @InjectMocks
     private ChatService chatService;
 
@@ -199,6 +205,8 @@ class ChatServiceTest {
         doNothing().when(chatRepository).delete(chat);
         chatService.deleteChat(1L, 999L);
         verify(chatRepository, times(1)).delete(chat);
+        verify(messageReadStatusRepository).deleteByChatId(1L);
+        verify(messageArchiveService).deleteChatArchive(1L);
     }
 
     @Test
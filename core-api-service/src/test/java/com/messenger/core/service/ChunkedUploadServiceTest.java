@@ -0,0 +1,205 @@
+package com.messenger.core.service;
+
+import com.messenger.core.dto.MessageDto;
+import com.messenger.core.dto.UploadSessionDto;
+import com.messenger.core.dto.request.InitUploadRequest;
+import com.messenger.core.service.chat.ChatAccessService;
+import com.messenger.core.service.message.MessageService;
+import com.messenger.core.service.upload.ChunkedUploadService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ChunkedUploadServiceTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private MessageService messageService;
+    private ChatAccessService chatAccessService;
+    private ChunkedUploadService uploadService;
+
+    @BeforeEach
+    void setUp() {
+        FileStorageService fileStorageService = new FileStorageService();
+        ReflectionTestUtils.setField(fileStorageService, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(fileStorageService, "maxFileSize", 1024 * 1024);
+        ReflectionTestUtils.setField(fileStorageService, "allowedTypes", "application/pdf");
+
+        messageService = mock(MessageService.class);
+        chatAccessService = mock(ChatAccessService.class);
+        uploadService = new ChunkedUploadService(fileStorageService, messageService, chatAccessService);
+        ReflectionTestUtils.setField(uploadService, "maxChunkSize", 1000);
+        ReflectionTestUtils.setField(uploadService, "sessionTtlMinutes", 60L);
+    }
+
+    private InitUploadRequest request(long size) {
+        InitUploadRequest request = new InitUploadRequest();
+        request.setChatId(5L);
+        request.setFileName("doc.pdf");
+        request.setMimeType("application/pdf");
+        request.setFileSize(size);
+        return request;
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+
+    @Test
+    void testChunkedUpload_assemblesFileAndSendsMessage() throws Exception {
+        byte[] data = new byte[2500];
+        for (int i = 0; i < data.length; i++) data[i] = (byte) i;
+        when(messageService.sendFileMessage(eq(1L), eq(5L), any(), any())).thenReturn(new MessageDto());
+
+        UploadSessionDto session = uploadService.initUpload(1L, request(data.length));
+        uploadService.appendChunk(1L, session.getUploadId(), 0, new ByteArrayInputStream(data, 0, 1000));
+        uploadService.appendChunk(1L, session.getUploadId(), 1000, new ByteArrayInputStream(data, 1000, 1000));
+        UploadSessionDto status = uploadService.appendChunk(1L, session.getUploadId(), 2000, new ByteArrayInputStream(data, 2000, 500));
+        assertEquals(2500L, status.getReceivedBytes());
+
+        uploadService.completeUpload(1L, session.getUploadId(), sha256(data));
+
+        ArgumentCaptor<FileStorageService.FileInfo> captor = ArgumentCaptor.forClass(FileStorageService.FileInfo.class);
+        verify(messageService).sendFileMessage(eq(1L), eq(5L), isNull(), captor.capture());
+        FileStorageService.FileInfo info = captor.getValue();
+        assertEquals("doc.pdf", info.getFileName());
+        assertEquals(2500L, info.getFileSize());
+        Path stored = Paths.get(uploadDir.toString(), "chat_5", info.getStoredFileName());
+        assertArrayEquals(data, Files.readAllBytes(stored));
+        verify(chatAccessService).verifyParticipant(5L, 1L);
+    }
+
+    @Test
+    void testAppendChunk_duplicateChunkIsIgnored() throws Exception {
+        byte[] data = new byte[1500];
+        Arrays.fill(data, (byte) 7);
+        UploadSessionDto session = uploadService.initUpload(1L, request(data.length));
+
+        uploadService.appendChunk(1L, session.getUploadId(), 0, new ByteArrayInputStream(data, 0, 1000));
+        UploadSessionDto status = uploadService.appendChunk(1L, session.getUploadId(), 0, new ByteArrayInputStream(data, 0, 1000));
+        assertEquals(1000L, status.getReceivedBytes());
+
+        uploadService.appendChunk(1L, session.getUploadId(), 1000, new ByteArrayInputStream(data, 1000, 500));
+        when(messageService.sendFileMessage(anyLong(), anyLong(), any(), any())).thenReturn(new MessageDto());
+        assertDoesNotThrow(() -> uploadService.completeUpload(1L, session.getUploadId(), sha256(data)));
+    }
+
+    @Test
+    void testAppendChunk_wrongOffset() throws Exception {
+        UploadSessionDto session = uploadService.initUpload(1L, request(100));
+        Exception ex = assertThrows(IllegalArgumentException.class,
+                () -> uploadService.appendChunk(1L, session.getUploadId(), 50, new ByteArrayInputStream(new byte[10])));
+        assertTrue(ex.getMessage().contains("Неверное смещение"));
+    }
+
+    @Test
+    void testAppendChunk_brokenStreamRollsBack() throws Exception {
+        byte[] data = new byte[800];
+        Arrays.fill(data, (byte) 3);
+        UploadSessionDto session = uploadService.initUpload(1L, request(data.length));
+
+        InputStream broken = new InputStream() {
+            private int read;
+            @Override
+            public int read() throws IOException {
+                if (read++ < 200) return 3;
+                throw new IOException("connection reset");
+            }
+        };
+        assertThrows(IOException.class, () -> uploadService.appendChunk(1L, session.getUploadId(), 0, broken));
+        assertEquals(0L, uploadService.getStatus(1L, session.getUploadId()).getReceivedBytes());
+
+        uploadService.appendChunk(1L, session.getUploadId(), 0, new ByteArrayInputStream(data));
+        when(messageService.sendFileMessage(anyLong(), anyLong(), any(), any())).thenReturn(new MessageDto());
+        assertDoesNotThrow(() -> uploadService.completeUpload(1L, session.getUploadId(), sha256(data)));
+    }
+
+    @Test
+    void testAppendChunk_tooLargeChunk() throws Exception {
+        UploadSessionDto session = uploadService.initUpload(1L, request(5000));
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadService.appendChunk(1L, session.getUploadId(), 0, new ByteArrayInputStream(new byte[1500])));
+        assertEquals(0L, uploadService.getStatus(1L, session.getUploadId()).getReceivedBytes());
+    }
+
+    @Test
+    void testCompleteUpload_checksumMismatch() throws Exception {
+        UploadSessionDto session = uploadService.initUpload(1L, request(10));
+        uploadService.appendChunk(1L, session.getUploadId(), 0, new ByteArrayInputStream(new byte[10]));
+
+        Exception ex = assertThrows(IllegalArgumentException.class,
+                () -> uploadService.completeUpload(1L, session.getUploadId(), "deadbeef"));
+        assertTrue(ex.getMessage().contains("Контрольная сумма"));
+        verify(messageService, never()).sendFileMessage(any(), any(), any(), any());
+        assertThrows(RuntimeException.class, () -> uploadService.getStatus(1L, session.getUploadId()));
+    }
+
+    @Test
+    void testCompleteUpload_retryAfterSendFailure() throws Exception {
+        byte[] data = new byte[10];
+        when(messageService.sendFileMessage(eq(1L), eq(5L), any(), any()))
+                .thenThrow(new RuntimeException("db down"))
+                .thenReturn(new MessageDto());
+        UploadSessionDto session = uploadService.initUpload(1L, request(data.length));
+        uploadService.appendChunk(1L, session.getUploadId(), 0, new ByteArrayInputStream(data));
+
+        assertThrows(RuntimeException.class, () -> uploadService.completeUpload(1L, session.getUploadId(), sha256(data)));
+        assertEquals(10L, uploadService.getStatus(1L, session.getUploadId()).getReceivedBytes());
+
+        assertNotNull(uploadService.completeUpload(1L, session.getUploadId(), sha256(data)));
+        ArgumentCaptor<FileStorageService.FileInfo> captor = ArgumentCaptor.forClass(FileStorageService.FileInfo.class);
+        verify(messageService, times(2)).sendFileMessage(eq(1L), eq(5L), isNull(), captor.capture());
+        assertSame(captor.getAllValues().get(0), captor.getAllValues().get(1));
+        assertThrows(RuntimeException.class, () -> uploadService.getStatus(1L, session.getUploadId()));
+    }
+
+    @Test
+    void testPurgeExpiredSessions_deletesPartFile() throws Exception {
+        UploadSessionDto session = uploadService.initUpload(1L, request(10));
+        Path partFile = uploadDir.resolve(".incoming").resolve(session.getUploadId() + ".part");
+        assertTrue(Files.exists(partFile));
+
+        ReflectionTestUtils.setField(uploadService, "sessionTtlMinutes", -1L);
+        uploadService.purgeExpiredSessions();
+
+        assertFalse(Files.exists(partFile));
+    }
+
+    @Test
+    void testCompleteUpload_incomplete() throws Exception {
+        UploadSessionDto session = uploadService.initUpload(1L, request(10));
+        uploadService.appendChunk(1L, session.getUploadId(), 0, new ByteArrayInputStream(new byte[5]));
+        assertThrows(IllegalStateException.class,
+                () -> uploadService.completeUpload(1L, session.getUploadId(), "x"));
+    }
+
+    @Test
+    void testGetStatus_otherUser() throws Exception {
+        UploadSessionDto session = uploadService.initUpload(1L, request(10));
+        assertThrows(IllegalArgumentException.class, () -> uploadService.getStatus(2L, session.getUploadId()));
+    }
+
+    @Test
+    void testInitUpload_invalidType() {
+        InitUploadRequest request = request(10);
+        request.setMimeType("application/zip");
+        assertThrows(IllegalArgumentException.class, () -> uploadService.initUpload(1L, request));
+    }
+}
@@ -0,0 +1,261 @@
+package com.messenger.core.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.messenger.core.model.OneTimePreKey;
+import com.messenger.core.model.UserKeyBackup;
+import com.messenger.core.model.UserKeys;
+import com.messenger.core.repository.OneTimePreKeyRepository;
+import com.messenger.core.repository.OneTimePreKeyRepository.ClaimedPreKey;
+import com.messenger.core.repository.UserKeyBackupRepository;
+import com.messenger.core.repository.UserKeysRepository;
+import com.messenger.core.repository.UserRepository;
+import com.messenger.core.service.encryption.EncryptionServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class EncryptionServiceImplTest {
+    private static final String IDENTITY = Base64.getEncoder().encodeToString(new byte[65]);
+    private static final String SIGNED = Base64.getEncoder().encodeToString(new byte[]{4, 1, 2});
+    private static final String OTPK = Base64.getEncoder().encodeToString(new byte[]{4, 9, 9, 9});
+    /** Собеседник, запрашивающий чужой bundle */
+    private static final Long PEER = 9L;
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private UserKeysRepository userKeysRepository;
+    @Mock
+    private UserKeyBackupRepository userKeyBackupRepository;
+    @Mock
+    private OneTimePreKeyRepository oneTimePreKeyRepository;
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private EncryptionServiceImpl encryptionService;
+    private UserKeys keys;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        encryptionService = new EncryptionServiceImpl(userRepository, userKeysRepository,
+                userKeyBackupRepository, oneTimePreKeyRepository, kafkaTemplate, objectMapper);
+        doReturn(mock(CompletableFuture.class)).when(kafkaTemplate).send(anyString(), anyString(), any());
+        keys = new UserKeys(1L);
+        keys.setIdentityKey(IDENTITY);
+        keys.setSignedPreKey(SIGNED);
+        keys.setSignedPreKeySignature("");
+        when(userKeysRepository.findById(1L)).thenReturn(Optional.of(keys));
+        when(userRepository.existsById(1L)).thenReturn(true);
+    }
+
+    @Test
+    void testBundleCarriesOneClaimedKeyWithoutWritingUser() {
+        when(oneTimePreKeyRepository.claimOne(1L)).thenReturn(Optional.of(claimed(7L, OTPK, 50)));
+
+        Map<String, String> bundle = encryptionService.getPreKeyBundle(1L, PEER);
+
+        assertEquals("[\"" + OTPK + "\"]", bundle.get("oneTimePreKeys"));
+        assertEquals("7", bundle.get("oneTimePreKeyId"));
+        verify(userKeysRepository, never()).save(any());
+        verifyNoInteractions(userRepository);
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    void testOwnerFetchDoesNotClaimKey() {
+        Map<String, String> bundle = encryptionService.getPreKeyBundle(1L, 1L);
+        Map<String, Object> protocol = encryptionService.getPreKeyBundleProtocol(1L, 1L);
+
+        assertEquals("[]", bundle.get("oneTimePreKeys"));
+        assertNull(bundle.get("oneTimePreKeyId"));
+        assertEquals(IDENTITY, bundle.get("identityKey"));
+        assertEquals(List.of(), protocol.get("oneTimePreKeys"));
+        verify(oneTimePreKeyRepository, never()).claimOne(any());
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    void testLowWatermarkRequestsReplenishOnce() {
+        when(oneTimePreKeyRepository.claimOne(1L)).thenReturn(Optional.of(claimed(7L, OTPK, 3)));
+
+        encryptionService.getPreKeyBundle(1L, PEER);
+        encryptionService.getPreKeyBundle(1L, PEER);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> event = ArgumentCaptor.forClass(Map.class);
+        verify(kafkaTemplate, times(1)).send(eq("websocket-notifications"), eq("1"), event.capture());
+        assertEquals("PREKEYS_LOW", event.getValue().get("type"));
+        assertEquals(3L, event.getValue().get("remaining"));
+    }
+
+    @Test
+    void testExhaustedPoolReturnsBundleWithoutOneTimeKey() {
+        when(oneTimePreKeyRepository.claimOne(1L)).thenReturn(Optional.empty());
+
+        Map<String, String> bundle = encryptionService.getPreKeyBundle(1L, PEER);
+
+        assertEquals("[]", bundle.get("oneTimePreKeys"));
+        assertNull(bundle.get("oneTimePreKeyId"));
+        assertEquals(IDENTITY, bundle.get("identityKey"));
+        verify(kafkaTemplate).send(eq("websocket-notifications"), eq("1"), any());
+    }
+
+    @Test
+    void testMissingKeysAreGeneratedIntoSideTable() {
+        when(userKeysRepository.findById(2L)).thenReturn(Optional.empty());
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(oneTimePreKeyRepository.claimOne(2L)).thenReturn(Optional.of(claimed(1L, OTPK, 99)));
+
+        Map<String, String> bundle = encryptionService.getPreKeyBundle(2L, PEER);
+
+        ArgumentCaptor<UserKeys> saved = ArgumentCaptor.forClass(UserKeys.class);
+        verify(userKeysRepository).save(saved.capture());
+        assertEquals(2L, saved.getValue().getUserId());
+        assertEquals(saved.getValue().getIdentityKey(), bundle.get("identityKey"));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<OneTimePreKey>> generated = ArgumentCaptor.forClass(List.class);
+        verify(oneTimePreKeyRepository).saveAll(generated.capture());
+        assertEquals(100, generated.getValue().size());
+    }
+
+    @Test
+    void testKeyBackupLivesInItsOwnTable() {
+        when(userKeyBackupRepository.findById(1L)).thenReturn(Optional.empty());
+
+        encryptionService.saveEncryptedKeyBackup(1L, "{\"iv\":\"x\"}");
+
+        ArgumentCaptor<UserKeyBackup> saved = ArgumentCaptor.forClass(UserKeyBackup.class);
+        verify(userKeyBackupRepository).save(saved.capture());
+        assertEquals(1L, saved.getValue().getUserId());
+        assertThrows(RuntimeException.class, () -> encryptionService.getEncryptedKeyBackup(3L));
+    }
+
+    @Test
+    void testUploadAppendsKeys() {
+        when(oneTimePreKeyRepository.countByUserId(1L)).thenReturn(120L);
+        List<String> uploaded = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            uploaded.add(Base64.getEncoder().encodeToString(new byte[]{4, (byte) i}));
+        }
+
+        assertEquals(120L, encryptionService.uploadOneTimePreKeys(1L, uploaded));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<OneTimePreKey>> saved = ArgumentCaptor.forClass(List.class);
+        verify(oneTimePreKeyRepository).saveAll(saved.capture());
+        assertEquals(100, saved.getValue().size());
+        verify(oneTimePreKeyRepository, never()).deleteByUserId(any());
+    }
+
+    @Test
+    void testRepeatedUploadDoesNotDuplicateKeys() {
+        String stored = Base64.getEncoder().encodeToString(new byte[]{4, 1});
+        when(oneTimePreKeyRepository.findStoredPublicKeys(eq(1L), anyCollection())).thenReturn(List.of(stored));
+
+        encryptionService.uploadOneTimePreKeys(1L, List.of(stored, OTPK, OTPK));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<OneTimePreKey>> saved = ArgumentCaptor.forClass(List.class);
+        verify(oneTimePreKeyRepository).saveAll(saved.capture());
+        assertEquals(List.of(OTPK), saved.getValue().stream().map(OneTimePreKey::getPublicKey).toList());
+
+        reset(oneTimePreKeyRepository);
+        when(oneTimePreKeyRepository.findStoredPublicKeys(eq(1L), anyCollection())).thenReturn(List.of(stored));
+        encryptionService.uploadOneTimePreKeys(1L, List.of(stored));
+        verify(oneTimePreKeyRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void testUploadRejectsOversizedAndInvalidBatches() {
+        assertThrows(IllegalArgumentException.class,
+                () -> encryptionService.uploadOneTimePreKeys(1L, Collections.nCopies(501, OTPK)));
+        assertThrows(IllegalArgumentException.class,
+                () -> encryptionService.uploadOneTimePreKeys(1L, List.of("not base64!")));
+        verify(oneTimePreKeyRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void testRepublishWithEmptyListKeepsPool() {
+        encryptionService.savePreKeyBundle(1L, IDENTITY, SIGNED, "[]", null);
+        verify(oneTimePreKeyRepository, never()).deleteByUserId(any());
+
+        encryptionService.savePreKeyBundle(1L, SIGNED, SIGNED, "[]", null);
+        verify(oneTimePreKeyRepository).deleteByUserId(1L);
+    }
+
+    @Test
+    void testSaveRejectsNonBase64BundleKeys() {
+        assertThrows(IllegalArgumentException.class,
+                () -> encryptionService.savePreKeyBundle(1L, "not base64!", SIGNED, "[]", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> encryptionService.savePreKeyBundle(1L, IDENTITY, "not base64!", "[]", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> encryptionService.savePreKeyBundle(1L, IDENTITY, SIGNED, "[]", "not base64!"));
+        verify(userKeysRepository, never()).save(any());
+    }
+
+    @Test
+    void testBinaryBundleEncodingFailurePropagates() {
+        // Ключ, сохранённый до проверки Base64: ошибка должна откатить выдачу одноразового ключа
+        keys.setIdentityKey("not base64!");
+        when(oneTimePreKeyRepository.claimOne(1L)).thenReturn(Optional.of(claimed(7L, OTPK, 50)));
+
+        assertThrows(IllegalArgumentException.class, () -> encryptionService.getPreKeyBundleBinary(1L, PEER));
+    }
+
+    @Test
+    void testBinaryBundleUsesRawKeyBytes() throws Exception {
+        when(oneTimePreKeyRepository.claimOne(1L)).thenReturn(Optional.of(claimed(7L, OTPK, 50)));
+
+        byte[] encoded = encryptionService.getPreKeyBundleBinary(1L, PEER);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+        assertEquals(1, in.readUnsignedByte());
+        assertEquals(1L, in.readLong());
+        assertEquals(65, in.readUnsignedShort());
+        in.skipNBytes(65);
+        assertEquals(3, in.readUnsignedShort());
+        in.skipNBytes(3);
+        assertEquals(0, in.readUnsignedShort());
+        assertEquals(7L, in.readLong());
+        assertEquals(4, in.readUnsignedShort());
+        assertArrayEquals(new byte[]{4, 9, 9, 9}, in.readNBytes(4));
+        assertEquals(0, in.available());
+    }
+
+    private static ClaimedPreKey claimed(Long id, String publicKey, long remaining) {
+        return new ClaimedPreKey() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getPublicKey() {
+                return publicKey;
+            }
+
+            @Override
+            public Long getRemaining() {
+                return remaining;
+            }
+        };
+    }
+}
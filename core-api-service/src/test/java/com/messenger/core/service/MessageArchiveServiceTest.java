@@ -0,0 +1,72 @@
+package com.messenger.core.service;
+
+import com.messenger.core.dto.MessageDto;
+import com.messenger.core.repository.UserRepository;
+import com.messenger.core.service.chat.ChatListCache;
+import com.messenger.core.service.message.archive.ArchiveSegment;
+import com.messenger.core.service.message.archive.ArchivedMessage;
+import com.messenger.core.service.message.archive.MessageArchiveService;
+import com.messenger.core.service.user.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MessageArchiveServiceTest {
+    private static final LocalDateTime READ_AT = LocalDateTime.of(2024, 3, 2, 9, 30);
+
+    @TempDir
+    Path dir;
+
+    private MessageArchiveService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findAllById(any())).thenReturn(List.of());
+        service = new MessageArchiveService(mock(JdbcTemplate.class), mock(TransactionTemplate.class),
+                userRepository, mock(UserService.class), mock(ChatListCache.class));
+        ReflectionTestUtils.setField(service, "archiveDir", dir.toString());
+
+        Path chatDir = Files.createDirectories(dir.resolve("5"));
+        ArchiveSegment.write(chatDir.resolve("0000000001.seg"), 5L, List.of(
+                new ArchivedMessage(10L, 2L, null, "question", "TEXT", false, READ_AT.minusDays(1), null,
+                        null, null, null, null, null, new long[]{3L}, new LocalDateTime[]{READ_AT}),
+                new ArchivedMessage(11L, 3L, 10L, "answer", "TEXT", false, READ_AT, null,
+                        null, null, null, null, null, new long[0], new LocalDateTime[0])), 64);
+    }
+
+    @Test
+    void testArchivedMessagesKeepReplyAndReadTime() {
+        List<MessageDto> page = service.getArchivedMessages(5L, 3L, 0, 10);
+
+        assertEquals(List.of(11L, 10L), page.stream().map(MessageDto::getId).toList());
+        assertEquals(10L, page.get(0).getReplyToMessage().getId());
+        assertFalse(page.get(0).getIsReadByCurrentUser());
+        assertNull(page.get(0).getReadAt());
+        assertTrue(page.get(1).getIsReadByCurrentUser());
+        assertEquals(READ_AT, page.get(1).getReadAt());
+    }
+
+    @Test
+    void testDeleteChatArchiveRemovesSegments() {
+        assertEquals(2, service.getArchivedMessages(5L, 3L, 0, 10).size());
+
+        service.deleteChatArchive(5L);
+
+        assertFalse(Files.exists(dir.resolve("5")));
+        assertTrue(service.getArchivedMessages(5L, 3L, 0, 10).isEmpty());
+    }
+}
@@ -7,6 +7,7 @@ import com.messenger.core.model.User;
 import com.messenger.core.repository.ChatRepository;
 import com.messenger.core.repository.MessageRepository;
 import com.messenger.core.repository.UserRepository;
+import com.messenger.core.service.chat.ChatListCache;
 import com.messenger.core.service.message.MessageKafkaListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.junit.jupiter.api.BeforeEach;
@@ -29,6 +30,7 @@ class MessageKafkaListenerTest {
     private UserRepository userRepository;
     private ObjectMapper objectMapper;
     private KafkaTemplate<String, Object> kafkaTemplate;
+    private ChatListCache chatListCache;
     private MessageKafkaListener listener;
 
     @BeforeEach
@@ -38,7 +40,8 @@ class MessageKafkaListenerTest {
         userRepository = mock(UserRepository.class);
         objectMapper = new ObjectMapper();
         kafkaTemplate = mock(KafkaTemplate.class);
-        listener = new MessageKafkaListener(messageRepository, chatRepository, userRepository, objectMapper, kafkaTemplate);
+        chatListCache = mock(ChatListCache.class);
+        listener = new MessageKafkaListener(messageRepository, chatRepository, userRepository, objectMapper, kafkaTemplate, chatListCache);
     }
 
     @Test
@@ -9,6 +9,7 @@ import com.messenger.core.repository.MessageRepository;
 import com.messenger.core.repository.ChatRepository;
 import com.messenger.core.repository.UserRepository;
 import com.messenger.core.repository.MessageReadStatusRepository;
+import com.messenger.core.service.chat.ChatListCache;
 import com.messenger.core.service.message.MessageService;
 import com.messenger.core.service.user.UserService;
 import org.springframework.kafka.core.KafkaTemplate;
@@ -36,6 +37,8 @@ class MessageServiceTest {
     @Mock private UserService userService;
     @Mock private KafkaTemplate<String, Object> kafkaTemplate;
     @Mock private MessageReadStatusRepository messageReadStatusRepository;
+    @Mock private ChatListCache chatListCache;
+    @Mock private OptimizedDataService optimizedDataService;
     @InjectMocks private MessageService messageService;
 
     @BeforeEach
@@ -71,16 +74,30 @@ class MessageServiceTest {
         chat.setParticipants(new HashSet<>(List.of(user)));
         Message msg1 = new Message(); msg1.setId(1L); msg1.setContent("msg1"); msg1.setChat(chat);
         Message msg2 = new Message(); msg2.setId(2L); msg2.setContent("msg2"); msg2.setChat(chat);
-        when(chatRepository.isUserParticipant(5L, 1L)).thenReturn(true);
-        when(chatRepository.existsById(5L)).thenReturn(true);
-        when(messageRepository.findByChatIdOrderByCreatedAtDescWithSender(eq(5L), any())).thenReturn(List.of(msg1, msg2));
-        when(messageReadStatusRepository.findByMessageIdIn(anyList())).thenReturn(Collections.emptyList());
+        when(optimizedDataService.getOptimizedChatMessages(5L, 1L, 0, 50))
+                .thenReturn(List.of(toDto(msg1), toDto(msg2)));
         List<MessageDto> messages = messageService.getChatMessages(5L, 1L, 0, 50);
         assertEquals(2, messages.size());
         assertEquals("msg1", messages.get(0).getContent());
         assertEquals("msg2", messages.get(1).getContent());
     }
 
+    @Test
+    void testConvertToDtoReplyToArchivedMessage() {
+        Chat chat = new Chat(); chat.setId(5L);
+        // Строку исходного сообщения перенёс архив: ленивая ссылка не инициализируется
+        Message archived = mock(Message.class);
+        when(archived.getId()).thenReturn(9L);
+        when(archived.getContent()).thenThrow(new jakarta.persistence.EntityNotFoundException("archived"));
+        Message message = new Message();
+        message.setId(10L);
+        message.setChat(chat);
+        message.setReplyToMessage(archived);
+        MessageDto dto = messageService.convertToDto(message);
+        assertEquals(9L, dto.getReplyToMessage().getId());
+        assertEquals(5L, dto.getReplyToMessage().getChatId());
+    }
+
     @Test
     void testEditMessage() {
         User sender = new User(); sender.setId(2L);
@@ -92,7 +109,7 @@ class MessageServiceTest {
         message.setChat(chat);
         MessageDto.EditMessageRequest req = new MessageDto.EditMessageRequest();
         req.setContent("new content");
-        when(messageRepository.findById(1L)).thenReturn(Optional.of(message));
+        when(messageRepository.findByIdAndChatId(1L, 5L)).thenReturn(Optional.of(message));
         when(messageRepository.save(any(Message.class))).thenReturn(new Message() {{
             setId(1L);
             setSender(sender);
@@ -101,7 +118,7 @@ class MessageServiceTest {
             setContent("new content");
             setIsEdited(true); // Исправлено!
         }});
-        MessageDto dto = messageService.editMessage(1L, 2L, req);
+        MessageDto dto = messageService.editMessage(1L, 5L, 2L, req);
         assertEquals("new content", dto.getContent());
         assertTrue(dto.getIsEdited());
     }
@@ -115,7 +132,7 @@ class MessageServiceTest {
         message.setSender(sender);
         message.setIsDeleted(false);
         message.setChat(chat);
-        when(messageRepository.findById(1L)).thenReturn(Optional.of(message));
+        when(messageRepository.findByIdAndChatId(1L, 5L)).thenReturn(Optional.of(message));
         when(messageRepository.save(any(Message.class))).thenReturn(new Message() {{
             setId(1L);
             setSender(sender);
@@ -123,8 +140,10 @@ class MessageServiceTest {
             setChat(chat);
             setContent("[Сообщение удалено]");
         }});
-        messageService.deleteMessage(1L, 2L);
+        messageService.deleteMessage(1L, 5L, 2L);
         assertTrue(message.getIsDeleted());
+        // Поиск только с ключом секционирования chat_id, без обхода всех секций
+        verify(messageRepository, never()).findById(anyLong());
         assertEquals("[Сообщение удалено]", message.getContent());
     }
 
@@ -156,12 +175,12 @@ class MessageServiceTest {
         User user = new User(); user.setId(1L);
         chat.setParticipants(new HashSet<>(List.of(user)));
         message.setChat(chat);
-        when(messageRepository.findById(1L)).thenReturn(Optional.of(message));
+        when(messageRepository.findByIdAndChatId(1L, 5L)).thenReturn(Optional.of(message));
         MessageReadStatus status = new MessageReadStatus();
         status.setId(10L); status.setMessage(message); status.setUser(user); status.setReadAt(LocalDateTime.now());
         when(messageReadStatusRepository.findByMessageId(1L)).thenReturn(Collections.singletonList(status));
         when(userService.convertToDto(user)).thenReturn(new com.messenger.core.dto.UserDto());
-        var result = messageService.getMessageReadStatuses(1L, 1L);
+        var result = messageService.getMessageReadStatuses(1L, 5L, 1L);
         assertEquals(1, result.size());
         assertEquals(10L, result.get(0).getId());
     }
@@ -172,14 +191,16 @@ class MessageServiceTest {
         User sender = new User(); sender.setId(3L);
         Chat chat = new Chat(); chat.setId(5L);
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(messageRepository.findAllById(anyList())).thenReturn(Collections.singletonList(new Message() {{
+        when(messageRepository.findMessagesByIdsInChatWithSender(eq(5L), anyList())).thenReturn(Collections.singletonList(new Message() {{
             setId(2L);
             setSender(sender);
             setChat(chat);
         }}));
         when(messageReadStatusRepository.existsByMessageIdAndUserId(2L, 1L)).thenReturn(false);
-        messageService.markMessagesAsRead(1L, Collections.singletonList(2L));
+        messageService.markMessagesAsRead(1L, 5L, Collections.singletonList(2L));
         verify(messageReadStatusRepository, times(1)).save(any(MessageReadStatus.class));
+        // Списки отправителя и остальных участников показывают статус прочтения — сбрасывается весь чат
+        verify(chatListCache).invalidateChat(5L);
     }
 
     @Test
@@ -192,7 +213,7 @@ class MessageServiceTest {
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
         User sender = new User(); sender.setId(3L);
         Chat chat2 = new Chat(); chat2.setId(5L);
-        when(messageRepository.findAllById(anyList())).thenReturn(Collections.singletonList(new Message() {{
+        when(messageRepository.findMessagesByIdsInChatWithSender(eq(5L), anyList())).thenReturn(Collections.singletonList(new Message() {{
             setId(2L);
             setSender(sender);
             setChat(chat2);
@@ -254,22 +275,22 @@ class MessageServiceTest {
         message.setChat(chat);
         MessageDto.EditMessageRequest req = new MessageDto.EditMessageRequest();
         req.setContent("new content");
-        when(messageRepository.findById(1L)).thenReturn(Optional.of(message));
-        assertThrows(RuntimeException.class, () -> messageService.editMessage(1L, 3L, req));
+        when(messageRepository.findByIdAndChatId(1L, 5L)).thenReturn(Optional.of(message));
+        assertThrows(RuntimeException.class, () -> messageService.editMessage(1L, 5L, 3L, req));
     }
 
     @Test
     void testEditNonexistentMessage() {
         MessageDto.EditMessageRequest req = new MessageDto.EditMessageRequest();
         req.setContent("new content");
-        when(messageRepository.findById(999L)).thenReturn(Optional.empty());
-        assertThrows(RuntimeException.class, () -> messageService.editMessage(999L, 1L, req));
+        when(messageRepository.findByIdAndChatId(999L, 5L)).thenReturn(Optional.empty());
+        assertThrows(RuntimeException.class, () -> messageService.editMessage(999L, 5L, 1L, req));
     }
 
     @Test
     void testDeleteNonexistentMessage() {
-        when(messageRepository.findById(999L)).thenReturn(Optional.empty());
-        assertThrows(RuntimeException.class, () -> messageService.deleteMessage(999L, 1L));
+        when(messageRepository.findByIdAndChatId(999L, 5L)).thenReturn(Optional.empty());
+        assertThrows(RuntimeException.class, () -> messageService.deleteMessage(999L, 5L, 1L));
     }
 
     @Test
@@ -305,8 +326,9 @@ class MessageServiceTest {
         Chat chat = new Chat(); chat.setId(5L);
         User user = new User(); user.setId(1L);
         chat.setParticipants(new HashSet<>()); // Пользователь не участник
-        when(chatRepository.isUserParticipant(5L, 1L)).thenReturn(false);
-        when(chatRepository.existsById(5L)).thenReturn(true);
+        // Доступ к истории проверяет OptimizedDataService, MessageService его не глотает
+        when(optimizedDataService.getOptimizedChatMessages(5L, 1L, 0, 50))
+                .thenThrow(new IllegalArgumentException("У вас нет доступа к этому чату"));
         assertThrows(RuntimeException.class, () -> messageService.getChatMessages(5L, 1L, 0, 50));
     }
 
@@ -356,10 +378,11 @@ class MessageServiceTest {
         request.setReplyToMessageId(99L);
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
         when(chatRepository.findById(5L)).thenReturn(Optional.of(chat));
-        when(messageRepository.findById(99L)).thenReturn(Optional.of(replyMsg));
+        when(messageRepository.findByIdAndChatId(99L, 5L)).thenReturn(Optional.of(replyMsg));
         when(messageRepository.save(any(Message.class))).thenReturn(message);
         MessageDto result = messageService.sendMessage(1L, request);
         assertNotNull(result);
+        verify(messageRepository, never()).findById(99L);
     }
 
     @Test
@@ -390,13 +413,13 @@ class MessageServiceTest {
         User sender = new User(); sender.setId(3L);
         Chat chat = new Chat(); chat.setId(5L);
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(messageRepository.findAllById(anyList())).thenReturn(Collections.singletonList(new Message() {{
+        when(messageRepository.findMessagesByIdsInChatWithSender(eq(5L), anyList())).thenReturn(Collections.singletonList(new Message() {{
             setId(2L);
             setSender(sender);
             setChat(chat);
         }}));
         when(messageReadStatusRepository.existsByMessageIdAndUserId(2L, 1L)).thenReturn(true);
-        messageService.markMessagesAsRead(1L, Collections.singletonList(2L));
+        messageService.markMessagesAsRead(1L, 5L, Collections.singletonList(2L));
         verify(messageReadStatusRepository, never()).save(any(MessageReadStatus.class));
     }
 
@@ -407,10 +430,8 @@ class MessageServiceTest {
         chat.setParticipants(new HashSet<>(List.of(user)));
         Message msg1 = new Message(); msg1.setId(1L); msg1.setContent("msg1"); msg1.setChat(chat); msg1.setIsDeleted(true);
         Message msg2 = new Message(); msg2.setId(2L); msg2.setContent("msg2"); msg2.setChat(chat); msg2.setIsEdited(true);
-        when(chatRepository.isUserParticipant(5L, 1L)).thenReturn(true);
-        when(chatRepository.existsById(5L)).thenReturn(true);
-        when(messageRepository.findByChatIdOrderByCreatedAtDescWithSender(eq(5L), any())).thenReturn(List.of(msg1, msg2));
-        when(messageReadStatusRepository.findByMessageIdIn(anyList())).thenReturn(Collections.emptyList());
+        when(optimizedDataService.getOptimizedChatMessages(5L, 1L, 0, 50))
+                .thenReturn(List.of(toDto(msg1), toDto(msg2)));
         List<MessageDto> messages = messageService.getChatMessages(5L, 1L, 0, 50);
         assertEquals(2, messages.size());
         assertTrue(Boolean.TRUE.equals(messages.get(0).getIsDeleted()) || Boolean.TRUE.equals(messages.get(1).getIsEdited()));
@@ -429,8 +450,8 @@ class MessageServiceTest {
 
     @Test
     void testGetMessageReadStatusesNonexistentMessage() {
-        when(messageRepository.findById(999L)).thenReturn(Optional.empty());
-        assertThrows(RuntimeException.class, () -> messageService.getMessageReadStatuses(999L, 1L));
+        when(messageRepository.findByIdAndChatId(999L, 5L)).thenReturn(Optional.empty());
+        assertThrows(RuntimeException.class, () -> messageService.getMessageReadStatuses(999L, 5L, 1L));
     }
 
     @Test
@@ -542,7 +563,7 @@ class MessageServiceTest {
     }
 
     @Test
-    void testConvertToDtoWithPreloadedStatuses_allRead() {
+    void testConvertToDtoWithReadStatus_readByCurrentUser() {
         Message message = new Message();
         message.setId(3L);
         message.setContent("read");
@@ -554,27 +575,24 @@ class MessageServiceTest {
         message.setChat(chat);
         User sender = new User(); sender.setId(4L);
         message.setSender(sender);
-        MessageReadStatus status1 = new MessageReadStatus();
-        status1.setMessage(message);
-        User user1 = new User(); user1.setId(10L);
-        status1.setUser(user1);
-        status1.setReadAt(LocalDateTime.now());
-        MessageReadStatus status2 = new MessageReadStatus();
-        status2.setMessage(message);
-        User user2 = new User(); user2.setId(11L);
-        status2.setUser(user2);
-        status2.setReadAt(LocalDateTime.now());
-        List<MessageReadStatus> statuses = List.of(status1, status2);
+        MessageReadStatus status = new MessageReadStatus();
+        status.setMessage(message);
+        User reader = new User(); reader.setId(10L);
+        status.setUser(reader);
+        status.setReadAt(LocalDateTime.now());
         when(userService.convertToDto(sender)).thenReturn(new com.messenger.core.dto.UserDto());
-        MessageDto dto = invokeConvertToDtoWithPreloadedStatuses(message, 10L, statuses);
+        when(messageReadStatusRepository.existsByMessageIdAndUserId(3L, 10L)).thenReturn(true);
+        when(messageReadStatusRepository.findByMessageIdAndUserId(3L, 10L)).thenReturn(Optional.of(status));
+        when(messageReadStatusRepository.countByMessageId(3L)).thenReturn(2L);
+        MessageDto dto = messageService.convertToDto(message, 10L, false);
         assertEquals(3L, dto.getId());
         assertEquals(2, dto.getReadCount());
         assertTrue(dto.getIsReadByCurrentUser());
-        assertNotNull(dto.getReadAt());
+        assertEquals(status.getReadAt(), dto.getReadAt());
     }
 
     @Test
-    void testConvertToDtoWithPreloadedStatuses_noneRead() {
+    void testConvertToDtoWithReadStatus_notRead() {
         Message message = new Message();
         message.setId(4L);
         message.setContent("not read");
@@ -586,23 +604,20 @@ class MessageServiceTest {
         message.setChat(chat);
         User sender = new User(); sender.setId(5L);
         message.setSender(sender);
-        List<MessageReadStatus> statuses = List.of();
         when(userService.convertToDto(sender)).thenReturn(new com.messenger.core.dto.UserDto());
-        MessageDto dto = invokeConvertToDtoWithPreloadedStatuses(message, 99L, statuses);
+        MessageDto dto = messageService.convertToDto(message, 99L, false);
         assertEquals(4L, dto.getId());
         assertEquals(0, dto.getReadCount());
         assertFalse(Boolean.TRUE.equals(dto.getIsReadByCurrentUser()));
         assertNull(dto.getReadAt());
     }
 
-    // Вспомогательный метод для вызова приватного метода через reflection
-    private MessageDto invokeConvertToDtoWithPreloadedStatuses(Message message, Long currentUserId, List<MessageReadStatus> statuses) {
-        try {
-            var method = messageService.getClass().getDeclaredMethod("convertToDtoWithPreloadedStatuses", Message.class, Long.class, List.class);
-            method.setAccessible(true);
-            return (MessageDto) method.invoke(messageService, message, currentUserId, statuses);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+    private static MessageDto toDto(Message message) {
+        MessageDto dto = new MessageDto();
+        dto.setId(message.getId());
+        dto.setContent(message.getContent());
+        dto.setIsDeleted(message.getIsDeleted());
+        dto.setIsEdited(message.getIsEdited());
+        return dto;
     }
 }
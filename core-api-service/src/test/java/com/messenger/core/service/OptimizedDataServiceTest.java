@@ -5,11 +5,11 @@ import com.messenger.core.dto.MessageDto;
 import com.messenger.core.model.Chat;
 import com.messenger.core.model.Message;
 import com.messenger.core.model.User;
+import com.messenger.core.repository.ChatListQueryRepository;
 import com.messenger.core.repository.ChatRepository;
-import com.messenger.core.repository.MessageReadStatusRepository;
 import com.messenger.core.repository.MessageRepository;
 import com.messenger.core.service.message.MessageService;
-import com.messenger.core.service.user.UserService;
+import com.messenger.core.service.message.archive.MessageArchiveService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.data.domain.Pageable;
@@ -23,86 +23,32 @@ import static org.mockito.Mockito.*;
 class OptimizedDataServiceTest {
     private ChatRepository chatRepository;
     private MessageRepository messageRepository;
-    private MessageReadStatusRepository messageReadStatusRepository;
-    private UserService userService;
+    private ChatListQueryRepository chatListQueryRepository;
     private MessageService messageService;
+    private MessageArchiveService messageArchiveService;
     private OptimizedDataService service;
 
     @BeforeEach
     void setUp() {
         chatRepository = mock(ChatRepository.class);
         messageRepository = mock(MessageRepository.class);
-        messageReadStatusRepository = mock(MessageReadStatusRepository.class);
-        userService = mock(UserService.class);
+        chatListQueryRepository = mock(ChatListQueryRepository.class);
         messageService = mock(MessageService.class);
-        service = new OptimizedDataService(chatRepository, messageRepository, messageReadStatusRepository, userService, messageService);
+        messageArchiveService = mock(MessageArchiveService.class);
+        service = new OptimizedDataService(chatRepository, messageRepository, chatListQueryRepository,
+                messageService, messageArchiveService);
     }
 
     @Test
-    void testConvertChatToDtoOptimized_groupChat() throws Exception {
-        Chat chat = new Chat();
+    void testUserChatsComeFromSingleProjectionQuery() {
+        ChatDto chat = new ChatDto();
         chat.setId(1L);
-        chat.setChatType(Chat.ChatType.GROUP);
-        chat.setChatName("Group");
-        chat.setChatAvatarUrl("group.png");
-        chat.setCreatedAt(LocalDateTime.now());
-        chat.setLastMessageAt(LocalDateTime.now());
-        chat.setCreatedBy(new User());
-        chat.setParticipants(new HashSet<>(Arrays.asList(new User(), new User())));
-        Message lastMessage = new Message();
-        when(userService.convertToDto(any(User.class))).thenReturn(mock(com.messenger.core.dto.UserDto.class));
-        when(messageService.convertToDto(any(Message.class))).thenReturn(mock(MessageDto.class));
-        java.lang.reflect.Method method = service.getClass().getDeclaredMethod("convertChatToDtoOptimized", Chat.class, Message.class, Long.class, Integer.class);
-        method.setAccessible(true);
-        ChatDto dto = (ChatDto) method.invoke(service, chat, lastMessage, 5L, 3);
-        assertNotNull(dto);
-        assertEquals(chat.getId(), dto.getId());
-        assertEquals(chat.getChatAvatarUrl(), dto.getChatAvatarUrl());
-        assertEquals(3, dto.getUnreadCount());
-    }
-
-    @Test
-    void testConvertChatToDtoOptimized_privateChat_withAvatar() throws Exception {
-        Chat chat = new Chat();
-        chat.setId(2L);
-        chat.setChatType(Chat.ChatType.PRIVATE);
-        chat.setChatName("Private");
-        chat.setChatAvatarUrl("private.png");
-        chat.setCreatedAt(LocalDateTime.now());
-        chat.setLastMessageAt(LocalDateTime.now());
-        User user1 = new User(); user1.setId(5L);
-        User user2 = new User(); user2.setId(6L); user2.setProfilePictureUrl("avatar.png");
-        chat.setParticipants(new HashSet<>(Arrays.asList(user1, user2)));
-        chat.setCreatedBy(user1);
-        Message lastMessage = new Message();
-        when(userService.convertToDto(any(User.class))).thenReturn(mock(com.messenger.core.dto.UserDto.class));
-        when(messageService.convertToDto(any(Message.class))).thenReturn(mock(MessageDto.class));
-        java.lang.reflect.Method method = service.getClass().getDeclaredMethod("convertChatToDtoOptimized", Chat.class, Message.class, Long.class, Integer.class);
-        method.setAccessible(true);
-        ChatDto dto = (ChatDto) method.invoke(service, chat, lastMessage, 5L, 2);
-        assertEquals("avatar.png", dto.getChatAvatarUrl());
-        assertEquals(2, dto.getUnreadCount());
-    }
+        when(chatListQueryRepository.findUserChats(5L)).thenReturn(List.of(chat));
+        when(chatListQueryRepository.findUserChats(5L, List.of(1L))).thenReturn(List.of(chat));
 
-    @Test
-    void testConvertChatToDtoOptimized_privateChat_noOtherAvatar() throws Exception {
-        Chat chat = new Chat();
-        chat.setId(3L);
-        chat.setChatType(Chat.ChatType.PRIVATE);
-        chat.setChatName("Private");
-        chat.setChatAvatarUrl("private.png");
-        User user1 = new User(); user1.setId(5L);
-        User user2 = new User(); user2.setId(6L);
-        chat.setParticipants(new HashSet<>(Arrays.asList(user1, user2)));
-        chat.setCreatedBy(user1);
-        Message lastMessage = new Message();
-        when(userService.convertToDto(any(User.class))).thenReturn(mock(com.messenger.core.dto.UserDto.class));
-        when(messageService.convertToDto(any(Message.class))).thenReturn(mock(MessageDto.class));
-        java.lang.reflect.Method method = service.getClass().getDeclaredMethod("convertChatToDtoOptimized", Chat.class, Message.class, Long.class, Integer.class);
-        method.setAccessible(true);
-        ChatDto dto = (ChatDto) method.invoke(service, chat, lastMessage, 5L, 1);
-        assertEquals("private.png", dto.getChatAvatarUrl());
-        assertEquals(1, dto.getUnreadCount());
+        assertEquals(List.of(chat), service.getOptimizedUserChats(5L));
+        assertEquals(List.of(chat), service.getOptimizedChats(5L, List.of(1L)));
+        verifyNoInteractions(chatRepository, messageRepository, messageService);
     }
 
     @Test
@@ -166,4 +112,39 @@ class OptimizedDataServiceTest {
         List<MessageDto> result = service.getOptimizedChatMessages(chatId, userId, 0, 10);
         assertTrue(result.isEmpty());
     }
+
+    @Test
+    void testGetOptimizedChatMessages_fullHotPageSkipsArchive() {
+        when(chatRepository.isUserParticipant(1L, 2L)).thenReturn(true);
+        when(messageRepository.findByChatIdOrderByCreatedAtDescWithSender(eq(1L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(new Message(), new Message()));
+        when(messageService.convertToDto(any(Message.class), eq(2L), eq(false))).thenReturn(new MessageDto());
+        assertEquals(2, service.getOptimizedChatMessages(1L, 2L, 0, 2).size());
+        verifyNoInteractions(messageArchiveService);
+    }
+
+    @Test
+    void testGetOptimizedChatMessages_continuesFromArchive() {
+        when(chatRepository.isUserParticipant(1L, 2L)).thenReturn(true);
+        when(messageRepository.findByChatIdOrderByCreatedAtDescWithSender(eq(1L), any(Pageable.class)))
+                .thenReturn(List.of(new Message()));
+        when(messageService.convertToDto(any(Message.class), eq(2L), eq(false))).thenReturn(new MessageDto());
+        when(messageArchiveService.getArchivedMessages(1L, 2L, 0, 9))
+                .thenReturn(List.of(new MessageDto(), new MessageDto()));
+
+        // Страница 1: одно горячее сообщение, остальное — первые 9 из архива
+        assertEquals(3, service.getOptimizedChatMessages(1L, 2L, 1, 10).size());
+    }
+
+    @Test
+    void testGetOptimizedChatMessages_archiveOffsetSkipsHotMessages() {
+        when(chatRepository.isUserParticipant(1L, 2L)).thenReturn(true);
+        when(messageRepository.findByChatIdOrderByCreatedAtDescWithSender(eq(1L), any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+        when(messageRepository.countMessagesByChatId(1L)).thenReturn(15L);
+        when(messageArchiveService.getArchivedMessages(1L, 2L, 15, 10)).thenReturn(List.of(new MessageDto()));
+
+        // Страница 3 (offset 30) при 15 горячих сообщениях — пропускаем 15 архивных
+        assertEquals(1, service.getOptimizedChatMessages(1L, 2L, 3, 10).size());
+    }
 }
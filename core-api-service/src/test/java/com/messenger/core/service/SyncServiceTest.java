@@ -0,0 +1,114 @@
+package com.messenger.core.service;
+
+import com.messenger.core.dto.ChatDto;
+import com.messenger.core.dto.MessageDto;
+import com.messenger.core.dto.SyncDto;
+import com.messenger.core.model.Chat;
+import com.messenger.core.model.Message;
+import com.messenger.core.model.MessageReadStatus;
+import com.messenger.core.repository.ChatRepository;
+import com.messenger.core.repository.MessageReadStatusRepository;
+import com.messenger.core.repository.MessageRepository;
+import com.messenger.core.service.message.MessageService;
+import com.messenger.core.service.sync.SyncService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SyncServiceTest {
+
+    private ChatRepository chatRepository;
+    private MessageRepository messageRepository;
+    private MessageReadStatusRepository messageReadStatusRepository;
+    private OptimizedDataService optimizedDataService;
+    private MessageService messageService;
+    private SyncService service;
+
+    @BeforeEach
+    void setUp() {
+        chatRepository = mock(ChatRepository.class);
+        messageRepository = mock(MessageRepository.class);
+        messageReadStatusRepository = mock(MessageReadStatusRepository.class);
+        optimizedDataService = mock(OptimizedDataService.class);
+        messageService = mock(MessageService.class);
+        service = new SyncService(chatRepository, messageRepository, messageReadStatusRepository,
+                optimizedDataService, messageService);
+        ReflectionTestUtils.setField(service, "maxChanges", 2);
+    }
+
+    @Test
+    void testNoTokenRequiresFullResync() {
+        SyncDto result = service.sync(1L, null);
+
+        assertTrue(result.isFullResync());
+        assertNotNull(result.getToken());
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void testMalformedTokenRequiresFullResync() {
+        assertTrue(service.sync(1L, "not a token!").isFullResync());
+    }
+
+    @Test
+    void testDeltaContainsChangedMessagesReadsAndChats() {
+        String token = service.sync(1L, null).getToken();
+        Message message = message(10L, 5L);
+        MessageReadStatus read = new MessageReadStatus();
+        read.setMessage(message(11L, 6L));
+        when(chatRepository.findChatIdsByUserId(1L)).thenReturn(List.of(5L, 6L, 7L));
+        when(messageRepository.findChangedSinceInChats(anyList(), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(message));
+        when(messageReadStatusRepository.findReadSinceInChats(anyList(), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(read));
+        when(chatRepository.findChatIdsByUserIdChangedSince(eq(1L), any(LocalDateTime.class))).thenReturn(List.of(5L));
+        when(messageService.convertToDto(message)).thenReturn(new MessageDto());
+        when(optimizedDataService.getOptimizedChats(1L, List.of(5L, 6L))).thenReturn(List.of(new ChatDto(), new ChatDto()));
+
+        SyncDto result = service.sync(1L, token);
+
+        assertFalse(result.isFullResync());
+        assertEquals(List.of(5L, 6L, 7L), result.getChatIds());
+        assertEquals(1, result.getMessages().size());
+        assertEquals(1, result.getReadStatuses().size());
+        assertEquals(2, result.getChats().size());
+    }
+
+    @Test
+    void testTooManyChangesRequireFullResync() {
+        String token = service.sync(1L, null).getToken();
+        when(chatRepository.findChatIdsByUserId(1L)).thenReturn(List.of(5L));
+        when(messageRepository.findChangedSinceInChats(anyList(), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(message(1L, 5L), message(2L, 5L), message(3L, 5L)));
+        when(messageReadStatusRepository.findReadSinceInChats(anyList(), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+
+        assertTrue(service.sync(1L, token).isFullResync());
+        verifyNoInteractions(optimizedDataService);
+    }
+
+    @Test
+    void testExpiredTokenRequiresFullResync() {
+        String old = Long.toString(System.currentTimeMillis() - 100L * 3600 * 1000, 36);
+
+        assertTrue(service.sync(1L, old).isFullResync());
+    }
+
+    private static Message message(Long id, Long chatId) {
+        Chat chat = new Chat();
+        chat.setId(chatId);
+        Message message = new Message();
+        message.setId(id);
+        message.setChat(chat);
+        return message;
+    }
+}
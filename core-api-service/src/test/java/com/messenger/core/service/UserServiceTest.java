@@ -3,8 +3,11 @@ package com.messenger.core.service;
 import com.messenger.core.model.Friendship;
 import com.messenger.core.model.User;
 import com.messenger.core.repository.FriendshipRepository;
+import com.messenger.core.repository.UserProfileRepository;
 import com.messenger.core.repository.UserRepository;
+import com.messenger.core.service.chat.ChatListCache;
 import com.messenger.core.service.user.UserService;
+import com.messenger.core.service.user.UserServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -17,12 +20,33 @@ import static org.mockito.Mockito.*;
 class UserServiceTest {
     @Mock
     private UserRepository userRepository;
+    @Mock
+    private FriendshipRepository friendshipRepository;
+    @Mock
+    private UserProfileRepository userProfileRepository;
+    @Mock
+    private ChatListCache chatListCache;
     @InjectMocks
-    private UserService userService;
+    private UserServiceImpl userService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        userService.setSelf(userService);
+    }
+
+    /** Сервис поверх своих репозиториев; self-прокси в тесте — сам объект */
+    private static UserService newService(UserRepository repo, FriendshipRepository fRepo) {
+        UserServiceImpl service = new UserServiceImpl(repo, fRepo, mock(UserProfileRepository.class), mock(ChatListCache.class));
+        service.setSelf(service);
+        return service;
+    }
+
+    private static UserRepository.UserSummary summary(Long id, String username) {
+        UserRepository.UserSummary summary = mock(UserRepository.UserSummary.class);
+        when(summary.getId()).thenReturn(id);
+        when(summary.getUsername()).thenReturn(username);
+        return summary;
     }
 
     @Test
@@ -108,13 +132,13 @@ class UserServiceTest {
 
     @Test
     void testSearchUsers_excludeCurrentUser() {
-        User user1 = new User(); user1.setId(1L); user1.setUsername("user1");
-        User user2 = new User(); user2.setId(2L); user2.setUsername("user2");
-        User user3 = new User(); user3.setId(3L); user3.setUsername("user3");
+        var user1 = summary(1L, "user1");
+        var user2 = summary(2L, "user2");
+        var user3 = summary(3L, "user3");
         UserRepository repo = mock(UserRepository.class);
         FriendshipRepository fRepo = mock(FriendshipRepository.class);
-        UserService service = new UserService(repo, fRepo);
-        when(repo.searchUsers("user")).thenReturn(java.util.List.of(user1, user2, user3));
+        UserService service = newService(repo, fRepo);
+        when(repo.searchUserSummaries("user")).thenReturn(java.util.List.of(user1, user2, user3));
         when(fRepo.getFriendshipStatus(anyLong(), anyLong())).thenReturn(Optional.empty());
         var results = service.searchUsers("user", 2L);
         assertTrue(results.stream().noneMatch(r -> r.getId().equals(2L)));
@@ -124,8 +148,8 @@ class UserServiceTest {
     @Test
     void testSearchUsers_emptyResult() {
         UserRepository repo = mock(UserRepository.class);
-        UserService service = new UserService(repo, null);
-        when(repo.searchUsers("none")).thenReturn(java.util.List.of());
+        UserService service = newService(repo, null);
+        when(repo.searchUserSummaries("none")).thenReturn(java.util.List.of());
         var results = service.searchUsers("none", 1L);
         assertTrue(results.isEmpty());
     }
@@ -134,7 +158,7 @@ class UserServiceTest {
     void testGetUserInfo_self() {
         User user = new User(); user.setId(1L); user.setUsername("me");
         UserRepository repo = mock(UserRepository.class);
-        UserService service = new UserService(repo, null);
+        UserService service = newService(repo, null);
         when(repo.findById(1L)).thenReturn(Optional.of(user));
         var dto = service.getUserInfo(1L, 1L);
         assertEquals("me", dto.getUsername());
@@ -146,7 +170,7 @@ class UserServiceTest {
         User user = new User(); user.setId(2L); user.setUsername("other");
         UserRepository repo = mock(UserRepository.class);
         FriendshipRepository fRepo = mock(FriendshipRepository.class);
-        UserService service = new UserService(repo, fRepo);
+        UserService service = newService(repo, fRepo);
         when(repo.findById(2L)).thenReturn(Optional.of(user));
         when(fRepo.getFriendshipStatus(1L, 2L)).thenReturn(Optional.of(Friendship.FriendshipStatus.ACCEPTED));
         var dto = service.getUserInfo(2L, 1L);
@@ -156,7 +180,7 @@ class UserServiceTest {
     @Test
     void testGetUserInfo_userNotFound() {
         UserRepository repo = mock(UserRepository.class);
-        UserService service = new UserService(repo, null);
+        UserService service = newService(repo, null);
         when(repo.findById(99L)).thenReturn(Optional.empty());
         assertThrows(RuntimeException.class, () -> service.getUserInfo(99L, 1L));
     }
@@ -165,7 +189,7 @@ class UserServiceTest {
     void testUpdateProfile_existingUsername() {
         User user = new User(); user.setId(1L); user.setUsername("old");
         UserRepository repo = mock(UserRepository.class);
-        UserService service = new UserService(repo, null);
+        UserService service = newService(repo, null);
         when(repo.findById(1L)).thenReturn(Optional.of(user));
         when(repo.findByUsername("new")).thenReturn(Optional.of(new User()));
         com.messenger.core.dto.UserDto.UpdateProfileRequest req = new com.messenger.core.dto.UserDto.UpdateProfileRequest();
@@ -177,7 +201,7 @@ class UserServiceTest {
     void testUpdateProfile_existingEmail() {
         User user = new User(); user.setId(1L); user.setUsername("old"); user.setEmail("old@mail");
         UserRepository repo = mock(UserRepository.class);
-        UserService service = new UserService(repo, null);
+        UserService service = newService(repo, null);
         when(repo.findById(1L)).thenReturn(Optional.of(user));
         when(repo.findByEmail("new@mail")).thenReturn(Optional.of(new User()));
         com.messenger.core.dto.UserDto.UpdateProfileRequest req = new com.messenger.core.dto.UserDto.UpdateProfileRequest();
@@ -190,7 +214,7 @@ class UserServiceTest {
         User user = new User(); user.setId(1L);
         UserRepository repo = mock(UserRepository.class);
         FriendshipRepository fRepo = mock(FriendshipRepository.class);
-        UserService service = new UserService(repo, fRepo);
+        UserService service = newService(repo, fRepo);
         when(repo.findById(1L)).thenReturn(Optional.of(user));
         when(repo.save(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
         assertDoesNotThrow(() -> service.updateProfile(1L, new com.messenger.core.dto.UserDto.UpdateProfileRequest()));
@@ -199,7 +223,7 @@ class UserServiceTest {
     @Test
     void testUploadAvatar_userNotFound() {
         UserRepository repo = mock(UserRepository.class);
-        UserService service = new UserService(repo, null);
+        UserService service = newService(repo, null);
         when(repo.findById(1L)).thenReturn(Optional.empty());
         org.springframework.web.multipart.MultipartFile file = mock(org.springframework.web.multipart.MultipartFile.class);
         assertThrows(RuntimeException.class, () -> service.uploadAvatar(1L, file));
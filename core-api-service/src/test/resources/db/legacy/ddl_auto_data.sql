@@ -0,0 +1,24 @@
+-- Данные старой схемы: ключи и bio в колонках users, ответы и статусы прочтения по messages.id
+INSERT INTO users (username, email, password, public_key, identity_key, signed_prekey, signed_prekey_signature,
+                   one_time_prekeys, encrypted_key_backup, bio, created_at)
+VALUES ('alice', 'alice@test.local', 'x', 'pk-a', 'ik-a', 'spk-a', 'sig-a', '["otk-a1","otk-a2","otk-a1"]', 'backup-a', 'about alice', now()),
+       ('bob', 'bob@test.local', 'x', NULL, NULL, NULL, NULL, NULL, NULL, NULL, now()),
+       ('carol', 'carol@test.local', 'x', 'pk-c', 'ik-c', 'spk-c', 'sig-c', '[]', NULL, 'about carol', now());
+
+INSERT INTO chats (chat_name, chat_type, created_at, updated_at, last_message_at, created_by_user_id)
+VALUES (NULL, 'PRIVATE', now(), now(), now(), 1),
+       ('group', 'GROUP', now(), now(), now(), 1);
+
+INSERT INTO chat_participants (chat_id, user_id) VALUES (1, 1), (1, 2), (2, 1), (2, 2), (2, 3);
+
+INSERT INTO messages (content, message_type, is_edited, is_deleted, created_at, updated_at, sender_id, chat_id)
+SELECT 'message ' || g, 'TEXT', false, false, now() - g * interval '1 minute', now() - g * interval '1 minute',
+       1 + g % 2, 1 + g % 2
+FROM generate_series(1, 40) g;
+
+UPDATE messages SET reply_to_message_id = id - 2 WHERE id > 2 AND id % 5 = 0;
+
+INSERT INTO message_read_status (message_id, user_id, read_at)
+SELECT id, 3 - sender_id, now() FROM messages WHERE id % 3 = 0;
+
+INSERT INTO friendships (requester_id, receiver_id, status, created_at) VALUES (1, 2, 'ACCEPTED', now());
@@ -0,0 +1,132 @@
+-- Схема core-api до Flyway: так её создавал Hibernate (ddl-auto: update) по сущностям до вынесения
+-- ключей из users и секционирования messages. Исходное состояние для MigrationUpgradeTest.
+
+create table chat_participants (
+    chat_id bigint not null,
+    user_id bigint not null,
+    primary key (chat_id, user_id)
+);
+
+create table chats (
+    created_at timestamp(6),
+    created_by_user_id bigint,
+    id bigserial not null,
+    last_message_at timestamp(6),
+    updated_at timestamp(6),
+    chat_avatar_url varchar(255),
+    chat_description varchar(255),
+    chat_name varchar(255),
+    chat_type varchar(255) not null check (chat_type in ('PRIVATE','GROUP')),
+    primary key (id)
+);
+
+create table friendships (
+    created_at timestamp(6),
+    id bigserial not null,
+    receiver_id bigint not null,
+    requester_id bigint not null,
+    updated_at timestamp(6),
+    status varchar(255) not null check (status in ('PENDING','ACCEPTED','REJECTED','BLOCKED')),
+    primary key (id),
+    unique (requester_id, receiver_id)
+);
+
+create table message_read_status (
+    id bigserial not null,
+    message_id bigint not null,
+    read_at timestamp(6) not null,
+    user_id bigint not null,
+    primary key (id),
+    unique (message_id, user_id)
+);
+
+create table messages (
+    is_deleted boolean,
+    is_edited boolean,
+    chat_id bigint not null,
+    created_at timestamp(6),
+    file_size bigint,
+    id bigserial not null,
+    reply_to_message_id bigint,
+    sender_id bigint not null,
+    updated_at timestamp(6),
+    content TEXT not null,
+    file_name varchar(255),
+    file_url varchar(255),
+    message_type varchar(255) not null check (message_type in ('TEXT','IMAGE','FILE','VOICE','SYSTEM')),
+    mime_type varchar(255),
+    thumbnail_url varchar(255),
+    primary key (id)
+);
+
+create table users (
+    is_online boolean,
+    created_at timestamp(6),
+    id bigserial not null,
+    last_seen timestamp(6),
+    updated_at timestamp(6),
+    bio TEXT,
+    email varchar(255) not null unique,
+    encrypted_key_backup TEXT,
+    first_name varchar(255),
+    identity_key TEXT,
+    last_name varchar(255),
+    one_time_prekeys TEXT,
+    password varchar(255) not null,
+    profile_picture_url varchar(255),
+    public_key TEXT,
+    signed_prekey TEXT,
+    signed_prekey_signature TEXT,
+    username varchar(255) not null unique,
+    primary key (id)
+);
+
+alter table if exists chat_participants 
+   add constraint FKbhdyxo0ndtbs1t49l28y21rkw 
+   foreign key (user_id) 
+   references users;
+
+alter table if exists chat_participants 
+   add constraint FKn4feij8janlba38q59kl2ebgg 
+   foreign key (chat_id) 
+   references chats;
+
+alter table if exists chats 
+   add constraint FK8e3qkeajhtdv24nuo6y3xnvqj 
+   foreign key (created_by_user_id) 
+   references users;
+
+alter table if exists friendships 
+   add constraint FKpk7w2cj6m9n224ny2t7fhi47 
+   foreign key (receiver_id) 
+   references users;
+
+alter table if exists friendships 
+   add constraint FKas6bp8so5n3pfcqtfxt72e1ii 
+   foreign key (requester_id) 
+   references users;
+
+alter table if exists message_read_status 
+   add constraint FK6v2gsesvjkhu2n73ye3qig78 
+   foreign key (message_id) 
+   references messages;
+
+alter table if exists message_read_status 
+   add constraint FKc4c87dvt76csu6c8lwog8hkfq 
+   foreign key (user_id) 
+   references users;
+
+alter table if exists messages 
+   add constraint FK64w44ngcpqp99ptcb9werdfmb 
+   foreign key (chat_id) 
+   references chats;
+
+alter table if exists messages 
+   add constraint FKa0efscl1qaot4lml4w4gpydo2 
+   foreign key (reply_to_message_id) 
+   references messages;
+
+alter table if exists messages 
+   add constraint FK4ui4nnwntodh6wjvck53dbk9m 
+   foreign key (sender_id) 
+   references users;
@@ -202,16 +202,12 @@ class WebRTCService {
                 break;
 
             case 'ICE_CANDIDATE':
-                if (this._peer && message.candidate) {
-                    try {
-                        const candidate = typeof message.candidate === 'string'
-                            ? JSON.parse(message.candidate)
-                            : message.candidate;
-                        this._peer.signal({ candidate });
-                    } catch (e) {
-                        console.error('[WebRTC] Failed to parse ICE candidate:', e);
-                    }
-                }
+                this._applyIceCandidate(message.candidate);
+                break;
+
+            case 'ICE_CANDIDATES':
+                // Сервер склеивает кандидатов, пришедших подряд, в один кадр
+                (message.candidates || []).forEach(item => this._applyIceCandidate(item.candidate));
                 break;
 
             case 'CALL_REJECT':
@@ -242,6 +238,20 @@ class WebRTCService {
         }
     }
 
+    _applyIceCandidate(rawCandidate) {
+        if (!this._peer || !rawCandidate) {
+            return;
+        }
+        try {
+            const candidate = typeof rawCandidate === 'string'
+                ? JSON.parse(rawCandidate)
+                : rawCandidate;
+            this._peer.signal({ candidate });
+        } catch (e) {
+            console.error('[WebRTC] Failed to parse ICE candidate:', e);
+        }
+    }
+
     // ──────────────────────────────────────────────────────────────────────────
     // SimplePeer events
     // ──────────────────────────────────────────────────────────────────────────
@@ -102,6 +102,7 @@ class ChatService {
                             message.type === 'CALL_OFFER' ||
                             message.type === 'CALL_ANSWER' ||
                             message.type === 'ICE_CANDIDATE' ||
+                            message.type === 'ICE_CANDIDATES' ||
                             message.type === 'CALL_REJECT' ||
                             message.type === 'CALL_END' ||
                             message.type === 'CALL_BUSY' ||
@@ -347,12 +348,13 @@ class ChatService {
     // ========== API методы для работы со статусами прочтения ==========
 
     /**
-     * Отметить конкретные сообщения как прочитанные
+     * Отметить конкретные сообщения чата как прочитанные
+     * @param {number} chatId - ID чата
      * @param {Array<number>} messageIds - массив ID сообщений
      */
-    async markMessagesAsRead(messageIds) {
+    async markMessagesAsRead(chatId, messageIds) {
         try {
-            const response = await api.post('/api/messages/read', messageIds);
+            const response = await api.post(`/api/messages/chat/${chatId}/read`, messageIds);
             return response.data;
         } catch (error) {
             console.error('Ошибка отметки сообщений как прочитанных:', error);
@@ -391,12 +393,13 @@ class ChatService {
 
     /**
      * Получить статусы прочтения для конкретного сообщения
+     * @param {number} chatId - ID чата
      * @param {number} messageId - ID сообщения
      * @returns {Promise<Array>} список пользователей, прочитавших сообщение
      */
-    async getMessageReadStatuses(messageId) {
+    async getMessageReadStatuses(chatId, messageId) {
         try {
-            const response = await api.get(`/api/messages/${messageId}/read-status`);
+            const response = await api.get(`/api/messages/${messageId}/read-status?chatId=${chatId}`);
             return response.data;
         } catch (error) {
             console.error('Ошибка получения статусов прочтения:', error);
@@ -0,0 +1,66 @@
+package com.messenger.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки ограничения частоты запросов ({@code gateway.rate-limit.*}).
+ * <p>
+ * Лимит задаётся ёмкостью корзины (допустимый всплеск) и скоростью пополнения
+ * (устойчивое число запросов в секунду). Для маршрутов из {@code routes} действует
+ * собственный лимит, для всех остальных — {@code default-limit}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /** Количество шардов таблицы корзин (степень двойки) */
+    private int stripes = 64;
+
+    /** Максимум корзин в одном шарде, после которого удаляются полностью восстановленные */
+    private int maxBucketsPerStripe = 4096;
+
+    private Limit defaultLimit = new Limit(200, 50);
+
+    private List<RouteLimit> routes = new ArrayList<>();
+
+    /**
+     * Адреса и CIDR-подсети прокси перед Gateway (nginx и т.п.). Только от них принимаются
+     * {@code Forwarded} / {@code X-Forwarded-For}; IP клиента — самый правый адрес цепочки,
+     * не входящий в этот список. Пусто — заголовки игнорируются, ключ — адрес соединения.
+     */
+    private List<String> trustedProxies = new ArrayList<>(List.of("127.0.0.1/32", "::1/128"));
+
+    @Data
+    public static class Limit {
+        private int capacity;
+        private double refillPerSecond;
+
+        public Limit() {
+        }
+
+        public Limit(int capacity, double refillPerSecond) {
+            this.capacity = capacity;
+            this.refillPerSecond = refillPerSecond;
+        }
+    }
+
+    @Data
+    public static class RouteLimit {
+        /** Идентификатор правила, входит в ключ корзины */
+        private String id;
+        /** Шаблон пути в синтаксисе PathPattern, например /api/messages/chat/** */
+        private String path;
+        /** HTTP-методы, к которым применяется правило; пусто — все методы */
+        private List<String> methods = new ArrayList<>();
+        private int capacity;
+        private double refillPerSecond;
+    }
+}
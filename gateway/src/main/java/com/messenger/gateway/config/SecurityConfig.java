@@ -25,6 +25,8 @@ public class SecurityConfig {
                 .cors(cors -> cors.disable()) // Отключаем CORS в SecurityConfig, используем globalcors в application.yml
                 .authorizeExchange(exchanges -> exchanges
                         .pathMatchers("/auth/**", "/public/**", "/actuator/**", "/health", "/").permitAll()
+                        // Счётчики websocket-server — только служебный порт внутри кластера, не через /ws/**
+                        .pathMatchers("/ws/metrics/**").denyAll()
                         .pathMatchers("/ws/**").permitAll() // WebSocket соединения
                         // ИСПРАВЛЕНИЕ: Публичный доступ к debug-эндпоинтам
                         .pathMatchers("/debug/**").permitAll()
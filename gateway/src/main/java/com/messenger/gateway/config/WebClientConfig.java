@@ -1,14 +1,61 @@
 package com.messenger.gateway.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.time.Duration;
+
+/**
+ * HTTP-клиент для обращений Gateway к downstream-сервисам.
+ * <p>
+ * Все WebClient'ы строятся из одного builder'а и делят один пул соединений
+ * Reactor Netty с keep-alive: соединения к core-api и auth-service переиспользуются,
+ * а не открываются заново на каждый запрос.
+ */
 @Configuration
 public class WebClientConfig {
 
+    @Value("${gateway.http-client.max-connections:200}")
+    private int maxConnections = 200;
+
+    @Value("${gateway.http-client.pending-acquire-timeout-ms:5000}")
+    private long pendingAcquireTimeoutMs = 5000;
+
+    @Value("${gateway.http-client.max-idle-time-ms:30000}")
+    private long maxIdleTimeMs = 30000;
+
+    @Value("${gateway.http-client.connect-timeout-ms:2000}")
+    private int connectTimeoutMs = 2000;
+
+    @Value("${gateway.http-client.response-timeout-ms:10000}")
+    private long responseTimeoutMs = 10000;
+
+    @Bean
+    public ConnectionProvider downstreamConnectionProvider() {
+        return ConnectionProvider.builder("gateway-downstream")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleTimeMs))
+                .evictInBackground(Duration.ofMillis(maxIdleTimeMs))
+                .build();
+    }
+
     @Bean
     public WebClient.Builder webClientBuilder() {
-        return WebClient.builder();
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(downstreamHttpClient(downstreamConnectionProvider())));
+    }
+
+    HttpClient downstreamHttpClient(ConnectionProvider connectionProvider) {
+        return HttpClient.create(connectionProvider)
+                .keepAlive(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs));
     }
 }
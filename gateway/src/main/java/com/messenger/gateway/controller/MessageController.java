@@ -2,7 +2,9 @@ package com.messenger.gateway.controller;
 
 import com.messenger.gateway.service.MessageService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 import org.springframework.security.core.context.SecurityContext;
@@ -20,8 +22,8 @@ public class MessageController {
 
     private final MessageService messageService;
 
-    @GetMapping
-    public Flux<Object> getMessages(
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<DataBuffer> getMessages(
             @PathVariable Long chatId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "50") int size,
@@ -0,0 +1,308 @@
+package com.messenger.gateway.filter;
+
+import com.messenger.gateway.config.RateLimitProperties;
+import com.messenger.gateway.security.JwtAuthenticationFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Ограничение частоты запросов к downstream-сервисам.
+ * <p>
+ * Ключ корзины — ID пользователя, который {@link JwtAuthenticationFilter} выводит
+ * из проверенного токена (он же уходит downstream как {@code X-User-Id});
+ * для анонимных запросов — IP клиента. За nginx адрес соединения — всегда прокси,
+ * поэтому IP берётся из {@code Forwarded} / {@code X-Forwarded-For}, но только если
+ * соединение пришло от доверенного прокси ({@code gateway.rate-limit.trusted-proxies}).
+ * При превышении лимита запрос не уходит в core-api, клиент получает 429 с {@code Retry-After}.
+ * <p>
+ * Это {@link WebFilter}, а не {@code GlobalFilter}: глобальные фильтры видят только запросы,
+ * ушедшие в маршрут, а часть API gateway обслуживает собственными контроллерами
+ * (например, история чата в {@code MessageController}) — лимит должен действовать и на них.
+ */
+@Component
+@Slf4j
+public class RateLimitWebFilter implements WebFilter, Ordered {
+
+    /** Порядок WebFilterChainProxy в WebFluxSecurityConfiguration (константа там package-private) */
+    private static final int SECURITY_CHAIN_ORDER = -100;
+
+    private static final String DEFAULT_RULE_ID = "default";
+    private static final String FORWARDED = "Forwarded";
+    private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+    /** Параметр for= заголовка Forwarded (RFC 7239), значение может быть в кавычках */
+    private static final Pattern FORWARDED_FOR = Pattern.compile("(?i)(?:^|[;,\\s])for=\"?([^\";,]+)");
+
+    /** Только IP-литералы: имя хоста в InetAddress.getByName привело бы к DNS-запросу */
+    private static final Pattern IP_LITERAL = Pattern.compile("[0-9a-fA-F:.]+");
+
+    private final RateLimitProperties properties;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final List<CompiledRule> rules;
+    private final List<Subnet> trustedProxies;
+
+    @Autowired
+    public RateLimitWebFilter(RateLimitProperties properties) {
+        this(properties, new TokenBucketRateLimiter(properties.getStripes(), properties.getMaxBucketsPerStripe()));
+    }
+
+    RateLimitWebFilter(RateLimitProperties properties, TokenBucketRateLimiter rateLimiter) {
+        this.properties = properties;
+        this.rateLimiter = rateLimiter;
+        PathPatternParser parser = new PathPatternParser();
+        this.rules = properties.getRoutes().stream()
+                .map(route -> new CompiledRule(route, parser.parse(route.getPath())))
+                .collect(Collectors.toList());
+        this.trustedProxies = properties.getTrustedProxies().stream()
+                .map(Subnet::parse)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        ServerHttpRequest request = exchange.getRequest();
+        String client = resolveClientKey(exchange);
+        CompiledRule rule = findRule(request);
+
+        String ruleId;
+        int capacity;
+        double refillPerSecond;
+        if (rule != null) {
+            ruleId = rule.route.getId();
+            capacity = rule.route.getCapacity();
+            refillPerSecond = rule.route.getRefillPerSecond();
+        } else {
+            ruleId = DEFAULT_RULE_ID;
+            capacity = properties.getDefaultLimit().getCapacity();
+            refillPerSecond = properties.getDefaultLimit().getRefillPerSecond();
+        }
+
+        long waitNanos = rateLimiter.tryAcquire(ruleId + ':' + client, capacity, refillPerSecond);
+        if (waitNanos == 0) {
+            return chain.filter(exchange);
+        }
+
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        log.warn("Rate limit exceeded: rule={}, client={}, path={}", ruleId, client, request.getPath().value());
+        return tooManyRequests(exchange, retryAfterSeconds);
+    }
+
+    private String resolveClientKey(ServerWebExchange exchange) {
+        // Берём ID из атрибута, а не из заголовка X-User-Id: заголовок на публичных путях
+        // может прислать сам клиент и расходовать чужой лимит
+        Object userId = exchange.getAttribute(JwtAuthenticationFilter.VERIFIED_USER_ID_ATTRIBUTE);
+        if (userId != null) {
+            return "user:" + userId;
+        }
+        return "ip:" + resolveClientIp(exchange.getRequest());
+    }
+
+    /**
+     * IP клиента: адрес соединения, а если оно от доверенного прокси — самый правый
+     * недоверенный адрес цепочки прокси. Левые элементы цепочки клиент может подделать,
+     * правые дописали доверенные прокси.
+     */
+    String resolveClientIp(ServerHttpRequest request) {
+        InetSocketAddress remote = request.getRemoteAddress();
+        if (remote == null || remote.getAddress() == null) {
+            return "unknown";
+        }
+        String peer = remote.getAddress().getHostAddress();
+        if (!isTrustedProxy(peer)) {
+            return peer;
+        }
+        List<String> chain = forwardedChain(request.getHeaders());
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            if (!isTrustedProxy(chain.get(i))) {
+                return chain.get(i);
+            }
+        }
+        return chain.isEmpty() ? peer : chain.get(0);
+    }
+
+    private boolean isTrustedProxy(String address) {
+        byte[] bytes = parseIp(address);
+        if (bytes == null) {
+            return false;
+        }
+        for (Subnet subnet : trustedProxies) {
+            if (subnet.contains(bytes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] parseIp(String address) {
+        if (!IP_LITERAL.matcher(address).matches()) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(address).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    /** Адреса из Forwarded, если он есть, иначе из X-Forwarded-For — слева направо */
+    private static List<String> forwardedChain(HttpHeaders headers) {
+        List<String> chain = new ArrayList<>();
+        List<String> forwarded = headers.get(FORWARDED);
+        if (forwarded != null && !forwarded.isEmpty()) {
+            for (String value : forwarded) {
+                Matcher matcher = FORWARDED_FOR.matcher(value);
+                while (matcher.find()) {
+                    chain.add(stripPort(matcher.group(1).trim()));
+                }
+            }
+            return chain;
+        }
+        List<String> xForwardedFor = headers.get(X_FORWARDED_FOR);
+        if (xForwardedFor != null) {
+            for (String value : xForwardedFor) {
+                for (String hop : value.split(",")) {
+                    if (!hop.isBlank()) {
+                        chain.add(stripPort(hop.trim()));
+                    }
+                }
+            }
+        }
+        return chain;
+    }
+
+    /** {@code [2001:db8::1]:4711} → {@code 2001:db8::1}, {@code 192.0.2.1:80} → {@code 192.0.2.1} */
+    private static String stripPort(String hop) {
+        if (hop.startsWith("[")) {
+            int end = hop.indexOf(']');
+            return end > 0 ? hop.substring(1, end) : hop;
+        }
+        int colon = hop.indexOf(':');
+        return colon > 0 && colon == hop.lastIndexOf(':') ? hop.substring(0, colon) : hop;
+    }
+
+    private CompiledRule findRule(ServerHttpRequest request) {
+        if (rules.isEmpty()) {
+            return null;
+        }
+        PathContainer path = request.getPath().pathWithinApplication();
+        String method = request.getMethod().name();
+        for (CompiledRule rule : rules) {
+            if (rule.matches(path, method)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private Mono<Void> tooManyRequests(ServerWebExchange exchange, long retryAfterSeconds) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+        String body = String.format(
+                "{\"error\":\"Too Many Requests\",\"message\":\"Rate limit exceeded, retry after %d s\"}",
+                retryAfterSeconds);
+        DataBuffer buffer = response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8));
+        return response.writeWith(Mono.just(buffer));
+    }
+
+    @Override
+    public int getOrder() {
+        // Сразу после цепочки Spring Security (порядок -100): ID пользователя уже проверен,
+        // а маршрутизация и контроллеры ещё не начались
+        return SECURITY_CHAIN_ORDER + 1;
+    }
+
+    private static final class CompiledRule {
+        private final RateLimitProperties.RouteLimit route;
+        private final PathPattern pattern;
+        private final Set<String> methods;
+
+        private CompiledRule(RateLimitProperties.RouteLimit route, PathPattern pattern) {
+            this.route = route;
+            this.pattern = pattern;
+            this.methods = route.getMethods().stream()
+                    .map(String::toUpperCase)
+                    .collect(Collectors.toSet());
+        }
+
+        private boolean matches(PathContainer path, String method) {
+            return (methods.isEmpty() || methods.contains(method)) && pattern.matches(path);
+        }
+    }
+
+    /** Адрес или CIDR-подсеть из trusted-proxies; IPv4 не совпадает с IPv6 и наоборот */
+    private static final class Subnet {
+        private final byte[] network;
+        private final int prefixBits;
+
+        private Subnet(byte[] network, int prefixBits) {
+            this.network = network;
+            this.prefixBits = prefixBits;
+        }
+
+        private static Subnet parse(String cidr) {
+            int slash = cidr.indexOf('/');
+            String address = slash < 0 ? cidr.trim() : cidr.substring(0, slash).trim();
+            byte[] network = parseIp(address);
+            if (network == null) {
+                throw new IllegalArgumentException("Invalid trusted proxy address: " + cidr);
+            }
+            int prefixBits = slash < 0 ? network.length * 8 : Integer.parseInt(cidr.substring(slash + 1).trim());
+            if (prefixBits < 0 || prefixBits > network.length * 8) {
+                throw new IllegalArgumentException("Invalid trusted proxy prefix: " + cidr);
+            }
+            return new Subnet(network, prefixBits);
+        }
+
+        private boolean contains(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            int fullBytes = prefixBits / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            int restBits = prefixBits % 8;
+            if (restBits == 0) {
+                return true;
+            }
+            int mask = 0xFF << (8 - restBits);
+            return (address[fullBytes] & mask) == (network[fullBytes] & mask);
+        }
+    }
+}
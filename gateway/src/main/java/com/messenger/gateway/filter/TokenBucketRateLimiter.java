@@ -0,0 +1,95 @@
+package com.messenger.gateway.filter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Неблокирующий token bucket в памяти.
+ * <p>
+ * Состояние корзины — одно число: «теоретическое время прибытия» следующего запроса
+ * (GCRA, эквивалент token bucket). Запрос расходует один токен, что сдвигает это время
+ * на интервал пополнения; запрос отклоняется, если сдвиг ушёл дальше ёмкости корзины.
+ * Обновление — CAS по {@link AtomicLong}, без блокировок.
+ * <p>
+ * Корзины разложены по шардам, чтобы очистка неактивных ключей трогала только
+ * небольшую часть таблицы и не мешала остальным.
+ */
+public class TokenBucketRateLimiter {
+
+    private final ConcurrentHashMap<String, AtomicLong>[] stripes;
+    private final int stripeMask;
+    private final int maxBucketsPerStripe;
+    private final LongSupplier nanoClock;
+
+    public TokenBucketRateLimiter(int stripes, int maxBucketsPerStripe) {
+        this(stripes, maxBucketsPerStripe, System::nanoTime);
+    }
+
+    @SuppressWarnings("unchecked")
+    TokenBucketRateLimiter(int stripes, int maxBucketsPerStripe, LongSupplier nanoClock) {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new ConcurrentHashMap[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ConcurrentHashMap<>();
+        }
+        this.stripeMask = size - 1;
+        this.maxBucketsPerStripe = maxBucketsPerStripe;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Попытаться взять один токен из корзины ключа.
+     *
+     * @param key             ключ корзины (правило + пользователь)
+     * @param capacity        ёмкость корзины
+     * @param refillPerSecond скорость пополнения, токенов в секунду
+     * @return 0 если запрос разрешён, иначе через сколько наносекунд появится токен
+     */
+    public long tryAcquire(String key, int capacity, double refillPerSecond) {
+        long interval = (long) (1_000_000_000L / refillPerSecond);
+        long burst = interval * capacity;
+        long now = nanoClock.getAsLong();
+
+        ConcurrentHashMap<String, AtomicLong> stripe = stripes[spread(key.hashCode()) & stripeMask];
+        AtomicLong tat = stripe.get(key);
+        if (tat == null) {
+            if (stripe.size() >= maxBucketsPerStripe) {
+                evictIdle(stripe, now);
+            }
+            tat = stripe.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + interval;
+            long overflow = next - now - burst;
+            if (overflow > 0) {
+                return overflow;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    int size() {
+        int total = 0;
+        for (ConcurrentHashMap<String, AtomicLong> stripe : stripes) {
+            total += stripe.size();
+        }
+        return total;
+    }
+
+    /**
+     * Корзина, у которой теоретическое время уже в прошлом, полностью восстановилась
+     * и ничем не отличается от новой — её можно удалить без потери состояния.
+     */
+    private void evictIdle(ConcurrentHashMap<String, AtomicLong> stripe, long now) {
+        stripe.values().removeIf(tat -> tat.get() <= now);
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
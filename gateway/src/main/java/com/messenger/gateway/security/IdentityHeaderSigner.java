@@ -0,0 +1,52 @@
+package com.messenger.gateway.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+/**
+ * Подписывает заголовки идентичности, которые Gateway передаёт downstream-сервисам.
+ * <p>
+ * Подпись — HMAC-SHA256 над {@code userId \n username \n timestamp} общим с core-api секретом
+ * {@code gateway.identity.secret}. По ней core-api доверяет {@code X-User-Id}/{@code X-Username}
+ * и не проверяет JWT повторно. Mac создаётся и инициализируется ключом один раз на поток.
+ */
+@Component
+public class IdentityHeaderSigner {
+
+    public static final String USER_ID_HEADER = "X-User-Id";
+    public static final String USERNAME_HEADER = "X-Username";
+    public static final String TIMESTAMP_HEADER = "X-Identity-Timestamp";
+    public static final String SIGNATURE_HEADER = "X-Identity-Signature";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final ThreadLocal<Mac> mac;
+
+    public IdentityHeaderSigner(@Value("${gateway.identity.secret}") String secret) {
+        SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(ALGORITHM);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot initialize " + ALGORITHM, e);
+            }
+        });
+    }
+
+    /**
+     * Подпись для переданных значений заголовков (Base64URL без паддинга).
+     */
+    public String sign(Long userId, String username, long timestamp) {
+        String payload = userId + "\n" + username + "\n" + timestamp;
+        byte[] signature = mac.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+}
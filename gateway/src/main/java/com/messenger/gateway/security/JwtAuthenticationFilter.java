@@ -1,5 +1,6 @@
 package com.messenger.gateway.security;
 
+import io.jsonwebtoken.JwtException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
@@ -22,10 +23,15 @@ import java.util.List;
 public class JwtAuthenticationFilter implements WebFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
-    private final JwtService jwtService;
 
-    public JwtAuthenticationFilter(JwtService jwtService) {
-        this.jwtService = jwtService;
+    /** Атрибут exchange с ID пользователя из проверенного токена (для фильтров Gateway) */
+    public static final String VERIFIED_USER_ID_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".userId";
+    private final VerifiedTokenCache tokenCache;
+    private final IdentityHeaderSigner identityHeaderSigner;
+
+    public JwtAuthenticationFilter(VerifiedTokenCache tokenCache, IdentityHeaderSigner identityHeaderSigner) {
+        this.tokenCache = tokenCache;
+        this.identityHeaderSigner = identityHeaderSigner;
     }
 
     @Override
@@ -67,38 +73,43 @@ public class JwtAuthenticationFilter implements WebFilter {
             return chain.filter(exchange);
         }
 
+        VerifiedToken verified;
         try {
-            if (jwtService.isTokenValid(token)) {
-                String username = jwtService.extractUsername(token);
-                Long userId = jwtService.extractUserId(token);
-
-                logger.debug("JWT token valid for user: {} (ID: {})", username, userId);
-
-                Authentication authentication = new UsernamePasswordAuthenticationToken(
-                    username, null, List.of(new SimpleGrantedAuthority("ROLE_USER"))
-                );
-
-                // Добавляем userId в заголовки для передачи в downstream сервисы
-                ServerHttpRequest mutatedRequest = request.mutate()
-                    .header("X-User-Id", userId.toString())
-                    .header("X-Username", username)
-                    .header("Authorization", "Bearer " + token)
-                    .build();
-
-                ServerWebExchange mutatedExchange = exchange.mutate()
-                    .request(mutatedRequest)
-                    .build();
-
-                return chain.filter(mutatedExchange)
-                    .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication));
-            } else {
-                logger.warn("JWT token validation failed for path: {}", path);
-                return unauthorizedResponse(exchange, "Invalid JWT token");
-            }
+            verified = tokenCache.verify(token);
+        } catch (JwtException e) {
+            logger.warn("JWT token validation failed for path: {}", path);
+            return unauthorizedResponse(exchange, "Invalid JWT token");
         } catch (Exception e) {
             logger.error("JWT token processing error for path: {}: {}", path, e.getMessage());
             return unauthorizedResponse(exchange, "JWT token processing error: " + e.getMessage());
         }
+
+        String username = verified.getUsername();
+        Long userId = verified.getUserId();
+        logger.debug("JWT token valid for user: {} (ID: {})", username, userId);
+
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+            username, null, List.of(new SimpleGrantedAuthority("ROLE_USER"))
+        );
+
+        // Передаём идентичность в downstream сервисы подписанными заголовками,
+        // чтобы core-api мог не проверять JWT повторно
+        long timestamp = System.currentTimeMillis();
+        ServerHttpRequest mutatedRequest = request.mutate()
+            .header(IdentityHeaderSigner.USER_ID_HEADER, userId.toString())
+            .header(IdentityHeaderSigner.USERNAME_HEADER, username)
+            .header(IdentityHeaderSigner.TIMESTAMP_HEADER, Long.toString(timestamp))
+            .header(IdentityHeaderSigner.SIGNATURE_HEADER, identityHeaderSigner.sign(userId, username, timestamp))
+            .header("Authorization", "Bearer " + token)
+            .build();
+
+        ServerWebExchange mutatedExchange = exchange.mutate()
+            .request(mutatedRequest)
+            .build();
+        mutatedExchange.getAttributes().put(VERIFIED_USER_ID_ATTRIBUTE, userId);
+
+        return chain.filter(mutatedExchange)
+            .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication));
     }
 
     private boolean isPublicPath(String path) {
@@ -22,8 +22,57 @@ public class JwtService {
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    // Ключ и парсер строятся один раз: Keys.hmacShaKeyFor и parserBuilder() на каждый вызов
+    // заметно нагружали горячий путь фильтра аутентификации
+    private volatile SecretKey signingKey;
+    private volatile JwtParser jwtParser;
+
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secretKey.getBytes());
+        SecretKey key = signingKey;
+        if (key == null) {
+            synchronized (this) {
+                key = signingKey;
+                if (key == null) {
+                    key = Keys.hmacShaKeyFor(secretKey.getBytes());
+                    signingKey = key;
+                }
+            }
+        }
+        return key;
+    }
+
+    private JwtParser getParser() {
+        JwtParser parser = jwtParser;
+        if (parser == null) {
+            synchronized (this) {
+                parser = jwtParser;
+                if (parser == null) {
+                    parser = Jwts.parserBuilder()
+                            .setSigningKey(getSigningKey())
+                            .build();
+                    jwtParser = parser;
+                }
+            }
+        }
+        return parser;
+    }
+
+    /**
+     * Проверить токен за одну HMAC-верификацию и извлечь всё, что нужно фильтру.
+     *
+     * @param token JWT-токен
+     * @return проверенная идентичность пользователя
+     * @throws JwtException если подпись неверна, токен просрочен или в нём нет id пользователя
+     */
+    public VerifiedToken verifyToken(String token) {
+        Claims claims = extractAllClaims(token);
+        Long userId = claims.get("id", Long.class);
+        if (userId == null || claims.getSubject() == null) {
+            throw new MalformedJwtException("JWT token has no subject or user id");
+        }
+        Date expiration = claims.getExpiration();
+        long expiresAt = expiration != null ? expiration.getTime() : Long.MAX_VALUE;
+        return new VerifiedToken(claims.getSubject(), userId, expiresAt);
     }
 
     public String extractUsername(String token) {
@@ -37,9 +86,7 @@ public class JwtService {
 
     private Claims extractAllClaims(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
+            return getParser()
                     .parseClaimsJws(token)
                     .getBody();
         } catch (ExpiredJwtException e) {
@@ -0,0 +1,34 @@
+package com.messenger.gateway.security;
+
+/**
+ * Результат успешной проверки JWT: всё, что нужно для аутентификации запроса
+ * и формирования доверенных заголовков для downstream-сервисов.
+ */
+public final class VerifiedToken {
+
+    private final String username;
+    private final Long userId;
+    private final long expiresAtMillis;
+
+    public VerifiedToken(String username, Long userId, long expiresAtMillis) {
+        this.username = username;
+        this.userId = userId;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+}
@@ -0,0 +1,90 @@
+package com.messenger.gateway.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ограниченный кэш проверенных токенов: token → {@link VerifiedToken}.
+ * <p>
+ * Клиент шлёт один и тот же токен в каждом запросе, поэтому подпись достаточно
+ * проверить один раз. Запись живёт не дольше срока действия самого токена и не дольше
+ * {@code jwt.cache.ttl-seconds}. Невалидные токены не кэшируются.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(VerifiedTokenCache.class);
+
+    private final JwtService jwtService;
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+    public VerifiedTokenCache(JwtService jwtService,
+                              @Value("${jwt.cache.max-size:10000}") int maxSize,
+                              @Value("${jwt.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.jwtService = jwtService;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    /**
+     * Вернуть проверенную идентичность из кэша или проверить токен и закэшировать результат.
+     *
+     * @param token JWT-токен
+     * @return проверенная идентичность
+     * @throws io.jsonwebtoken.JwtException если токен невалиден
+     */
+    public VerifiedToken verify(String token) {
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(token);
+        if (entry != null) {
+            if (now < entry.validUntil) {
+                return entry.verified;
+            }
+            cache.remove(token, entry);
+        }
+
+        VerifiedToken verified = jwtService.verifyToken(token);
+        if (cache.size() >= maxSize) {
+            evict(now);
+        }
+        cache.put(token, new Entry(verified, Math.min(verified.getExpiresAtMillis(), now + ttlMillis)));
+        return verified;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Сначала убираем протухшие записи; если места всё равно нет — освобождаем
+     * десятую часть кэша. Точный LRU здесь не нужен: промах стоит одну HMAC-проверку.
+     */
+    private void evict(long now) {
+        cache.values().removeIf(e -> now >= e.validUntil);
+        int toRemove = cache.size() - maxSize + Math.max(1, maxSize / 10);
+        Iterator<String> it = cache.keySet().iterator();
+        while (toRemove-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        logger.debug("Verified token cache evicted, size now {}", cache.size());
+    }
+
+    private static final class Entry {
+        private final VerifiedToken verified;
+        private final long validUntil;
+
+        private Entry(VerifiedToken verified, long validUntil) {
+            this.verified = verified;
+            this.validUntil = validUntil;
+        }
+    }
+}
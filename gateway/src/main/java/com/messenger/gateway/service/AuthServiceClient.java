@@ -2,7 +2,6 @@ package com.messenger.gateway.service;
 
 
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -10,17 +9,20 @@ import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class AuthServiceClient {
 
     @Value("${auth-service.url}")
     private String authServiceUrl;
 
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient webClient;
+
+    public AuthServiceClient(WebClient.Builder webClientBuilder) {
+        this.webClient = webClientBuilder.build();
+    }
 
     public Mono<Long> validateAndGetUserId(String token) {
-        return webClientBuilder.build()
+        return webClient
                 .get()
                 .uri(authServiceUrl + "/api/auth/me")
                 .header("Authorization", "Bearer " + token)
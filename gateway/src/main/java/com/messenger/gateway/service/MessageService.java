@@ -1,8 +1,8 @@
 package com.messenger.gateway.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -13,27 +13,35 @@ import java.util.HashMap;
 import java.util.Map;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class MessageService {
 
     @Value("${message-service.url:http://localhost:8082}")  // ИСПРАВЛЕНО: порт 8082 вместо 8084
     private String messageServiceUrl;
 
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient webClient;
     private final KafkaTemplate<String, Object> kafkaTemplate;
 
-    public Flux<Object> getChatMessages(Long chatId, String token) {
+    public MessageService(WebClient.Builder webClientBuilder, KafkaTemplate<String, Object> kafkaTemplate) {
+        this.webClient = webClientBuilder.build();
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    public Flux<DataBuffer> getChatMessages(Long chatId, String token) {
         return getChatMessages(chatId, token, 0, 50); // Используем значения по умолчанию
     }
 
-    public Flux<Object> getChatMessages(Long chatId, String token, int page, int size) {
-        return webClientBuilder.build()
+    /**
+     * История чата отдаётся клиенту как есть: тело ответа core-api проксируется
+     * буферами без десериализации в объекты и повторной сериализации в JSON.
+     */
+    public Flux<DataBuffer> getChatMessages(Long chatId, String token, int page, int size) {
+        return webClient
                 .get()
                 .uri(messageServiceUrl + "/api/messages/chat/" + chatId + "?page=" + page + "&size=" + size)
                 .header("Authorization", "Bearer " + token)
                 .retrieve()
-                .bodyToFlux(Object.class)
+                .bodyToFlux(DataBuffer.class)
                 .doOnError(error -> log.error("Error fetching chat messages: {}", error.getMessage()));
     }
 
@@ -43,7 +51,7 @@ public class MessageService {
         messageRequest.put("senderId", senderId);
         messageRequest.put("content", content);
 
-        return webClientBuilder.build()
+        return webClient
                 .post()
                 .uri(messageServiceUrl + "/api/messages")
                 .header("Authorization", "Bearer " + token)
@@ -63,7 +71,7 @@ public class MessageService {
     }
 
     public Mono<Object> getMessageById(Long messageId, String token) {
-        return webClientBuilder.build()
+        return webClient
                 .get()
                 .uri(messageServiceUrl + "/api/messages/" + messageId)
                 .header("Authorization", "Bearer " + token)
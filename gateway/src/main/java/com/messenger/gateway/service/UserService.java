@@ -1,6 +1,5 @@
 package com.messenger.gateway.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -9,17 +8,24 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class UserService {
 
     @Value("${user-service.url:http://localhost:8082}")
     private String userServiceUrl;
 
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient webClient;
+
+    /**
+     * Клиент строится один раз: builder уже настроен на общий пул соединений
+     * ({@link com.messenger.gateway.config.WebClientConfig}).
+     */
+    public UserService(WebClient.Builder webClientBuilder) {
+        this.webClient = webClientBuilder.build();
+    }
 
     public Flux<Object> getAllUsers(String token) {
-        return webClientBuilder.build()
+        return webClient
                 .get()
                 .uri(userServiceUrl + "/api/users")
                 .header("Authorization", "Bearer " + token)
@@ -29,7 +35,7 @@ public class UserService {
     }
 
     public Mono<Object> getUserById(Long id, String token) {
-        return webClientBuilder.build()
+        return webClient
                 .get()
                 .uri(userServiceUrl + "/api/users/" + id)
                 .header("Authorization", "Bearer " + token)
@@ -39,7 +45,7 @@ public class UserService {
     }
 
     public Mono<Object> updateUser(Long id, Object userRequest, String token) {
-        return webClientBuilder.build()
+        return webClient
                 .put()
                 .uri(userServiceUrl + "/api/users/" + id)
                 .header("Authorization", "Bearer " + token)
@@ -50,7 +56,7 @@ public class UserService {
     }
 
     public Flux<Object> searchUsers(String query, String token) {
-        return webClientBuilder.build()
+        return webClient
                 .get()
                 .uri(userServiceUrl + "/api/users/search?q=" + query)
                 .header("Authorization", "Bearer " + token)
@@ -0,0 +1,148 @@
+package com.messenger.gateway.filter;
+
+import com.messenger.gateway.config.RateLimitProperties;
+import com.messenger.gateway.security.JwtAuthenticationFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitWebFilterTest {
+
+    private RateLimitWebFilter filter;
+    private AtomicInteger forwarded;
+    private WebFilterChain chain;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setDefaultLimit(new RateLimitProperties.Limit(3, 0.001));
+        RateLimitProperties.RouteLimit search = new RateLimitProperties.RouteLimit();
+        search.setId("user-search");
+        search.setPath("/api/users/search/**");
+        search.setCapacity(1);
+        search.setRefillPerSecond(0.001);
+        properties.setRoutes(List.of(search));
+        filter = new RateLimitWebFilter(properties);
+        forwarded = new AtomicInteger();
+        chain = exchange -> {
+            forwarded.incrementAndGet();
+            return Mono.empty();
+        };
+    }
+
+    private MockServerWebExchange userExchange(String path, long userId) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path).build());
+        exchange.getAttributes().put(JwtAuthenticationFilter.VERIFIED_USER_ID_ATTRIBUTE, userId);
+        return exchange;
+    }
+
+    @Test
+    void testGatewayControllerPathIsLimited() {
+        // /api/chats/{chatId}/messages обслуживает MessageController самого gateway, не маршрут
+        for (int i = 0; i < 4; i++) {
+            filter.filter(userExchange("/api/chats/7/messages", 1L), chain).block();
+        }
+
+        assertEquals(3, forwarded.get());
+        assertTrue(filter.getOrder() > -100, "Limiter must run after the security chain sets the user ID");
+    }
+
+    @Test
+    void testRouteLimitReturns429WithRetryAfter() {
+        filter.filter(userExchange("/api/users/search", 1L), chain).block();
+        MockServerWebExchange limited = userExchange("/api/users/search", 1L);
+        filter.filter(limited, chain).block();
+
+        assertEquals(1, forwarded.get());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, limited.getResponse().getStatusCode());
+        assertNotNull(limited.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void testRouteLimitDoesNotConsumeDefaultBucket() {
+        filter.filter(userExchange("/api/users/search", 1L), chain).block();
+        for (int i = 0; i < 3; i++) {
+            filter.filter(userExchange("/api/chats", 1L), chain).block();
+        }
+        assertEquals(4, forwarded.get());
+    }
+
+    @Test
+    void testUsersHaveSeparateBuckets() {
+        filter.filter(userExchange("/api/users/search", 1L), chain).block();
+        filter.filter(userExchange("/api/users/search", 2L), chain).block();
+        assertEquals(2, forwarded.get());
+    }
+
+    @Test
+    void testSpoofedHeaderDoesNotSelectBucket() {
+        filter.filter(userExchange("/api/users/search", 1L), chain).block();
+        MockServerWebExchange anonymous = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/search")
+                .header("X-User-Id", "1")
+                .remoteAddress(new InetSocketAddress("10.0.0.5", 5000))
+                .build());
+        filter.filter(anonymous, chain).block();
+        assertEquals(2, forwarded.get());
+    }
+
+    private MockServerWebExchange anonymousExchange(String remoteIp, String header, String value) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/search")
+                .header(header, value)
+                .remoteAddress(new InetSocketAddress(remoteIp, 5000))
+                .build());
+    }
+
+    @Test
+    void testClientsBehindTrustedProxyHaveSeparateBuckets() {
+        filter.filter(anonymousExchange("127.0.0.1", "X-Forwarded-For", "203.0.113.7"), chain).block();
+        filter.filter(anonymousExchange("127.0.0.1", "X-Forwarded-For", "203.0.113.8"), chain).block();
+        MockServerWebExchange limited = anonymousExchange("127.0.0.1", "X-Forwarded-For", "203.0.113.7");
+        filter.filter(limited, chain).block();
+
+        assertEquals(2, forwarded.get());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, limited.getResponse().getStatusCode());
+    }
+
+    @Test
+    void testForwardedChainUsesRightmostUntrustedHop() {
+        // Левый элемент дописал сам клиент, правый — доверенный прокси
+        assertEquals("203.0.113.7", filter.resolveClientIp(
+                anonymousExchange("127.0.0.1", "X-Forwarded-For", "198.51.100.1, 203.0.113.7").getRequest()));
+        assertEquals("2001:db8::1", filter.resolveClientIp(
+                anonymousExchange("127.0.0.1", "Forwarded", "for=\"[2001:db8::1]:4711\";proto=https").getRequest()));
+        assertEquals("127.0.0.1", filter.resolveClientIp(
+                anonymousExchange("127.0.0.1", "X-Forwarded-For", "127.0.0.1").getRequest()));
+    }
+
+    @Test
+    void testForwardedHeaderFromUntrustedPeerIsIgnored() {
+        filter.filter(anonymousExchange("198.51.100.9", "X-Forwarded-For", "203.0.113.1"), chain).block();
+        filter.filter(anonymousExchange("198.51.100.9", "X-Forwarded-For", "203.0.113.2"), chain).block();
+        assertEquals(1, forwarded.get());
+        assertEquals("198.51.100.9", filter.resolveClientIp(
+                anonymousExchange("198.51.100.9", "X-Forwarded-For", "203.0.113.1").getRequest()));
+    }
+
+    @Test
+    void testDisabled() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setEnabled(false);
+        properties.setDefaultLimit(new RateLimitProperties.Limit(1, 0.001));
+        RateLimitWebFilter disabled = new RateLimitWebFilter(properties);
+        for (int i = 0; i < 5; i++) {
+            disabled.filter(userExchange("/api/chats", 1L), chain).block();
+        }
+        assertEquals(5, forwarded.get());
+    }
+}
@@ -0,0 +1,74 @@
+package com.messenger.gateway.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    @Test
+    void testBurstUpToCapacityThenRejected() {
+        AtomicLong clock = new AtomicLong(1_000_000_000L);
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(4, 100, clock::get);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.tryAcquire("k", 5, 1.0));
+        }
+        long wait = limiter.tryAcquire("k", 5, 1.0);
+        assertTrue(wait > 0);
+        assertTrue(wait <= TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void testRefillAfterWait() {
+        AtomicLong clock = new AtomicLong(0);
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(4, 100, clock::get);
+        assertEquals(0, limiter.tryAcquire("k", 1, 2.0));
+        assertTrue(limiter.tryAcquire("k", 1, 2.0) > 0);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(0, limiter.tryAcquire("k", 1, 2.0));
+    }
+
+    @Test
+    void testKeysAreIndependent() {
+        AtomicLong clock = new AtomicLong(0);
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(4, 100, clock::get);
+        assertEquals(0, limiter.tryAcquire("user:1", 1, 1.0));
+        assertTrue(limiter.tryAcquire("user:1", 1, 1.0) > 0);
+        assertEquals(0, limiter.tryAcquire("user:2", 1, 1.0));
+    }
+
+    @Test
+    void testIdleBucketsEvicted() {
+        AtomicLong clock = new AtomicLong(0);
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 10, clock::get);
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire("k" + i, 10, 100.0);
+        }
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        limiter.tryAcquire("fresh", 10, 100.0);
+        assertEquals(1, limiter.size());
+    }
+
+    @Test
+    void testConcurrentAcquireNeverExceedsCapacity() throws Exception {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(4, 100, () -> 0L);
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            pool.submit(() -> {
+                if (limiter.tryAcquire("shared", 100, 1.0) == 0) {
+                    allowed.incrementAndGet();
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(100, allowed.get());
+    }
+}
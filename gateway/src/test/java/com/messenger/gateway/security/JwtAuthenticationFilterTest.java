@@ -1,5 +1,6 @@
 package com.messenger.gateway.security;
 
+import io.jsonwebtoken.MalformedJwtException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -21,7 +22,7 @@ import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 
 class JwtAuthenticationFilterTest {
     @Mock
-    private JwtService jwtService;
+    private VerifiedTokenCache tokenCache;
     @Mock
     private WebFilterChain webFilterChain;
     @Mock
@@ -41,7 +42,7 @@ class JwtAuthenticationFilterTest {
     void setUp() {
         MockitoAnnotations.openMocks(this);
         // Используем spy для фильтра, чтобы замокать unauthorizedResponse
-        filter = spy(new JwtAuthenticationFilter(jwtService));
+        filter = spy(new JwtAuthenticationFilter(tokenCache, new IdentityHeaderSigner("test-identity-secret")));
         when(exchange.getRequest()).thenReturn(request);
         when(exchange.getResponse()).thenReturn(response);
         when(response.getHeaders()).thenReturn(new HttpHeaders());
@@ -64,9 +65,7 @@ class JwtAuthenticationFilterTest {
         when(request.getMethod()).thenReturn(HttpMethod.GET);
         when(request.getPath()).thenReturn(org.springframework.http.server.RequestPath.parse("/api/test", ""));
         when(request.getHeaders()).thenReturn(new HttpHeaders() {{ set("Authorization", "Bearer validtoken"); }});
-        when(jwtService.extractUsername("validtoken")).thenReturn("testuser");
-        when(jwtService.extractUserId("validtoken")).thenReturn(1L);
-        when(jwtService.isTokenValid("validtoken")).thenReturn(true);
+        when(tokenCache.verify("validtoken")).thenReturn(new VerifiedToken("testuser", 1L, Long.MAX_VALUE));
         when(webFilterChain.filter(any())).thenReturn(Mono.empty());
         filter.filter(exchange, webFilterChain).block();
         verify(webFilterChain).filter(any());
@@ -97,7 +96,7 @@ class JwtAuthenticationFilterTest {
         when(request.getMethod()).thenReturn(HttpMethod.GET);
         when(request.getPath()).thenReturn(org.springframework.http.server.RequestPath.parse("/api/test", ""));
         when(request.getHeaders()).thenReturn(new HttpHeaders() {{ set("Authorization", "Bearer expiredtoken"); }});
-        when(jwtService.isTokenValid("expiredtoken")).thenReturn(false);
+        when(tokenCache.verify("expiredtoken")).thenThrow(new MalformedJwtException("invalid"));
         when(webFilterChain.filter(any())).thenReturn(Mono.empty());
         filter.filter(exchange, webFilterChain).block();
         verify(webFilterChain, never()).filter(any());
@@ -108,7 +107,7 @@ class JwtAuthenticationFilterTest {
         when(request.getMethod()).thenReturn(HttpMethod.GET);
         when(request.getPath()).thenReturn(org.springframework.http.server.RequestPath.parse("/api/test", ""));
         when(request.getHeaders()).thenReturn(new HttpHeaders() {{ set("Authorization", "Bearer malformedtoken"); }});
-        when(jwtService.isTokenValid("malformedtoken")).thenThrow(new RuntimeException("Malformed token"));
+        when(tokenCache.verify("malformedtoken")).thenThrow(new RuntimeException("Malformed token"));
         when(webFilterChain.filter(any())).thenReturn(Mono.empty());
         filter.filter(exchange, webFilterChain).block();
         verify(webFilterChain, never()).filter(any());
@@ -140,9 +139,7 @@ class JwtAuthenticationFilterTest {
         params.add("token", "validtoken");
         when(request.getQueryParams()).thenReturn(params);
         when(request.getHeaders()).thenReturn(new HttpHeaders());
-        when(jwtService.isTokenValid("validtoken")).thenReturn(true);
-        when(jwtService.extractUsername("validtoken")).thenReturn("testuser");
-        when(jwtService.extractUserId("validtoken")).thenReturn(1L);
+        when(tokenCache.verify("validtoken")).thenReturn(new VerifiedToken("testuser", 1L, Long.MAX_VALUE));
         when(webFilterChain.filter(any())).thenReturn(Mono.empty());
         filter.filter(exchange, webFilterChain).block();
         verify(webFilterChain).filter(any());
@@ -153,6 +150,8 @@ class JwtAuthenticationFilterTest {
         when(request.getMethod()).thenReturn(HttpMethod.GET);
         when(request.getPath()).thenReturn(org.springframework.http.server.RequestPath.parse("/api/test", ""));
         when(request.getHeaders()).thenReturn(new HttpHeaders() {{ set("Authorization", "Bearer "); }});
+        // Как jjwt: пустая строка — не токен
+        when(tokenCache.verify("")).thenThrow(new IllegalArgumentException("CharSequence cannot be null or empty."));
         filter.filter(exchange, webFilterChain).block();
         verify(filter).unauthorizedResponse(eq(exchange), anyString());
         verify(webFilterChain, never()).filter(exchange);
@@ -176,7 +175,7 @@ class JwtAuthenticationFilterTest {
         for (int i = 0; i < 10; i++) {
             String token = "invalidtoken" + i;
             when(request.getHeaders()).thenReturn(new HttpHeaders() {{ set("Authorization", "Bearer " + token); }});
-            when(jwtService.isTokenValid(token)).thenReturn(false);
+            when(tokenCache.verify(token)).thenThrow(new MalformedJwtException("invalid"));
             filter.filter(exchange, webFilterChain).block();
         }
         verify(webFilterChain, never()).filter(any());
@@ -187,9 +186,7 @@ class JwtAuthenticationFilterTest {
         when(request.getMethod()).thenReturn(HttpMethod.GET);
         when(request.getPath()).thenReturn(org.springframework.http.server.RequestPath.parse("/api/test", ""));
         when(request.getHeaders()).thenReturn(new HttpHeaders() {{ set("Authorization", "Bearer validtoken"); }});
-        when(jwtService.isTokenValid("validtoken")).thenReturn(true);
-        when(jwtService.extractUsername("validtoken")).thenReturn("testuser");
-        when(jwtService.extractUserId("validtoken")).thenReturn(123L);
+        when(tokenCache.verify("validtoken")).thenReturn(new VerifiedToken("testuser", 123L, Long.MAX_VALUE));
         when(request.mutate()).thenReturn(requestBuilder);
         when(requestBuilder.header("X-User-Id", "123")).thenReturn(requestBuilder);
         when(requestBuilder.header("X-Username", "testuser")).thenReturn(requestBuilder);
@@ -203,6 +200,8 @@ class JwtAuthenticationFilterTest {
         verify(requestBuilder).header("X-User-Id", "123");
         verify(requestBuilder).header("X-Username", "testuser");
         verify(requestBuilder).header("Authorization", "Bearer validtoken");
+        verify(requestBuilder).header(eq("X-Identity-Timestamp"), anyString());
+        verify(requestBuilder).header(eq("X-Identity-Signature"), anyString());
         verify(webFilterChain).filter(any());
     }
 
@@ -211,9 +210,7 @@ class JwtAuthenticationFilterTest {
         when(request.getMethod()).thenReturn(HttpMethod.GET);
         when(request.getPath()).thenReturn(org.springframework.http.server.RequestPath.parse("/api/test", ""));
         when(request.getHeaders()).thenReturn(new HttpHeaders() {{ set("Authorization", "Bearer validtoken"); }});
-        when(jwtService.isTokenValid("validtoken")).thenReturn(true);
-        when(jwtService.extractUsername("validtoken")).thenReturn("testuser");
-        when(jwtService.extractUserId("validtoken")).thenReturn(123L);
+        when(tokenCache.verify("validtoken")).thenReturn(new VerifiedToken("testuser", 123L, Long.MAX_VALUE));
         when(request.mutate()).thenReturn(requestBuilder);
         when(requestBuilder.header(anyString(), anyString())).thenReturn(requestBuilder);
         when(requestBuilder.build()).thenReturn(request);
@@ -233,9 +230,7 @@ class JwtAuthenticationFilterTest {
         when(request.getMethod()).thenReturn(HttpMethod.GET);
         when(request.getPath()).thenReturn(org.springframework.http.server.RequestPath.parse("/api/test", ""));
         when(request.getHeaders()).thenReturn(new HttpHeaders() {{ set("Authorization", "Bearer validtoken"); }});
-        when(jwtService.isTokenValid("validtoken")).thenReturn(true);
-        when(jwtService.extractUsername("validtoken")).thenReturn("testuser");
-        when(jwtService.extractUserId("validtoken")).thenThrow(new RuntimeException("userId error"));
+        when(tokenCache.verify("validtoken")).thenThrow(new RuntimeException("userId error"));
         filter.filter(exchange, webFilterChain).block();
         verify(filter).unauthorizedResponse(eq(exchange), contains("userId error"));
     }
@@ -248,13 +243,11 @@ class JwtAuthenticationFilterTest {
         params.add("token", "querytoken");
         when(request.getQueryParams()).thenReturn(params);
         when(request.getHeaders()).thenReturn(new HttpHeaders() {{ set("Authorization", "Bearer headertoken"); }});
-        when(jwtService.isTokenValid("headertoken")).thenReturn(true);
-        when(jwtService.extractUsername("headertoken")).thenReturn("testuser");
-        when(jwtService.extractUserId("headertoken")).thenReturn(1L);
+        when(tokenCache.verify("headertoken")).thenReturn(new VerifiedToken("testuser", 1L, Long.MAX_VALUE));
         when(webFilterChain.filter(any())).thenReturn(Mono.empty());
         filter.filter(exchange, webFilterChain).block();
-        verify(jwtService).isTokenValid("headertoken");
-        verify(jwtService, never()).isTokenValid("querytoken");
+        verify(tokenCache).verify("headertoken");
+        verify(tokenCache, never()).verify("querytoken");
     }
 
     @Test
@@ -274,9 +267,7 @@ class JwtAuthenticationFilterTest {
         when(request.getMethod()).thenReturn(HttpMethod.POST);
         when(request.getPath()).thenReturn(org.springframework.http.server.RequestPath.parse("/api/test", ""));
         when(request.getHeaders()).thenReturn(new HttpHeaders() {{ set("Authorization", "Bearer validtoken"); }});
-        when(jwtService.isTokenValid("validtoken")).thenReturn(true);
-        when(jwtService.extractUsername("validtoken")).thenReturn("testuser");
-        when(jwtService.extractUserId("validtoken")).thenReturn(1L);
+        when(tokenCache.verify("validtoken")).thenReturn(new VerifiedToken("testuser", 1L, Long.MAX_VALUE));
         when(webFilterChain.filter(any())).thenReturn(Mono.empty());
         filter.filter(exchange, webFilterChain).block();
         verify(webFilterChain).filter(any());
@@ -290,6 +281,7 @@ class JwtAuthenticationFilterTest {
         params.add("token", "");
         when(request.getQueryParams()).thenReturn(params);
         when(request.getHeaders()).thenReturn(new HttpHeaders());
+        when(tokenCache.verify("")).thenThrow(new IllegalArgumentException("CharSequence cannot be null or empty."));
         filter.filter(exchange, webFilterChain).block();
         verify(filter).unauthorizedResponse(eq(exchange), anyString());
         verify(webFilterChain, never()).filter(any());
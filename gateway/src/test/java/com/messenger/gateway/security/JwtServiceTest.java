@@ -42,6 +42,24 @@ class JwtServiceTest {
         assertEquals(username, jwtService.extractUsername(validToken));
     }
 
+    @Test
+    void testVerifyToken() {
+        VerifiedToken verified = jwtService.verifyToken(validToken);
+        assertEquals(username, verified.getUsername());
+        assertEquals(userId, verified.getUserId());
+        assertFalse(verified.isExpired(System.currentTimeMillis()));
+    }
+
+    @Test
+    void testVerifyToken_WithoutUserId() {
+        String token = Jwts.builder()
+                .setSubject(username)
+                .setExpiration(new Date(System.currentTimeMillis() + expiration))
+                .signWith(key)
+                .compact();
+        assertThrows(JwtException.class, () -> jwtService.verifyToken(token));
+    }
+
     @Test
     void testExtractUserId() {
         assertEquals(userId, jwtService.extractUserId(validToken));
@@ -0,0 +1,58 @@
+package com.messenger.gateway.security;
+
+import io.jsonwebtoken.MalformedJwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class VerifiedTokenCacheTest {
+    private JwtService jwtService;
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = mock(JwtService.class);
+        cache = new VerifiedTokenCache(jwtService, 10, 300);
+    }
+
+    @Test
+    void testVerify_CachesVerifiedToken() {
+        when(jwtService.verifyToken("token")).thenReturn(new VerifiedToken("user", 1L, Long.MAX_VALUE));
+        VerifiedToken first = cache.verify("token");
+        VerifiedToken second = cache.verify("token");
+        assertSame(first, second);
+        verify(jwtService, times(1)).verifyToken("token");
+    }
+
+    @Test
+    void testVerify_ExpiredEntryIsReverified() {
+        long expired = System.currentTimeMillis() - 1;
+        when(jwtService.verifyToken("token"))
+                .thenReturn(new VerifiedToken("user", 1L, expired))
+                .thenThrow(new MalformedJwtException("expired"));
+        cache.verify("token");
+        assertThrows(MalformedJwtException.class, () -> cache.verify("token"));
+        verify(jwtService, times(2)).verifyToken("token");
+    }
+
+    @Test
+    void testVerify_InvalidTokenNotCached() {
+        when(jwtService.verifyToken("bad")).thenThrow(new MalformedJwtException("bad"));
+        assertThrows(MalformedJwtException.class, () -> cache.verify("bad"));
+        assertThrows(MalformedJwtException.class, () -> cache.verify("bad"));
+        assertEquals(0, cache.size());
+        verify(jwtService, times(2)).verifyToken("bad");
+    }
+
+    @Test
+    void testVerify_SizeIsBounded() {
+        when(jwtService.verifyToken(anyString()))
+                .thenAnswer(inv -> new VerifiedToken(inv.getArgument(0), 1L, Long.MAX_VALUE));
+        for (int i = 0; i < 100; i++) {
+            cache.verify("token" + i);
+        }
+        assertTrue(cache.size() <= 10);
+    }
+}
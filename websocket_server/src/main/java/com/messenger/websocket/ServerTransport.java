@@ -0,0 +1,96 @@
+package com.messenger.websocket;
+
+import com.messenger.websocket.config.ServerTransportProperties;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Сетевой транспорт Netty: нативный epoll на Linux, NIO — везде остальном.
+ */
+@Slf4j
+public enum ServerTransport {
+
+    EPOLL {
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, String name) {
+            return new EpollEventLoopGroup(threads, new DefaultThreadFactory(name));
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> socketChannelClass() {
+            return EpollSocketChannel.class;
+        }
+
+        @Override
+        public boolean supportsReusePort() {
+            return true;
+        }
+    },
+
+    NIO {
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, String name) {
+            return new NioEventLoopGroup(threads, new DefaultThreadFactory(name));
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> socketChannelClass() {
+            return NioSocketChannel.class;
+        }
+
+        @Override
+        public boolean supportsReusePort() {
+            return false;
+        }
+    };
+
+    /**
+     * @param threads количество потоков (0 — по умолчанию Netty)
+     * @param name    префикс имён потоков
+     */
+    public abstract EventLoopGroup newEventLoopGroup(int threads, String name);
+
+    public abstract Class<? extends ServerChannel> serverChannelClass();
+
+    public abstract Class<? extends SocketChannel> socketChannelClass();
+
+    public abstract boolean supportsReusePort();
+
+    /**
+     * Выбрать транспорт. {@code AUTO} и {@code EPOLL} дают epoll, если нативная библиотека
+     * загрузилась, иначе — NIO.
+     */
+    public static ServerTransport select(ServerTransportProperties.Transport preference) {
+        if (preference == ServerTransportProperties.Transport.NIO) {
+            return NIO;
+        }
+        if (Epoll.isAvailable()) {
+            return EPOLL;
+        }
+        if (preference == ServerTransportProperties.Transport.EPOLL) {
+            log.warn("[TRANSPORT] Native epoll requested but unavailable, falling back to NIO: {}",
+                    Epoll.unavailabilityCause().getMessage());
+        }
+        return NIO;
+    }
+}
@@ -1,19 +1,37 @@
 package com.messenger.websocket;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.messenger.websocket.codec.BroadcastCompression;
+import com.messenger.websocket.codec.WireCodec;
 import org.springframework.kafka.core.KafkaTemplate;
+import com.messenger.websocket.config.CompressionProperties;
+import com.messenger.websocket.config.HeartbeatProperties;
+import com.messenger.websocket.config.MetricsProperties;
+import com.messenger.websocket.config.OutboundProperties;
+import com.messenger.websocket.config.ServerTransportProperties;
+import com.messenger.websocket.handler.MetricsRequestHandler;
+import com.messenger.websocket.metrics.OutboundMetrics;
 import com.messenger.websocket.service.CallSessionManager;
 import com.messenger.websocket.service.JwtAuthService;
 import com.messenger.websocket.service.SessionManager;
+import com.messenger.websocket.service.SignalingRelay;
+import com.messenger.websocket.service.TurnCredentialsIssuer;
+import com.messenger.websocket.service.TypingService;
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.channel.ChannelFuture;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.logging.LogLevel;
-import io.netty.handler.logging.LoggingHandler;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 @Slf4j
 public class WebSocketServer {
 
@@ -23,47 +41,136 @@ public class WebSocketServer {
     private final KafkaTemplate<String, String> kafkaTemplate;
     private final SessionManager sessionManager;
     private final CallSessionManager callSessionManager;
+    private final OutboundProperties outboundProperties;
+    private final OutboundMetrics outboundMetrics;
+    private final ServerTransportProperties transportProperties;
+    private final WireCodec wireCodec;
+    private final CompressionProperties compressionProperties;
+    private final BroadcastCompression broadcastCompression;
+    private final HeartbeatProperties heartbeatProperties;
+    private final TypingService typingService;
+    private final SignalingRelay signalingRelay;
+    private final TurnCredentialsIssuer turnCredentialsIssuer;
+    private final MetricsProperties metricsProperties;
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
-    private ChannelFuture serverChannel;
+    private final List<Channel> serverChannels = new CopyOnWriteArrayList<>();
+    private volatile Channel metricsChannel;
 
     public WebSocketServer(int port, JwtAuthService jwtAuthService, ObjectMapper objectMapper,
                             KafkaTemplate<String, String> kafkaTemplate, SessionManager sessionManager,
-                            CallSessionManager callSessionManager) {
-        this.port               = port;
-        this.jwtAuthService     = jwtAuthService;
-        this.objectMapper       = objectMapper;
-        this.kafkaTemplate      = kafkaTemplate;
-        this.sessionManager     = sessionManager;
-        this.callSessionManager = callSessionManager;
+                            CallSessionManager callSessionManager, OutboundProperties outboundProperties,
+                            OutboundMetrics outboundMetrics, ServerTransportProperties transportProperties,
+                            WireCodec wireCodec, CompressionProperties compressionProperties,
+                            BroadcastCompression broadcastCompression, HeartbeatProperties heartbeatProperties,
+                            TypingService typingService, SignalingRelay signalingRelay,
+                            TurnCredentialsIssuer turnCredentialsIssuer, MetricsProperties metricsProperties) {
+        this.port                = port;
+        this.jwtAuthService      = jwtAuthService;
+        this.objectMapper        = objectMapper;
+        this.kafkaTemplate       = kafkaTemplate;
+        this.sessionManager      = sessionManager;
+        this.callSessionManager  = callSessionManager;
+        this.outboundProperties  = outboundProperties;
+        this.outboundMetrics     = outboundMetrics;
+        this.transportProperties = transportProperties;
+        this.wireCodec           = wireCodec;
+        this.compressionProperties = compressionProperties;
+        this.broadcastCompression  = broadcastCompression;
+        this.heartbeatProperties   = heartbeatProperties;
+        this.typingService         = typingService;
+        this.signalingRelay        = signalingRelay;
+        this.turnCredentialsIssuer = turnCredentialsIssuer;
+        this.metricsProperties     = metricsProperties;
         log.info("[WEBSOCKET] WebSocket server initialized with CallSession support");
     }
 
     public void start() throws InterruptedException {
-        bossGroup = new NioEventLoopGroup(1);
-        workerGroup = new NioEventLoopGroup();
+        ServerTransport transport = ServerTransport.select(transportProperties.getTransport());
+        boolean reusePort = transportProperties.isReusePort() && transport.supportsReusePort();
+        int acceptors = Math.max(1, transportProperties.getAcceptors());
+        if (acceptors > 1 && !reusePort) {
+            log.warn("[WEBSOCKET] {} acceptors need SO_REUSEPORT (epoll), binding a single acceptor", acceptors);
+            acceptors = 1;
+        }
+
+        bossGroup = transport.newEventLoopGroup(acceptors, "ws-boss");
+        workerGroup = transport.newEventLoopGroup(transportProperties.getWorkerThreads(), "ws-worker");
 
         try {
             ServerBootstrap bootstrap = new ServerBootstrap();
             bootstrap.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
-                    .handler(new LoggingHandler(LogLevel.INFO))
-                    .childHandler(new WebSocketServerInitializer(jwtAuthService, objectMapper, kafkaTemplate, sessionManager, callSessionManager));
+                    .channel(transport.serverChannelClass())
+                    .option(ChannelOption.SO_BACKLOG, transportProperties.getBacklog())
+                    .childOption(ChannelOption.TCP_NODELAY, transportProperties.isTcpNoDelay())
+                    .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(
+                            outboundProperties.getLowWaterMark(), outboundProperties.getHighWaterMark()))
+                    .childHandler(new WebSocketServerInitializer(jwtAuthService, objectMapper, kafkaTemplate,
+                            sessionManager, callSessionManager, outboundProperties, outboundMetrics, wireCodec,
+                            compressionProperties, broadcastCompression, heartbeatProperties, typingService,
+                            signalingRelay, turnCredentialsIssuer));
+            if (reusePort) {
+                bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+            }
+            if (transportProperties.getSendBufferSize() > 0) {
+                bootstrap.childOption(ChannelOption.SO_SNDBUF, transportProperties.getSendBufferSize());
+            }
+            if (transportProperties.getReceiveBufferSize() > 0) {
+                bootstrap.childOption(ChannelOption.SO_RCVBUF, transportProperties.getReceiveBufferSize());
+            }
 
-            serverChannel = bootstrap.bind(port).sync();
-            log.info("[WEBSOCKET] WebSocket server started on port {} with Kafka integration", port);
+            // С SO_REUSEPORT каждый слушающий сокет получает свой поток boss-группы,
+            // и ядро распределяет входящие соединения между ними
+            for (int i = 0; i < acceptors; i++) {
+                serverChannels.add(bootstrap.bind(port).sync().channel());
+            }
+            log.info("[WEBSOCKET] WebSocket server started on port {} with Kafka integration (transport: {}, acceptors: {})",
+                    port, transport, acceptors);
+            if (metricsProperties.isEnabled()) {
+                try {
+                    startMetrics(transport);
+                } catch (Exception e) {
+                    // Без счётчиков сервер продолжает обслуживать клиентов
+                    log.error("[WEBSOCKET] Failed to bind metrics port {}: {}", metricsProperties.getPort(), e.getMessage());
+                }
+            }
 
-            serverChannel.channel().closeFuture().sync();
+            for (Channel channel : serverChannels) {
+                channel.closeFuture().sync();
+            }
         } finally {
             stop();
         }
     }
 
+    /**
+     * Служебный порт счётчиков на тех же event loop: не проксируется gateway, в отличие от основного
+     */
+    private void startMetrics(ServerTransport transport) throws InterruptedException {
+        metricsChannel = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(transport.serverChannelClass())
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(new HttpServerCodec(), new HttpObjectAggregator(8192),
+                                new MetricsRequestHandler(outboundMetrics, callSessionManager.getMetrics(),
+                                        objectMapper));
+                    }
+                })
+                .bind(metricsProperties.getBindAddress(), metricsProperties.getPort()).sync().channel();
+        log.info("[WEBSOCKET] Metrics served on {}:{}", metricsProperties.getBindAddress(), metricsProperties.getPort());
+    }
+
     public void stop() {
         log.info("Stopping WebSocket server...");
 
-        if (serverChannel != null) {
-            serverChannel.channel().close();
+        if (metricsChannel != null) {
+            metricsChannel.close();
+        }
+
+        for (Channel channel : serverChannels) {
+            channel.close();
         }
 
         if (workerGroup != null) {
@@ -76,4 +183,4 @@ public class WebSocketServer {
 
         log.info("WebSocket server stopped");
     }
-}
\ No newline at end of file
+}
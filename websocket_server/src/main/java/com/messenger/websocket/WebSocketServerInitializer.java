@@ -10,15 +10,33 @@ import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
-import io.netty.handler.codec.http.websocketx.extensions.compression.WebSocketServerCompressionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandler;
 import io.netty.handler.codec.http.cors.CorsConfig;
 import io.netty.handler.codec.http.cors.CorsConfigBuilder;
 import io.netty.handler.codec.http.cors.CorsHandler;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.handler.timeout.IdleStateHandler;
+import com.messenger.websocket.codec.BroadcastCompression;
+import com.messenger.websocket.codec.WireCodec;
+import com.messenger.websocket.config.CompressionProperties;
+import com.messenger.websocket.config.HeartbeatProperties;
+import com.messenger.websocket.config.OutboundProperties;
+import com.messenger.websocket.handler.DeflateNegotiationHandler;
+import com.messenger.websocket.handler.HeartbeatHandler;
+import com.messenger.websocket.handler.OutboundBackpressureHandler;
 import com.messenger.websocket.handler.WebSocketFrameHandler;
+import com.messenger.websocket.handler.WireMessageEncoder;
 import com.messenger.websocket.handler.HttpRequestHandler;
+import com.messenger.websocket.metrics.OutboundMetrics;
+import com.messenger.websocket.model.WireProtocol;
 import com.messenger.websocket.service.CallSessionManager;
 import com.messenger.websocket.service.JwtAuthService;
 import com.messenger.websocket.service.SessionManager;
+import com.messenger.websocket.service.SignalingRelay;
+import com.messenger.websocket.service.TurnCredentialsIssuer;
+import com.messenger.websocket.service.TypingService;
+
+import java.util.concurrent.TimeUnit;
 
 public class WebSocketServerInitializer extends ChannelInitializer<SocketChannel> {
 
@@ -27,22 +45,59 @@ public class WebSocketServerInitializer extends ChannelInitializer<SocketChannel
     private final KafkaTemplate<String, String> kafkaTemplate;
     private final SessionManager sessionManager;
     private final CallSessionManager callSessionManager;
+    private final OutboundProperties outboundProperties;
+    private final OutboundMetrics outboundMetrics;
+    private final WireCodec wireCodec;
+    private final WireMessageEncoder wireMessageEncoder;
+    private final CompressionProperties compressionProperties;
+    private final BroadcastCompression broadcastCompression;
+    private final HeartbeatProperties heartbeatProperties;
+    private final TypingService typingService;
+    private final SignalingRelay signalingRelay;
+    private final TurnCredentialsIssuer turnCredentialsIssuer;
 
     public WebSocketServerInitializer(JwtAuthService jwtAuthService, ObjectMapper objectMapper,
                                        KafkaTemplate<String, String> kafkaTemplate,
                                        SessionManager sessionManager,
-                                       CallSessionManager callSessionManager) {
+                                       CallSessionManager callSessionManager,
+                                       OutboundProperties outboundProperties,
+                                       OutboundMetrics outboundMetrics,
+                                       WireCodec wireCodec,
+                                       CompressionProperties compressionProperties,
+                                       BroadcastCompression broadcastCompression,
+                                       HeartbeatProperties heartbeatProperties,
+                                       TypingService typingService,
+                                       SignalingRelay signalingRelay,
+                                       TurnCredentialsIssuer turnCredentialsIssuer) {
         this.jwtAuthService     = jwtAuthService;
         this.objectMapper       = objectMapper;
         this.kafkaTemplate      = kafkaTemplate;
         this.sessionManager     = sessionManager;
         this.callSessionManager = callSessionManager;
+        this.outboundProperties = outboundProperties;
+        this.outboundMetrics    = outboundMetrics;
+        this.wireCodec          = wireCodec;
+        this.wireMessageEncoder = new WireMessageEncoder(wireCodec);
+        this.compressionProperties = compressionProperties;
+        this.broadcastCompression  = broadcastCompression;
+        this.heartbeatProperties   = heartbeatProperties;
+        this.typingService         = typingService;
+        this.signalingRelay        = signalingRelay;
+        this.turnCredentialsIssuer = turnCredentialsIssuer;
     }
 
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
         ChannelPipeline pipeline = ch.pipeline();
 
+        // Первым от head: flush из обработчиков и рассылок склеиваются в один syscall на проход event loop
+        pipeline.addLast(new FlushConsolidationHandler(outboundProperties.getExplicitFlushAfterFlushes(), true));
+        if (heartbeatProperties.isEnabled()) {
+            // Рядом с сокетом: таймеры видят сырые байты, в том числе Pong, который дальше не проходит
+            pipeline.addLast(new IdleStateHandler(heartbeatProperties.getTimeoutMs(), 0,
+                    heartbeatProperties.getIntervalMs(), TimeUnit.MILLISECONDS));
+        }
+
         CorsConfig corsConfig = CorsConfigBuilder.forAnyOrigin()
                 .allowNullOrigin()
                 .allowCredentials()
@@ -54,12 +109,25 @@ public class WebSocketServerInitializer extends ChannelInitializer<SocketChannel
         pipeline.addLast(new HttpServerCodec());
         pipeline.addLast(new HttpObjectAggregator(65536));
         pipeline.addLast(new HttpRequestHandler());
-        pipeline.addLast(new WebSocketServerCompressionHandler());
+        if (compressionProperties.isEnabled()) {
+            pipeline.addLast(new WebSocketServerExtensionHandler(broadcastCompression.handshakers()));
+        }
 
-        WebSocketServerProtocolHandler wsHandler = new WebSocketServerProtocolHandler("/ws/chat", null, true, 65536, false, true);
+        // Клиент выбирает формат через Sec-WebSocket-Protocol; без заголовка остаётся JSON
+        WebSocketServerProtocolHandler wsHandler = new WebSocketServerProtocolHandler(
+                "/ws/chat", WireProtocol.SUBPROTOCOLS, true, 65536, false, true);
         pipeline.addLast(wsHandler);
+        if (compressionProperties.isEnabled()) {
+            pipeline.addLast(new DeflateNegotiationHandler(broadcastCompression));
+        }
+        if (heartbeatProperties.isEnabled()) {
+            pipeline.addLast(new HeartbeatHandler(outboundMetrics));
+        }
 
-
-        pipeline.addLast(new WebSocketFrameHandler(jwtAuthService, objectMapper, sessionManager, kafkaTemplate, callSessionManager));
+        // Исходящая очередь стоит перед обработчиком кадров, чтобы через неё шли и ctx.write, и channel.write
+        pipeline.addLast(new OutboundBackpressureHandler(outboundProperties, outboundMetrics));
+        pipeline.addLast(wireMessageEncoder);
+        pipeline.addLast(new WebSocketFrameHandler(jwtAuthService, objectMapper, sessionManager, kafkaTemplate,
+                callSessionManager, wireCodec, typingService, signalingRelay, turnCredentialsIssuer));
     }
 }
\ No newline at end of file
@@ -0,0 +1,170 @@
+package com.messenger.websocket.codec;
+
+import com.messenger.websocket.config.CompressionProperties;
+import com.messenger.websocket.model.OutboundFrame;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtension;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionData;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilter;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilterProvider;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtension;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandshaker;
+import io.netty.handler.codec.http.websocketx.extensions.compression.DeflateFrameServerExtensionHandshaker;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.FastThreadLocal;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * permessage-deflate с однократным сжатием рассылок.
+ * <p>
+ * Рукопожатие всегда добавляет {@code server_no_context_takeover} (RFC 7692, 7.1.1.1 разрешает
+ * серверу делать это без запроса клиента). Тогда каждое сообщение — независимый deflate-поток,
+ * и кадр, сжатый один раз, корректно разжимается любым каналом с этим расширением, вперемешку
+ * с кадрами, которые канал сжимает сам. Такие каналы помечаются атрибутом {@link #ATTRIBUTE};
+ * {@link com.messenger.websocket.service.ChannelFanOut} отдаёт им готовый кадр с RSV1, и
+ * кодировщик расширения пропускает его без повторного сжатия.
+ */
+@Component
+public class BroadcastCompression {
+
+    /** Канал согласовал permessage-deflate с этим сжатием */
+    public static final AttributeKey<BroadcastCompression> ATTRIBUTE = AttributeKey.valueOf("broadcastCompression");
+
+    /** Имя, под которым {@code WebSocketServerExtensionHandler} добавляет кодировщик permessage-deflate */
+    public static final String PER_MESSAGE_DEFLATE_ENCODER =
+            "io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateEncoder";
+
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+    static final String SERVER_NO_CONTEXT = "server_no_context_takeover";
+
+    /** Хвост SYNC_FLUSH, который permessage-deflate не передаёт по сети */
+    private static final int FRAME_TAIL_LENGTH = 4;
+
+    private final int level;
+    private final int threshold;
+    private final WebSocketServerExtensionHandshaker[] handshakers;
+
+    private final FastThreadLocal<Deflater> deflaters = new FastThreadLocal<>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(level, true);
+        }
+
+        @Override
+        protected void onRemoval(Deflater deflater) {
+            deflater.end();
+        }
+    };
+
+    public BroadcastCompression(CompressionProperties properties) {
+        this.level = properties.getLevel();
+        this.threshold = properties.getThreshold();
+        WebSocketExtensionFilterProvider filters = new WebSocketExtensionFilterProvider() {
+            @Override
+            public WebSocketExtensionFilter encoderFilter() {
+                return frame -> frame.content().readableBytes() < threshold;
+            }
+
+            @Override
+            public WebSocketExtensionFilter decoderFilter() {
+                return WebSocketExtensionFilter.NEVER_SKIP;
+            }
+        };
+        this.handshakers = new WebSocketServerExtensionHandshaker[] {
+                new NoContextTakeoverHandshaker(new PerMessageDeflateServerExtensionHandshaker(
+                        level, false, PerMessageDeflateServerExtensionHandshaker.MAX_WINDOW_SIZE, true, false, filters)),
+                new DeflateFrameServerExtensionHandshaker(level, filters)
+        };
+    }
+
+    /** Рукопожатия расширений для {@code WebSocketServerExtensionHandler} */
+    public WebSocketServerExtensionHandshaker[] handshakers() {
+        return handshakers.clone();
+    }
+
+    /** Сжатие канала; {@code null} — канал не согласовал permessage-deflate */
+    public static BroadcastCompression of(Channel channel) {
+        Attribute<BroadcastCompression> attribute = channel.attr(ATTRIBUTE);
+        Object compression = attribute != null ? attribute.get() : null;
+        return compression instanceof BroadcastCompression negotiated ? negotiated : null;
+    }
+
+    /**
+     * Сжать целый текстовый или бинарный кадр в формат permessage-deflate.
+     *
+     * @return новый кадр того же типа и приоритета с RSV1; {@code null}, если кадр меньше порога,
+     *         уже сжат или сжатие не уменьшает его. Исходный кадр не освобождается.
+     */
+    public WebSocketFrame compress(WebSocketFrame frame) {
+        if (!(frame instanceof TextWebSocketFrame || frame instanceof BinaryWebSocketFrame)
+                || !frame.isFinalFragment() || frame.rsv() != 0) {
+            return null;
+        }
+        ByteBuf content = frame.content();
+        int length = content.readableBytes();
+        if (length < threshold) {
+            return null;
+        }
+
+        Deflater deflater = deflaters.get();
+        ByteBuf out = Unpooled.buffer(length + FRAME_TAIL_LENGTH);
+        try {
+            deflater.setInput(content.nioBuffer());
+            while (true) {
+                int writable = out.writableBytes();
+                if (writable == 0) {
+                    // Сжатие не окупилось
+                    out.release();
+                    return null;
+                }
+                int written = deflater.deflate(out.array(), out.arrayOffset() + out.writerIndex(), writable,
+                        Deflater.SYNC_FLUSH);
+                out.writerIndex(out.writerIndex() + written);
+                if (written < writable) {
+                    break;
+                }
+            }
+        } finally {
+            deflater.reset();
+        }
+
+        int compressedLength = out.readableBytes() - FRAME_TAIL_LENGTH;
+        if (compressedLength >= length) {
+            out.release();
+            return null;
+        }
+        out.writerIndex(compressedLength);
+        return OutboundFrame.withContent(frame, frame.rsv() | WebSocketExtension.RSV1, out);
+    }
+
+    /** permessage-deflate, где сервер всегда сжимает без context takeover */
+    private static final class NoContextTakeoverHandshaker implements WebSocketServerExtensionHandshaker {
+
+        private final PerMessageDeflateServerExtensionHandshaker delegate;
+
+        private NoContextTakeoverHandshaker(PerMessageDeflateServerExtensionHandshaker delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public WebSocketServerExtension handshakeExtension(WebSocketExtensionData extensionData) {
+            if (!PERMESSAGE_DEFLATE.equals(extensionData.name())) {
+                return null;
+            }
+            Map<String, String> parameters = new HashMap<>(extensionData.parameters());
+            parameters.put(SERVER_NO_CONTEXT, null);
+            return delegate.handshakeExtension(new WebSocketExtensionData(extensionData.name(), parameters));
+        }
+    }
+}
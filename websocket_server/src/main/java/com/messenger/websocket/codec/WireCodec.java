@@ -0,0 +1,190 @@
+package com.messenger.websocket.codec;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.messenger.websocket.model.MessageType;
+import com.messenger.websocket.model.OutboundFrame;
+import com.messenger.websocket.model.WebSocketMessage;
+import com.messenger.websocket.model.WireProtocol;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Кодирование {@link WebSocketMessage} в кадр согласованного {@link WireProtocol} и обратно.
+ * <p>
+ * JSON идёт через общий {@link ObjectMapper} приложения — ровно тот же текст, что и раньше.
+ * CBOR пропускает null-поля, пишет даты массивом чисел, а E2EE-конверт в {@code content}
+ * ({@code {"iv":"<base64>","ciphertext":"<base64>",...}}) — вложенной картой с сырыми
+ * байтами {@code iv} и {@code ciphertext}. При чтении CBOR конверт собирается обратно
+ * в JSON-строку с base64, поэтому остальной сервер и core-api видят прежний формат.
+ */
+@Component
+public class WireCodec {
+
+    static final String IV = "iv";
+    static final String CIPHERTEXT = "ciphertext";
+
+    /** Разбор и сборка E2EE-конверта; конверт не содержит дат, модули не нужны */
+    private static final ObjectMapper ENVELOPE_MAPPER = new ObjectMapper();
+
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper cborMapper;
+
+    public WireCodec(ObjectMapper jsonMapper) {
+        this.jsonMapper = jsonMapper;
+        this.cborMapper = CBORMapper.builder()
+                .addModule(new JavaTimeModule())
+                .enable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .addMixIn(WebSocketMessage.class, CborMessageMixin.class)
+                .build();
+    }
+
+    /**
+     * Закодировать сообщение (или произвольный объект уведомления) для канала с данным протоколом.
+     * Приоритет доставки берётся из типа сообщения, как в {@link OutboundFrame#of}.
+     */
+    public WebSocketFrame encode(Object payload, WireProtocol protocol) throws JsonProcessingException {
+        MessageType type = null;
+        Long userId = null;
+        Long chatId = null;
+        if (payload instanceof WebSocketMessage message) {
+            type = message.getType();
+            userId = message.getUserId();
+            chatId = message.getChatId();
+        }
+        if (protocol == WireProtocol.CBOR) {
+            return OutboundFrame.binary(cborMapper.writeValueAsBytes(payload), type, userId, chatId);
+        }
+        return OutboundFrame.of(jsonMapper.writeValueAsString(payload), type, userId, chatId);
+    }
+
+    /** Текстовый кадр читается как JSON, бинарный — как CBOR, независимо от согласованного протокола */
+    public WebSocketMessage decode(WebSocketFrame frame) throws IOException {
+        if (frame instanceof TextWebSocketFrame text) {
+            return jsonMapper.readValue(text.text(), WebSocketMessage.class);
+        }
+        if (frame instanceof BinaryWebSocketFrame) {
+            return cborMapper.readValue((InputStream) new ByteBufInputStream(frame.content()), WebSocketMessage.class);
+        }
+        throw new IllegalArgumentException("Unsupported frame: " + frame.getClass().getSimpleName());
+    }
+
+    /** Компактная форма сообщения для хранения в памяти — те же байты, что и в CBOR-кадре */
+    public byte[] toBytes(WebSocketMessage message) throws JsonProcessingException {
+        return cborMapper.writeValueAsBytes(message);
+    }
+
+    /** Обратное к {@link #toBytes(WebSocketMessage)} */
+    public WebSocketMessage fromBytes(byte[] bytes) throws IOException {
+        return cborMapper.readValue(bytes, WebSocketMessage.class);
+    }
+
+    /** Переопределения {@link WebSocketMessage} только для CBOR */
+    abstract static class CborMessageMixin {
+
+        @JsonSerialize(using = EnvelopeSerializer.class)
+        abstract String getContent();
+
+        @JsonDeserialize(using = EnvelopeDeserializer.class)
+        abstract void setContent(String content);
+    }
+
+    /** E2EE-конверт → карта с байтами; любой другой текст пишется строкой как есть */
+    static class EnvelopeSerializer extends JsonSerializer<String> {
+
+        @Override
+        public void serialize(String value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            ObjectNode envelope = parseEnvelope(value);
+            if (envelope == null) {
+                gen.writeString(value);
+                return;
+            }
+            byte[] iv;
+            byte[] ciphertext;
+            try {
+                iv = Base64.getDecoder().decode(envelope.get(IV).textValue());
+                ciphertext = Base64.getDecoder().decode(envelope.get(CIPHERTEXT).textValue());
+            } catch (IllegalArgumentException e) {
+                gen.writeString(value);
+                return;
+            }
+            gen.writeStartObject();
+            Iterator<Map.Entry<String, JsonNode>> fields = envelope.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                gen.writeFieldName(field.getKey());
+                switch (field.getKey()) {
+                    case IV -> gen.writeBinary(iv);
+                    case CIPHERTEXT -> gen.writeBinary(ciphertext);
+                    default -> gen.writeTree(field.getValue());
+                }
+            }
+            gen.writeEndObject();
+        }
+
+        private static ObjectNode parseEnvelope(String value) {
+            if (value == null || !value.startsWith("{") || !value.contains(CIPHERTEXT)) {
+                return null;
+            }
+            try {
+                JsonNode node = ENVELOPE_MAPPER.readTree(value);
+                if (node instanceof ObjectNode envelope
+                        && envelope.path(IV).isTextual() && envelope.path(CIPHERTEXT).isTextual()) {
+                    return envelope;
+                }
+            } catch (JsonProcessingException ignored) {
+                // не JSON — обычный текст
+            }
+            return null;
+        }
+    }
+
+    /** Карта с байтами → JSON-конверт с base64, как его отправил бы JSON-клиент */
+    static class EnvelopeDeserializer extends JsonDeserializer<String> {
+
+        @Override
+        public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() == JsonToken.VALUE_STRING) {
+                return p.getText();
+            }
+            if (p.currentToken() != JsonToken.START_OBJECT) {
+                return (String) ctxt.handleUnexpectedToken(String.class, p);
+            }
+            ObjectNode envelope = ENVELOPE_MAPPER.createObjectNode();
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                if (p.nextToken() == JsonToken.VALUE_EMBEDDED_OBJECT) {
+                    envelope.put(name, Base64.getEncoder().encodeToString(p.getBinaryValue()));
+                } else {
+                    envelope.set(name, ctxt.readTree(p));
+                }
+            }
+            return ENVELOPE_MAPPER.writeValueAsString(envelope);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.messenger.websocket.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Сжатие кадров permessage-deflate ({@code websocket.compression.*}).
+ * <p>
+ * Сервер всегда объявляет {@code server_no_context_takeover}: каждое сообщение сжимается
+ * независимо, поэтому кадр рассылки можно сжать один раз и отправить всем каналам.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "websocket.compression")
+public class CompressionProperties {
+
+    /** Предлагать клиентам permessage-deflate (и устаревший x-webkit-deflate-frame) */
+    private boolean enabled = true;
+
+    /** Уровень deflate, 0–9 */
+    private int level = 6;
+
+    /** Кадры меньше этого размера, байт, уходят без сжатия */
+    private int threshold = 512;
+}
@@ -0,0 +1,27 @@
+package com.messenger.websocket.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Серверные heartbeat-ы ({@code websocket.heartbeat.*}).
+ * <p>
+ * Если по каналу ничего не ходит {@code interval-ms}, сервер шлёт WebSocket Ping; браузер
+ * отвечает Pong сам. Канал, от которого ничего не пришло за {@code timeout-ms}, закрывается,
+ * и его сессия сразу уходит из {@link com.messenger.websocket.service.SessionManager}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "websocket.heartbeat")
+public class HeartbeatProperties {
+
+    /** Включить Ping от сервера и закрытие молчащих соединений */
+    private boolean enabled = true;
+
+    /** Тишина в обе стороны, после которой отправляется Ping, мс */
+    private long intervalMs = 30_000;
+
+    /** Сколько можно ничего не получать от клиента до закрытия соединения, мс */
+    private long timeoutMs = 75_000;
+}
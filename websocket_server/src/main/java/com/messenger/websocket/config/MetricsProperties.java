@@ -0,0 +1,23 @@
+package com.messenger.websocket.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Служебный HTTP-порт счётчиков ({@code websocket.metrics.*}).
+ * <p>
+ * Счётчики отдаются не на порту WebSocket: его целиком проксирует gateway как публичный {@code /ws/**}.
+ * По умолчанию порт слушает только loopback; для сбора из сети кластера задаётся {@code bind-address}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "websocket.metrics")
+public class MetricsProperties {
+
+    private boolean enabled = true;
+
+    private String bindAddress = "127.0.0.1";
+
+    private int port = 9192;
+}
@@ -0,0 +1,36 @@
+package com.messenger.websocket.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Настройки исходящей доставки кадров клиентам ({@code websocket.outbound.*}).
+ * <p>
+ * Водяные знаки ограничивают буфер Netty на канал; всё, что не помещается в него,
+ * ждёт в ограниченной очереди сессии. Клиент, который не разгребает очередь
+ * дольше {@code unwritable-timeout-ms}, отключается.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "websocket.outbound")
+public class OutboundProperties {
+
+    /** Нижний водяной знак буфера канала, байт: ниже него канал снова становится writable */
+    private int lowWaterMark = 32 * 1024;
+
+    /** Верхний водяной знак буфера канала, байт: выше него канал становится unwritable */
+    private int highWaterMark = 64 * 1024;
+
+    /** Максимум кадров в очереди одной сессии */
+    private int maxQueuedFrames = 256;
+
+    /** Максимум байт в очереди одной сессии */
+    private int maxQueuedBytes = 1024 * 1024;
+
+    /** Сколько канал может оставаться unwritable до принудительного отключения */
+    private long unwritableTimeoutMs = 30_000;
+
+    /** Во время чтения flush откладывается до конца пачки, но не больше чем на столько вызовов */
+    private int explicitFlushAfterFlushes = 256;
+}
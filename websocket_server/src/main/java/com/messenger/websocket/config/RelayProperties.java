@@ -0,0 +1,45 @@
+package com.messenger.websocket.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Межузловые каналы websocket-server ({@code websocket.relay.*}).
+ * <p>
+ * {@code topic} — эфемерные события без гарантий доставки ({@code acks=0}, без повторов):
+ * сюда идёт только то, что не жалко потерять. {@code signaling-topic} — сигналинг звонков
+ * с подтверждением записи и повторами. Каждый узел читает все партиции обоих топиков
+ * без consumer group, только новые записи.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "websocket.relay")
+public class RelayProperties {
+
+    /** Пересылать эфемерные события другим узлам */
+    private boolean enabled = true;
+
+    /** Топик эфемерных событий */
+    private String topic = "websocket-relay";
+
+    /** Топик сигналинга звонков */
+    private String signalingTopic = "websocket-signaling";
+
+    /** Повторов записи кадра сигналинга */
+    private int signalingRetries = 5;
+
+    /** Сколько кадр сигналинга может ждать подтверждения с учётом повторов, мс: позже он уже не нужен звонку */
+    private int signalingDeliveryTimeoutMs = 10_000;
+
+    /** Идентификатор узла; по умолчанию случайный на каждый запуск */
+    private String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * Период рассылки снимка подключённых пользователей и резервирований звонков узла;
+     * чужая запись без подтверждения забывается через три периода
+     */
+    private long presenceIntervalMs = 10_000;
+}
@@ -0,0 +1,29 @@
+package com.messenger.websocket.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Буфер повторной доставки для возобновления сессии ({@code websocket.replay.*}).
+ * <p>
+ * На каждого пользователя хранится ограниченное кольцо последних событий чатов в компактном
+ * CBOR. Клиент, переподключившийся в пределах {@code retention-ms}, получает только пропущенное.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "websocket.replay")
+public class ReplayProperties {
+
+    /** Записывать события и принимать {@code resume} при подключении */
+    private boolean enabled = true;
+
+    /** Максимум событий в кольце одного пользователя */
+    private int capacity = 256;
+
+    /** Максимум байт в кольце одного пользователя */
+    private int maxBytes = 256 * 1024;
+
+    /** Сколько кольцо отключившегося пользователя ждёт переподключения, мс */
+    private long retentionMs = 120_000;
+}
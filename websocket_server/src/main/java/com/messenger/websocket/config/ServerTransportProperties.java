@@ -0,0 +1,42 @@
+package com.messenger.websocket.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Транспорт и сокетные опции Netty-сервера ({@code websocket.server.*}).
+ * <p>
+ * Нулевые значения потоков и буферов означают «по умолчанию»: 2 × ядра для worker-группы
+ * и размеры буферов ядра ОС.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "websocket.server")
+public class ServerTransportProperties {
+
+    /** Предпочитаемый транспорт */
+    public enum Transport { AUTO, EPOLL, NIO }
+
+    private Transport transport = Transport.AUTO;
+
+    /** Количество слушающих сокетов на порту; больше одного — только с SO_REUSEPORT (epoll) */
+    private int acceptors = 1;
+
+    /** Потоки worker-группы (0 — по умолчанию Netty) */
+    private int workerThreads = 0;
+
+    /** SO_REUSEPORT: несколько acceptor-потоков или процессов делят один порт (только epoll) */
+    private boolean reusePort = true;
+
+    private boolean tcpNoDelay = true;
+
+    /** Длина очереди входящих соединений (SO_BACKLOG) */
+    private int backlog = 1024;
+
+    /** SO_SNDBUF, байт (0 — не задавать) */
+    private int sendBufferSize = 0;
+
+    /** SO_RCVBUF, байт (0 — не задавать) */
+    private int receiveBufferSize = 0;
+}
@@ -0,0 +1,34 @@
+package com.messenger.websocket.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Временные TURN credentials для WebRTC ({@code turn.*}, как в core-api-service).
+ * <p>
+ * Выдаются в AUTH_SUCCESS по той же схеме coturn {@code use-auth-secret}: username —
+ * {@code <expiry>:<login>}, credential — Base64(HMAC-SHA1(secret, username)). За
+ * {@code refresh-before-seconds} до истечения сервер сам присылает новые в TURN_CREDENTIALS.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "turn")
+public class TurnProperties {
+
+    /** Выдавать credentials через WebSocket */
+    private boolean enabled = true;
+
+    /** Должен совпадать с static-auth-secret в coturn/turnserver.conf */
+    private String secret = "TURN_SECRET_CHANGE_ME_IN_PROD_9911";
+
+    private String host = "localhost";
+
+    private int port = 3478;
+
+    /** Срок действия credentials, с */
+    private long ttlSeconds = 86_400;
+
+    /** За сколько секунд до истечения прислать новые */
+    private long refreshBeforeSeconds = 3_600;
+}
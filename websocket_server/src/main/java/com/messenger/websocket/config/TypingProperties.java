@@ -0,0 +1,31 @@
+package com.messenger.websocket.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Индикатор набора текста ({@code websocket.typing.*}).
+ * <p>
+ * TYPING_START / TYPING_STOP не пишутся ни в Kafka сообщений, ни в БД и не попадают в буфер
+ * возобновления. Клиент может слать START на каждое нажатие клавиши — сервер пропускает
+ * не больше одного START на пользователя и чат за {@code throttle-ms}; клиенты-получатели
+ * гасят индикатор сами, если START не повторился примерно за два таких окна.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "websocket.typing")
+public class TypingProperties {
+
+    /** Принимать и рассылать события набора */
+    private boolean enabled = true;
+
+    /** Минимальный интервал между рассылаемыми START одного пользователя в чате, мс */
+    private long throttleMs = 3_000;
+
+    /** Потоки для запроса участников чата в core-api при промахе кэша — вне event loop Netty */
+    private int lookupThreads = 2;
+
+    /** Событий, ждущих запроса участников; сверх лимита события набора отбрасываются */
+    private int lookupQueueCapacity = 1_024;
+}
@@ -8,10 +8,19 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.KafkaTemplate;
+import com.messenger.websocket.codec.BroadcastCompression;
+import com.messenger.websocket.codec.WireCodec;
+import com.messenger.websocket.metrics.CallMetrics;
+import com.messenger.websocket.metrics.OutboundMetrics;
+import com.messenger.websocket.relay.NodeRelay;
+import com.messenger.websocket.relay.SignalingChannel;
 import com.messenger.websocket.service.CallSessionManager;
 import com.messenger.websocket.service.JwtAuthService;
 import com.messenger.websocket.service.MessageForwardService;
 import com.messenger.websocket.service.SessionManager;
+import com.messenger.websocket.service.SignalingRelay;
+import com.messenger.websocket.service.TurnCredentialsIssuer;
+import com.messenger.websocket.service.TypingService;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
@@ -32,6 +41,48 @@ public class WebSocketConfig {
     @Autowired
     private MessageForwardService messageForwardService;
 
+    @Autowired
+    private OutboundProperties outboundProperties;
+
+    @Autowired
+    private OutboundMetrics outboundMetrics;
+
+    @Autowired
+    private ServerTransportProperties transportProperties;
+
+    @Autowired
+    private WireCodec wireCodec;
+
+    @Autowired
+    private CompressionProperties compressionProperties;
+
+    @Autowired
+    private BroadcastCompression broadcastCompression;
+
+    @Autowired
+    private HeartbeatProperties heartbeatProperties;
+
+    @Autowired
+    private CallMetrics callMetrics;
+
+    @Autowired
+    private TypingService typingService;
+
+    @Autowired
+    private SignalingRelay signalingRelay;
+
+    @Autowired
+    private TurnCredentialsIssuer turnCredentialsIssuer;
+
+    @Autowired
+    private NodeRelay nodeRelay;
+
+    @Autowired
+    private SignalingChannel signalingChannel;
+
+    @Autowired
+    private MetricsProperties metricsProperties;
+
     private com.messenger.websocket.WebSocketServer webSocketServer;
     private Thread webSocketThread;
 
@@ -49,8 +100,8 @@ public class WebSocketConfig {
     }
 
     @Bean
-    public CallSessionManager callSessionManager(SessionManager sessionManager) {
-        return new CallSessionManager(sessionManager);
+    public CallSessionManager callSessionManager(SessionManager sessionManager, CallMetrics callMetrics) {
+        return new CallSessionManager(sessionManager, callMetrics);
     }
 
     @PostConstruct
@@ -61,7 +112,9 @@ public class WebSocketConfig {
             SessionManager sm = sessionManager();
             webSocketServer = new com.messenger.websocket.WebSocketServer(
                     webSocketPort, jwtAuthService, objectMapper(), kafkaTemplate,
-                    sm, callSessionManager(sm));
+                    sm, callSessionManager(sm, callMetrics), outboundProperties, outboundMetrics, transportProperties,
+                    wireCodec, compressionProperties, broadcastCompression, heartbeatProperties,
+                    typingService, signalingRelay, turnCredentialsIssuer, metricsProperties);
 
             webSocketThread = new Thread(() -> {
                 try {
@@ -79,6 +132,8 @@ public class WebSocketConfig {
             webSocketThread.start();
 
             messageForwardService.startListening();
+            nodeRelay.start();
+            signalingChannel.start();
 
             log.info("[CONFIG] WebSocket server started on port {}", webSocketPort);
 
@@ -100,6 +155,22 @@ public class WebSocketConfig {
             }
         }
 
+        if (nodeRelay != null) {
+            try {
+                nodeRelay.stop();
+            } catch (Exception e) {
+                log.error("[CONFIG] Error stopping NodeRelay", e);
+            }
+        }
+
+        if (signalingChannel != null) {
+            try {
+                signalingChannel.stop();
+            } catch (Exception e) {
+                log.error("[CONFIG] Error stopping SignalingChannel", e);
+            }
+        }
+
         if (webSocketServer != null) {
             try {
                 webSocketServer.stop();
@@ -0,0 +1,33 @@
+package com.messenger.websocket.handler;
+
+import com.messenger.websocket.codec.BroadcastCompression;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+
+/**
+ * После рукопожатия помечает канал {@link BroadcastCompression#ATTRIBUTE}, если клиент согласовал
+ * permessage-deflate, и убирает себя из pipeline.
+ * <p>
+ * Кодировщик расширения добавляется в pipeline до события {@code HandshakeComplete},
+ * поэтому к этому моменту его уже видно.
+ */
+public class DeflateNegotiationHandler extends ChannelInboundHandlerAdapter {
+
+    private final BroadcastCompression compression;
+
+    public DeflateNegotiationHandler(BroadcastCompression compression) {
+        this.compression = compression;
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof WebSocketServerProtocolHandler.HandshakeComplete) {
+            if (ctx.pipeline().get(BroadcastCompression.PER_MESSAGE_DEFLATE_ENCODER) != null) {
+                ctx.channel().attr(BroadcastCompression.ATTRIBUTE).set(compression);
+            }
+            ctx.pipeline().remove(this);
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+}
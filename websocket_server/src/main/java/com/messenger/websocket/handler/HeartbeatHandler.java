@@ -0,0 +1,48 @@
+package com.messenger.websocket.handler;
+
+import com.messenger.websocket.metrics.OutboundMetrics;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Реакция на события {@link io.netty.handler.timeout.IdleStateHandler}.
+ * <p>
+ * {@code ALL_IDLE} — после рукопожатия отправляется WebSocket Ping; Pong от клиента
+ * поглощает {@link WebSocketServerProtocolHandler}, а сам факт чтения сбрасывает таймер.
+ * {@code READER_IDLE} — клиент молчит дольше таймаута, соединение считается полуоткрытым
+ * и закрывается; сессию удаляет {@link WebSocketFrameHandler#channelInactive}.
+ */
+@Slf4j
+public class HeartbeatHandler extends ChannelInboundHandlerAdapter {
+
+    private final OutboundMetrics metrics;
+    private boolean handshakeComplete;
+
+    public HeartbeatHandler(OutboundMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof WebSocketServerProtocolHandler.HandshakeComplete) {
+            handshakeComplete = true;
+        } else if (evt instanceof IdleStateEvent idle) {
+            if (idle.state() == IdleState.READER_IDLE) {
+                log.info("[HEARTBEAT] No data from {}, closing idle connection", ctx.channel().id().asShortText());
+                metrics.idleDisconnected();
+                ctx.close();
+            } else if (idle.state() == IdleState.ALL_IDLE && handshakeComplete) {
+                ctx.writeAndFlush(new PingWebSocketFrame())
+                        .addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+            }
+            return;
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+}
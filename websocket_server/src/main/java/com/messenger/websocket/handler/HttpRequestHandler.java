@@ -13,6 +13,7 @@ import java.util.List;
 public class HttpRequestHandler extends ChannelInboundHandlerAdapter {
 
     public static final AttributeKey<String> TOKEN_ATTRIBUTE = AttributeKey.valueOf("token");
+    public static final AttributeKey<String> RESUME_ATTRIBUTE = AttributeKey.valueOf("resume");
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
@@ -41,6 +42,12 @@ public class HttpRequestHandler extends ChannelInboundHandlerAdapter {
                 log.warn("HttpRequestHandler: No token found in WebSocket connection request URI: {}", uri);
                 log.warn("HttpRequestHandler: Available query parameters: {}", decoder.parameters().keySet());
             }
+
+            // Токен возобновления сессии: после авторизации досылаются только пропущенные события
+            List<String> resumeParams = decoder.parameters().get("resume");
+            if (resumeParams != null && !resumeParams.isEmpty()) {
+                ctx.channel().attr(RESUME_ATTRIBUTE).set(resumeParams.get(0));
+            }
         }
 
         // Всегда передаем сообщение дальше
@@ -0,0 +1,76 @@
+package com.messenger.websocket.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.messenger.websocket.config.MetricsProperties;
+import com.messenger.websocket.metrics.CallMetrics;
+import com.messenger.websocket.metrics.OutboundMetrics;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.util.ReferenceCountUtil;
+
+import java.util.Map;
+
+/**
+ * Отдаёт счётчики исходящих очередей по {@code GET /metrics/outbound} и звонков по {@code GET /metrics/calls}.
+ * <p>
+ * Стоит только в конвейере служебного порта {@code websocket.metrics.port} (см. {@link MetricsProperties}):
+ * порт WebSocket gateway проксирует публично как {@code /ws/**}. Остальные запросы получают 404.
+ */
+public class MetricsRequestHandler extends ChannelInboundHandlerAdapter {
+
+    public static final String OUTBOUND_METRICS_PATH = "/metrics/outbound";
+    public static final String CALL_METRICS_PATH = "/metrics/calls";
+
+    private final OutboundMetrics metrics;
+    private final CallMetrics callMetrics;
+    private final ObjectMapper objectMapper;
+
+    public MetricsRequestHandler(OutboundMetrics metrics, CallMetrics callMetrics, ObjectMapper objectMapper) {
+        this.metrics = metrics;
+        this.callMetrics = callMetrics;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!(msg instanceof FullHttpRequest request)) {
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+        Map<String, Long> snapshot = HttpMethod.GET.equals(request.method())
+                ? snapshotFor(new QueryStringDecoder(request.uri()).path())
+                : null;
+        request.release();
+        FullHttpResponse response;
+        if (snapshot != null) {
+            response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                    Unpooled.wrappedBuffer(objectMapper.writeValueAsBytes(snapshot)));
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON);
+        } else {
+            response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_FOUND);
+        }
+        response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
+
+    private Map<String, Long> snapshotFor(String path) {
+        if (OUTBOUND_METRICS_PATH.equals(path)) {
+            return metrics.snapshot();
+        }
+        if (CALL_METRICS_PATH.equals(path)) {
+            return callMetrics.snapshot();
+        }
+        return null;
+    }
+}
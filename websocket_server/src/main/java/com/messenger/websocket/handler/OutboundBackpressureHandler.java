@@ -0,0 +1,248 @@
+package com.messenger.websocket.handler;
+
+import com.messenger.websocket.config.OutboundProperties;
+import com.messenger.websocket.metrics.OutboundMetrics;
+import com.messenger.websocket.model.OutboundFrame;
+import com.messenger.websocket.model.PrioritizedFrame;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограниченная исходящая очередь сессии.
+ * <p>
+ * Пока канал writable, кадры уходят в буфер Netty напрямую. Когда буфер выше верхнего
+ * водяного знака, кадры ждут здесь и отправляются по {@code channelWritabilityChanged}.
+ * При переполнении очереди первыми выбрасываются кадры {@link OutboundFrame.Priority#LOW};
+ * если выбросить нечего, клиент отключается как медленный потребитель. Клиент, остающийся
+ * unwritable дольше таймаута, тоже отключается.
+ * <p>
+ * Стоит в pipeline перед {@link WebSocketFrameHandler}, поэтому через него проходят и
+ * {@code channel.writeAndFlush(..)} из сервисов, и {@code ctx.writeAndFlush(..)} из обработчиков.
+ * Все поля трогаются только из event loop канала.
+ */
+@Slf4j
+public class OutboundBackpressureHandler extends ChannelDuplexHandler {
+
+    private final int maxQueuedFrames;
+    private final int maxQueuedBytes;
+    private final long unwritableTimeoutMs;
+    private final OutboundMetrics metrics;
+
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private final Map<String, Pending> coalescing = new HashMap<>();
+    private int queuedBytes;
+    private ScheduledFuture<?> unwritableTimeout;
+
+    public OutboundBackpressureHandler(OutboundProperties properties, OutboundMetrics metrics) {
+        this.maxQueuedFrames = properties.getMaxQueuedFrames();
+        this.maxQueuedBytes = properties.getMaxQueuedBytes();
+        this.unwritableTimeoutMs = properties.getUnwritableTimeoutMs();
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (!(msg instanceof WebSocketFrame frame)) {
+            ctx.write(msg, promise);
+            return;
+        }
+        if (queue.isEmpty() && ctx.channel().isWritable()) {
+            ctx.write(msg, promise);
+            return;
+        }
+        enqueue(ctx, frame, promise);
+        if (ctx.channel().isWritable()) {
+            drain(ctx);
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            cancelUnwritableTimeout();
+            drain(ctx);
+        } else {
+            scheduleUnwritableTimeout(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        discardAll();
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        discardAll();
+    }
+
+    int getQueuedFrames() {
+        return queue.size();
+    }
+
+    private void enqueue(ChannelHandlerContext ctx, WebSocketFrame frame, ChannelPromise promise) {
+        OutboundFrame.Priority priority = frame instanceof PrioritizedFrame prioritized
+                ? prioritized.getPriority() : OutboundFrame.Priority.NORMAL;
+        String coalesceKey = frame instanceof PrioritizedFrame prioritized ? prioritized.getCoalesceKey() : null;
+        int bytes = frame.content().readableBytes();
+
+        if (coalesceKey != null) {
+            Pending existing = coalescing.get(coalesceKey);
+            if (existing != null) {
+                // Более новое состояние заменяет ожидающее, место в очереди сохраняется
+                queuedBytes += bytes - existing.bytes;
+                metrics.frameDequeued(existing.bytes);
+                metrics.frameQueued(bytes, queue.size());
+                metrics.frameCoalesced();
+                existing.frame.release();
+                existing.promise.trySuccess();
+                existing.frame = frame;
+                existing.promise = promise;
+                existing.bytes = bytes;
+                return;
+            }
+        }
+
+        while (queue.size() >= maxQueuedFrames || (!queue.isEmpty() && queuedBytes + bytes > maxQueuedBytes)) {
+            if (evictLowPriority()) {
+                continue;
+            }
+            if (priority == OutboundFrame.Priority.LOW) {
+                metrics.lowPriorityDropped();
+                frame.release();
+                promise.tryFailure(new FrameDroppedException("Outbound queue is full"));
+                return;
+            }
+            log.warn("[OUTBOUND] Queue overflow for channel {} ({} frames, {} bytes), disconnecting slow consumer",
+                    ctx.channel().id().asShortText(), queue.size(), queuedBytes);
+            metrics.slowConsumerDisconnected();
+            frame.release();
+            promise.tryFailure(new FrameDroppedException("Slow consumer disconnected"));
+            ctx.close();
+            return;
+        }
+
+        Pending pending = new Pending(frame, promise, priority, coalesceKey, bytes);
+        queue.addLast(pending);
+        queuedBytes += bytes;
+        if (coalesceKey != null) {
+            coalescing.put(coalesceKey, pending);
+        }
+        metrics.frameQueued(bytes, queue.size());
+    }
+
+    private boolean evictLowPriority() {
+        Iterator<Pending> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            Pending pending = iterator.next();
+            if (pending.priority == OutboundFrame.Priority.LOW) {
+                iterator.remove();
+                forget(pending);
+                metrics.lowPriorityDropped();
+                pending.frame.release();
+                pending.promise.tryFailure(new FrameDroppedException("Evicted by higher priority frame"));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void drain(ChannelHandlerContext ctx) {
+        boolean written = false;
+        while (ctx.channel().isWritable()) {
+            Pending pending = queue.pollFirst();
+            if (pending == null) {
+                break;
+            }
+            forget(pending);
+            ctx.write(pending.frame, pending.promise);
+            written = true;
+        }
+        if (written) {
+            // Событие writability приходит изнутри flush канала, где повторный flush игнорируется
+            ctx.executor().execute(ctx::flush);
+        }
+    }
+
+    private void forget(Pending pending) {
+        queuedBytes -= pending.bytes;
+        metrics.frameDequeued(pending.bytes);
+        if (pending.coalesceKey != null) {
+            coalescing.remove(pending.coalesceKey, pending);
+        }
+    }
+
+    private void discardAll() {
+        cancelUnwritableTimeout();
+        if (queue.isEmpty()) {
+            return;
+        }
+        metrics.droppedOnClose(queue.size());
+        ClosedChannelException cause = new ClosedChannelException();
+        Pending pending;
+        while ((pending = queue.pollFirst()) != null) {
+            forget(pending);
+            pending.frame.release();
+            pending.promise.tryFailure(cause);
+        }
+    }
+
+    private void scheduleUnwritableTimeout(ChannelHandlerContext ctx) {
+        if (unwritableTimeout != null || unwritableTimeoutMs <= 0) {
+            return;
+        }
+        unwritableTimeout = ctx.executor().schedule(() -> {
+            unwritableTimeout = null;
+            if (ctx.channel().isActive() && !ctx.channel().isWritable()) {
+                log.warn("[OUTBOUND] Channel {} unwritable for {}ms, disconnecting slow consumer",
+                        ctx.channel().id().asShortText(), unwritableTimeoutMs);
+                metrics.slowConsumerDisconnected();
+                ctx.close();
+            }
+        }, unwritableTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelUnwritableTimeout() {
+        if (unwritableTimeout != null) {
+            unwritableTimeout.cancel(false);
+            unwritableTimeout = null;
+        }
+    }
+
+    private static final class Pending {
+        private WebSocketFrame frame;
+        private ChannelPromise promise;
+        private int bytes;
+        private final OutboundFrame.Priority priority;
+        private final String coalesceKey;
+
+        private Pending(WebSocketFrame frame, ChannelPromise promise, OutboundFrame.Priority priority,
+                        String coalesceKey, int bytes) {
+            this.frame = frame;
+            this.promise = promise;
+            this.priority = priority;
+            this.coalesceKey = coalesceKey;
+            this.bytes = bytes;
+        }
+    }
+
+    /** Кадр не доставлен: вытеснен из переполненной очереди */
+    public static final class FrameDroppedException extends RuntimeException {
+        public FrameDroppedException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
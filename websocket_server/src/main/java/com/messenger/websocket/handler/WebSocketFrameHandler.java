@@ -1,14 +1,20 @@
 package com.messenger.websocket.handler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.messenger.websocket.codec.WireCodec;
 import com.messenger.websocket.handler.message.*;
 import com.messenger.websocket.model.MessageType;
 import com.messenger.websocket.model.WebSocketMessage;
+import com.messenger.websocket.model.WireProtocol;
 import com.messenger.websocket.service.CallSessionManager;
 import com.messenger.websocket.service.JwtAuthService;
 import com.messenger.websocket.service.SessionManager;
+import com.messenger.websocket.service.SignalingRelay;
+import com.messenger.websocket.service.TurnCredentialsIssuer;
+import com.messenger.websocket.service.TypingService;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.WebSocketFrame;
 import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
@@ -17,6 +23,8 @@ import org.springframework.kafka.core.KafkaTemplate;
 
 import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
@@ -26,6 +34,12 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
     private final SessionManager sessionManager;
     private final KafkaTemplate<String, String> kafkaTemplate;
     private final CallSessionManager callSessionManager;
+    private final WireCodec wireCodec;
+    private final TypingService typingService;
+    private final SignalingRelay signalingRelay;
+    private final TurnCredentialsIssuer turnCredentialsIssuer;
+    /** Следующее обновление TURN credentials этого канала */
+    private ScheduledFuture<?> turnRefresh;
 
     /** Registry: тип сообщения → обработчик */
     private final Map<MessageType, MessageHandler> handlers = new EnumMap<>(MessageType.class);
@@ -35,19 +49,45 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
                                   SessionManager sessionManager,
                                   KafkaTemplate<String, String> kafkaTemplate,
                                   CallSessionManager callSessionManager) {
+        this(jwtAuthService, objectMapper, sessionManager, kafkaTemplate, callSessionManager, new WireCodec(objectMapper));
+    }
+
+    public WebSocketFrameHandler(JwtAuthService jwtAuthService,
+                                  ObjectMapper objectMapper,
+                                  SessionManager sessionManager,
+                                  KafkaTemplate<String, String> kafkaTemplate,
+                                  CallSessionManager callSessionManager,
+                                  WireCodec wireCodec) {
+        this(jwtAuthService, objectMapper, sessionManager, kafkaTemplate, callSessionManager, wireCodec,
+                null, null, null);
+    }
+
+    public WebSocketFrameHandler(JwtAuthService jwtAuthService,
+                                  ObjectMapper objectMapper,
+                                  SessionManager sessionManager,
+                                  KafkaTemplate<String, String> kafkaTemplate,
+                                  CallSessionManager callSessionManager,
+                                  WireCodec wireCodec,
+                                  TypingService typingService,
+                                  SignalingRelay signalingRelay,
+                                  TurnCredentialsIssuer turnCredentialsIssuer) {
         this.jwtAuthService     = jwtAuthService;
         this.objectMapper       = objectMapper;
         this.sessionManager     = sessionManager;
         this.kafkaTemplate      = kafkaTemplate;
         this.callSessionManager = callSessionManager;
+        this.wireCodec          = wireCodec;
+        this.typingService      = typingService;
+        this.signalingRelay     = signalingRelay;
+        this.turnCredentialsIssuer = turnCredentialsIssuer;
         registerHandlers();
     }
 
     private void registerHandlers() {
-        AuthMessageHandler     auth      = new AuthMessageHandler(jwtAuthService, sessionManager, objectMapper);
+        AuthMessageHandler     auth      = new AuthMessageHandler(jwtAuthService, sessionManager);
         ChatMessageHandler     chat      = new ChatMessageHandler(sessionManager, kafkaTemplate, objectMapper);
-        PingMessageHandler     ping      = new PingMessageHandler(objectMapper);
-        SignalingMessageHandler signaling = new SignalingMessageHandler(sessionManager, callSessionManager, objectMapper);
+        PingMessageHandler     ping      = new PingMessageHandler();
+        SignalingMessageHandler signaling = new SignalingMessageHandler(sessionManager, callSessionManager, signalingRelay);
 
         handlers.put(MessageType.AUTH,          auth);
         handlers.put(MessageType.CHAT_MESSAGE,  chat);
@@ -57,8 +97,16 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
         handlers.put(MessageType.CALL_OFFER,    signaling);
         handlers.put(MessageType.CALL_ANSWER,   signaling);
         handlers.put(MessageType.ICE_CANDIDATE, signaling);
+        handlers.put(MessageType.ICE_CANDIDATES, signaling);
         handlers.put(MessageType.CALL_REJECT,   signaling);
         handlers.put(MessageType.CALL_END,      signaling);
+
+        // Эфемерный индикатор набора
+        if (typingService != null) {
+            TypingMessageHandler typing = new TypingMessageHandler(sessionManager, typingService);
+            handlers.put(MessageType.TYPING_START, typing);
+            handlers.put(MessageType.TYPING_STOP,  typing);
+        }
     }
 
     // ──────────────────────────────────────────────────────────────────────────
@@ -67,13 +115,19 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, WebSocketFrame frame) throws Exception {
-        if (!(frame instanceof TextWebSocketFrame)) return;
-
-        String request = ((TextWebSocketFrame) frame).text();
-        log.info("[WS] Received from {}: {}", ctx.channel().id().asShortText(), request);
+        if (!(frame instanceof TextWebSocketFrame) && !(frame instanceof BinaryWebSocketFrame)) return;
 
         try {
-            WebSocketMessage message = objectMapper.readValue(request, WebSocketMessage.class);
+            WebSocketMessage message;
+            if (frame instanceof TextWebSocketFrame textFrame) {
+                String request = textFrame.text();
+                log.debug("[WS] Received from {}: {}", ctx.channel().id().asShortText(), request);
+                message = objectMapper.readValue(request, WebSocketMessage.class);
+            } else {
+                log.debug("[WS] Received {} bytes of CBOR from {}",
+                        frame.content().readableBytes(), ctx.channel().id().asShortText());
+                message = wireCodec.decode(frame);
+            }
             dispatch(ctx, message);
         } catch (Exception e) {
             log.error("[WS] Parse error from {}: {}", ctx.channel().id().asShortText(), e.getMessage());
@@ -89,8 +143,12 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
 
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
-        if (evt == WebSocketServerProtocolHandler.ServerHandshakeStateEvent.HANDSHAKE_COMPLETE) {
-            log.info("[WS] Handshake complete for channel: {}", ctx.channel().id());
+        // Событие с выбранным subprotocol приходит сразу после HANDSHAKE_COMPLETE; авторизуемся по нему,
+        // чтобы AUTH_SUCCESS уже ушёл в согласованном формате
+        if (evt instanceof WebSocketServerProtocolHandler.HandshakeComplete handshake) {
+            WireProtocol protocol = WireProtocol.fromSubprotocol(handshake.selectedSubprotocol());
+            ctx.channel().attr(WireProtocol.ATTRIBUTE).set(protocol);
+            log.info("[WS] Handshake complete for channel: {} (protocol: {})", ctx.channel().id(), protocol);
             String token = ctx.channel().attr(HttpRequestHandler.TOKEN_ATTRIBUTE).get();
             if (token != null) {
                 authenticateWithToken(ctx, token);
@@ -106,6 +164,9 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         log.info("[WS] Connection closed: {}", ctx.channel().id());
+        if (turnRefresh != null) {
+            turnRefresh.cancel(false);
+        }
         sessionManager.removeSession(ctx.channel().id().asShortText());
         super.channelInactive(ctx);
     }
@@ -159,8 +220,21 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
         authOk.setContent("Authentication successful");
         authOk.setUserId(userId);
         authOk.setUsername(username);
+        // Выдаётся после регистрации сессии: всё, что новее токена, она уже получает вживую
+        String issuedToken = sessionManager.currentResumeToken();
+        authOk.setResumeToken(issuedToken);
+        if (turnCredentialsIssuer != null && turnCredentialsIssuer.isEnabled()) {
+            // Клиенту не нужен отдельный запрос к REST перед первым звонком
+            authOk.setTurn(turnCredentialsIssuer.issue(username));
+            scheduleTurnRefresh(ctx, username);
+        }
         sendMessage(ctx, authOk);
 
+        String resumeToken = ctx.channel().attr(HttpRequestHandler.RESUME_ATTRIBUTE).get();
+        if (resumeToken != null) {
+            resume(ctx, userId, resumeToken, issuedToken);
+        }
+
         WebSocketMessage connected = new WebSocketMessage();
         connected.setType(MessageType.SYSTEM_MESSAGE);
         connected.setContent("CONNECTED");
@@ -171,12 +245,36 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
         log.info("[AUTH] User {} (ID: {}) authenticated via URL token", username, userId);
     }
 
+    /**
+     * Дослать события, пропущенные за время обрыва. Если это невозможно, клиент получает
+     * RESYNC_REQUIRED и перезагружает чаты через REST, как при первом подключении.
+     */
+    private void resume(ChannelHandlerContext ctx, Long userId, String resumeToken, String issuedToken) {
+        int replayed = sessionManager.resumeSession(userId, resumeToken, issuedToken, ctx.channel());
+        WebSocketMessage status = new WebSocketMessage();
+        status.setType(MessageType.SYSTEM_MESSAGE);
+        status.setContent(replayed >= 0 ? "RESUMED" : "RESYNC_REQUIRED");
+        status.setUserId(userId);
+        sendMessage(ctx, status);
+    }
+
+    /** Прислать новые TURN credentials незадолго до истечения текущих */
+    private void scheduleTurnRefresh(ChannelHandlerContext ctx, String username) {
+        turnRefresh = ctx.executor().schedule(() -> {
+            if (!ctx.channel().isActive()) {
+                return;
+            }
+            WebSocketMessage refresh = new WebSocketMessage();
+            refresh.setType(MessageType.TURN_CREDENTIALS);
+            refresh.setTurn(turnCredentialsIssuer.issue(username));
+            sendMessage(ctx, refresh);
+            scheduleTurnRefresh(ctx, username);
+        }, turnCredentialsIssuer.refreshDelaySeconds(), TimeUnit.SECONDS);
+    }
+
+    /** Кодируется в формат канала в {@link WireMessageEncoder} */
     private void sendMessage(ChannelHandlerContext ctx, WebSocketMessage message) {
-        try {
-            ctx.writeAndFlush(new TextWebSocketFrame(objectMapper.writeValueAsString(message)));
-        } catch (Exception e) {
-            log.error("[WS] Error sending message: {}", e.getMessage());
-        }
+        ctx.writeAndFlush(message);
     }
 
     private void sendError(ChannelHandlerContext ctx, String error) {
@@ -0,0 +1,31 @@
+package com.messenger.websocket.handler;
+
+import com.messenger.websocket.codec.WireCodec;
+import com.messenger.websocket.model.WebSocketMessage;
+import com.messenger.websocket.model.WireProtocol;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageEncoder;
+
+import java.util.List;
+
+/**
+ * Превращает исходящий {@link WebSocketMessage} в кадр протокола, согласованного для канала.
+ * <p>
+ * Обработчики сообщений пишут в {@code ctx} сами объекты и не знают о формате на проводе.
+ * Готовые кадры (например, от рассылок) проходят мимо без изменений.
+ */
+@ChannelHandler.Sharable
+public class WireMessageEncoder extends MessageToMessageEncoder<WebSocketMessage> {
+
+    private final WireCodec wireCodec;
+
+    public WireMessageEncoder(WireCodec wireCodec) {
+        this.wireCodec = wireCodec;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, WebSocketMessage message, List<Object> out) throws Exception {
+        out.add(wireCodec.encode(message, WireProtocol.of(ctx.channel())));
+    }
+}
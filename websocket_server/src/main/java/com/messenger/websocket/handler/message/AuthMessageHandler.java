@@ -5,8 +5,6 @@ import com.messenger.websocket.model.WebSocketMessage;
 import com.messenger.websocket.service.JwtAuthService;
 import com.messenger.websocket.service.SessionManager;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -16,7 +14,6 @@ public class AuthMessageHandler implements MessageHandler {
 
     private final JwtAuthService jwtAuthService;
     private final SessionManager sessionManager;
-    private final ObjectMapper objectMapper;
 
     @Override
     public void handle(ChannelHandlerContext ctx, WebSocketMessage message) {
@@ -53,12 +50,9 @@ public class AuthMessageHandler implements MessageHandler {
         log.info("[AUTH] User {} (ID: {}) authenticated via message", username, userId);
     }
 
+    /** Сообщение кодируется в формат канала в {@code WireMessageEncoder} */
     private void send(ChannelHandlerContext ctx, WebSocketMessage msg) {
-        try {
-            ctx.writeAndFlush(new TextWebSocketFrame(objectMapper.writeValueAsString(msg)));
-        } catch (Exception e) {
-            log.error("Error sending message: {}", e.getMessage());
-        }
+        ctx.writeAndFlush(msg);
     }
 
     private void sendError(ChannelHandlerContext ctx, String error) {
@@ -5,7 +5,6 @@ import com.messenger.websocket.model.MessageType;
 import com.messenger.websocket.model.WebSocketMessage;
 import com.messenger.websocket.service.SessionManager;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.core.KafkaTemplate;
@@ -67,12 +66,9 @@ public class ChatMessageHandler implements MessageHandler {
         }
     }
 
+    /** Сообщение кодируется в формат канала в {@code WireMessageEncoder} */
     private void send(ChannelHandlerContext ctx, WebSocketMessage msg) {
-        try {
-            ctx.writeAndFlush(new TextWebSocketFrame(objectMapper.writeValueAsString(msg)));
-        } catch (Exception e) {
-            log.error("Error sending message: {}", e.getMessage());
-        }
+        ctx.writeAndFlush(msg);
     }
 
     private void sendError(ChannelHandlerContext ctx, String error) {
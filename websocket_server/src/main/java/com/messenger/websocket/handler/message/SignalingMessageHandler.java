@@ -1,26 +1,57 @@
 package com.messenger.websocket.handler.message;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.messenger.websocket.model.IceCandidate;
 import com.messenger.websocket.model.MessageType;
 import com.messenger.websocket.model.WebSocketMessage;
 import com.messenger.websocket.service.CallSessionManager;
 import com.messenger.websocket.service.SessionManager;
+import com.messenger.websocket.service.SignalingRelay;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Обрабатывает все WebRTC сигналинговые сообщения:
- * CALL_OFFER, CALL_ANSWER, ICE_CANDIDATE, CALL_REJECT, CALL_END, CALL_BUSY
+ * CALL_OFFER, CALL_ANSWER, ICE_CANDIDATE, ICE_CANDIDATES, CALL_REJECT, CALL_END, CALL_BUSY
+ * <p>
+ * ICE-кандидаты одного отправителя одному адресату копятся {@value #ICE_BATCH_WINDOW_MS} мс
+ * и уходят одним кадром ICE_CANDIDATES (одиночный кандидат — прежним ICE_CANDIDATE).
+ * Экземпляр обработчика принадлежит одному каналу, поэтому накопитель без блокировок
+ * живёт в event loop этого канала.
+ * <p>
+ * С {@link SignalingRelay} адресат может быть подключён к другому узлу, а события по звонку,
+ * которым владеет другой узел, передаются туда.
  */
 @Slf4j
-@RequiredArgsConstructor
 public class SignalingMessageHandler implements MessageHandler {
 
     private final SessionManager sessionManager;
     private final CallSessionManager callSessionManager;
-    private final ObjectMapper objectMapper;
+    private final SignalingRelay relay;
+
+    /** Окно склейки trickle-ICE: кандидаты одной фазы сбора приходят за десятки миллисекунд */
+    static final long ICE_BATCH_WINDOW_MS = 20;
+    /** Пачка такого размера уходит сразу, не дожидаясь окна */
+    static final int ICE_BATCH_MAX = 32;
+
+    /** Кандидаты, ждущие отправки, по адресату; доступ только из event loop канала */
+    private final Map<Long, PendingCandidates> pendingCandidates = new HashMap<>();
+
+    public SignalingMessageHandler(SessionManager sessionManager, CallSessionManager callSessionManager) {
+        this(sessionManager, callSessionManager, null);
+    }
+
+    public SignalingMessageHandler(SessionManager sessionManager, CallSessionManager callSessionManager,
+                                   SignalingRelay relay) {
+        this.sessionManager     = sessionManager;
+        this.callSessionManager = callSessionManager;
+        this.relay              = relay;
+    }
 
     @Override
     public void handle(ChannelHandlerContext ctx, WebSocketMessage message) {
@@ -34,19 +65,39 @@ public class SignalingMessageHandler implements MessageHandler {
         String callerName = sessionManager.getUsername(sessionId);
 
         MessageType type = message.getType();
-        log.info("[SIGNAL] {} from user {} ({}), callId: {}, target: {}",
-                type, callerName, callerId, message.getCallId(), message.getTargetUserId());
+        if (type == MessageType.ICE_CANDIDATE || type == MessageType.ICE_CANDIDATES) {
+            log.debug("[SIGNAL] {} from user {}, callId: {}, target: {}",
+                    type, callerId, message.getCallId(), message.getTargetUserId());
+        } else {
+            log.info("[SIGNAL] {} from user {} ({}), callId: {}, target: {}",
+                    type, callerName, callerId, message.getCallId(), message.getTargetUserId());
+        }
 
         switch (type) {
             case CALL_OFFER   -> handleOffer(ctx, message, callerId, callerName);
-            case CALL_ANSWER  -> handleAnswer(message, callerId);
-            case ICE_CANDIDATE -> handleIceCandidate(message, callerId);
-            case CALL_REJECT  -> handleReject(message, callerId);
-            case CALL_END     -> handleEnd(message, callerId);
+            case CALL_ANSWER  -> handleAnswer(message, callerId, callerName);
+            case ICE_CANDIDATE, ICE_CANDIDATES -> handleIceCandidates(ctx, message, callerId);
+            case CALL_REJECT  -> handleReject(message, callerId, callerName);
+            case CALL_END     -> handleEnd(message, callerId, callerName);
             default -> log.warn("[SIGNAL] Unexpected signaling type: {}", type);
         }
     }
 
+    /**
+     * Событие участника, подключённого к другому узлу, по звонку этого узла.
+     * OFFER так не приходит: звонком владеет узел звонящего.
+     */
+    public void handleRemote(WebSocketMessage message, Long senderId, String senderName) {
+        log.info("[SIGNAL] Relayed {} from user {} ({}), callId: {}",
+                message.getType(), senderName, senderId, message.getCallId());
+        switch (message.getType()) {
+            case CALL_ANSWER -> handleAnswer(message, senderId, senderName);
+            case CALL_REJECT -> handleReject(message, senderId, senderName);
+            case CALL_END    -> handleEnd(message, senderId, senderName);
+            default -> log.warn("[SIGNAL] Unexpected relayed signaling type: {}", message.getType());
+        }
+    }
+
     // ─── OFFER ────────────────────────────────────────────────────────────────
 
     private void handleOffer(ChannelHandlerContext ctx, WebSocketMessage message,
@@ -57,8 +108,9 @@ public class SignalingMessageHandler implements MessageHandler {
             return;
         }
 
-        // Проверяем: не занят ли адресат
-        if (callSessionManager.isUserInCall(targetUserId)) {
+        // Регистрируем сессию звонка; занятость проверяется атомарно вместе с резервированием
+        String callId = callSessionManager.createCall(message.getCallId(), callerId, targetUserId);
+        if (callId == null) {
             WebSocketMessage busy = new WebSocketMessage();
             busy.setType(MessageType.CALL_BUSY);
             busy.setCallId(message.getCallId());
@@ -67,9 +119,6 @@ public class SignalingMessageHandler implements MessageHandler {
             log.info("[SIGNAL] User {} is busy, sending CALL_BUSY to caller {}", targetUserId, callerId);
             return;
         }
-
-        // Регистрируем сессию звонка
-        String callId = callSessionManager.createCall(message.getCallId(), callerId, targetUserId);
         message.setCallId(callId);
 
         // Проставляем данные звонящего, чтобы адресат знал кто звонит
@@ -77,7 +126,7 @@ public class SignalingMessageHandler implements MessageHandler {
         message.setUsername(callerName);
 
         // Пересылаем OFFER адресату
-        boolean delivered = sessionManager.sendMessageToUser(targetUserId, message);
+        boolean delivered = deliver(targetUserId, message);
         if (!delivered) {
             // Адресат офлайн
             log.warn("[SIGNAL] Target user {} is offline, offer not delivered", targetUserId);
@@ -94,77 +143,154 @@ public class SignalingMessageHandler implements MessageHandler {
 
     // ─── ANSWER ───────────────────────────────────────────────────────────────
 
-    private void handleAnswer(WebSocketMessage message, Long answererId) {
+    private void handleAnswer(WebSocketMessage message, Long answererId, String answererName) {
         String callId = message.getCallId();
         if (callId == null) {
             log.warn("[SIGNAL] CALL_ANSWER missing callId");
             return;
         }
+        if (forwardToOwner(message, answererId, answererName)) return;
         Long callerId = callSessionManager.getCallerId(callId);
         if (callerId == null) {
             log.warn("[SIGNAL] CALL_ANSWER: unknown callId {}", callId);
             return;
         }
 
-        callSessionManager.activateCall(callId);
+        if (!callSessionManager.activateCall(callId, answererId)) {
+            log.warn("[SIGNAL] CALL_ANSWER from {} ignored: call {} is not ringing for this user", answererId, callId);
+            return;
+        }
         message.setUserId(answererId);
-        sessionManager.sendMessageToUser(callerId, message);
+        deliver(callerId, message);
         log.info("[SIGNAL] CALL_ANSWER forwarded to caller {}, callId: {}", callerId, callId);
     }
 
     // ─── ICE CANDIDATE ────────────────────────────────────────────────────────
 
-    private void handleIceCandidate(WebSocketMessage message, Long senderId) {
+    private void handleIceCandidates(ChannelHandlerContext ctx, WebSocketMessage message, Long senderId) {
         Long targetUserId = message.getTargetUserId();
         if (targetUserId == null) {
-            log.warn("[SIGNAL] ICE_CANDIDATE missing targetUserId");
+            log.warn("[SIGNAL] {} missing targetUserId", message.getType());
+            return;
+        }
+
+        PendingCandidates pending = pendingCandidates.get(targetUserId);
+        if (pending != null && !pending.sameCall(message.getCallId())) {
+            // Кандидаты другого звонка не смешиваем
+            flushCandidates(targetUserId, senderId);
+            pending = null;
+        }
+        if (pending == null) {
+            pending = new PendingCandidates(message.getCallId());
+            pendingCandidates.put(targetUserId, pending);
+            ctx.executor().schedule(() -> flushCandidates(targetUserId, senderId),
+                    ICE_BATCH_WINDOW_MS, TimeUnit.MILLISECONDS);
+        }
+
+        if (message.getCandidates() != null) {
+            pending.candidates.addAll(message.getCandidates());
+        }
+        if (message.getCandidate() != null) {
+            pending.candidates.add(new IceCandidate(message.getCandidate(), message.getSdpMid(), message.getSdpMLineIndex()));
+        }
+        if (pending.candidates.size() >= ICE_BATCH_MAX) {
+            flushCandidates(targetUserId, senderId);
+        }
+    }
+
+    /** Отправить накопленное адресату; повторный вызов по таймеру после досрочной отправки — no-op */
+    private void flushCandidates(Long targetUserId, Long senderId) {
+        PendingCandidates pending = pendingCandidates.remove(targetUserId);
+        if (pending == null || pending.candidates.isEmpty()) {
             return;
         }
-        message.setUserId(senderId);
-        sessionManager.sendMessageToUser(targetUserId, message);
-        log.debug("[SIGNAL] ICE_CANDIDATE forwarded from {} to {}", senderId, targetUserId);
+
+        WebSocketMessage batch = new WebSocketMessage();
+        batch.setCallId(pending.callId);
+        batch.setUserId(senderId);
+        batch.setTargetUserId(targetUserId);
+        if (pending.candidates.size() == 1) {
+            IceCandidate single = pending.candidates.get(0);
+            batch.setType(MessageType.ICE_CANDIDATE);
+            batch.setCandidate(single.getCandidate());
+            batch.setSdpMid(single.getSdpMid());
+            batch.setSdpMLineIndex(single.getSdpMLineIndex());
+        } else {
+            batch.setType(MessageType.ICE_CANDIDATES);
+            batch.setCandidates(pending.candidates);
+        }
+        deliver(targetUserId, batch);
+        log.debug("[SIGNAL] {} ICE candidate(s) forwarded from {} to {}", pending.candidates.size(), senderId, targetUserId);
+    }
+
+    /** Кандидаты одного звонка, накопленные для одного адресата */
+    private static final class PendingCandidates {
+        private final String callId;
+        private final List<IceCandidate> candidates = new ArrayList<>(8);
+
+        private PendingCandidates(String callId) {
+            this.callId = callId;
+        }
+
+        private boolean sameCall(String otherCallId) {
+            return callId == null ? otherCallId == null : callId.equals(otherCallId);
+        }
     }
 
     // ─── REJECT ───────────────────────────────────────────────────────────────
 
-    private void handleReject(WebSocketMessage message, Long rejecterId) {
+    private void handleReject(WebSocketMessage message, Long rejecterId, String rejecterName) {
         String callId = message.getCallId();
         if (callId == null) return;
+        if (forwardToOwner(message, rejecterId, rejecterName)) return;
 
         Long callerId = callSessionManager.getCallerId(callId);
         callSessionManager.endCall(callId);
 
         if (callerId != null) {
             message.setUserId(rejecterId);
-            sessionManager.sendMessageToUser(callerId, message);
+            deliver(callerId, message);
             log.info("[SIGNAL] CALL_REJECT forwarded to caller {}, callId: {}", callerId, callId);
         }
     }
 
     // ─── END ──────────────────────────────────────────────────────────────────
 
-    private void handleEnd(WebSocketMessage message, Long enderId) {
+    private void handleEnd(WebSocketMessage message, Long enderId, String enderName) {
         String callId = message.getCallId();
         if (callId == null) return;
+        if (forwardToOwner(message, enderId, enderName)) return;
 
         Long peerId = callSessionManager.getPeerId(callId, enderId);
         callSessionManager.endCall(callId);
 
         if (peerId != null) {
             message.setUserId(enderId);
-            sessionManager.sendMessageToUser(peerId, message);
+            deliver(peerId, message);
             log.info("[SIGNAL] CALL_END forwarded to peer {}, callId: {}", peerId, callId);
         }
     }
 
     // ─── helpers ──────────────────────────────────────────────────────────────
 
-    private void send(ChannelHandlerContext ctx, WebSocketMessage msg) {
-        try {
-            ctx.writeAndFlush(new TextWebSocketFrame(objectMapper.writeValueAsString(msg)));
-        } catch (Exception e) {
-            log.error("[SIGNAL] Error sending message: {}", e.getMessage());
+    /** Пользователю на этом узле или, через ретрансляцию, на другом */
+    private boolean deliver(Long userId, WebSocketMessage msg) {
+        return relay != null ? relay.deliver(userId, msg) : sessionManager.sendMessageToUser(userId, msg);
+    }
+
+    /** Звонок не известен этому узлу — передать событие узлу-владельцу */
+    private boolean forwardToOwner(WebSocketMessage message, Long senderId, String senderName) {
+        if (relay == null || !relay.isEnabled() || callSessionManager.getSession(message.getCallId()) != null) {
+            return false;
         }
+        relay.forwardToOwner(senderId, senderName, message);
+        log.info("[SIGNAL] {} for foreign call {} relayed to its owner node", message.getType(), message.getCallId());
+        return true;
+    }
+
+    /** Сообщение кодируется в формат канала в {@code WireMessageEncoder} */
+    private void send(ChannelHandlerContext ctx, WebSocketMessage msg) {
+        ctx.writeAndFlush(msg);
     }
 
     private void sendError(ChannelHandlerContext ctx, String error) {
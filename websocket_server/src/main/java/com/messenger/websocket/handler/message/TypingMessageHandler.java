@@ -0,0 +1,41 @@
+package com.messenger.websocket.handler.message;
+
+import com.messenger.websocket.model.MessageType;
+import com.messenger.websocket.model.WebSocketMessage;
+import com.messenger.websocket.service.SessionManager;
+import com.messenger.websocket.service.TypingService;
+import io.netty.channel.ChannelHandlerContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Обрабатывает TYPING_START и TYPING_STOP.
+ * Ответа отправителю нет: лишние START молча отбрасываются троттлингом.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class TypingMessageHandler implements MessageHandler {
+
+    private final SessionManager sessionManager;
+    private final TypingService typingService;
+
+    @Override
+    public void handle(ChannelHandlerContext ctx, WebSocketMessage message) {
+        String sessionId = ctx.channel().id().asShortText();
+        if (!sessionManager.isAuthenticated(sessionId)) {
+            WebSocketMessage err = new WebSocketMessage();
+            err.setType(MessageType.ERROR);
+            err.setContent("Not authenticated");
+            ctx.writeAndFlush(err);
+            return;
+        }
+
+        boolean delivered = typingService.onTyping(
+                sessionManager.getUserId(sessionId),
+                sessionManager.getUsername(sessionId),
+                message.getChatId(),
+                message.getType() == MessageType.TYPING_START);
+        log.debug("[TYPING] {} in chat {} from session {} {}", message.getType(), message.getChatId(),
+                sessionId, delivered ? "delivered" : "dropped");
+    }
+}
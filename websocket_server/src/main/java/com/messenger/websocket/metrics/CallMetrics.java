@@ -0,0 +1,81 @@
+package com.messenger.websocket.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики звонков узла.
+ * <p>
+ * Одновременные звонки — RINGING и ACTIVE вместе; время установления — от CALL_OFFER
+ * до CALL_ANSWER. Отдаётся через {@code GET /metrics/calls} на служебном порту {@code websocket.metrics.port}.
+ */
+@Component
+public class CallMetrics {
+
+    private final AtomicLong concurrentCalls = new AtomicLong();
+    private final LongAccumulator peakConcurrentCalls = new LongAccumulator(Long::max, 0);
+    private final LongAdder started = new LongAdder();
+    private final LongAdder busy = new LongAdder();
+    private final LongAdder answered = new LongAdder();
+    private final LongAdder missed = new LongAdder();
+    private final LongAdder ended = new LongAdder();
+    private final LongAdder setupNanos = new LongAdder();
+    private final LongAccumulator maxSetupNanos = new LongAccumulator(Long::max, 0);
+
+    public void callStarted() {
+        started.increment();
+        peakConcurrentCalls.accumulate(concurrentCalls.incrementAndGet());
+    }
+
+    public void callBusy() {
+        busy.increment();
+    }
+
+    public void callAnswered(long setupDurationNanos) {
+        answered.increment();
+        setupNanos.add(setupDurationNanos);
+        maxSetupNanos.accumulate(setupDurationNanos);
+    }
+
+    public void callMissed() {
+        missed.increment();
+    }
+
+    public void callEnded() {
+        ended.increment();
+        concurrentCalls.decrementAndGet();
+    }
+
+    public long getConcurrentCalls() {
+        return concurrentCalls.get();
+    }
+
+    public long getAnswered() {
+        return answered.sum();
+    }
+
+    public long getBusy() {
+        return busy.sum();
+    }
+
+    public Map<String, Long> snapshot() {
+        long answeredCount = answered.sum();
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("concurrentCalls", concurrentCalls.get());
+        result.put("peakConcurrentCalls", peakConcurrentCalls.get());
+        result.put("started", started.sum());
+        result.put("busy", busy.sum());
+        result.put("answered", answeredCount);
+        result.put("missed", missed.sum());
+        result.put("ended", ended.sum());
+        result.put("setupLatencyAvgMs", answeredCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(setupNanos.sum() / answeredCount));
+        result.put("setupLatencyMaxMs", TimeUnit.NANOSECONDS.toMillis(maxSetupNanos.get()));
+        return result;
+    }
+}
@@ -0,0 +1,95 @@
+package com.messenger.websocket.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики исходящих очередей всех сессий узла.
+ * <p>
+ * Глубина очередей — текущий суммарный объём кадров, ожидающих, пока канал снова
+ * станет writable. Отдаётся через {@code GET /metrics/outbound} на служебном порту {@code websocket.metrics.port}.
+ */
+@Component
+public class OutboundMetrics {
+
+    private final AtomicLong queuedFrames = new AtomicLong();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final LongAccumulator maxSessionDepth = new LongAccumulator(Long::max, 0);
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder droppedLowPriority = new LongAdder();
+    private final LongAdder droppedOnClose = new LongAdder();
+    private final LongAdder slowConsumerDisconnects = new LongAdder();
+    private final LongAdder idleDisconnects = new LongAdder();
+
+    public void frameQueued(int bytes, int sessionDepth) {
+        enqueued.increment();
+        queuedFrames.incrementAndGet();
+        queuedBytes.addAndGet(bytes);
+        maxSessionDepth.accumulate(sessionDepth);
+    }
+
+    public void frameDequeued(int bytes) {
+        queuedFrames.decrementAndGet();
+        queuedBytes.addAndGet(-bytes);
+    }
+
+    public void frameCoalesced() {
+        coalesced.increment();
+    }
+
+    public void lowPriorityDropped() {
+        droppedLowPriority.increment();
+    }
+
+    public void droppedOnClose(int frames) {
+        droppedOnClose.add(frames);
+    }
+
+    public void slowConsumerDisconnected() {
+        slowConsumerDisconnects.increment();
+    }
+
+    public void idleDisconnected() {
+        idleDisconnects.increment();
+    }
+
+    public long getQueuedFrames() {
+        return queuedFrames.get();
+    }
+
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+
+    public long getDroppedLowPriority() {
+        return droppedLowPriority.sum();
+    }
+
+    public long getSlowConsumerDisconnects() {
+        return slowConsumerDisconnects.sum();
+    }
+
+    public long getIdleDisconnects() {
+        return idleDisconnects.sum();
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("queuedFrames", queuedFrames.get());
+        result.put("queuedBytes", queuedBytes.get());
+        result.put("maxSessionDepth", maxSessionDepth.get());
+        result.put("enqueued", enqueued.sum());
+        result.put("coalesced", coalesced.sum());
+        result.put("droppedLowPriority", droppedLowPriority.sum());
+        result.put("droppedOnClose", droppedOnClose.sum());
+        result.put("slowConsumerDisconnects", slowConsumerDisconnects.sum());
+        result.put("idleDisconnects", idleDisconnects.sum());
+        return result;
+    }
+}
@@ -0,0 +1,20 @@
+package com.messenger.websocket.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * ICE candidate в пачке ICE_CANDIDATES — те же поля, что у одиночного ICE_CANDIDATE.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class IceCandidate {
+
+    private String candidate;
+    private String sdpMid;
+    private Integer sdpMLineIndex;
+}
@@ -20,13 +20,19 @@ public enum MessageType {
     FRIEND_REQUEST_ACCEPTED,  // Запрос в друзья принят
     FRIEND_REQUEST_REJECTED,  // Запрос в друзья отклонен
 
+    // ===== Эфемерные события: не пишутся в Kafka и БД =====
+    TYPING_START,     // Пользователь начал набирать сообщение в чате
+    TYPING_STOP,      // Пользователь перестал набирать
+
     // ===== WebRTC сигналинг =====
     CALL_OFFER,       // Инициатор отправляет SDP offer
     CALL_ANSWER,      // Ответ на звонок (SDP answer)
     ICE_CANDIDATE,    // ICE candidate для NAT traversal
+    ICE_CANDIDATES,   // Пачка ICE candidates одному адресату (массив candidates)
     CALL_REJECT,      // Отклонить входящий звонок
     CALL_END,         // Завершить активный звонок
     CALL_BUSY,        // Пользователь занят (уже в звонке)
     CALL_MISSED,      // Звонок пропущен (нет ответа)
-    CALL_RINGING      // Уведомление: у получателя звонит телефон
+    CALL_RINGING,     // Уведомление: у получателя звонит телефон
+    TURN_CREDENTIALS  // Обновлённые TURN credentials до истечения выданных в AUTH_SUCCESS
 }
@@ -0,0 +1,32 @@
+package com.messenger.websocket.model;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import lombok.Getter;
+
+/**
+ * Бинарный (CBOR) аналог {@link OutboundFrame}: тот же приоритет и ключ схлопывания.
+ */
+@Getter
+public class OutboundBinaryFrame extends BinaryWebSocketFrame implements PrioritizedFrame {
+
+    private final OutboundFrame.Priority priority;
+    private final String coalesceKey;
+
+    public OutboundBinaryFrame(ByteBuf content, OutboundFrame.Priority priority, String coalesceKey) {
+        this(true, 0, content, priority, coalesceKey);
+    }
+
+    OutboundBinaryFrame(boolean finalFragment, int rsv, ByteBuf content,
+                        OutboundFrame.Priority priority, String coalesceKey) {
+        super(finalFragment, rsv, content);
+        this.priority = priority;
+        this.coalesceKey = coalesceKey;
+    }
+
+    /** Копии и дубликаты (в том числе для рассылки) сохраняют приоритет */
+    @Override
+    public OutboundBinaryFrame replace(ByteBuf content) {
+        return new OutboundBinaryFrame(isFinalFragment(), rsv(), content, priority, coalesceKey);
+    }
+}
@@ -0,0 +1,120 @@
+package com.messenger.websocket.model;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import lombok.Getter;
+
+/**
+ * Текстовый кадр с приоритетом доставки.
+ * <p>
+ * {@link com.messenger.websocket.handler.OutboundBackpressureHandler} при переполнении очереди сессии в первую очередь
+ * отбрасывает кадры {@link Priority#LOW}; кадры с одинаковым {@code coalesceKey}
+ * схлопываются — в очереди остаётся только последний. Обычный
+ * {@link TextWebSocketFrame} считается кадром {@link Priority#NORMAL}.
+ */
+@Getter
+public class OutboundFrame extends TextWebSocketFrame implements PrioritizedFrame {
+
+    public enum Priority { LOW, NORMAL }
+
+    private final Priority priority;
+    private final String coalesceKey;
+
+    public OutboundFrame(String text, Priority priority, String coalesceKey) {
+        super(text);
+        this.priority = priority;
+        this.coalesceKey = coalesceKey;
+    }
+
+    private OutboundFrame(boolean finalFragment, int rsv, ByteBuf content, Priority priority, String coalesceKey) {
+        super(finalFragment, rsv, content);
+        this.priority = priority;
+        this.coalesceKey = coalesceKey;
+    }
+
+    /** Копии и дубликаты (в том числе для рассылки) сохраняют приоритет */
+    @Override
+    public OutboundFrame replace(ByteBuf content) {
+        return new OutboundFrame(isFinalFragment(), rsv(), content, priority, coalesceKey);
+    }
+
+    /**
+     * Кадр для сообщения заданного типа: присутствие (online/offline) — низкий приоритет,
+     * схлопывается по пользователю.
+     */
+    public static TextWebSocketFrame of(String json, MessageType type, Long userId) {
+        return of(json, type, userId, null);
+    }
+
+    /**
+     * То же, что {@link #of(String, MessageType, Long)}, плюс индикатор набора — низкий приоритет,
+     * схлопывается по пользователю в чате: в очереди остаётся только последнее START/STOP.
+     */
+    public static TextWebSocketFrame of(String json, MessageType type, Long userId, Long chatId) {
+        if (isEphemeral(type)) {
+            return new OutboundFrame(json, Priority.LOW, coalesceKey(type, userId, chatId));
+        }
+        return new TextWebSocketFrame(json);
+    }
+
+    /** Бинарный кадр с теми же правилами приоритета, что и {@link #of(String, MessageType, Long)} */
+    public static WebSocketFrame binary(byte[] payload, MessageType type, Long userId) {
+        return binary(payload, type, userId, null);
+    }
+
+    /** Бинарный кадр с теми же правилами приоритета, что и {@link #of(String, MessageType, Long, Long)} */
+    public static WebSocketFrame binary(byte[] payload, MessageType type, Long userId, Long chatId) {
+        if (isEphemeral(type)) {
+            return new OutboundBinaryFrame(Unpooled.wrappedBuffer(payload), Priority.LOW,
+                    coalesceKey(type, userId, chatId));
+        }
+        return new BinaryWebSocketFrame(Unpooled.wrappedBuffer(payload));
+    }
+
+    /**
+     * Тот же кадр с другим содержимым и битами RSV: тип и приоритет сохраняются.
+     * Используется для заранее сжатых кадров рассылки.
+     */
+    public static WebSocketFrame withContent(WebSocketFrame frame, int rsv, ByteBuf content) {
+        boolean fin = frame.isFinalFragment();
+        if (frame instanceof OutboundFrame outbound) {
+            return new OutboundFrame(fin, rsv, content, outbound.priority, outbound.coalesceKey);
+        }
+        if (frame instanceof OutboundBinaryFrame outbound) {
+            return new OutboundBinaryFrame(fin, rsv, content, outbound.getPriority(), outbound.getCoalesceKey());
+        }
+        if (frame instanceof TextWebSocketFrame) {
+            return new TextWebSocketFrame(fin, rsv, content);
+        }
+        if (frame instanceof BinaryWebSocketFrame) {
+            return new BinaryWebSocketFrame(fin, rsv, content);
+        }
+        throw new IllegalArgumentException("Unsupported frame: " + frame.getClass().getSimpleName());
+    }
+
+    private static boolean isPresence(MessageType type) {
+        return type == MessageType.USER_ONLINE || type == MessageType.USER_OFFLINE;
+    }
+
+    private static boolean isTyping(MessageType type) {
+        return type == MessageType.TYPING_START || type == MessageType.TYPING_STOP;
+    }
+
+    private static boolean isEphemeral(MessageType type) {
+        return isPresence(type) || isTyping(type);
+    }
+
+    private static String coalesceKey(MessageType type, Long userId, Long chatId) {
+        if (isTyping(type)) {
+            return userId != null && chatId != null ? "typing:" + chatId + ":" + userId : null;
+        }
+        return presenceKey(userId);
+    }
+
+    private static String presenceKey(Long userId) {
+        return userId != null ? "presence:" + userId : null;
+    }
+}
@@ -0,0 +1,12 @@
+package com.messenger.websocket.model;
+
+/**
+ * Кадр с приоритетом доставки — текстовый {@link OutboundFrame} или бинарный {@link OutboundBinaryFrame}.
+ */
+public interface PrioritizedFrame {
+
+    OutboundFrame.Priority getPriority();
+
+    /** Ключ схлопывания в исходящей очереди ({@code null} — не схлопывается) */
+    String getCoalesceKey();
+}
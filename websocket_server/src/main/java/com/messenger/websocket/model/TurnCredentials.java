@@ -0,0 +1,21 @@
+package com.messenger.websocket.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Временные TURN credentials — те же поля, что отдаёт {@code GET /api/turn/credentials}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TurnCredentials {
+
+    private List<String> urls;
+    private String username;
+    private String credential;
+    private long ttl;
+}
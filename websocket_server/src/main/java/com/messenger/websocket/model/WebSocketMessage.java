@@ -1,11 +1,13 @@
 package com.messenger.websocket.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 @NoArgsConstructor
@@ -49,6 +51,25 @@ public class WebSocketMessage {
     private String sdpMid;
     private Integer sdpMLineIndex;
     private String callType;
+    /** Пачка кандидатов в ICE_CANDIDATES; одиночный ICE_CANDIDATE использует candidate/sdpMid/sdpMLineIndex */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<IceCandidate> candidates;
+
+    // ===== Возобновление сессии =====
+    /**
+     * Номер доставки события чата; клиент возобновляет сессию с последнего полученного.
+     * При возобновлении событие может прийти и повтором, и вживую с одним номером —
+     * клиент отбрасывает кадр, чей {@code seq} уже видел.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long seq;
+    /** Токен возобновления в AUTH_SUCCESS: {@code <epoch>:<seq>} */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String resumeToken;
+
+    /** TURN credentials в AUTH_SUCCESS и TURN_CREDENTIALS */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private TurnCredentials turn;
 
     @JsonProperty("type")
     public MessageType getTypeEnum() {
@@ -0,0 +1,52 @@
+package com.messenger.websocket.model;
+
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import lombok.Getter;
+
+/**
+ * Формат {@link WebSocketMessage} на проводе, согласованный через WebSocket subprotocol.
+ * <p>
+ * Клиент перечисляет поддерживаемые форматы в {@code Sec-WebSocket-Protocol}, сервер выбирает
+ * первый из своего списка {@link #SUBPROTOCOLS}. Клиент без заголовка (или со старой версией)
+ * получает {@link #JSON} в текстовых кадрах, как раньше.
+ */
+@Getter
+public enum WireProtocol {
+
+    /** Jackson JSON в {@code TextWebSocketFrame} */
+    JSON("messenger.json.v1"),
+
+    /** CBOR в {@code BinaryWebSocketFrame}: без null-полей, шифротекст E2EE — сырые байты */
+    CBOR("messenger.cbor.v1");
+
+    /** Выбранный для канала формат; выставляется после рукопожатия */
+    public static final AttributeKey<WireProtocol> ATTRIBUTE = AttributeKey.valueOf("wireProtocol");
+
+    /** Поддерживаемые subprotocol в порядке предпочтения сервера */
+    public static final String SUBPROTOCOLS = CBOR.subprotocol + "," + JSON.subprotocol;
+
+    private final String subprotocol;
+
+    WireProtocol(String subprotocol) {
+        this.subprotocol = subprotocol;
+    }
+
+    /** Формат по выбранному при рукопожатии subprotocol; {@code null} или неизвестный — JSON */
+    public static WireProtocol fromSubprotocol(String subprotocol) {
+        for (WireProtocol protocol : values()) {
+            if (protocol.subprotocol.equals(subprotocol)) {
+                return protocol;
+            }
+        }
+        return JSON;
+    }
+
+    /** Формат канала; до рукопожатия — JSON */
+    public static WireProtocol of(Channel channel) {
+        Attribute<WireProtocol> attribute = channel.attr(ATTRIBUTE);
+        Object protocol = attribute != null ? attribute.get() : null;
+        return protocol instanceof WireProtocol selected ? selected : JSON;
+    }
+}
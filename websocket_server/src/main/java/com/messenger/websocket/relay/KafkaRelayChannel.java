@@ -0,0 +1,227 @@
+package com.messenger.websocket.relay;
+
+import com.messenger.websocket.config.RelayProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Канал между узлами websocket-server поверх своего топика Kafka.
+ * <p>
+ * Запись — заголовки {@code origin} (узел-отправитель) и {@code kind} (тип события) плюс тело
+ * строкой; узел пропускает собственные записи и отдаёт остальные подписчику своего {@code kind}.
+ * У каждого канала свой поток-потребитель: медленный подписчик одного канала не задерживает другой.
+ * <p>
+ * Каждый узел читает все партиции топика через {@code assign()}, без consumer group и сохранения
+ * смещений: после рестарта читаются только новые записи, а брошенных групп не остаётся.
+ * Гарантии записи задаёт наследник в {@link #tuneProducer}.
+ */
+@Slf4j
+public abstract class KafkaRelayChannel {
+
+    static final String ORIGIN_HEADER = "origin";
+    static final String KIND_HEADER = "kind";
+
+    /** Как часто перечитывать список партиций топика */
+    private static final long ASSIGNMENT_REFRESH_MS = 30_000;
+
+    protected final RelayProperties properties;
+    private final Map<String, Consumer<String>> subscribers = new ConcurrentHashMap<>();
+
+    @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
+    private String bootstrapServers;
+
+    private KafkaProducer<String, String> producer;
+    private KafkaConsumer<String, String> consumer;
+    private volatile boolean running;
+    private Thread consumerThread;
+
+    protected KafkaRelayChannel(RelayProperties properties) {
+        this.properties = properties;
+    }
+
+    /** Топик канала */
+    protected abstract String topic();
+
+    /** Имя потока-потребителя */
+    protected abstract String threadName();
+
+    /** Подтверждения и повторы записи */
+    protected abstract void tuneProducer(Properties producerProps);
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public String getNodeId() {
+        return properties.getNodeId();
+    }
+
+    /** Получать события данного типа от других узлов */
+    public void subscribe(String kind, Consumer<String> listener) {
+        subscribers.put(kind, listener);
+    }
+
+    /** Отправить событие всем остальным узлам; ошибка записи только логируется */
+    public void publish(String kind, String key, String body) {
+        KafkaProducer<String, String> current = producer;
+        if (current == null) {
+            return;
+        }
+        ProducerRecord<String, String> record = new ProducerRecord<>(topic(), key, body);
+        record.headers().add(ORIGIN_HEADER, properties.getNodeId().getBytes(StandardCharsets.UTF_8));
+        record.headers().add(KIND_HEADER, kind.getBytes(StandardCharsets.UTF_8));
+        try {
+            current.send(record, (metadata, e) -> {
+                if (e != null) {
+                    onSendFailed(kind, key, e);
+                }
+            });
+        } catch (Exception e) {
+            onSendFailed(kind, key, e);
+        }
+    }
+
+    protected void onSendFailed(String kind, String key, Exception e) {
+        log.debug("[RELAY] Dropped {} event: {}", kind, e.getMessage());
+    }
+
+    public void start() {
+        if (!properties.isEnabled()) {
+            log.info("[RELAY] Inter-node relay disabled");
+            return;
+        }
+        Properties producerProps = new Properties();
+        producerProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        producerProps.put(ProducerConfig.LINGER_MS_CONFIG, 0);
+        // send() вызывается с event loop: без метаданных топика запись отбрасывается, а не ждёт
+        producerProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, 100);
+        tuneProducer(producerProps);
+        producer = new KafkaProducer<>(producerProps);
+
+        Properties consumerProps = new Properties();
+        consumerProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        consumerProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        consumerProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        consumerProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        consumerProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        consumerProps.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 10);
+        consumer = new KafkaConsumer<>(consumerProps);
+
+        running = true;
+        consumerThread = new Thread(this::consume, threadName());
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+        log.info("[RELAY] Node {} relaying over topic {}", properties.getNodeId(), topic());
+    }
+
+    private void consume() {
+        long assignedAt = 0;
+        while (running) {
+            try {
+                long now = System.currentTimeMillis();
+                if (consumer.assignment().isEmpty() || now - assignedAt >= ASSIGNMENT_REFRESH_MS) {
+                    assignAllPartitions();
+                    assignedAt = now;
+                }
+                if (consumer.assignment().isEmpty()) {
+                    Thread.sleep(1000);
+                    continue;
+                }
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(100))) {
+                    dispatch(record);
+                }
+            } catch (WakeupException e) {
+                // остановка
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (running) {
+                    log.error("[RELAY] Error consuming {}: {}", topic(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /** Новые партиции начинаются с конца, у уже назначенных позиция сохраняется */
+    private void assignAllPartitions() {
+        List<PartitionInfo> partitions = consumer.partitionsFor(topic());
+        if (partitions == null || partitions.isEmpty()) {
+            return;
+        }
+        Set<TopicPartition> all = partitions.stream()
+                .map(info -> new TopicPartition(info.topic(), info.partition()))
+                .collect(Collectors.toSet());
+        if (!all.equals(consumer.assignment())) {
+            consumer.assign(all);
+            log.info("[RELAY] Reading {} partitions of {}", all.size(), topic());
+        }
+    }
+
+    void dispatch(ConsumerRecord<String, String> record) {
+        String origin = header(record, ORIGIN_HEADER);
+        if (properties.getNodeId().equals(origin)) {
+            return;
+        }
+        String kind = header(record, KIND_HEADER);
+        Consumer<String> subscriber = kind != null ? subscribers.get(kind) : null;
+        if (subscriber == null) {
+            return;
+        }
+        try {
+            subscriber.accept(record.value());
+        } catch (Exception e) {
+            log.error("[RELAY] Failed to handle {} event from {}: {}", kind, origin, e.getMessage());
+        }
+    }
+
+    private static String header(ConsumerRecord<String, String> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    public void stop() {
+        running = false;
+        if (consumer != null) {
+            consumer.wakeup();
+        }
+        if (consumerThread != null) {
+            try {
+                consumerThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (consumer != null) {
+            consumer.close();
+        }
+        if (producer != null) {
+            producer.close(Duration.ofSeconds(1));
+        }
+        log.info("[RELAY] Relay over {} stopped", topic());
+    }
+}
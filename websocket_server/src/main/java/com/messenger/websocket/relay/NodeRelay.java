@@ -0,0 +1,39 @@
+package com.messenger.websocket.relay;
+
+import com.messenger.websocket.config.RelayProperties;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.stereotype.Component;
+
+import java.util.Properties;
+
+/**
+ * Ретрансляция эфемерных событий между узлами websocket-server (набор текста, присутствие).
+ * <p>
+ * Доставка «не более одного раза»: {@code acks=0}, без повторов. Потерянное событие
+ * не восстанавливается — сюда идёт только то, что не жалко потерять или что повторяется
+ * по таймеру. Сигналинг звонков идёт отдельным {@link SignalingChannel}.
+ */
+@Component
+public class NodeRelay extends KafkaRelayChannel {
+
+    public NodeRelay(RelayProperties properties) {
+        super(properties);
+    }
+
+    @Override
+    protected String topic() {
+        return properties.getTopic();
+    }
+
+    @Override
+    protected String threadName() {
+        return "websocket-relay";
+    }
+
+    @Override
+    protected void tuneProducer(Properties producerProps) {
+        producerProps.put(ProducerConfig.ACKS_CONFIG, "0");
+        producerProps.put(ProducerConfig.RETRIES_CONFIG, 0);
+        producerProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, false);
+    }
+}
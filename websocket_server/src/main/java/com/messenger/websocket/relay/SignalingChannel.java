@@ -0,0 +1,50 @@
+package com.messenger.websocket.relay;
+
+import com.messenger.websocket.config.RelayProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.stereotype.Component;
+
+import java.util.Properties;
+
+/**
+ * Канал сигналинга звонков между узлами: OFFER, ANSWER, ICE, END и резервирования.
+ * <p>
+ * В отличие от {@link NodeRelay} запись подтверждается лидером партиции ({@code acks=1})
+ * и повторяется при сбое; одна запись в полёте на соединение сохраняет порядок кадров звонка.
+ * Свой топик и свой поток-потребитель: поток событий набора текста не задерживает сигналинг.
+ */
+@Slf4j
+@Component
+public class SignalingChannel extends KafkaRelayChannel {
+
+    public SignalingChannel(RelayProperties properties) {
+        super(properties);
+    }
+
+    @Override
+    protected String topic() {
+        return properties.getSignalingTopic();
+    }
+
+    @Override
+    protected String threadName() {
+        return "websocket-signaling";
+    }
+
+    @Override
+    protected void tuneProducer(Properties producerProps) {
+        producerProps.put(ProducerConfig.ACKS_CONFIG, "1");
+        producerProps.put(ProducerConfig.RETRIES_CONFIG, properties.getSignalingRetries());
+        producerProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 1);
+        producerProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, false);
+        producerProps.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, properties.getSignalingDeliveryTimeoutMs());
+        producerProps.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG,
+                Math.min(properties.getSignalingDeliveryTimeoutMs(), 30_000));
+    }
+
+    @Override
+    protected void onSendFailed(String kind, String key, Exception e) {
+        log.error("[SIGNAL] Failed to relay {} for {}: {}", kind, key, e.getMessage());
+    }
+}
@@ -1,15 +1,23 @@
 package com.messenger.websocket.service;
 
+import com.messenger.websocket.metrics.CallMetrics;
+import com.messenger.websocket.model.MessageType;
+import com.messenger.websocket.model.WebSocketMessage;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import jakarta.annotation.PreDestroy;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiPredicate;
 
 /**
  * Управляет жизненным циклом WebRTC звонков.
@@ -18,6 +26,18 @@ import java.util.concurrent.TimeUnit;
  *   RINGING  → ждём ответа (таймаут RING_TIMEOUT_SEC)
  *   ACTIVE   → звонок принят и идёт
  *   ENDED    → завершён (удаляется из карты через ENDED_TTL_SEC)
+ *
+ * Переходы — compare-and-set состояния сессии, поэтому ответ, отказ и таймаут, пришедшие
+ * одновременно, применяются ровно один раз. Занятость пользователя резервируется атомарно
+ * через {@code userInCall}: второй звонок тому же абоненту получает отказ, а не перезаписывает
+ * первый. Таймауты живут на {@link HashedWheelTimer}: постановка и отмена — O(1), тысячи
+ * ожидающих таймеров не создают очереди задач на одном потоке.
+ * <p>
+ * В кластере занятость общая: резервирования этого узла уходят остальным через
+ * {@link ReservationListener}, чужие приходят в {@link #applyRemoteReservation} и живут до
+ * освобождения или истечения TTL. Атомарности между узлами нет: при одновременных звонках
+ * одному пользователю с разных узлов побеждает начатый раньше, проигравший ещё не принятый
+ * звонок завершается с CALL_BUSY.
  */
 @Slf4j
 @Service
@@ -26,26 +46,57 @@ public class CallSessionManager {
     private static final long RING_TIMEOUT_SEC = 30;   // секунд ждём ответа
     private static final long ENDED_TTL_SEC    = 10;   // секунд держим запись после завершения
 
+    /** Точность таймаутов звонков: с такими тиками хватает колеса на 512 ячеек */
+    private static final long TICK_MS = 100;
+    private static final int  TICKS_PER_WHEEL = 512;
+
     public enum CallState { RINGING, ACTIVE, ENDED }
 
-    @Getter
     public static class CallSession {
-        private final String callId;
-        private final Long callerId;
-        private final Long calleeId;
-        private volatile CallState state;
-        private final LocalDateTime createdAt;
+        @Getter private final String callId;
+        @Getter private final Long callerId;
+        @Getter private final Long calleeId;
+        @Getter private final LocalDateTime createdAt;
+        /** Время начала для сравнения с одновременным звонком другого узла */
+        @Getter private final long createdAtMillis = System.currentTimeMillis();
+        private final long createdNanos = System.nanoTime();
+        private final AtomicReference<CallState> state = new AtomicReference<>(CallState.RINGING);
+        /** Таймер ожидания ответа; отменяется при ответе или завершении */
+        private volatile Timeout ringTimeout;
 
         public CallSession(String callId, Long callerId, Long calleeId) {
             this.callId    = callId;
             this.callerId  = callerId;
             this.calleeId  = calleeId;
-            this.state     = CallState.RINGING;
             this.createdAt = LocalDateTime.now();
         }
 
-        public void activate() { this.state = CallState.ACTIVE; }
-        public void end()      { this.state = CallState.ENDED;  }
+        public CallState getState() {
+            return state.get();
+        }
+
+        public boolean activate() {
+            return state.compareAndSet(CallState.RINGING, CallState.ACTIVE);
+        }
+
+        /** @return состояние до завершения; {@code null}, если звонок уже был завершён */
+        public CallState end() {
+            CallState current;
+            do {
+                current = state.get();
+                if (current == CallState.ENDED) {
+                    return null;
+                }
+            } while (!state.compareAndSet(current, CallState.ENDED));
+            return current;
+        }
+
+        private void cancelRingTimeout() {
+            Timeout current = ringTimeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
     }
 
     /** callId → сессия */
@@ -54,22 +105,56 @@ public class CallSessionManager {
     /** userId → callId (для быстрой проверки "занят ли пользователь") */
     private final ConcurrentHashMap<Long, String> userInCall = new ConcurrentHashMap<>();
 
-    private final ScheduledExecutorService scheduler =
-            Executors.newSingleThreadScheduledExecutor(r -> {
-                Thread t = new Thread(r, "call-session-cleanup");
-                t.setDaemon(true);
-                return t;
-            });
+    /** userId → звонок другого узла, занимающий пользователя */
+    private final ConcurrentHashMap<Long, RemoteReservation> remoteReservations = new ConcurrentHashMap<>();
+
+    private final HashedWheelTimer timer = new HashedWheelTimer(
+            new DefaultThreadFactory("call-session-timer", true), TICK_MS, TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+
+    @Getter
+    private final CallMetrics metrics;
+    /** Доставка уведомлений участникам; в кластере заменяется доставкой через {@code SignalingRelay} */
+    private volatile BiPredicate<Long, WebSocketMessage> delivery;
+    /** Рассылка резервирований этого узла; {@code null} без кластера */
+    private volatile ReservationListener reservationListener;
+
+    /** Резервирования и освобождения звонков этого узла, для остальных узлов */
+    public interface ReservationListener {
+        void reserved(CallSession session);
+
+        void released(CallSession session);
+    }
+
+    /** Звонок другого узла: начало и callId решают спор за пользователя, expiresAtNanos — когда забыть */
+    private record RemoteReservation(String callId, long createdAtMillis, long expiresAtNanos) {
 
-    private final SessionManager sessionManager;
+        private boolean isLive(long now) {
+            return expiresAtNanos - now > 0;
+        }
 
-    public CallSessionManager(SessionManager sessionManager) {
-        this.sessionManager = sessionManager;
+        private boolean winsOver(long otherCreatedAtMillis, String otherCallId) {
+            return createdAtMillis != otherCreatedAtMillis
+                    ? createdAtMillis < otherCreatedAtMillis
+                    : callId.compareTo(otherCallId) < 0;
+        }
+    }
+
+    public CallSessionManager(SessionManager sessionManager, CallMetrics metrics) {
+        this.metrics        = metrics;
+        this.delivery       = sessionManager::sendMessageToUser;
+    }
+
+    public void setDelivery(BiPredicate<Long, WebSocketMessage> delivery) {
+        this.delivery = delivery;
+    }
+
+    public void setReservationListener(ReservationListener reservationListener) {
+        this.reservationListener = reservationListener;
     }
 
     /**
-     * Создаёт новый звонок. Если callId == null — генерирует UUID.
-     * @return финальный callId
+     * Создаёт новый звонок, атомарно занимая обоих участников. Если callId == null — генерирует UUID.
+     * @return финальный callId; {@code null}, если кто-то из участников уже в звонке
      */
     public String createCall(String proposedCallId, Long callerId, Long calleeId) {
         String callId = (proposedCallId != null && !proposedCallId.isBlank())
@@ -77,50 +162,78 @@ public class CallSessionManager {
                 : UUID.randomUUID().toString();
 
         CallSession session = new CallSession(callId, callerId, calleeId);
-        calls.put(callId, session);
-        userInCall.put(callerId, callId);
-        userInCall.put(calleeId, callId);
+        if (calls.putIfAbsent(callId, session) != null) {
+            // callId от клиента уже занят — не даём подменить чужой звонок
+            callId  = UUID.randomUUID().toString();
+            session = new CallSession(callId, callerId, calleeId);
+            calls.put(callId, session);
+        }
 
+        if (!reserve(callerId, callId)) {
+            calls.remove(callId);
+            metrics.callBusy();
+            log.info("[CALL] Caller {} is already in a call, call {} not created", callerId, callId);
+            return null;
+        }
+        if (!reserve(calleeId, callId)) {
+            userInCall.remove(callerId, callId);
+            calls.remove(callId);
+            metrics.callBusy();
+            log.info("[CALL] Callee {} is busy, call {} not created", calleeId, callId);
+            return null;
+        }
+
+        metrics.callStarted();
         log.info("[CALL] Created call {} — caller: {}, callee: {}", callId, callerId, calleeId);
+        ReservationListener listener = reservationListener;
+        if (listener != null) {
+            listener.reserved(session);
+        }
 
         // Таймер на случай если не ответят
-        scheduler.schedule(() -> handleRingTimeout(callId), RING_TIMEOUT_SEC, TimeUnit.SECONDS);
+        String createdId = callId;
+        session.ringTimeout = timer.newTimeout(t -> handleRingTimeout(createdId), RING_TIMEOUT_SEC, TimeUnit.SECONDS);
+        if (session.getState() != CallState.RINGING) {
+            // Звонок успели принять или завершить, пока ставился таймер
+            session.cancelRingTimeout();
+        }
 
         return callId;
     }
 
     /**
-     * Переводит звонок в состояние ACTIVE (принят).
+     * Переводит звонок в состояние ACTIVE (принят). Принять может только адресат.
+     * @return {@code true}, если звонок ждал ответа и теперь активен
      */
-    public void activateCall(String callId) {
+    public boolean activateCall(String callId, Long answererId) {
         CallSession session = calls.get(callId);
-        if (session != null && session.getState() == CallState.RINGING) {
-            session.activate();
-            log.info("[CALL] Call {} is now ACTIVE", callId);
+        if (session == null || !session.getCalleeId().equals(answererId) || !session.activate()) {
+            return false;
         }
+        session.cancelRingTimeout();
+        metrics.callAnswered(System.nanoTime() - session.createdNanos);
+        log.info("[CALL] Call {} is now ACTIVE", callId);
+        return true;
     }
 
     /**
-     * Завершает звонок, убирает пользователей из userInCall.
+     * Завершает звонок, снимает занятость участников.
      */
     public void endCall(String callId) {
         CallSession session = calls.get(callId);
         if (session == null) return;
 
-        session.end();
-        userInCall.remove(session.getCallerId());
-        userInCall.remove(session.getCalleeId());
-
-        log.info("[CALL] Call {} ENDED (was {})", callId, session.getState());
-
-        // Удаляем запись через небольшой TTL
-        scheduler.schedule(() -> calls.remove(callId), ENDED_TTL_SEC, TimeUnit.SECONDS);
+        CallState previous = session.end();
+        if (previous != null) {
+            release(session, previous);
+        }
     }
 
     /**
      * Проверяет, находится ли пользователь в активном или рингующем звонке.
      */
     public boolean isUserInCall(Long userId) {
+        if (isReservedElsewhere(userId, null)) return true;
         String callId = userInCall.get(userId);
         if (callId == null) return false;
         CallSession session = calls.get(callId);
@@ -150,29 +263,149 @@ public class CallSessionManager {
         return calls.get(callId);
     }
 
+    /** Звонки этого узла, которые ещё занимают участников */
+    public List<CallSession> getLiveCalls() {
+        return calls.values().stream()
+                .filter(session -> session.getState() != CallState.ENDED)
+                .toList();
+    }
+
+    /**
+     * Резервирование звонка другого узла, новое или повторное. Если участник занят здесь
+     * ещё не принятым звонком, а чужой начат раньше, местный звонок уступает.
+     */
+    public void applyRemoteReservation(String callId, Long callerId, Long calleeId,
+                                       long createdAtMillis, long ttlMillis) {
+        if (calls.containsKey(callId)) {
+            return;
+        }
+        long now = System.nanoTime();
+        RemoteReservation remote = new RemoteReservation(callId, createdAtMillis,
+                now + TimeUnit.MILLISECONDS.toNanos(ttlMillis));
+        for (Long userId : List.of(callerId, calleeId)) {
+            remoteReservations.merge(userId, remote, (existing, incoming) ->
+                    existing.callId().equals(incoming.callId()) || !existing.isLive(now)
+                            || incoming.winsOver(existing.createdAtMillis(), existing.callId()) ? incoming : existing);
+            yieldToRemote(userId, remote);
+        }
+    }
+
+    /** Звонок другого узла завершён */
+    public void releaseRemoteReservation(String callId, Long callerId, Long calleeId) {
+        for (Long userId : List.of(callerId, calleeId)) {
+            remoteReservations.computeIfPresent(userId,
+                    (id, existing) -> existing.callId().equals(callId) ? null : existing);
+        }
+    }
+
+    /** Забыть чужие резервирования, которые давно не подтверждались */
+    public void sweepRemoteReservations() {
+        long now = System.nanoTime();
+        remoteReservations.values().removeIf(reservation -> !reservation.isLive(now));
+    }
+
+    @PreDestroy
+    public void stop() {
+        timer.stop();
+    }
+
     // ──────────────────────────────────────────────────────────────────────────
 
+    /**
+     * Занять пользователя под звонок. Запись о завершённом или исчезнувшем звонке
+     * заменяется compare-and-set, живой чужой звонок — отказ.
+     */
+    private boolean reserve(Long userId, String callId) {
+        if (isReservedElsewhere(userId, callId)) {
+            return false;
+        }
+        while (true) {
+            String existing = userInCall.putIfAbsent(userId, callId);
+            if (existing == null || existing.equals(callId)) {
+                return true;
+            }
+            CallSession other = calls.get(existing);
+            if (other != null && other.getState() != CallState.ENDED) {
+                return false;
+            }
+            if (userInCall.replace(userId, existing, callId)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean isReservedElsewhere(Long userId, String callId) {
+        RemoteReservation remote = remoteReservations.get(userId);
+        return remote != null && !remote.callId().equals(callId) && remote.isLive(System.nanoTime());
+    }
+
+    /** Одновременный звонок другого узла начат раньше — местный, пока не принят, завершается */
+    private void yieldToRemote(Long userId, RemoteReservation remote) {
+        String localCallId = userInCall.get(userId);
+        CallSession local = localCallId != null ? calls.get(localCallId) : null;
+        if (local == null || !remote.winsOver(local.getCreatedAtMillis(), local.getCallId())
+                || !local.state.compareAndSet(CallState.RINGING, CallState.ENDED)) {
+            return;
+        }
+        log.info("[CALL] Call {} yields user {} to concurrent call {} of another node",
+                local.getCallId(), userId, remote.callId());
+        release(local, CallState.RINGING);
+        metrics.callBusy();
+
+        WebSocketMessage busy = new WebSocketMessage();
+        busy.setType(MessageType.CALL_BUSY);
+        busy.setCallId(local.getCallId());
+        busy.setUserId(local.getCalleeId());
+        delivery.test(local.getCallerId(), busy);
+
+        // Адресат уже мог получить OFFER — снимаем входящий звонок
+        WebSocketMessage end = new WebSocketMessage();
+        end.setType(MessageType.CALL_END);
+        end.setCallId(local.getCallId());
+        end.setUserId(local.getCallerId());
+        delivery.test(local.getCalleeId(), end);
+    }
+
+    /** Завершённый звонок: снять занятость, отменить таймер и удалить запись через TTL */
+    private void release(CallSession session, CallState previous) {
+        String callId = session.getCallId();
+        session.cancelRingTimeout();
+        // Снимаем только свою резервацию: пользователь мог уже начать новый звонок
+        userInCall.remove(session.getCallerId(), callId);
+        userInCall.remove(session.getCalleeId(), callId);
+        metrics.callEnded();
+        ReservationListener listener = reservationListener;
+        if (listener != null) {
+            listener.released(session);
+        }
+
+        log.info("[CALL] Call {} ENDED (was {})", callId, previous);
+
+        // Удаляем запись через небольшой TTL
+        timer.newTimeout(t -> calls.remove(callId, session), ENDED_TTL_SEC, TimeUnit.SECONDS);
+    }
+
     private void handleRingTimeout(String callId) {
         CallSession session = calls.get(callId);
-        if (session == null || session.getState() != CallState.RINGING) return;
+        // Ответ мог прийти одновременно с таймаутом: завершаем, только если звонок всё ещё ждёт
+        if (session == null || !session.state.compareAndSet(CallState.RINGING, CallState.ENDED)) return;
 
         log.info("[CALL] Ring timeout for call {}, sending CALL_MISSED", callId);
-        endCall(callId);
+        release(session, CallState.RINGING);
+        metrics.callMissed();
 
         // Уведомляем инициатора о пропущенном звонке
-        com.messenger.websocket.model.WebSocketMessage missed =
-                new com.messenger.websocket.model.WebSocketMessage();
-        missed.setType(com.messenger.websocket.model.MessageType.CALL_MISSED);
+        WebSocketMessage missed = new WebSocketMessage();
+        missed.setType(MessageType.CALL_MISSED);
         missed.setCallId(callId);
         missed.setUserId(session.getCalleeId());
-        sessionManager.sendMessageToUser(session.getCallerId(), missed);
+        delivery.test(session.getCallerId(), missed);
 
         // Уведомляем адресата о пропущенном звонке (чтобы показать в UI)
-        com.messenger.websocket.model.WebSocketMessage missedCallee =
-                new com.messenger.websocket.model.WebSocketMessage();
-        missedCallee.setType(com.messenger.websocket.model.MessageType.CALL_MISSED);
+        WebSocketMessage missedCallee = new WebSocketMessage();
+        missedCallee.setType(MessageType.CALL_MISSED);
         missedCallee.setCallId(callId);
         missedCallee.setUserId(session.getCallerId());
-        sessionManager.sendMessageToUser(session.getCalleeId(), missedCallee);
+        delivery.test(session.getCalleeId(), missedCallee);
     }
 }
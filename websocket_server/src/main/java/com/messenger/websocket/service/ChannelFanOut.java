@@ -0,0 +1,133 @@
+package com.messenger.websocket.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.messenger.websocket.codec.BroadcastCompression;
+import com.messenger.websocket.codec.WireCodec;
+import com.messenger.websocket.model.WireProtocol;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Рассылка одного кадра многим каналам.
+ * <p>
+ * Кадр кодируется один раз, каждый канал получает {@code retainedDuplicate()} того же буфера.
+ * Каналы группируются по event loop: на каждый loop ставится одна задача, которая сначала
+ * делает {@code write} во все свои каналы, а затем {@code flush} — вместо пары задач
+ * write+flush на каждого получателя.
+ * <p>
+ * Сообщение для каналов с разными {@link WireProtocol} кодируется по одному разу на протокол.
+ * Каналам, согласовавшим permessage-deflate, кадр один раз сжимается через
+ * {@link BroadcastCompression} вместо сжатия в каждом канале.
+ */
+@Slf4j
+public final class ChannelFanOut {
+
+    private ChannelFanOut() {
+    }
+
+    /**
+     * Отправить кадр всем активным каналам.
+     *
+     * @param channels получатели
+     * @param frame    кадр; владение переходит к методу, он освобождается после рассылки
+     * @return количество каналов, которым кадр поставлен в отправку
+     */
+    public static int writeAndFlush(Collection<Channel> channels, WebSocketFrame frame) {
+        WebSocketFrame compressed = null;
+        try {
+            Map<EventLoop, List<Channel>> byLoop = new LinkedHashMap<>();
+            Map<EventLoop, List<WebSocketFrame>> copiesByLoop = new LinkedHashMap<>();
+            boolean compressible = true;
+            for (Channel channel : channels) {
+                if (channel == null || !channel.isActive()) {
+                    continue;
+                }
+                // Каналам с permessage-deflate — один раз сжатый кадр, остальным — исходный
+                WebSocketFrame source = frame;
+                BroadcastCompression compression = compressible ? BroadcastCompression.of(channel) : null;
+                if (compression != null) {
+                    if (compressed == null) {
+                        compressed = compression.compress(frame);
+                        compressible = compressed != null;
+                    }
+                    if (compressed != null) {
+                        source = compressed;
+                    }
+                }
+                EventLoop loop = channel.eventLoop();
+                byLoop.computeIfAbsent(loop, key -> new ArrayList<>()).add(channel);
+                copiesByLoop.computeIfAbsent(loop, key -> new ArrayList<>()).add(source.retainedDuplicate());
+            }
+
+            int submitted = 0;
+            for (Map.Entry<EventLoop, List<Channel>> entry : byLoop.entrySet()) {
+                List<Channel> group = entry.getValue();
+                List<WebSocketFrame> copies = copiesByLoop.get(entry.getKey());
+                Runnable task = () -> writeThenFlush(group, copies);
+                EventLoop loop = entry.getKey();
+                if (loop.inEventLoop()) {
+                    task.run();
+                } else {
+                    loop.execute(task);
+                }
+                submitted += group.size();
+            }
+            return submitted;
+        } finally {
+            ReferenceCountUtil.release(frame);
+            if (compressed != null) {
+                compressed.release();
+            }
+        }
+    }
+
+    /**
+     * Отправить сообщение всем активным каналам, каждому — в согласованном для него формате.
+     *
+     * @return количество каналов, которым кадр поставлен в отправку
+     */
+    public static int writeAndFlush(Collection<Channel> channels, Object message, WireCodec codec)
+            throws JsonProcessingException {
+        Map<WireProtocol, List<Channel>> byProtocol = new EnumMap<>(WireProtocol.class);
+        for (Channel channel : channels) {
+            if (channel != null && channel.isActive()) {
+                byProtocol.computeIfAbsent(WireProtocol.of(channel), protocol -> new ArrayList<>()).add(channel);
+            }
+        }
+
+        int submitted = 0;
+        for (Map.Entry<WireProtocol, List<Channel>> entry : byProtocol.entrySet()) {
+            submitted += writeAndFlush(entry.getValue(), codec.encode(message, entry.getKey()));
+        }
+        return submitted;
+    }
+
+    private static void writeThenFlush(List<Channel> group, List<WebSocketFrame> copies) {
+        for (int i = 0; i < group.size(); i++) {
+            Channel channel = group.get(i);
+            try {
+                channel.write(copies.get(i));
+            } catch (Exception e) {
+                ReferenceCountUtil.safeRelease(copies.get(i));
+                log.error("[FANOUT] Failed to write to channel {}: {}", channel.id(), e.getMessage());
+            }
+        }
+        for (Channel channel : group) {
+            try {
+                channel.flush();
+            } catch (Exception e) {
+                log.error("[FANOUT] Failed to flush channel {}: {}", channel.id(), e.getMessage());
+            }
+        }
+    }
+}
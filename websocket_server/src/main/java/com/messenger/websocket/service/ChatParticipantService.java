@@ -3,6 +3,8 @@ package com.messenger.websocket.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
@@ -19,9 +21,14 @@ import java.util.Collections;
 @Service
 public class ChatParticipantService {
 
+    static final String CACHE_NAME = "chatParticipants";
+
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private CacheManager cacheManager;
+
     @Value("${core.api.base-url:http://localhost:8082}")
     private String coreApiBaseUrl;
 
@@ -30,7 +37,7 @@ public class ChatParticipantService {
      * ИСПРАВЛЕНО: теперь использует internal service header для обхода авторизации
      * ОПТИМИЗИРОВАНО: добавлено кэширование для предотвращения повторных запросов
      */
-    @Cacheable(value = "chatParticipants", key = "#chatId", unless = "#result == null || #result.isEmpty()")
+    @Cacheable(value = CACHE_NAME, key = "#chatId", unless = "#result == null || #result.isEmpty()")
     public List<Long> getChatParticipants(Long chatId) {
         try {
             log.info("[CHAT-PARTICIPANT] Requesting participants for chat {} from core-api (base URL: {})", chatId, coreApiBaseUrl);
@@ -74,6 +81,21 @@ public class ChatParticipantService {
         }
     }
 
+    /**
+     * Участники чата из кэша, без запроса в core-api.
+     *
+     * @return список участников или {@code null}, если в кэше его нет
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> getCachedParticipants(Long chatId) {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache == null) {
+            return null;
+        }
+        Cache.ValueWrapper cached = cache.get(chatId);
+        return cached != null ? (List<Long>) cached.get() : null;
+    }
+
     /**
      * Временный fallback метод - возвращает ID всех подключенных пользователей
      */
@@ -0,0 +1,199 @@
+package com.messenger.websocket.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.messenger.websocket.config.RelayProperties;
+import com.messenger.websocket.relay.NodeRelay;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Кто из пользователей подключён к другим узлам websocket-server.
+ * <p>
+ * Узел сообщает через {@link NodeRelay} о подключении и отключении своих пользователей
+ * и раз в {@code websocket.relay.presence-interval-ms} рассылает полный список (снимок частями).
+ * Ретрансляция теряет события, поэтому запись о чужом пользователе живёт
+ * {@value #TTL_INTERVALS} интервала с последнего подтверждения: потерянный OFFLINE
+ * забывается сам, потерянный ONLINE восстанавливает следующий снимок.
+ * <p>
+ * Тот же таймер обновляет другие распределённые по узлам записи — см. {@link #addHeartbeatTask}.
+ */
+@Slf4j
+@Component
+public class ClusterPresence {
+
+    static final String RELAY_KIND = "presence";
+
+    /** Сколько интервалов рассылки живёт неподтверждённая запись о чужом пользователе */
+    static final int TTL_INTERVALS = 3;
+
+    /** Пользователей в одной записи снимка: запись Kafka не должна упираться в max.request.size */
+    static final int SNAPSHOT_CHUNK = 5000;
+
+    enum EventType { ONLINE, OFFLINE, SNAPSHOT, LEAVE }
+
+    private final NodeRelay relay;
+    private final ObjectMapper objectMapper;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private final Set<Long> localUsers = ConcurrentHashMap.newKeySet();
+    /** nodeId → userId → время последнего подтверждения ({@code clock}) */
+    private final Map<String, Map<Long, Long>> remoteUsers = new ConcurrentHashMap<>();
+    private final List<Runnable> heartbeatTasks = new CopyOnWriteArrayList<>();
+    /** {@code null}, если ретрансляция выключена */
+    private final ScheduledExecutorService heartbeat;
+
+    @Autowired
+    public ClusterPresence(NodeRelay relay, ObjectMapper objectMapper, RelayProperties properties) {
+        this(relay, objectMapper, properties, System::nanoTime);
+    }
+
+    ClusterPresence(NodeRelay relay, ObjectMapper objectMapper, RelayProperties properties, LongSupplier clock) {
+        this.relay = relay;
+        this.objectMapper = objectMapper;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(properties.getPresenceIntervalMs() * TTL_INTERVALS);
+        this.clock = clock;
+        relay.subscribe(RELAY_KIND, this::onRelayed);
+        if (relay.isEnabled()) {
+            heartbeat = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("cluster-presence", true));
+            heartbeat.scheduleWithFixedDelay(this::onHeartbeat, properties.getPresenceIntervalMs(),
+                    properties.getPresenceIntervalMs(), TimeUnit.MILLISECONDS);
+        } else {
+            heartbeat = null;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+            // Остальные узлы забывают наших пользователей сразу, а не через TTL
+            publish(EventType.LEAVE, List.of());
+        }
+    }
+
+    /** Первая сессия пользователя на этом узле */
+    public void userConnected(Long userId) {
+        localUsers.add(userId);
+        publish(EventType.ONLINE, List.of(userId));
+    }
+
+    /** Последняя сессия пользователя на этом узле закрыта */
+    public void userDisconnected(Long userId) {
+        localUsers.remove(userId);
+        publish(EventType.OFFLINE, List.of(userId));
+    }
+
+    /** Подключён ли пользователь к какому-либо другому узлу (по последним известным данным) */
+    public boolean isOnlineElsewhere(Long userId) {
+        long now = clock.getAsLong();
+        for (Map<Long, Long> users : remoteUsers.values()) {
+            Long confirmedAt = users.get(userId);
+            if (confirmedAt != null && now - confirmedAt < ttlNanos) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Сколько живёт неподтверждённая запись о чужом пользователе или звонке */
+    public long getTtlMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(ttlNanos);
+    }
+
+    /** Выполнять вместе с рассылкой снимка, раз в {@code presence-interval-ms} */
+    public void addHeartbeatTask(Runnable task) {
+        heartbeatTasks.add(task);
+    }
+
+    void onHeartbeat() {
+        try {
+            publishSnapshot();
+            sweep();
+            for (Runnable task : heartbeatTasks) {
+                task.run();
+            }
+        } catch (Exception e) {
+            log.error("[PRESENCE] Heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    void publishSnapshot() {
+        List<Long> chunk = new ArrayList<>(Math.min(localUsers.size(), SNAPSHOT_CHUNK));
+        for (Long userId : localUsers) {
+            chunk.add(userId);
+            if (chunk.size() == SNAPSHOT_CHUNK) {
+                publish(EventType.SNAPSHOT, chunk);
+                chunk = new ArrayList<>(SNAPSHOT_CHUNK);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            publish(EventType.SNAPSHOT, chunk);
+        }
+    }
+
+    /** Удалить записи, не подтверждённые за TTL, и узлы без единой живой записи */
+    void sweep() {
+        long now = clock.getAsLong();
+        remoteUsers.values().forEach(users -> users.values().removeIf(confirmedAt -> now - confirmedAt >= ttlNanos));
+        remoteUsers.values().removeIf(Map::isEmpty);
+    }
+
+    void onRelayed(String body) {
+        PresenceEvent event;
+        try {
+            event = objectMapper.readValue(body, PresenceEvent.class);
+        } catch (Exception e) {
+            log.error("[PRESENCE] Dropped malformed presence event: {}", e.getMessage());
+            return;
+        }
+        if (event.type() == null || event.node() == null) {
+            return;
+        }
+        if (event.type() == EventType.LEAVE) {
+            remoteUsers.remove(event.node());
+            log.info("[PRESENCE] Node {} left the cluster", event.node());
+            return;
+        }
+        if (event.users() == null || event.users().isEmpty()) {
+            return;
+        }
+        Map<Long, Long> users = remoteUsers.computeIfAbsent(event.node(), node -> new ConcurrentHashMap<>());
+        if (event.type() == EventType.OFFLINE) {
+            event.users().forEach(users::remove);
+        } else {
+            long now = clock.getAsLong();
+            event.users().forEach(userId -> users.put(userId, now));
+        }
+    }
+
+    /** Ключ — узел: все его события в одной партиции, снимок не обгонит OFFLINE и наоборот */
+    private void publish(EventType type, List<Long> users) {
+        if (!relay.isEnabled()) {
+            return;
+        }
+        try {
+            String body = objectMapper.writeValueAsString(new PresenceEvent(type, relay.getNodeId(), users));
+            relay.publish(RELAY_KIND, relay.getNodeId(), body);
+        } catch (Exception e) {
+            log.debug("[PRESENCE] Failed to publish {}: {}", type, e.getMessage());
+        }
+    }
+
+    record PresenceEvent(EventType type, String node, List<Long> users) {
+    }
+}
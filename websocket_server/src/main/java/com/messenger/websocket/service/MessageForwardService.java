@@ -2,7 +2,6 @@ package com.messenger.websocket.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.netty.channel.Channel;
-import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
@@ -12,6 +11,7 @@ import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import com.messenger.websocket.codec.WireCodec;
 import com.messenger.websocket.model.WebSocketMessage;
 import com.messenger.websocket.model.MessageType;
 
@@ -31,6 +31,7 @@ public class MessageForwardService {
     private String kafkaBootstrapServers;
     private final ObjectMapper objectMapper;
     private final SessionManager sessionManager;
+    private final WireCodec wireCodec;
     private KafkaConsumer<String, String> consumer;
     private volatile boolean running = false;
     private Thread consumerThread;
@@ -248,34 +249,17 @@ public class MessageForwardService {
                 chatId, wsMessage.getUsername(), wsMessage.getUserId(), wsMessage.getContent(),
                 wsMessage.getMessageType(), wsMessage.getFileUrl() != null, wsMessage.getId());
 
+            // До рассылки: событие получает seq и попадает в буферы и отключившихся участников
+            sessionManager.recordForReplay(chatId, wsMessage);
+
             List<Channel> channels = sessionManager.getChatChannels(chatId);
             log.info("[SESSION] Found {} active channels for chat {}", channels.size(), chatId);
 
             if (!channels.isEmpty()) {
-                String jsonMessage = objectMapper.writeValueAsString(wsMessage);
-                log.debug("[FORWARD] JSON message to send: {}", jsonMessage);
-
-                int successCount = 0;
-                int failureCount = 0;
+                log.debug("[FORWARD] Message to send: {}", wsMessage);
 
-                for (Channel channel : channels) {
-                    try {
-                        if (channel.isActive()) {
-                            channel.writeAndFlush(new TextWebSocketFrame(jsonMessage));
-                            successCount++;
-                            String channelId = (channel != null && channel.id() != null) ? channel.id().asShortText() : "null";
-                            log.debug("[FORWARD] Sent message to channel: {}", channelId);
-                        } else {
-                            failureCount++;
-                            String channelId = (channel != null && channel.id() != null) ? channel.id().asShortText() : "null";
-                            log.warn("[FORWARD] Channel is not active: {}", channelId);
-                        }
-                    } catch (Exception e) {
-                        failureCount++;
-                        String channelId = (channel != null && channel.id() != null) ? channel.id().asShortText() : "null";
-                        log.error("[FORWARD] Failed to send message to channel {}: {}", channelId, e.getMessage(), e);
-                    }
-                }
+                int successCount = ChannelFanOut.writeAndFlush(channels, wsMessage, wireCodec);
+                int failureCount = channels.size() - successCount;
 
                 log.info("[FORWARD] Message forwarding completed for chat {} - Success: {}, Failures: {}",
                     chatId, successCount, failureCount);
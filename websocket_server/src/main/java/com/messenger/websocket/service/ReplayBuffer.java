@@ -0,0 +1,229 @@
+package com.messenger.websocket.service;
+
+import com.messenger.websocket.codec.WireCodec;
+import com.messenger.websocket.config.ReplayProperties;
+import com.messenger.websocket.model.WebSocketMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кольца последних событий чатов по пользователям для возобновления сессии.
+ * <p>
+ * Каждому событию присваивается номер доставки {@code seq}, монотонный в пределах узла,
+ * и оно один раз кодируется в CBOR; байты кладутся в кольцо каждого участника, у которого
+ * оно есть. Кольцо создаётся при подключении и живёт ещё {@code retention-ms} после
+ * отключения. Токен возобновления — {@code <epoch>:<seq>}, где epoch отличает запуски узла:
+ * после рестарта или переезда на другой узел старый токен не принимается.
+ * <p>
+ * {@link #replay} возвращает {@code null}, если часть пропущенного уже вытеснена из кольца
+ * или токен чужой, — тогда клиенту нужна полная синхронизация через REST.
+ */
+@Slf4j
+@Component
+public class ReplayBuffer {
+
+    private static final long SWEEP_INTERVAL_MS = 1_000;
+
+    private final ReplayProperties properties;
+    private final WireCodec wireCodec;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, Ring> rings = new ConcurrentHashMap<>();
+    private volatile long lastSweep;
+
+    public ReplayBuffer(ReplayProperties properties, WireCodec wireCodec) {
+        this.properties = properties;
+        this.wireCodec = wireCodec;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /** Пользователь подключился: кольцо создаётся или перестаёт ждать вытеснения */
+    public void attach(Long userId) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        sweep(System.currentTimeMillis());
+        rings.compute(userId, (id, ring) -> {
+            if (ring == null) {
+                // События до создания кольца не записаны: старые токены этого пользователя недействительны
+                ring = new Ring(properties.getCapacity(), properties.getMaxBytes(), sequence.get());
+            }
+            ring.detachedAt = 0;
+            return ring;
+        });
+    }
+
+    /** Пользователь отключился: кольцо ждёт переподключения {@code retention-ms} */
+    public void detach(Long userId) {
+        Ring ring = rings.get(userId);
+        if (ring != null) {
+            ring.detachedAt = System.currentTimeMillis();
+        }
+        sweep(System.currentTimeMillis());
+    }
+
+    /**
+     * Присвоить событию номер доставки и записать его в кольца получателей.
+     * Номер выставляется в {@code message.seq} до рассылки, поэтому клиенты видят его в кадре.
+     */
+    public void append(Collection<Long> userIds, WebSocketMessage message) {
+        if (!properties.isEnabled() || userIds.isEmpty()) {
+            return;
+        }
+        long seq = sequence.incrementAndGet();
+        message.setSeq(seq);
+        byte[] bytes = null;
+        for (Long userId : userIds) {
+            Ring ring = userId != null ? rings.get(userId) : null;
+            if (ring == null) {
+                continue;
+            }
+            if (bytes == null) {
+                try {
+                    bytes = wireCodec.toBytes(message);
+                } catch (Exception e) {
+                    log.error("[REPLAY] Failed to encode event {}: {}", seq, e.getMessage());
+                    return;
+                }
+            }
+            ring.add(seq, bytes);
+        }
+    }
+
+    /** Токен, с которого клиент без пропусков продолжит получать события */
+    public String currentToken() {
+        return epoch + ":" + sequence.get();
+    }
+
+    /**
+     * События пользователя после {@code resumeToken} и не позже {@code upToToken} в порядке номеров.
+     * Верхняя граница — токен, выданный новой сессии: всё, что записано после него, та уже
+     * получает вживую, и повторять это не нужно.
+     *
+     * @return {@code null}, если без пропусков возобновить нельзя
+     */
+    public List<WebSocketMessage> replay(Long userId, String resumeToken, String upToToken) {
+        long after = parse(resumeToken);
+        long upTo = parse(upToToken);
+        Ring ring = rings.get(userId);
+        if (after < 0 || upTo < 0 || ring == null) {
+            return null;
+        }
+        List<byte[]> payloads = ring.since(after, upTo);
+        if (payloads == null) {
+            return null;
+        }
+        List<WebSocketMessage> messages = new ArrayList<>(payloads.size());
+        for (byte[] payload : payloads) {
+            try {
+                messages.add(wireCodec.fromBytes(payload));
+            } catch (Exception e) {
+                log.error("[REPLAY] Failed to decode buffered event for user {}: {}", userId, e.getMessage());
+                return null;
+            }
+        }
+        messages.sort(Comparator.comparing(WebSocketMessage::getSeq));
+        return messages;
+    }
+
+    int ringCount() {
+        return rings.size();
+    }
+
+    /** Номер из токена этого узла; {@code -1} — токен не разобран или выдан другим запуском */
+    private long parse(String resumeToken) {
+        if (resumeToken == null) {
+            return -1;
+        }
+        int separator = resumeToken.lastIndexOf(':');
+        if (separator <= 0 || !epoch.equals(resumeToken.substring(0, separator))) {
+            return -1;
+        }
+        try {
+            long seq = Long.parseLong(resumeToken.substring(separator + 1));
+            return seq >= 0 && seq <= sequence.get() ? seq : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Удалить кольца, чьи владельцы не вернулись вовремя; не чаще раза в секунду */
+    private void sweep(long now) {
+        if (now - lastSweep < SWEEP_INTERVAL_MS) {
+            return;
+        }
+        lastSweep = now;
+        long deadline = now - properties.getRetentionMs();
+        rings.values().removeIf(ring -> ring.detachedAt != 0 && ring.detachedAt < deadline);
+    }
+
+    /** Кольцо одного пользователя, ограниченное числом событий и байтами */
+    static final class Ring {
+
+        private final long[] seqs;
+        private final byte[][] payloads;
+        private final int maxBytes;
+        private int head;
+        private int size;
+        private int bytes;
+        /** Наибольший номер, который уже нельзя повторить */
+        private long lostUpTo;
+        volatile long detachedAt;
+
+        Ring(int capacity, int maxBytes, long lostUpTo) {
+            this.seqs = new long[capacity];
+            this.payloads = new byte[capacity][];
+            this.maxBytes = maxBytes;
+            this.lostUpTo = lostUpTo;
+        }
+
+        synchronized void add(long seq, byte[] payload) {
+            if (payload.length > maxBytes) {
+                lostUpTo = Math.max(lostUpTo, seq);
+                return;
+            }
+            while (size == seqs.length || bytes + payload.length > maxBytes) {
+                evictOldest();
+            }
+            int tail = (head + size) % seqs.length;
+            seqs[tail] = seq;
+            payloads[tail] = payload;
+            size++;
+            bytes += payload.length;
+        }
+
+        /** Всё в {@code (after, upTo]}; {@code null}, если что-то из этого уже вытеснено */
+        synchronized List<byte[]> since(long after, long upTo) {
+            if (after < lostUpTo) {
+                return null;
+            }
+            List<byte[]> result = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                int index = (head + i) % seqs.length;
+                if (seqs[index] > after && seqs[index] <= upTo) {
+                    result.add(payloads[index]);
+                }
+            }
+            return result;
+        }
+
+        private void evictOldest() {
+            lostUpTo = Math.max(lostUpTo, seqs[head]);
+            bytes -= payloads[head].length;
+            payloads[head] = null;
+            head = (head + 1) % seqs.length;
+            size--;
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package com.messenger.websocket.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.messenger.websocket.codec.WireCodec;
+import com.messenger.websocket.model.WireProtocol;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,6 +31,15 @@ public class SessionManager {
     @Autowired
     private UserDataService userDataService;
 
+    @Autowired
+    private WireCodec wireCodec;
+
+    @Autowired
+    private ReplayBuffer replayBuffer;
+
+    @Autowired
+    private ClusterPresence clusterPresence;
+
     public void addSession(String sessionId, ChannelHandlerContext ctx, String username, Long userId) {
         if (sessionId == null || userId == null) {
             log.warn("[SESSION] addSession called with null sessionId or userId: sessionId={}, userId={}", sessionId, userId);
@@ -49,8 +58,10 @@ public class SessionManager {
                 removeSession(existingSessionId);
             }
             UserSession session = new UserSession(sessionId, ctx, username, userId);
+            replayBuffer.attach(userId);
             sessions.put(sessionId, session);
             userIdToSessionId.put(userId, sessionId);
+            clusterPresence.userConnected(userId);
 
             // Обновляем онлайн-статус в базе данных
             onlineStatusService.setUserOnline(userId);
@@ -69,6 +80,8 @@ public class SessionManager {
             synchronized (session.getUserId().toString().intern()) {
                 sessions.remove(sessionId);
                 userIdToSessionId.remove(session.getUserId());
+                replayBuffer.detach(session.getUserId());
+                clusterPresence.userDisconnected(session.getUserId());
 
                 // Обновляем онлайн-статус в базе данных
                 onlineStatusService.setUserOffline(session.getUserId());
@@ -119,27 +132,16 @@ public class SessionManager {
                 statusMessage.setLastSeen(null);
             }
 
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.registerModule(new com.fasterxml.jackson.datatype.jsr310.JavaTimeModule());
-            String json = mapper.writeValueAsString(statusMessage);
-
             log.info("[ONLINE-STATUS] Broadcasting {} status for user {} (ID: {}), lastSeen={}",
                 isOnline ? "ONLINE" : "OFFLINE", username, userId, statusMessage.getLastSeen());
 
-            // Отправляем всем подключенным пользователям
-            int sentCount = 0;
-            for (UserSession session : sessions.values()) {
-                try {
-                    if (session.getContext() != null && session.getContext().channel() != null && session.getContext().channel().isActive()) {
-                        session.getContext().channel().writeAndFlush(
-                            new io.netty.handler.codec.http.websocketx.TextWebSocketFrame(json)
-                        );
-                        sentCount++;
-                    }
-                } catch (Exception e) {
-                    log.error("[ONLINE-STATUS] Failed to send status to session: {}", session.getSessionId(), e);
-                }
-            }
+            // Отправляем всем подключенным пользователям; низкий приоритет —
+            // при медленном клиенте статусы схлопываются или отбрасываются первыми
+            List<io.netty.channel.Channel> channels = sessions.values().stream()
+                .filter(session -> session.getContext() != null)
+                .map(session -> session.getContext().channel())
+                .collect(Collectors.toList());
+            int sentCount = ChannelFanOut.writeAndFlush(channels, statusMessage, wireCodec);
 
             log.info("[ONLINE-STATUS] Sent status update to {} active sessions", sentCount);
         } catch (Exception e) {
@@ -319,9 +321,8 @@ public class SessionManager {
         io.netty.channel.Channel channel = getUserChannel(userId);
         if (channel != null && channel.isActive()) {
             try {
-                ObjectMapper mapper = new ObjectMapper();
-                String json = mapper.writeValueAsString(message);
-                channel.writeAndFlush(new io.netty.handler.codec.http.websocketx.TextWebSocketFrame(json));
+                // Кодируется в формат канала в WireMessageEncoder
+                channel.writeAndFlush(message);
                 return true;
             } catch (Exception e) {
                 log.error("Error sending message to user {}: {}", userId, e.getMessage());
@@ -330,6 +331,53 @@ public class SessionManager {
         return false;
     }
 
+    /**
+     * Записать событие чата в буферы повторной доставки участников и присвоить ему {@code seq}.
+     * Вызывается до рассылки, чтобы номер попал в кадр.
+     */
+    public void recordForReplay(Long chatId, com.messenger.websocket.model.WebSocketMessage message) {
+        if (!replayBuffer.isEnabled()) {
+            return;
+        }
+        try {
+            replayBuffer.append(chatParticipantService.getChatParticipants(chatId), message);
+        } catch (Exception e) {
+            log.error("[REPLAY] Failed to record event for chat {}: {}", chatId, e.getMessage());
+        }
+    }
+
+    /** Токен возобновления, который получает клиент в AUTH_SUCCESS */
+    public String currentResumeToken() {
+        return replayBuffer.isEnabled() ? replayBuffer.currentToken() : null;
+    }
+
+    /**
+     * Дослать пользователю события чатов, пропущенные после {@code resumeToken}.
+     * <p>
+     * Сессия к этому моменту уже зарегистрирована, иначе события между повтором и регистрацией
+     * потерялись бы. Поэтому повтор ограничен {@code issuedToken} — токеном из AUTH_SUCCESS новой
+     * сессии: более поздние события она получает вживую. Событие, записанное до выдачи токена, но
+     * разосланное после регистрации, всё же придёт дважды — с одним и тем же {@code seq}, и клиент
+     * отбрасывает кадры с уже полученным номером.
+     *
+     * @return количество досланных событий; {@code -1} — возобновить нельзя, нужна полная синхронизация
+     */
+    public int resumeSession(Long userId, String resumeToken, String issuedToken, io.netty.channel.Channel channel) {
+        List<com.messenger.websocket.model.WebSocketMessage> missed =
+                replayBuffer.isEnabled() ? replayBuffer.replay(userId, resumeToken, issuedToken) : null;
+        if (missed == null) {
+            log.info("[REPLAY] Cannot resume user {} from token {}", userId, resumeToken);
+            return -1;
+        }
+        // Кодируются в формат канала в WireMessageEncoder
+        for (com.messenger.websocket.model.WebSocketMessage message : missed) {
+            channel.write(message);
+        }
+        channel.flush();
+        log.info("[REPLAY] Replayed {} events to user {}", missed.size(), userId);
+        return missed.size();
+    }
+
     /**
      * Метод для трансляции сообщений в чат (теперь используется напрямую)
      */
@@ -443,33 +491,16 @@ public class SessionManager {
                     wsMessage.getType(), wsMessage.getMessageType(), wsMessage.getChatId(), wsMessage.getUserId(),
                     wsMessage.getContent(), wsMessage.getFileUrl());
 
+            recordForReplay(chatId, wsMessage);
+
             // Получаем все активные каналы (в реальном приложении нужно получать участников чата из БД)
             List<io.netty.channel.Channel> channels = getChatChannels(chatId);
 
             if (!channels.isEmpty()) {
-                ObjectMapper mapper = new ObjectMapper();
-                mapper.registerModule(new com.fasterxml.jackson.datatype.jsr310.JavaTimeModule());
-                String json = mapper.writeValueAsString(wsMessage);
-
-                log.info("[BROADCAST] Broadcasting to {} channels for chat {}: {}", channels.size(), chatId, json);
+                log.info("[BROADCAST] Broadcasting to {} channels for chat {}: {}", channels.size(), chatId, wsMessage);
 
-                int successCount = 0;
-                int failCount = 0;
-
-                for (io.netty.channel.Channel channel : channels) {
-                    try {
-                        if (channel.isActive()) {
-                            channel.writeAndFlush(new io.netty.handler.codec.http.websocketx.TextWebSocketFrame(json));
-                            log.debug("[BROADCAST] Sent message to channel: {}", channel.id().asShortText());
-                            successCount++;
-                        } else {
-                            log.debug("[BROADCAST] Skipped inactive channel: {}", channel.id().asShortText());
-                        }
-                    } catch (Exception e) {
-                        log.error("[BROADCAST] Failed to send message to channel: {}", channel.id().asShortText(), e);
-                        failCount++;
-                    }
-                }
+                int successCount = ChannelFanOut.writeAndFlush(channels, wsMessage, wireCodec);
+                int failCount = channels.size() - successCount;
 
                 log.info("[BROADCAST] Broadcast completed for chat {}: {} successful, {} failed",
                         chatId, successCount, failCount);
@@ -502,14 +533,9 @@ public class SessionManager {
                 return;
             }
 
-            // Конвертируем данные в JSON и отправляем
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.registerModule(new com.fasterxml.jackson.datatype.jsr310.JavaTimeModule());
-            String json = mapper.writeValueAsString(notificationData);
-
-            session.getContext().channel().writeAndFlush(
-                new TextWebSocketFrame(json)
-            );
+            // Кодируем в формат канала (JSON или CBOR) и отправляем
+            io.netty.channel.Channel channel = session.getContext().channel();
+            channel.writeAndFlush(wireCodec.encode(notificationData, WireProtocol.of(channel)));
 
             log.info("[NOTIFICATION] Successfully sent notification to user {}", userId);
         } catch (Exception e) {
@@ -0,0 +1,189 @@
+package com.messenger.websocket.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.messenger.websocket.handler.message.SignalingMessageHandler;
+import com.messenger.websocket.model.WebSocketMessage;
+import com.messenger.websocket.relay.SignalingChannel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Сигналинг WebRTC между узлами websocket-server.
+ * <p>
+ * Звонком владеет узел, принявший CALL_OFFER: только там живёт его {@code CallSession}.
+ * Кадр для пользователя, не подключённого к этому узлу, уходит в {@link SignalingChannel} как
+ * {@value #TO_USER}; его доставляет тот узел, где у пользователя есть сессия, остальные
+ * пропускают. Событие участника по звонку, которого этот узел не знает (ANSWER, REJECT, END
+ * от адресата на другом узле), уходит как {@value #TO_OWNER}; его обрабатывает узел-владелец
+ * так же, как если бы кадр пришёл от локального клиента.
+ * <p>
+ * Кадр уходит в ретрансляцию, только если {@link ClusterPresence} знает адресата на другом
+ * узле: иначе OFFER получает CALL_MISSED сразу, а не по таймауту. Резервирования звонков
+ * этого узла рассылаются как {@value #RESERVATION} при создании и освобождении и повторяются
+ * с каждым снимком присутствия, чтобы занятость была общей для всех узлов.
+ * <p>
+ * Без ретрансляции (один узел) доставка только локальная, как раньше.
+ */
+@Slf4j
+@Component
+public class SignalingRelay implements CallSessionManager.ReservationListener {
+
+    static final String TO_USER = "signal-user";
+    static final String TO_OWNER = "signal-owner";
+    static final String RESERVATION = "call-reservation";
+
+    private final SessionManager sessionManager;
+    private final CallSessionManager callSessionManager;
+    private final ObjectMapper objectMapper;
+    private final SignalingChannel relay;
+    private final ClusterPresence presence;
+    /** Обработчик событий, пришедших с других узлов для звонков этого узла */
+    private final SignalingMessageHandler ownerHandler;
+
+    public SignalingRelay(SessionManager sessionManager,
+                          CallSessionManager callSessionManager,
+                          ObjectMapper objectMapper,
+                          SignalingChannel relay,
+                          ClusterPresence presence) {
+        this.sessionManager = sessionManager;
+        this.callSessionManager = callSessionManager;
+        this.objectMapper = objectMapper;
+        this.relay = relay;
+        this.presence = presence;
+        this.ownerHandler = new SignalingMessageHandler(sessionManager, callSessionManager, this);
+        relay.subscribe(TO_USER, this::onToUser);
+        relay.subscribe(TO_OWNER, this::onToOwner);
+        relay.subscribe(RESERVATION, this::onReservation);
+        // Уведомления по таймауту звонка тоже должны доходить до адресата на другом узле
+        callSessionManager.setDelivery(this::deliver);
+        if (relay.isEnabled()) {
+            callSessionManager.setReservationListener(this);
+            presence.addHeartbeatTask(this::republishReservations);
+        }
+    }
+
+    public boolean isEnabled() {
+        return relay.isEnabled();
+    }
+
+    /**
+     * Доставить кадр пользователю: локально, а если его нет на этом узле — через ретрансляцию.
+     *
+     * @return {@code true}, если кадр отправлен локально или передан узлу, где есть адресат;
+     *         {@code false} — пользователь не подключён ни к одному известному узлу
+     */
+    public boolean deliver(Long userId, WebSocketMessage message) {
+        if (sessionManager.sendMessageToUser(userId, message)) {
+            return true;
+        }
+        if (!relay.isEnabled() || !presence.isOnlineElsewhere(userId)) {
+            return false;
+        }
+        publish(TO_USER, new Envelope(userId, null, message));
+        return true;
+    }
+
+    /** Событие по звонку, которым владеет другой узел */
+    public void forwardToOwner(Long senderId, String senderName, WebSocketMessage message) {
+        publish(TO_OWNER, new Envelope(senderId, senderName, message));
+    }
+
+    @Override
+    public void reserved(CallSessionManager.CallSession session) {
+        publishReservation(true, session);
+    }
+
+    @Override
+    public void released(CallSessionManager.CallSession session) {
+        publishReservation(false, session);
+    }
+
+    /** Повтор резервирований живых звонков: потерянное событие и новый узел догоняют по таймеру */
+    void republishReservations() {
+        for (CallSessionManager.CallSession session : callSessionManager.getLiveCalls()) {
+            publishReservation(true, session);
+        }
+        callSessionManager.sweepRemoteReservations();
+    }
+
+    void onReservation(String body) {
+        Reservation reservation;
+        try {
+            reservation = objectMapper.readValue(body, Reservation.class);
+        } catch (Exception e) {
+            log.error("[SIGNAL] Dropped malformed call reservation: {}", e.getMessage());
+            return;
+        }
+        if (reservation.callId() == null || reservation.callerId() == null || reservation.calleeId() == null) {
+            return;
+        }
+        if (reservation.reserved()) {
+            callSessionManager.applyRemoteReservation(reservation.callId(), reservation.callerId(),
+                    reservation.calleeId(), reservation.createdAtMillis(), presence.getTtlMillis());
+        } else {
+            callSessionManager.releaseRemoteReservation(reservation.callId(), reservation.callerId(),
+                    reservation.calleeId());
+        }
+    }
+
+    /** Ключ по звонку: освобождение не обгонит резервирование того же звонка */
+    private void publishReservation(boolean reserved, CallSessionManager.CallSession session) {
+        if (reserved && session.getState() == CallSessionManager.CallState.ENDED) {
+            return;
+        }
+        Reservation reservation = new Reservation(reserved, session.getCallId(), session.getCallerId(),
+                session.getCalleeId(), session.getCreatedAtMillis());
+        try {
+            relay.publish(RESERVATION, session.getCallId(), objectMapper.writeValueAsString(reservation));
+        } catch (Exception e) {
+            log.error("[SIGNAL] Failed to relay reservation of call {}: {}", session.getCallId(), e.getMessage());
+        }
+    }
+
+    void onToUser(String body) {
+        Envelope envelope = read(body);
+        if (envelope != null && sessionManager.isUserOnline(envelope.userId())) {
+            sessionManager.sendMessageToUser(envelope.userId(), envelope.message());
+        }
+    }
+
+    void onToOwner(String body) {
+        Envelope envelope = read(body);
+        if (envelope == null || envelope.message().getCallId() == null
+                || callSessionManager.getSession(envelope.message().getCallId()) == null) {
+            return;
+        }
+        ownerHandler.handleRemote(envelope.message(), envelope.userId(), envelope.username());
+    }
+
+    private void publish(String kind, Envelope envelope) {
+        WebSocketMessage message = envelope.message();
+        // Ключ по звонку: OFFER, ICE и END одного звонка идут в одну партицию и не обгоняют друг друга
+        String key = message.getCallId() != null ? message.getCallId() : String.valueOf(envelope.userId());
+        try {
+            relay.publish(kind, key, objectMapper.writeValueAsString(envelope));
+        } catch (Exception e) {
+            log.error("[SIGNAL] Failed to relay {} for call {}: {}", message.getType(), message.getCallId(), e.getMessage());
+        }
+    }
+
+    private Envelope read(String body) {
+        try {
+            Envelope envelope = objectMapper.readValue(body, Envelope.class);
+            return envelope.userId() != null && envelope.message() != null ? envelope : null;
+        } catch (Exception e) {
+            log.error("[SIGNAL] Dropped malformed relayed signaling frame: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Кадр сигналинга между узлами: для {@value #TO_USER} — адресат, для {@value #TO_OWNER} — отправитель.
+     */
+    record Envelope(Long userId, String username, WebSocketMessage message) {
+    }
+
+    /** Занятость участников звонка этого узла ({@code reserved}) или её снятие */
+    record Reservation(boolean reserved, String callId, Long callerId, Long calleeId, long createdAtMillis) {
+    }
+}
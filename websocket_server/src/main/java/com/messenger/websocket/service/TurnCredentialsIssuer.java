@@ -0,0 +1,66 @@
+package com.messenger.websocket.service;
+
+import com.messenger.websocket.config.TurnProperties;
+import com.messenger.websocket.model.TurnCredentials;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Выпуск временных TURN credentials для coturn ({@code use-auth-secret}).
+ * <p>
+ * {@link Mac} не потокобезопасен, а {@code Mac.getInstance} + {@code init} на каждый вызов
+ * дороже самой подписи, поэтому у каждого потока свой экземпляр, один раз инициализированный
+ * секретом; после {@code doFinal} он сразу готов к следующей подписи с тем же ключом.
+ */
+@Slf4j
+@Component
+public class TurnCredentialsIssuer {
+
+    private static final String ALGORITHM = "HmacSHA1";
+
+    private final TurnProperties properties;
+    private final List<String> urls;
+    private final ThreadLocal<Mac> mac;
+
+    public TurnCredentialsIssuer(TurnProperties properties) {
+        this.properties = properties;
+        String endpoint = properties.getHost() + ":" + properties.getPort();
+        this.urls = List.of("stun:" + endpoint, "turn:" + endpoint, "turn:" + endpoint + "?transport=tcp");
+        SecretKeySpec key = new SecretKeySpec(properties.getSecret().getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(ALGORITHM);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Failed to initialize HMAC-SHA1", e);
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /** Через сколько секунд после выдачи прислать клиенту новые credentials */
+    public long refreshDelaySeconds() {
+        return Math.max(60, properties.getTtlSeconds() - properties.getRefreshBeforeSeconds());
+    }
+
+    public TurnCredentials issue(String username) {
+        long expiresAt = System.currentTimeMillis() / 1000L + properties.getTtlSeconds();
+        // Формат username для coturn: "timestamp:username"
+        String turnUsername = expiresAt + ":" + username;
+        byte[] signature = mac.get().doFinal(turnUsername.getBytes(StandardCharsets.UTF_8));
+        log.debug("[TURN] Issued credentials for user: {}", username);
+        return new TurnCredentials(urls, turnUsername, Base64.getEncoder().encodeToString(signature),
+                properties.getTtlSeconds());
+    }
+}
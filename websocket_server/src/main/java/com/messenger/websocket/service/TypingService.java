@@ -0,0 +1,238 @@
+package com.messenger.websocket.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.messenger.websocket.codec.WireCodec;
+import com.messenger.websocket.config.TypingProperties;
+import com.messenger.websocket.model.MessageType;
+import com.messenger.websocket.model.WebSocketMessage;
+import com.messenger.websocket.relay.NodeRelay;
+import io.netty.channel.Channel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Индикатор набора текста: эфемерная рассылка TYPING_START / TYPING_STOP участникам чата.
+ * <p>
+ * События живут только в памяти: не пишутся в Kafka сообщений и БД, не получают {@code seq}
+ * и не попадают в буфер возобновления. На узле отправителя START одного пользователя в чате
+ * пропускается не чаще раза в {@code throttle-ms}, STOP — только после пропущенного START.
+ * Другие узлы получают событие через {@link NodeRelay} и доставляют его своим подключённым
+ * участникам без повторного троттлинга. В исходящей очереди канала кадры набора имеют низкий
+ * приоритет и схлопываются по чату и пользователю (см. {@code OutboundFrame}).
+ */
+@Slf4j
+@Component
+public class TypingService {
+
+    static final String RELAY_KIND = "typing";
+
+    private static final long SWEEP_INTERVAL_MS = 10_000;
+
+    private final SessionManager sessionManager;
+    private final ChatParticipantService chatParticipantService;
+    private final WireCodec wireCodec;
+    private final ObjectMapper objectMapper;
+    private final NodeRelay relay;
+    private final TypingProperties properties;
+
+    /** Запрос участников при промахе кэша; {@code null}, если пул передан снаружи */
+    private final ExecutorService ownedLookupExecutor;
+    private final Executor lookupExecutor;
+
+    /** Последний пропущенный START по паре чат-пользователь и был ли после него STOP */
+    private final Map<TypingKey, TypingState> states = new ConcurrentHashMap<>();
+    private volatile long lastSweep;
+
+    @Autowired
+    public TypingService(SessionManager sessionManager,
+                         ChatParticipantService chatParticipantService,
+                         WireCodec wireCodec,
+                         ObjectMapper objectMapper,
+                         NodeRelay relay,
+                         TypingProperties properties) {
+        this(sessionManager, chatParticipantService, wireCodec, objectMapper, relay, properties,
+                newLookupExecutor(properties));
+    }
+
+    TypingService(SessionManager sessionManager,
+                  ChatParticipantService chatParticipantService,
+                  WireCodec wireCodec,
+                  ObjectMapper objectMapper,
+                  NodeRelay relay,
+                  TypingProperties properties,
+                  Executor lookupExecutor) {
+        this.sessionManager = sessionManager;
+        this.chatParticipantService = chatParticipantService;
+        this.wireCodec = wireCodec;
+        this.objectMapper = objectMapper;
+        this.relay = relay;
+        this.properties = properties;
+        this.lookupExecutor = lookupExecutor;
+        this.ownedLookupExecutor = lookupExecutor instanceof ExecutorService owned ? owned : null;
+        relay.subscribe(RELAY_KIND, this::onRelayed);
+    }
+
+    /** Переполнение очереди — событие набора просто теряется: следующий START придёт сам */
+    private static ExecutorService newLookupExecutor(TypingProperties properties) {
+        return new ThreadPoolExecutor(properties.getLookupThreads(), properties.getLookupThreads(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getLookupQueueCapacity()),
+                new DefaultThreadFactory("typing-lookup", true), new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ownedLookupExecutor != null) {
+            ownedLookupExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Событие набора от подключённого к этому узлу пользователя.
+     *
+     * @return {@code true}, если событие разослано или ждёт участников чата из core-api;
+     *         {@code false} — отброшено троттлингом, отключено или отправитель не участник чата
+     */
+    public boolean onTyping(Long userId, String username, Long chatId, boolean started) {
+        if (!properties.isEnabled() || userId == null || chatId == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        sweep(now);
+
+        TypingKey key = new TypingKey(chatId, userId);
+        if (!(started ? acceptStart(key, now) : acceptStop(key))) {
+            return false;
+        }
+
+        WebSocketMessage event = new WebSocketMessage();
+        event.setType(started ? MessageType.TYPING_START : MessageType.TYPING_STOP);
+        event.setChatId(chatId);
+        event.setUserId(userId);
+        event.setUsername(username);
+
+        List<Long> participants = chatParticipantService.getCachedParticipants(chatId);
+        if (participants != null) {
+            return dispatch(key, event, participants);
+        }
+        lookupExecutor.execute(() -> dispatch(key, event, chatParticipantService.getChatParticipants(chatId)));
+        return true;
+    }
+
+    /** START проходит, если с предыдущего пропущенного START прошло не меньше throttle-ms */
+    private boolean acceptStart(TypingKey key, long now) {
+        boolean[] accepted = new boolean[1];
+        states.compute(key, (k, state) -> {
+            if (state != null && now - state.startedAt() < properties.getThrottleMs()) {
+                return state;
+            }
+            accepted[0] = true;
+            return new TypingState(now, false);
+        });
+        return accepted[0];
+    }
+
+    /** STOP проходит один раз после пропущенного START; время START остаётся для троттлинга */
+    private boolean acceptStop(TypingKey key) {
+        boolean[] accepted = new boolean[1];
+        states.computeIfPresent(key, (k, state) -> {
+            if (state.stopped()) {
+                return state;
+            }
+            accepted[0] = true;
+            return new TypingState(state.startedAt(), true);
+        });
+        // Если START не пропускали, получатели его не видели — гасить нечего
+        return accepted[0];
+    }
+
+    private boolean dispatch(TypingKey key, WebSocketMessage event, List<Long> participants) {
+        if (!participants.contains(event.getUserId())) {
+            states.remove(key);
+            log.warn("[TYPING] User {} is not a participant of chat {}", event.getUserId(), event.getChatId());
+            return false;
+        }
+
+        deliverLocally(event, participants);
+        try {
+            relay.publish(RELAY_KIND, String.valueOf(event.getChatId()), objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            log.debug("[TYPING] Failed to relay event for chat {}: {}", event.getChatId(), e.getMessage());
+        }
+        return true;
+    }
+
+    /** Событие набора с другого узла: отправитель уже проверен и отфильтрован там */
+    void onRelayed(String body) {
+        try {
+            WebSocketMessage event = objectMapper.readValue(body, WebSocketMessage.class);
+            if (event.getChatId() == null || event.getUserId() == null) {
+                return;
+            }
+            // Поток консьюмера реле общий для всех событий: промах кэша уходит в пул, а не блокирует его
+            List<Long> participants = chatParticipantService.getCachedParticipants(event.getChatId());
+            if (participants != null) {
+                deliverLocally(event, participants);
+                return;
+            }
+            lookupExecutor.execute(() ->
+                    deliverLocally(event, chatParticipantService.getChatParticipants(event.getChatId())));
+        } catch (Exception e) {
+            log.debug("[TYPING] Dropped relayed event: {}", e.getMessage());
+        }
+    }
+
+    int trackedCount() {
+        return states.size();
+    }
+
+    /** Подключённые к этому узлу участники чата, кроме самого печатающего */
+    private void deliverLocally(WebSocketMessage event, List<Long> participants) {
+        List<Channel> channels = new ArrayList<>(participants.size());
+        for (Long participantId : participants) {
+            if (participantId.equals(event.getUserId())) {
+                continue;
+            }
+            Channel channel = sessionManager.getUserChannel(participantId);
+            if (channel != null && channel.isActive()) {
+                channels.add(channel);
+            }
+        }
+        if (channels.isEmpty()) {
+            return;
+        }
+        try {
+            ChannelFanOut.writeAndFlush(channels, event, wireCodec);
+        } catch (Exception e) {
+            log.error("[TYPING] Failed to encode event for chat {}: {}", event.getChatId(), e.getMessage());
+        }
+    }
+
+    /** Забыть START, после которых давно не было событий; не чаще раза в 10 секунд */
+    private void sweep(long now) {
+        if (now - lastSweep < SWEEP_INTERVAL_MS) {
+            return;
+        }
+        lastSweep = now;
+        long deadline = now - 2 * properties.getThrottleMs();
+        states.values().removeIf(state -> state.startedAt() < deadline);
+    }
+
+    private record TypingKey(Long chatId, Long userId) {
+    }
+
+    private record TypingState(long startedAt, boolean stopped) {
+    }
+}
@@ -0,0 +1,62 @@
+package com.messenger.websocket;
+
+import com.messenger.websocket.config.ServerTransportProperties;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class ServerTransportTest {
+
+    @Test
+    void testNioPreferenceAlwaysSelectsNio() {
+        assertEquals(ServerTransport.NIO, ServerTransport.select(ServerTransportProperties.Transport.NIO));
+    }
+
+    @Test
+    void testAutoSelectsEpollOnlyWhenAvailable() {
+        ServerTransport expected = Epoll.isAvailable() ? ServerTransport.EPOLL : ServerTransport.NIO;
+        assertEquals(expected, ServerTransport.select(ServerTransportProperties.Transport.AUTO));
+        assertEquals(expected, ServerTransport.select(ServerTransportProperties.Transport.EPOLL));
+    }
+
+    @Test
+    void testReusePortAllowsTwoAcceptorsOnOnePort() throws Exception {
+        assumeTrue(Epoll.isAvailable(), "native epoll is not available");
+        ServerTransport transport = ServerTransport.EPOLL;
+        EventLoopGroup boss = transport.newEventLoopGroup(2, "test-boss");
+        EventLoopGroup workers = transport.newEventLoopGroup(1, "test-worker");
+        try {
+            ServerBootstrap bootstrap = new ServerBootstrap()
+                    .group(boss, workers)
+                    .channel(transport.serverChannelClass())
+                    .option(EpollChannelOption.SO_REUSEPORT, true)
+                    .childHandler(new ChannelInboundHandlerAdapter());
+            Channel first = bootstrap.bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+            int port = ((InetSocketAddress) first.localAddress()).getPort();
+            Channel second = bootstrap.bind(new InetSocketAddress("127.0.0.1", port)).sync().channel();
+            assertTrue(second.isActive());
+
+            Channel client = new Bootstrap()
+                    .group(workers)
+                    .channel(transport.socketChannelClass())
+                    .handler(new ChannelInboundHandlerAdapter())
+                    .connect(first.localAddress()).sync().channel();
+            assertTrue(client.isActive());
+            client.close().sync();
+        } finally {
+            workers.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+            boss.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.messenger.websocket.benchmark;
+
+import com.messenger.websocket.service.ChannelFanOut;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocket13FrameEncoder;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Рассылка сообщений в групповой чат через настоящие TCP-соединения на loopback.
+ * <p>
+ * {@code legacy} — прежняя схема: {@code writeAndFlush} нового кадра в каждый канал, без
+ * консолидации flush. {@code fanOut} — {@link ChannelFanOut} (один буфер на всех, одна
+ * задача на event loop) и {@link FlushConsolidationHandler} в pipeline. Одна операция —
+ * одно сообщение, доставленное всем {@code members} участникам. Запуск:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main GroupChatFanOut
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GroupChatFanOutBenchmark {
+
+    private static final int BURST = 64;
+    private static final String PAYLOAD =
+            "{\"type\":\"CHAT_MESSAGE\",\"chatId\":42,\"senderId\":7,\"content\":\"Hello, group chat member!\"}";
+
+    @Param({"legacy", "fanOut"})
+    public String mode;
+
+    @Param({"50"})
+    public int members;
+
+    @Param({"2"})
+    public int workers;
+
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private EventLoopGroup clientGroup;
+    private final List<Channel> serverChannels = new CopyOnWriteArrayList<>();
+    private final AtomicLong receivedBytes = new AtomicLong();
+    private long frameSize;
+    private long expectedBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        boolean consolidate = "fanOut".equals(mode);
+        bossGroup = new NioEventLoopGroup(1);
+        workerGroup = new NioEventLoopGroup(workers);
+        clientGroup = new NioEventLoopGroup(1);
+
+        Channel server = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        if (consolidate) {
+                            ch.pipeline().addLast(new FlushConsolidationHandler(256, true));
+                        }
+                        ch.pipeline().addLast(new WebSocket13FrameEncoder(false));
+                        serverChannels.add(ch);
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+
+        Bootstrap client = new Bootstrap()
+                .group(clientGroup)
+                .channel(NioSocketChannel.class)
+                .handler(new ByteCounter(receivedBytes));
+        for (int i = 0; i < members; i++) {
+            client.connect(server.localAddress()).sync();
+        }
+        while (serverChannels.size() < members) {
+            Thread.onSpinWait();
+        }
+        // Заголовок серверного кадра без маски: 2 байта при длине до 125
+        frameSize = new TextWebSocketFrame(PAYLOAD).content().readableBytes() + 2L;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        clientGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        workerGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        bossGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void broadcastBurst() {
+        if ("fanOut".equals(mode)) {
+            for (int i = 0; i < BURST; i++) {
+                ChannelFanOut.writeAndFlush(serverChannels, new TextWebSocketFrame(PAYLOAD));
+            }
+        } else {
+            for (int i = 0; i < BURST; i++) {
+                for (Channel channel : serverChannels) {
+                    channel.writeAndFlush(new TextWebSocketFrame(PAYLOAD));
+                }
+            }
+        }
+        // Операция завершена, когда все кадры дошли до клиентов
+        expectedBytes += frameSize * BURST * members;
+        while (receivedBytes.get() < expectedBytes) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /** Клиент: считает полученные байты и выбрасывает их */
+    @ChannelHandler.Sharable
+    private static final class ByteCounter extends ChannelInboundHandlerAdapter {
+        private final AtomicLong receivedBytes;
+
+        private ByteCounter(AtomicLong receivedBytes) {
+            this.receivedBytes = receivedBytes;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            receivedBytes.addAndGet(((ByteBuf) msg).readableBytes());
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(GroupChatFanOutBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
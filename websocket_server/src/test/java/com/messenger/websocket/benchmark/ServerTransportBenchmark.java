@@ -0,0 +1,149 @@
+package com.messenger.websocket.benchmark;
+
+import com.messenger.websocket.ServerTransport;
+import com.messenger.websocket.config.ServerTransportProperties;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocket13FrameEncoder;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Скорость установки соединений и пропускная способность по транспортам {@link ServerTransport}.
+ * <p>
+ * {@code connectAndClose} — одно TCP-соединение на loopback от connect до close.
+ * {@code streamFrames} — одна операция = один текстовый кадр, доставленный клиенту.
+ * Если нативный epoll недоступен, параметр {@code EPOLL} откатывается на NIO. Запуск:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main ServerTransport
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServerTransportBenchmark {
+
+    private static final int BURST = 256;
+    private static final String PAYLOAD =
+            "{\"type\":\"CHAT_MESSAGE\",\"chatId\":42,\"senderId\":7,\"content\":\"Hello over the wire!\"}";
+
+    @Param({"NIO", "EPOLL"})
+    public ServerTransportProperties.Transport transport;
+
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private EventLoopGroup clientGroup;
+    private Channel server;
+    private Bootstrap client;
+    private Channel streamServerSide;
+    private final AtomicReference<Channel> lastAccepted = new AtomicReference<>();
+    private final AtomicLong receivedBytes = new AtomicLong();
+    private long frameSize;
+    private long expectedBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ServerTransport selected = ServerTransport.select(transport);
+        bossGroup = selected.newEventLoopGroup(1, "bench-boss");
+        workerGroup = selected.newEventLoopGroup(1, "bench-worker");
+        clientGroup = selected.newEventLoopGroup(1, "bench-client");
+
+        server = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(selected.serverChannelClass())
+                .option(ChannelOption.SO_BACKLOG, 1024)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(new WebSocket13FrameEncoder(false));
+                        lastAccepted.set(ch);
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+
+        client = new Bootstrap()
+                .group(clientGroup)
+                .channel(selected.socketChannelClass())
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(new ByteCounter(receivedBytes));
+
+        client.connect(server.localAddress()).sync();
+        while ((streamServerSide = lastAccepted.get()) == null) {
+            Thread.onSpinWait();
+        }
+        frameSize = new TextWebSocketFrame(PAYLOAD).content().readableBytes() + 2L;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close().syncUninterruptibly();
+        clientGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        workerGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        bossGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Benchmark
+    public void connectAndClose() throws InterruptedException {
+        Channel channel = client.connect(server.localAddress()).sync().channel();
+        channel.close().sync();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void streamFrames() {
+        for (int i = 0; i < BURST; i++) {
+            streamServerSide.write(new TextWebSocketFrame(PAYLOAD));
+        }
+        streamServerSide.flush();
+        expectedBytes += frameSize * BURST;
+        while (receivedBytes.get() < expectedBytes) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /** Клиент: считает полученные байты и выбрасывает их */
+    @ChannelHandler.Sharable
+    private static final class ByteCounter extends ChannelInboundHandlerAdapter {
+        private final AtomicLong receivedBytes;
+
+        private ByteCounter(AtomicLong receivedBytes) {
+            this.receivedBytes = receivedBytes;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            receivedBytes.addAndGet(((ByteBuf) msg).readableBytes());
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ServerTransportBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,97 @@
+package com.messenger.websocket.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.messenger.websocket.codec.WireCodec;
+import com.messenger.websocket.model.MessageType;
+import com.messenger.websocket.model.WebSocketMessage;
+import com.messenger.websocket.model.WireProtocol;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кодирование и разбор E2EE-сообщения чата в JSON и CBOR через {@link WireCodec}.
+ * <p>
+ * Размеры кадров двух протоколов сравнивает {@code WireCodecTest}. Запуск — как у
+ * {@link ServerTransportBenchmark}, с фильтром {@code WireCodec}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireCodecBenchmark {
+
+    @Param({"JSON", "CBOR"})
+    public WireProtocol protocol;
+
+    private WireCodec codec;
+    private WebSocketMessage message;
+    private WebSocketFrame encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ObjectMapper jsonMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        codec = new WireCodec(jsonMapper);
+
+        Random random = new Random(42);
+        byte[] iv = new byte[12];
+        byte[] ciphertext = new byte[512];
+        random.nextBytes(iv);
+        random.nextBytes(ciphertext);
+        String envelope = "{\"iv\":\"" + Base64.getEncoder().encodeToString(iv)
+                + "\",\"ciphertext\":\"" + Base64.getEncoder().encodeToString(ciphertext) + "\"}";
+
+        message = new WebSocketMessage(MessageType.CHAT_MESSAGE, envelope, 42L, 7L, "alice");
+        message.setId(1001L);
+        message.setSenderId(7L);
+        message.setSenderUsername("alice");
+        message.setTimestamp(LocalDateTime.now());
+        message.setMessageType("TEXT");
+
+        encoded = codec.encode(message, protocol);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        encoded.release();
+    }
+
+    @Benchmark
+    public int encode() throws Exception {
+        WebSocketFrame frame = codec.encode(message, protocol);
+        int size = frame.content().readableBytes();
+        frame.release();
+        return size;
+    }
+
+    @Benchmark
+    public WebSocketMessage decode() throws Exception {
+        encoded.content().markReaderIndex();
+        try {
+            return codec.decode(encoded);
+        } finally {
+            encoded.content().resetReaderIndex();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(WireCodecBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,98 @@
+package com.messenger.websocket.codec;
+
+import com.messenger.websocket.config.CompressionProperties;
+import com.messenger.websocket.model.MessageType;
+import com.messenger.websocket.model.OutboundFrame;
+import com.messenger.websocket.service.ChannelFanOut;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtension;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BroadcastCompressionTest {
+
+    private static final String LARGE = "{\"type\":\"CHAT_MESSAGE\",\"content\":\"" + "hello ".repeat(200) + "\"}";
+
+    private final BroadcastCompression compression = new BroadcastCompression(new CompressionProperties());
+
+    @Test
+    void testCompressedFrameInflatesToOriginal() throws Exception {
+        TextWebSocketFrame frame = new TextWebSocketFrame(LARGE);
+
+        WebSocketFrame compressed = compression.compress(frame);
+
+        assertNotNull(compressed);
+        assertInstanceOf(TextWebSocketFrame.class, compressed);
+        assertEquals(WebSocketExtension.RSV1, compressed.rsv() & WebSocketExtension.RSV1);
+        assertTrue(compressed.content().readableBytes() < frame.content().readableBytes());
+        assertEquals(LARGE, inflate(ByteBufUtil.getBytes(compressed.content())));
+        // Исходный кадр остаётся у вызывающего
+        assertEquals(1, frame.refCnt());
+        compressed.release();
+        frame.release();
+    }
+
+    @Test
+    void testSmallFrameIsNotCompressed() {
+        TextWebSocketFrame frame = new TextWebSocketFrame("{\"type\":\"PING\"}");
+
+        assertNull(compression.compress(frame));
+        frame.release();
+    }
+
+    @Test
+    void testCompressedFrameKeepsPriority() {
+        WebSocketFrame frame = OutboundFrame.of(LARGE, MessageType.USER_ONLINE, 7L);
+
+        OutboundFrame compressed = (OutboundFrame) compression.compress(frame);
+
+        assertNotNull(compressed);
+        assertEquals(OutboundFrame.Priority.LOW, compressed.getPriority());
+        assertEquals("presence:7", compressed.getCoalesceKey());
+        compressed.release();
+        frame.release();
+    }
+
+    @Test
+    void testFanOutSendsCompressedFrameOnlyToNegotiatedChannels() throws Exception {
+        EmbeddedChannel deflate = new EmbeddedChannel();
+        deflate.attr(BroadcastCompression.ATTRIBUTE).set(compression);
+        EmbeddedChannel plain = new EmbeddedChannel();
+
+        ChannelFanOut.writeAndFlush(List.<Channel>of(deflate, plain), new TextWebSocketFrame(LARGE));
+
+        TextWebSocketFrame compressed = deflate.readOutbound();
+        assertEquals(WebSocketExtension.RSV1, compressed.rsv() & WebSocketExtension.RSV1);
+        assertEquals(LARGE, inflate(ByteBufUtil.getBytes(compressed.content())));
+        TextWebSocketFrame original = plain.readOutbound();
+        assertEquals(0, original.rsv());
+        assertEquals(LARGE, original.text());
+        compressed.release();
+        original.release();
+        assertEquals(0, compressed.refCnt());
+        assertEquals(0, original.refCnt());
+    }
+
+    /** Разжатие так, как это делает клиент permessage-deflate: дописывается хвост 00 00 FF FF */
+    private static String inflate(byte[] payload) throws Exception {
+        byte[] input = new byte[payload.length + 4];
+        System.arraycopy(payload, 0, input, 0, payload.length);
+        input[payload.length + 2] = (byte) 0xFF;
+        input[payload.length + 3] = (byte) 0xFF;
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(input);
+        byte[] out = new byte[LARGE.length() * 2];
+        int length = inflater.inflate(out);
+        inflater.end();
+        return new String(out, 0, length, StandardCharsets.UTF_8);
+    }
+}
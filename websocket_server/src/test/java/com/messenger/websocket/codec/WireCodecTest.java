@@ -0,0 +1,127 @@
+package com.messenger.websocket.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.messenger.websocket.handler.WireMessageEncoder;
+import com.messenger.websocket.model.MessageType;
+import com.messenger.websocket.model.OutboundBinaryFrame;
+import com.messenger.websocket.model.OutboundFrame;
+import com.messenger.websocket.model.WebSocketMessage;
+import com.messenger.websocket.model.WireProtocol;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WireCodecTest {
+
+    private ObjectMapper jsonMapper;
+    private WireCodec codec;
+
+    @BeforeEach
+    void setUp() {
+        jsonMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        codec = new WireCodec(jsonMapper);
+    }
+
+    private static WebSocketMessage chatMessage(String content) {
+        WebSocketMessage message = new WebSocketMessage(MessageType.CHAT_MESSAGE, content, 42L, 7L, "alice");
+        message.setId(1001L);
+        message.setSenderId(7L);
+        message.setSenderUsername("alice");
+        message.setTimestamp(LocalDateTime.of(2024, 5, 1, 12, 30, 15));
+        return message;
+    }
+
+    private static String envelope(byte[] iv, byte[] ciphertext) {
+        return "{\"iv\":\"" + Base64.getEncoder().encodeToString(iv)
+                + "\",\"ciphertext\":\"" + Base64.getEncoder().encodeToString(ciphertext) + "\"}";
+    }
+
+    @Test
+    void testCborRoundTrip() throws Exception {
+        WebSocketMessage message = chatMessage("Hello over CBOR");
+
+        WebSocketFrame frame = codec.encode(message, WireProtocol.CBOR);
+
+        assertInstanceOf(BinaryWebSocketFrame.class, frame);
+        assertEquals(message, codec.decode(frame));
+        frame.release();
+    }
+
+    @Test
+    void testCborDropsNullsAndIsSmallerThanJson() throws Exception {
+        WebSocketMessage message = chatMessage("Hello");
+
+        WebSocketFrame json = codec.encode(message, WireProtocol.JSON);
+        WebSocketFrame cbor = codec.encode(message, WireProtocol.CBOR);
+
+        assertInstanceOf(TextWebSocketFrame.class, json);
+        int jsonBytes = json.content().readableBytes();
+        int cborBytes = cbor.content().readableBytes();
+        assertTrue(cborBytes < jsonBytes / 2, "CBOR " + cborBytes + " vs JSON " + jsonBytes);
+        json.release();
+        cbor.release();
+    }
+
+    @Test
+    void testE2eeCiphertextTravelsAsRawBytes() throws Exception {
+        byte[] iv = new byte[12];
+        byte[] ciphertext = new byte[256];
+        for (int i = 0; i < ciphertext.length; i++) {
+            ciphertext[i] = (byte) i;
+        }
+        WebSocketMessage message = chatMessage(envelope(iv, ciphertext));
+
+        WebSocketFrame frame = codec.encode(message, WireProtocol.CBOR);
+
+        JsonNode content = new CBORMapper().readTree(ByteBufUtil.getBytes(frame.content())).get("content");
+        assertTrue(content.get("ciphertext").isBinary());
+        assertArrayEquals(ciphertext, content.get("ciphertext").binaryValue());
+        assertArrayEquals(iv, content.get("iv").binaryValue());
+
+        WebSocketMessage decoded = codec.decode(frame);
+        assertEquals(jsonMapper.readTree(message.getContent()), jsonMapper.readTree(decoded.getContent()));
+        frame.release();
+    }
+
+    @Test
+    void testTextFrameDecodesAsJson() throws Exception {
+        WebSocketMessage decoded = codec.decode(new TextWebSocketFrame("{\"type\":\"PING\",\"content\":null}"));
+
+        assertEquals(MessageType.PING, decoded.getType());
+    }
+
+    @Test
+    void testEncoderUsesChannelProtocolAndKeepsPriority() {
+        EmbeddedChannel json = new EmbeddedChannel(new WireMessageEncoder(codec));
+        EmbeddedChannel cbor = new EmbeddedChannel(new WireMessageEncoder(codec));
+        cbor.attr(WireProtocol.ATTRIBUTE).set(WireProtocol.CBOR);
+        WebSocketMessage presence = new WebSocketMessage();
+        presence.setType(MessageType.USER_ONLINE);
+        presence.setUserId(3L);
+
+        json.writeOutbound(presence);
+        cbor.writeOutbound(presence);
+
+        OutboundFrame text = json.readOutbound();
+        OutboundBinaryFrame binary = cbor.readOutbound();
+        assertEquals(OutboundFrame.Priority.LOW, binary.getPriority());
+        assertEquals(text.getCoalesceKey(), binary.getCoalesceKey());
+        text.release();
+        binary.release();
+    }
+}
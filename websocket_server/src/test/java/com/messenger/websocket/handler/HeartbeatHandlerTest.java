@@ -0,0 +1,52 @@
+package com.messenger.websocket.handler;
+
+import com.messenger.websocket.metrics.OutboundMetrics;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.timeout.IdleStateEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeartbeatHandlerTest {
+
+    private OutboundMetrics metrics;
+    private EmbeddedChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new OutboundMetrics();
+        channel = new EmbeddedChannel(new HeartbeatHandler(metrics));
+    }
+
+    @Test
+    void testPingSentWhenIdleAfterHandshake() {
+        channel.pipeline().fireUserEventTriggered(
+                new WebSocketServerProtocolHandler.HandshakeComplete("/ws/chat", new DefaultHttpHeaders(), null));
+
+        channel.pipeline().fireUserEventTriggered(IdleStateEvent.ALL_IDLE_STATE_EVENT);
+
+        PingWebSocketFrame ping = channel.readOutbound();
+        assertNotNull(ping);
+        ping.release();
+        assertTrue(channel.isActive());
+    }
+
+    @Test
+    void testNoPingBeforeHandshake() {
+        channel.pipeline().fireUserEventTriggered(IdleStateEvent.ALL_IDLE_STATE_EVENT);
+
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    void testSilentClientIsDisconnected() {
+        channel.pipeline().fireUserEventTriggered(IdleStateEvent.READER_IDLE_STATE_EVENT);
+
+        assertFalse(channel.isActive());
+        assertEquals(1, metrics.getIdleDisconnects());
+    }
+}
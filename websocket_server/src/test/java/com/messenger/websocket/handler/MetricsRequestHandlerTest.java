@@ -0,0 +1,49 @@
+package com.messenger.websocket.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.messenger.websocket.metrics.CallMetrics;
+import com.messenger.websocket.metrics.OutboundMetrics;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRequestHandlerTest {
+
+    private EmbeddedChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        channel = new EmbeddedChannel(new MetricsRequestHandler(new OutboundMetrics(), new CallMetrics(),
+                new ObjectMapper()));
+    }
+
+    @Test
+    void testCallMetricsServed() {
+        channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET,
+                MetricsRequestHandler.CALL_METRICS_PATH));
+
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals(HttpResponseStatus.OK, response.status());
+        assertTrue(response.content().toString(StandardCharsets.UTF_8).startsWith("{"));
+        response.release();
+    }
+
+    @Test
+    void testOtherPathsNotFound() {
+        channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/ws/chat"));
+
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals(HttpResponseStatus.NOT_FOUND, response.status());
+        response.release();
+        assertNull(channel.readInbound());
+    }
+}
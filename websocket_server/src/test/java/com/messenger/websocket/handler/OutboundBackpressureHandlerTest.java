@@ -0,0 +1,134 @@
+package com.messenger.websocket.handler;
+
+import com.messenger.websocket.config.OutboundProperties;
+import com.messenger.websocket.metrics.OutboundMetrics;
+import com.messenger.websocket.model.MessageType;
+import com.messenger.websocket.model.OutboundFrame;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OutboundBackpressureHandlerTest {
+
+    private OutboundMetrics metrics;
+    private OutboundBackpressureHandler handler;
+    private EmbeddedChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        OutboundProperties properties = new OutboundProperties();
+        properties.setMaxQueuedFrames(3);
+        properties.setUnwritableTimeoutMs(1000);
+        metrics = new OutboundMetrics();
+        handler = new OutboundBackpressureHandler(properties, metrics);
+        channel = new EmbeddedChannel(handler);
+        // Любая неотправленная запись делает канал unwritable
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(1, 2));
+    }
+
+    @Test
+    void testWritableChannelPassesFramesThrough() {
+        channel.writeAndFlush(new TextWebSocketFrame("a"));
+        channel.writeAndFlush(new TextWebSocketFrame("b"));
+
+        assertEquals(List.of("a", "b"), readOutbound());
+        assertEquals(0, handler.getQueuedFrames());
+    }
+
+    @Test
+    void testFramesQueuedWhileUnwritableAndDrainedInOrder() {
+        channel.write(new TextWebSocketFrame("a"));
+        assertFalse(channel.isWritable());
+
+        channel.write(new TextWebSocketFrame("b"));
+        channel.write(new TextWebSocketFrame("c"));
+        assertEquals(2, handler.getQueuedFrames());
+        assertEquals(2, metrics.getQueuedFrames());
+
+        channel.flush();
+        channel.runPendingTasks();
+        channel.flush();
+
+        assertEquals(List.of("a", "b", "c"), readOutbound());
+        assertEquals(0, handler.getQueuedFrames());
+        assertEquals(0, metrics.getQueuedFrames());
+        assertEquals(0, metrics.getQueuedBytes());
+    }
+
+    @Test
+    void testPresenceFramesAreCoalescedPerUser() {
+        channel.write(new TextWebSocketFrame("a"));
+        channel.write(OutboundFrame.of("online", MessageType.USER_ONLINE, 5L));
+        channel.write(OutboundFrame.of("offline", MessageType.USER_OFFLINE, 5L));
+        assertEquals(1, handler.getQueuedFrames());
+
+        channel.flush();
+        channel.runPendingTasks();
+
+        assertEquals(List.of("a", "offline"), readOutbound());
+        assertEquals(1, metrics.snapshot().get("coalesced"));
+    }
+
+    @Test
+    void testLowPriorityDroppedBeforeNormalFrames() {
+        channel.write(new TextWebSocketFrame("a"));
+        channel.write(OutboundFrame.of("p1", MessageType.USER_ONLINE, 1L));
+        channel.write(new TextWebSocketFrame("b"));
+        channel.write(OutboundFrame.of("p2", MessageType.USER_ONLINE, 2L));
+        // Очередь заполнена: нормальный кадр вытесняет самый старый низкоприоритетный
+        channel.write(new TextWebSocketFrame("c"));
+        // Вытеснять больше нечего: новый низкоприоритетный кадр отбрасывается
+        ChannelFuture dropped = channel.write(OutboundFrame.of("p3", MessageType.USER_ONLINE, 3L));
+        channel.write(new TextWebSocketFrame("d"));
+
+        assertFalse(dropped.isSuccess());
+        assertEquals(3, metrics.getDroppedLowPriority());
+        assertTrue(channel.isOpen());
+
+        channel.flush();
+        channel.runPendingTasks();
+        assertEquals(List.of("a", "b", "c", "d"), readOutbound());
+    }
+
+    @Test
+    void testOverflowWithNormalFramesDisconnectsClient() {
+        for (int i = 0; i < 5; i++) {
+            channel.write(new TextWebSocketFrame("m" + i));
+        }
+
+        assertFalse(channel.isOpen());
+        assertEquals(1, metrics.getSlowConsumerDisconnects());
+        assertEquals(0, metrics.getQueuedFrames());
+    }
+
+    @Test
+    void testClientStuckUnwritableIsDisconnected() throws InterruptedException {
+        channel.write(new TextWebSocketFrame("a"));
+        assertFalse(channel.isWritable());
+
+        TimeUnit.MILLISECONDS.sleep(1100);
+        channel.runScheduledPendingTasks();
+
+        assertFalse(channel.isOpen());
+        assertEquals(1, metrics.getSlowConsumerDisconnects());
+    }
+
+    private List<String> readOutbound() {
+        List<String> texts = new ArrayList<>();
+        TextWebSocketFrame frame;
+        while ((frame = channel.readOutbound()) != null) {
+            texts.add(frame.text());
+            frame.release();
+        }
+        return texts;
+    }
+}
@@ -0,0 +1,100 @@
+package com.messenger.websocket.handler;
+
+import com.messenger.websocket.handler.message.SignalingMessageHandler;
+import com.messenger.websocket.model.IceCandidate;
+import com.messenger.websocket.model.MessageType;
+import com.messenger.websocket.model.WebSocketMessage;
+import com.messenger.websocket.service.CallSessionManager;
+import com.messenger.websocket.service.SessionManager;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class SignalingMessageHandlerTest {
+
+    private SessionManager sessionManager;
+    private SignalingMessageHandler handler;
+    private EmbeddedChannel channel;
+    private ChannelHandlerContext ctx;
+
+    @BeforeEach
+    void setUp() {
+        sessionManager = mock(SessionManager.class);
+        handler = new SignalingMessageHandler(sessionManager, mock(CallSessionManager.class));
+        channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ctx = channel.pipeline().firstContext();
+        String sessionId = channel.id().asShortText();
+        when(sessionManager.isAuthenticated(sessionId)).thenReturn(true);
+        when(sessionManager.getUserId(sessionId)).thenReturn(1L);
+        when(sessionManager.sendMessageToUser(anyLong(), any())).thenReturn(true);
+    }
+
+    @Test
+    void testCandidatesWithinWindowAreSentAsOneFrame() throws InterruptedException {
+        handler.handle(ctx, candidate("c1", "a"));
+        handler.handle(ctx, candidate("c1", "b"));
+        WebSocketMessage array = candidate("c1", null);
+        array.setType(MessageType.ICE_CANDIDATES);
+        array.setCandidates(List.of(new IceCandidate("c", "0", 0), new IceCandidate("d", "0", 0)));
+        handler.handle(ctx, array);
+        verify(sessionManager, never()).sendMessageToUser(anyLong(), any());
+
+        flushWindow();
+
+        ArgumentCaptor<WebSocketMessage> sent = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(sessionManager, times(1)).sendMessageToUser(eq(2L), sent.capture());
+        WebSocketMessage batch = sent.getValue();
+        assertEquals(MessageType.ICE_CANDIDATES, batch.getType());
+        assertEquals(1L, batch.getUserId());
+        assertEquals(List.of("a", "b", "c", "d"), batch.getCandidates().stream().map(IceCandidate::getCandidate).toList());
+    }
+
+    @Test
+    void testSingleCandidateKeepsLegacyFrame() throws InterruptedException {
+        handler.handle(ctx, candidate("c1", "a"));
+
+        flushWindow();
+
+        ArgumentCaptor<WebSocketMessage> sent = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(sessionManager).sendMessageToUser(eq(2L), sent.capture());
+        assertEquals(MessageType.ICE_CANDIDATE, sent.getValue().getType());
+        assertEquals("a", sent.getValue().getCandidate());
+        assertNull(sent.getValue().getCandidates());
+    }
+
+    @Test
+    void testCandidatesOfAnotherCallFlushPreviousBatch() {
+        handler.handle(ctx, candidate("c1", "a"));
+        handler.handle(ctx, candidate("c2", "b"));
+
+        ArgumentCaptor<WebSocketMessage> sent = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(sessionManager).sendMessageToUser(eq(2L), sent.capture());
+        assertEquals("c1", sent.getValue().getCallId());
+    }
+
+    private void flushWindow() throws InterruptedException {
+        TimeUnit.MILLISECONDS.sleep(50);
+        channel.runScheduledPendingTasks();
+    }
+
+    private static WebSocketMessage candidate(String callId, String candidate) {
+        WebSocketMessage message = new WebSocketMessage();
+        message.setType(MessageType.ICE_CANDIDATE);
+        message.setCallId(callId);
+        message.setTargetUserId(2L);
+        message.setCandidate(candidate);
+        message.setSdpMid("0");
+        message.setSdpMLineIndex(0);
+        return message;
+    }
+}
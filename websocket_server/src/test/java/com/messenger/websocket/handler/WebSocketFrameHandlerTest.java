@@ -2,6 +2,7 @@ package com.messenger.websocket.handler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.WebSocketFrame;
 import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
@@ -127,7 +128,8 @@ public class WebSocketFrameHandlerTest {
         when(jwtAuthService.getUsernameFromToken(anyString())).thenReturn("user");
         when(jwtAuthService.getUserIdFromToken(anyString())).thenReturn(1L);
         doNothing().when(sessionManager).addSession(anyString(), any(), anyString(), anyLong());
-        testableHandler.userEventTriggered(ctx, WebSocketServerProtocolHandler.ServerHandshakeStateEvent.HANDSHAKE_COMPLETE);
+        testableHandler.userEventTriggered(ctx, new WebSocketServerProtocolHandler.HandshakeComplete(
+                "/ws/chat", EmptyHttpHeaders.INSTANCE, null));
         verify(jwtAuthService).validateToken(anyString());
     }
 
@@ -135,7 +137,8 @@ public class WebSocketFrameHandlerTest {
     void testUserEventTriggeredHandshakeCompleteNoToken() throws Exception {
         when(ctx.channel().attr(any())).thenReturn(mock(io.netty.util.Attribute.class));
         when(ctx.channel().attr(any()).get()).thenReturn(null);
-        testableHandler.userEventTriggered(ctx, WebSocketServerProtocolHandler.ServerHandshakeStateEvent.HANDSHAKE_COMPLETE);
+        testableHandler.userEventTriggered(ctx, new WebSocketServerProtocolHandler.HandshakeComplete(
+                "/ws/chat", EmptyHttpHeaders.INSTANCE, null));
         // Should call ctx.close()
         verify(ctx).close();
     }
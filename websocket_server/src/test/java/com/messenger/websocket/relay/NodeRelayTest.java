@@ -0,0 +1,54 @@
+package com.messenger.websocket.relay;
+
+import com.messenger.websocket.config.RelayProperties;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NodeRelayTest {
+
+    private NodeRelay relay;
+    private final List<String> received = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        RelayProperties properties = new RelayProperties();
+        properties.setNodeId("local");
+        relay = new NodeRelay(properties);
+        relay.subscribe("typing", received::add);
+    }
+
+    @Test
+    void testForeignRecordGoesToSubscriberOfItsKind() {
+        relay.dispatch(record("node-b", "typing", "event"));
+        relay.dispatch(record("node-b", "presence", "ignored"));
+
+        assertEquals(List.of("event"), received);
+    }
+
+    @Test
+    void testOwnRecordIsSkipped() {
+        relay.dispatch(record("local", "typing", "echo"));
+
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void testChannelsUseSeparateTopics() {
+        RelayProperties properties = new RelayProperties();
+        assertNotEquals(new NodeRelay(properties).topic(), new SignalingChannel(properties).topic());
+    }
+
+    private static ConsumerRecord<String, String> record(String origin, String kind, String body) {
+        ConsumerRecord<String, String> record = new ConsumerRecord<>("websocket-relay", 0, 0L, "key", body);
+        record.headers().add(KafkaRelayChannel.ORIGIN_HEADER, origin.getBytes(StandardCharsets.UTF_8));
+        record.headers().add(KafkaRelayChannel.KIND_HEADER, kind.getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+}
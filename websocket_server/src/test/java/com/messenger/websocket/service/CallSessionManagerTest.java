@@ -0,0 +1,165 @@
+package com.messenger.websocket.service;
+
+import com.messenger.websocket.metrics.CallMetrics;
+import com.messenger.websocket.model.MessageType;
+import com.messenger.websocket.model.WebSocketMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class CallSessionManagerTest {
+
+    private CallMetrics metrics;
+    private CallSessionManager manager;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new CallMetrics();
+        manager = new CallSessionManager(mock(SessionManager.class), metrics);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.stop();
+    }
+
+    @Test
+    void testBusyCalleeIsRejected() {
+        assertNotNull(manager.createCall("a", 1L, 2L));
+
+        assertNull(manager.createCall("b", 3L, 2L));
+        assertFalse(manager.isUserInCall(3L));
+        assertNull(manager.getSession("b"));
+        assertEquals(1, metrics.getBusy());
+    }
+
+    @Test
+    void testConcurrentOffersReserveCalleeOnce() throws Exception {
+        int callers = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (long caller = 100; caller < 100 + callers; caller++) {
+            long callerId = caller;
+            results.add(pool.submit(() -> {
+                start.await();
+                return manager.createCall(null, callerId, 1L);
+            }));
+        }
+        start.countDown();
+
+        int created = 0;
+        for (Future<String> result : results) {
+            if (result.get() != null) {
+                created++;
+            }
+        }
+        pool.shutdown();
+
+        assertEquals(1, created);
+        assertEquals(1, metrics.getConcurrentCalls());
+        assertEquals(callers - 1, metrics.getBusy());
+    }
+
+    @Test
+    void testOnlyCalleeCanAnswerOnce() {
+        String callId = manager.createCall(null, 1L, 2L);
+
+        assertFalse(manager.activateCall(callId, 1L));
+        assertTrue(manager.activateCall(callId, 2L));
+        assertFalse(manager.activateCall(callId, 2L));
+        assertEquals(CallSessionManager.CallState.ACTIVE, manager.getSession(callId).getState());
+        assertEquals(1, metrics.getAnswered());
+    }
+
+    @Test
+    void testEndReleasesBothUsersOnce() {
+        String callId = manager.createCall(null, 1L, 2L);
+
+        manager.endCall(callId);
+        manager.endCall(callId);
+
+        assertFalse(manager.isUserInCall(1L));
+        assertFalse(manager.isUserInCall(2L));
+        assertEquals(0, metrics.getConcurrentCalls());
+        assertFalse(manager.activateCall(callId, 2L));
+        assertNotNull(manager.createCall(null, 2L, 1L));
+    }
+
+    @Test
+    void testEndingOldCallKeepsNewReservation() {
+        String first = manager.createCall(null, 1L, 2L);
+        manager.endCall(first);
+        String second = manager.createCall(null, 2L, 3L);
+
+        manager.endCall(first);
+
+        assertTrue(manager.isUserInCall(2L));
+        assertEquals(second, manager.getSession(second).getCallId());
+    }
+
+    @Test
+    void testUserReservedOnAnotherNodeIsBusy() {
+        manager.applyRemoteReservation("remote", 7L, 2L, System.currentTimeMillis(), 30_000);
+
+        assertTrue(manager.isUserInCall(2L));
+        assertNull(manager.createCall("local", 1L, 2L));
+        assertEquals(1, metrics.getBusy());
+
+        manager.releaseRemoteReservation("remote", 7L, 2L);
+        assertFalse(manager.isUserInCall(2L));
+        assertNotNull(manager.createCall("local", 1L, 2L));
+    }
+
+    @Test
+    void testExpiredRemoteReservationIsIgnored() {
+        manager.applyRemoteReservation("remote", 7L, 2L, System.currentTimeMillis(), 0);
+
+        assertFalse(manager.isUserInCall(2L));
+        assertNotNull(manager.createCall(null, 1L, 2L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testLaterRingingCallYieldsToEarlierRemoteCall() {
+        BiPredicate<Long, WebSocketMessage> delivery = mock(BiPredicate.class);
+        manager.setDelivery(delivery);
+        CallSessionManager.ReservationListener listener = mock(CallSessionManager.ReservationListener.class);
+        manager.setReservationListener(listener);
+        String local = manager.createCall("local", 1L, 2L);
+        long localStart = manager.getSession(local).getCreatedAtMillis();
+
+        manager.applyRemoteReservation("remote", 7L, 2L, localStart - 1, 30_000);
+
+        assertEquals(CallSessionManager.CallState.ENDED, manager.getSession(local).getState());
+        assertFalse(manager.isUserInCall(1L));
+        assertTrue(manager.isUserInCall(2L));
+        verify(listener).released(manager.getSession(local));
+        verify(delivery).test(eq(1L), argThat(m -> m.getType() == MessageType.CALL_BUSY));
+        verify(delivery).test(eq(2L), argThat(m -> m.getType() == MessageType.CALL_END));
+    }
+
+    @Test
+    void testEarlierOrAnsweredLocalCallKeepsUser() {
+        String ringing = manager.createCall("ringing", 1L, 2L);
+        manager.applyRemoteReservation("later", 7L, 2L, manager.getSession(ringing).getCreatedAtMillis() + 1, 30_000);
+        assertEquals(CallSessionManager.CallState.RINGING, manager.getSession(ringing).getState());
+
+        String answered = manager.createCall("answered", 3L, 4L);
+        manager.activateCall(answered, 4L);
+        manager.applyRemoteReservation("earlier", 8L, 4L, 0, 30_000);
+        assertEquals(CallSessionManager.CallState.ACTIVE, manager.getSession(answered).getState());
+    }
+}
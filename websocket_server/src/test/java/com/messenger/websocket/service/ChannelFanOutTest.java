@@ -0,0 +1,57 @@
+package com.messenger.websocket.service;
+
+import com.messenger.websocket.model.MessageType;
+import com.messenger.websocket.model.OutboundFrame;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChannelFanOutTest {
+
+    @Test
+    void testEveryActiveChannelReceivesFrame() {
+        EmbeddedChannel first = new EmbeddedChannel();
+        EmbeddedChannel second = new EmbeddedChannel();
+        EmbeddedChannel closed = new EmbeddedChannel();
+        closed.close();
+        TextWebSocketFrame frame = new TextWebSocketFrame("hello");
+
+        int sent = ChannelFanOut.writeAndFlush(List.<Channel>of(first, second, closed), frame);
+
+        assertEquals(2, sent);
+        // Копии делят буфер исходного кадра: он освобождается вместе с последней копией
+        assertEquals(2, frame.refCnt());
+        for (EmbeddedChannel channel : List.of(first, second)) {
+            TextWebSocketFrame received = channel.readOutbound();
+            assertEquals("hello", received.text());
+            received.release();
+        }
+        assertEquals(0, frame.refCnt());
+        assertNull(closed.readOutbound());
+    }
+
+    @Test
+    void testCopiesKeepPriority() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+
+        ChannelFanOut.writeAndFlush(List.of(channel), OutboundFrame.of("{}", MessageType.USER_OFFLINE, 3L));
+
+        OutboundFrame received = channel.readOutbound();
+        assertEquals(OutboundFrame.Priority.LOW, received.getPriority());
+        assertEquals("presence:3", received.getCoalesceKey());
+        received.release();
+    }
+
+    @Test
+    void testEmptyRecipientsReleaseFrame() {
+        TextWebSocketFrame frame = new TextWebSocketFrame("nobody");
+
+        assertEquals(0, ChannelFanOut.writeAndFlush(List.of(), frame));
+        assertEquals(0, frame.refCnt());
+    }
+}
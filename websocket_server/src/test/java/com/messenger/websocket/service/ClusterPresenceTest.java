@@ -0,0 +1,90 @@
+package com.messenger.websocket.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.messenger.websocket.config.RelayProperties;
+import com.messenger.websocket.relay.NodeRelay;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ClusterPresenceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong clock = new AtomicLong();
+    private NodeRelay nodeRelay;
+    private ClusterPresence presence;
+
+    @BeforeEach
+    void setUp() {
+        nodeRelay = mock(NodeRelay.class);
+        when(nodeRelay.isEnabled()).thenReturn(true);
+        when(nodeRelay.getNodeId()).thenReturn("local");
+        RelayProperties properties = new RelayProperties();
+        properties.setPresenceIntervalMs(1000);
+        presence = new ClusterPresence(nodeRelay, objectMapper, properties, clock::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        presence.stop();
+    }
+
+    @Test
+    void testUserOnAnotherNodeUntilOffline() throws Exception {
+        presence.onRelayed(event(ClusterPresence.EventType.ONLINE, "node-b", 2L));
+        assertTrue(presence.isOnlineElsewhere(2L));
+        assertFalse(presence.isOnlineElsewhere(3L));
+
+        presence.onRelayed(event(ClusterPresence.EventType.OFFLINE, "node-b", 2L));
+        assertFalse(presence.isOnlineElsewhere(2L));
+    }
+
+    @Test
+    void testUnconfirmedUserExpires() throws Exception {
+        presence.onRelayed(event(ClusterPresence.EventType.SNAPSHOT, "node-b", 2L));
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(2999));
+        assertTrue(presence.isOnlineElsewhere(2L));
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertFalse(presence.isOnlineElsewhere(2L));
+    }
+
+    @Test
+    void testLeavingNodeIsForgotten() throws Exception {
+        presence.onRelayed(event(ClusterPresence.EventType.SNAPSHOT, "node-b", 2L, 3L));
+        presence.onRelayed(event(ClusterPresence.EventType.LEAVE, "node-b"));
+        assertFalse(presence.isOnlineElsewhere(2L));
+        assertFalse(presence.isOnlineElsewhere(3L));
+    }
+
+    @Test
+    void testSnapshotReplaysLocalUsers() throws Exception {
+        presence.userConnected(1L);
+        presence.userConnected(2L);
+        presence.userDisconnected(1L);
+        reset(nodeRelay);
+        when(nodeRelay.isEnabled()).thenReturn(true);
+        when(nodeRelay.getNodeId()).thenReturn("local");
+
+        presence.publishSnapshot();
+
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(nodeRelay).publish(eq(ClusterPresence.RELAY_KIND), eq("local"), body.capture());
+        ClusterPresence.PresenceEvent snapshot = objectMapper.readValue(body.getValue(), ClusterPresence.PresenceEvent.class);
+        assertEquals(ClusterPresence.EventType.SNAPSHOT, snapshot.type());
+        assertEquals(List.of(2L), snapshot.users());
+    }
+
+    private String event(ClusterPresence.EventType type, String node, Long... users) throws Exception {
+        return objectMapper.writeValueAsString(new ClusterPresence.PresenceEvent(type, node, List.of(users)));
+    }
+}
@@ -2,6 +2,8 @@ package com.messenger.websocket.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import com.messenger.websocket.codec.WireCodec;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -29,13 +31,17 @@ public class MessageForwardServiceTest {
     private SessionManager sessionManager;
     @Mock
     private Channel channel;
+    @Mock
+    private EventLoop eventLoop;
 
     private MessageForwardService service;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        service = new MessageForwardService(objectMapper, sessionManager);
+        service = new MessageForwardService(objectMapper, sessionManager, new WireCodec(objectMapper));
+        when(channel.eventLoop()).thenReturn(eventLoop);
+        when(eventLoop.inEventLoop()).thenReturn(true);
     }
 
     @Test
@@ -51,7 +57,7 @@ public class MessageForwardServiceTest {
         when(channel.isActive()).thenReturn(true);
         when(objectMapper.writeValueAsString(any())).thenReturn("json");
         service.handleMessageFromKafka("1", "{}");
-        verify(channel, atLeastOnce()).writeAndFlush(any(TextWebSocketFrame.class));
+        verify(channel, atLeastOnce()).write(any(TextWebSocketFrame.class));
     }
 
     @Test
@@ -81,7 +87,7 @@ public class MessageForwardServiceTest {
         when(channel.isActive()).thenReturn(true);
         when(objectMapper.writeValueAsString(any())).thenReturn("json");
         service.handleMessageFromKafka("1", "{}");
-        verify(channel, atLeastOnce()).writeAndFlush(any(TextWebSocketFrame.class));
+        verify(channel, atLeastOnce()).write(any(TextWebSocketFrame.class));
     }
 
     @Test
@@ -97,7 +103,7 @@ public class MessageForwardServiceTest {
         when(channel.isActive()).thenReturn(true);
         when(objectMapper.writeValueAsString(any())).thenReturn("json");
         service.handleMessageFromKafka("1", "{}");
-        verify(channel, atLeastOnce()).writeAndFlush(any(TextWebSocketFrame.class));
+        verify(channel, atLeastOnce()).write(any(TextWebSocketFrame.class));
     }
 
     @Test
@@ -115,7 +121,7 @@ public class MessageForwardServiceTest {
         when(channel.isActive()).thenReturn(true);
         when(objectMapper.writeValueAsString(any())).thenReturn("json");
         service.handleMessageFromKafka("1", "{}");
-        verify(channel, atLeastOnce()).writeAndFlush(any(TextWebSocketFrame.class));
+        verify(channel, atLeastOnce()).write(any(TextWebSocketFrame.class));
     }
 
     @Test
@@ -148,7 +154,7 @@ public class MessageForwardServiceTest {
         when(sessionManager.getChatChannels(1L)).thenReturn(List.of(channel));
         when(channel.isActive()).thenReturn(true);
         when(objectMapper.writeValueAsString(any())).thenReturn("json");
-        doThrow(new RuntimeException("write error")).when(channel).writeAndFlush(any());
+        doThrow(new RuntimeException("write error")).when(channel).write(any());
         service.handleMessageFromKafka("1", "{}");
     }
 
@@ -168,7 +174,7 @@ public class MessageForwardServiceTest {
         when(channel.isActive()).thenReturn(true);
         when(objectMapper.writeValueAsString(any())).thenReturn("json");
         service.handleMessageFromKafka("1", "{}");
-        verify(channel, atLeastOnce()).writeAndFlush(any(TextWebSocketFrame.class));
+        verify(channel, atLeastOnce()).write(any(TextWebSocketFrame.class));
     }
 
     @Test
@@ -193,7 +199,7 @@ public class MessageForwardServiceTest {
         when(channel.isActive()).thenReturn(true);
         when(objectMapper.writeValueAsString(any())).thenReturn("json");
         service.handleMessageFromKafka("1", "{}");
-        verify(channel, atLeastOnce()).writeAndFlush(any(TextWebSocketFrame.class));
+        verify(channel, atLeastOnce()).write(any(TextWebSocketFrame.class));
     }
 
     @Test
@@ -208,7 +214,7 @@ public class MessageForwardServiceTest {
         when(channel.isActive()).thenReturn(true);
         when(objectMapper.writeValueAsString(any())).thenReturn("json");
         service.handleMessageFromKafka("1", "{}");
-        verify(channel, atLeastOnce()).writeAndFlush(any(TextWebSocketFrame.class));
+        verify(channel, atLeastOnce()).write(any(TextWebSocketFrame.class));
     }
 
     @Test
@@ -268,7 +274,7 @@ public class MessageForwardServiceTest {
         when(channel.isActive()).thenReturn(true);
         when(objectMapper.writeValueAsString(any())).thenReturn("json");
         service.handleMessageFromKafka("1", "{}");
-        verify(channel, atLeastOnce()).writeAndFlush(any(TextWebSocketFrame.class));
+        verify(channel, atLeastOnce()).write(any(TextWebSocketFrame.class));
     }
 
     @Test
@@ -281,7 +287,7 @@ public class MessageForwardServiceTest {
         when(channel.isActive()).thenReturn(true);
         when(objectMapper.writeValueAsString(any())).thenReturn("json");
         service.handleMessageFromKafka("1", "{}");
-        verify(channel, atLeastOnce()).writeAndFlush(any(TextWebSocketFrame.class));
+        verify(channel, atLeastOnce()).write(any(TextWebSocketFrame.class));
     }
 
     @Test
@@ -316,7 +322,7 @@ public class MessageForwardServiceTest {
         when(sessionManager.getChatChannels(1L)).thenReturn(List.of(channel));
         when(channel.isActive()).thenReturn(true);
         when(objectMapper.writeValueAsString(any())).thenReturn("json");
-        doThrow(new RuntimeException("write error")).when(channel).writeAndFlush(any());
+        doThrow(new RuntimeException("write error")).when(channel).write(any());
         service.handleMessageFromKafka("1", "{}");
     }
 
@@ -0,0 +1,105 @@
+package com.messenger.websocket.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.messenger.websocket.codec.WireCodec;
+import com.messenger.websocket.config.ReplayProperties;
+import com.messenger.websocket.model.MessageType;
+import com.messenger.websocket.model.WebSocketMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplayBufferTest {
+
+    private ReplayProperties properties;
+    private ReplayBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ReplayProperties();
+        properties.setCapacity(3);
+        buffer = new ReplayBuffer(properties, new WireCodec(new ObjectMapper().registerModule(new JavaTimeModule())));
+    }
+
+    @Test
+    void testReplaysOnlyEventsAfterToken() {
+        buffer.attach(1L);
+        buffer.append(List.of(1L, 2L), message("first"));
+        String token = buffer.currentToken();
+        buffer.detach(1L);
+        buffer.append(List.of(1L, 2L), message("second"));
+        buffer.append(List.of(1L), message("third"));
+
+        List<WebSocketMessage> missed = buffer.replay(1L, token, buffer.currentToken());
+
+        assertEquals(List.of("second", "third"), missed.stream().map(WebSocketMessage::getContent).toList());
+        assertTrue(missed.get(0).getSeq() < missed.get(1).getSeq());
+        assertEquals(42L, missed.get(0).getChatId());
+    }
+
+    @Test
+    void testReplayStopsAtIssuedToken() {
+        buffer.attach(1L);
+        String token = buffer.currentToken();
+        buffer.append(List.of(1L), message("missed"));
+        // Новая сессия уже зарегистрирована: следующее событие она получит вживую
+        String issued = buffer.currentToken();
+        buffer.append(List.of(1L), message("live"));
+
+        List<WebSocketMessage> missed = buffer.replay(1L, token, issued);
+
+        assertEquals(List.of("missed"), missed.stream().map(WebSocketMessage::getContent).toList());
+    }
+
+    @Test
+    void testAppendAssignsSequenceToMessage() {
+        buffer.attach(1L);
+        WebSocketMessage message = message("hello");
+
+        buffer.append(List.of(1L), message);
+
+        assertNotNull(message.getSeq());
+        assertTrue(buffer.currentToken().endsWith(":" + message.getSeq()));
+    }
+
+    @Test
+    void testEvictedGapRequiresResync() {
+        buffer.attach(1L);
+        String token = buffer.currentToken();
+        for (int i = 0; i < 4; i++) {
+            buffer.append(List.of(1L), message("m" + i));
+        }
+
+        assertNull(buffer.replay(1L, token, buffer.currentToken()));
+    }
+
+    @Test
+    void testForeignOrMalformedTokenRequiresResync() {
+        buffer.attach(1L);
+        buffer.append(List.of(1L), message("hello"));
+
+        assertNull(buffer.replay(1L, "otherEpoch:0", buffer.currentToken()));
+        assertNull(buffer.replay(1L, "garbage", buffer.currentToken()));
+        assertNull(buffer.replay(2L, buffer.currentToken(), buffer.currentToken()));
+    }
+
+    @Test
+    void testExpiredRingIsDropped() throws Exception {
+        properties.setRetentionMs(0);
+        buffer.attach(1L);
+        buffer.detach(1L);
+        Thread.sleep(1_100);
+
+        buffer.attach(2L);
+
+        assertEquals(1, buffer.ringCount());
+    }
+
+    private static WebSocketMessage message(String content) {
+        return new WebSocketMessage(MessageType.CHAT_MESSAGE, content, 42L, 7L, "author");
+    }
+}
@@ -1,5 +1,9 @@
 package com.messenger.websocket.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.messenger.websocket.codec.WireCodec;
+import com.messenger.websocket.config.ReplayProperties;
 import io.netty.channel.ChannelHandlerContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -29,6 +33,9 @@ public class SessionManagerTest {
     @Mock
     private ChannelHandlerContext ctx;
 
+    @Mock
+    private ClusterPresence clusterPresence;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -46,6 +53,19 @@ public class SessionManagerTest {
             java.lang.reflect.Field userDataField = SessionManager.class.getDeclaredField("userDataService");
             userDataField.setAccessible(true);
             userDataField.set(sessionManager, userDataService);
+
+            java.lang.reflect.Field wireCodecField = SessionManager.class.getDeclaredField("wireCodec");
+            wireCodecField.setAccessible(true);
+            WireCodec wireCodec = new WireCodec(new ObjectMapper().registerModule(new JavaTimeModule()));
+            wireCodecField.set(sessionManager, wireCodec);
+
+            java.lang.reflect.Field replayBufferField = SessionManager.class.getDeclaredField("replayBuffer");
+            replayBufferField.setAccessible(true);
+            replayBufferField.set(sessionManager, new ReplayBuffer(new ReplayProperties(), wireCodec));
+
+            java.lang.reflect.Field clusterPresenceField = SessionManager.class.getDeclaredField("clusterPresence");
+            clusterPresenceField.setAccessible(true);
+            clusterPresenceField.set(sessionManager, clusterPresence);
         } catch (Exception e) {
             fail("Failed to inject mocks: " + e.getMessage());
         }
@@ -60,6 +80,7 @@ public class SessionManagerTest {
         sessionManager.addSession(sessionId, ctx, username, userId);
 
         verify(onlineStatusService, times(1)).setUserOnline(userId);
+        verify(clusterPresence).userConnected(userId);
         assertNotNull(sessionManager.getSession(sessionId));
     }
 
@@ -241,7 +262,12 @@ public class SessionManagerTest {
         io.netty.channel.Channel channelMock = mock(io.netty.channel.Channel.class);
         when(ctxMock.channel()).thenReturn(channelMock);
         when(channelMock.isActive()).thenReturn(true);
+        io.netty.channel.EventLoop eventLoopMock = mock(io.netty.channel.EventLoop.class);
+        when(eventLoopMock.inEventLoop()).thenReturn(true);
+        when(channelMock.eventLoop()).thenReturn(eventLoopMock);
+        when(channelMock.id()).thenReturn(io.netty.channel.DefaultChannelId.newInstance());
         sessionManager.addSession("sessionF", ctxMock, "userF", userId);
+        clearInvocations(channelMock);
         when(chatParticipantService.getChatParticipants(chatId)).thenReturn(java.util.Collections.singletonList(userId));
         java.util.Map<String, Object> messageData = new java.util.HashMap<>();
         messageData.put("type", "NEW_MESSAGE");
@@ -249,7 +275,9 @@ public class SessionManagerTest {
         messageData.put("senderId", userId);
         messageData.put("senderUsername", "userF");
         sessionManager.broadcastMessageToChat(chatId, messageData);
-        verify(channelMock, atLeastOnce()).writeAndFlush(any());
+        // Рассылка пишет во все каналы event loop и затем один раз сбрасывает каждый
+        verify(channelMock).write(any(io.netty.handler.codec.http.websocketx.TextWebSocketFrame.class));
+        verify(channelMock).flush();
     }
 
     @Test
@@ -0,0 +1,158 @@
+package com.messenger.websocket.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.messenger.websocket.handler.message.SignalingMessageHandler;
+import com.messenger.websocket.metrics.CallMetrics;
+import com.messenger.websocket.model.MessageType;
+import com.messenger.websocket.model.WebSocketMessage;
+import com.messenger.websocket.relay.SignalingChannel;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class SignalingRelayTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private SessionManager sessionManager;
+    private SignalingChannel signalingChannel;
+    private ClusterPresence presence;
+    private CallSessionManager callSessionManager;
+    private SignalingRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        sessionManager = mock(SessionManager.class);
+        signalingChannel = mock(SignalingChannel.class);
+        when(signalingChannel.isEnabled()).thenReturn(true);
+        presence = mock(ClusterPresence.class);
+        when(presence.getTtlMillis()).thenReturn(30_000L);
+        callSessionManager = new CallSessionManager(sessionManager, new CallMetrics());
+        relay = new SignalingRelay(sessionManager, callSessionManager, objectMapper, signalingChannel, presence);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callSessionManager.stop();
+    }
+
+    @Test
+    void testLocalUserIsNotRelayed() {
+        when(sessionManager.sendMessageToUser(eq(2L), any())).thenReturn(true);
+
+        assertTrue(relay.deliver(2L, signal(MessageType.CALL_OFFER, "c1")));
+
+        verify(signalingChannel, never()).publish(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void testRemoteUserReceivesRelayedFrame() {
+        when(presence.isOnlineElsewhere(2L)).thenReturn(true);
+        assertTrue(relay.deliver(2L, signal(MessageType.CALL_OFFER, "c1")));
+        String body = published(SignalingRelay.TO_USER);
+
+        // Узел, к которому подключён адресат
+        SessionManager remoteSessions = mock(SessionManager.class);
+        when(remoteSessions.isUserOnline(2L)).thenReturn(true);
+        SignalingRelay remote = new SignalingRelay(remoteSessions,
+                new CallSessionManager(remoteSessions, new CallMetrics()), objectMapper, signalingChannel, presence);
+        remote.onToUser(body);
+
+        ArgumentCaptor<WebSocketMessage> delivered = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(remoteSessions).sendMessageToUser(eq(2L), delivered.capture());
+        assertEquals(MessageType.CALL_OFFER, delivered.getValue().getType());
+        assertEquals("c1", delivered.getValue().getCallId());
+    }
+
+    @Test
+    void testAnswerForForeignCallGoesToOwner() {
+        ChannelHandlerContext ctx = authenticatedContext(2L);
+        new SignalingMessageHandler(sessionManager, callSessionManager, relay)
+                .handle(ctx, signal(MessageType.CALL_ANSWER, "owned-elsewhere"));
+
+        String body = published(SignalingRelay.TO_OWNER);
+        assertTrue(body.contains("owned-elsewhere"));
+    }
+
+    @Test
+    void testOwnerActivatesCallAnsweredOnAnotherNode() throws Exception {
+        String callId = callSessionManager.createCall("c1", 1L, 2L);
+        String body = objectMapper.writeValueAsString(
+                new SignalingRelay.Envelope(2L, "bob", signal(MessageType.CALL_ANSWER, callId)));
+
+        relay.onToOwner(body);
+
+        assertEquals(CallSessionManager.CallState.ACTIVE, callSessionManager.getSession(callId).getState());
+        verify(sessionManager).sendMessageToUser(eq(1L), argThat(m -> m.getType() == MessageType.CALL_ANSWER));
+    }
+
+    @Test
+    void testOfferToUserOfflineOnAllNodesIsMissedImmediately() {
+        ChannelHandlerContext ctx = authenticatedContext(1L);
+        WebSocketMessage offer = signal(MessageType.CALL_OFFER, "c1");
+        offer.setTargetUserId(2L);
+
+        new SignalingMessageHandler(sessionManager, callSessionManager, relay).handle(ctx, offer);
+
+        verify(signalingChannel, never()).publish(eq(SignalingRelay.TO_USER), anyString(), anyString());
+        verify(ctx).writeAndFlush(argThat(m -> m instanceof WebSocketMessage w && w.getType() == MessageType.CALL_MISSED));
+        assertFalse(callSessionManager.isUserInCall(2L));
+    }
+
+    @Test
+    void testReservationIsSharedWithOtherNodes() {
+        String callId = callSessionManager.createCall("c1", 1L, 2L);
+        String body = published(SignalingRelay.RESERVATION);
+
+        CallSessionManager remoteCalls = new CallSessionManager(mock(SessionManager.class), new CallMetrics());
+        try {
+            SignalingRelay remote = new SignalingRelay(mock(SessionManager.class), remoteCalls, objectMapper,
+                    mock(SignalingChannel.class), presence);
+            remote.onReservation(body);
+            assertTrue(remoteCalls.isUserInCall(2L));
+            assertNull(remoteCalls.createCall(null, 3L, 2L));
+
+            callSessionManager.endCall(callId);
+            ArgumentCaptor<String> bodies = ArgumentCaptor.forClass(String.class);
+            verify(signalingChannel, times(2)).publish(eq(SignalingRelay.RESERVATION), eq(callId), bodies.capture());
+            remote.onReservation(bodies.getAllValues().get(1));
+            assertFalse(remoteCalls.isUserInCall(2L));
+        } finally {
+            remoteCalls.stop();
+        }
+    }
+
+    private String published(String kind) {
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(signalingChannel).publish(eq(kind), anyString(), body.capture());
+        return body.getValue();
+    }
+
+    private ChannelHandlerContext authenticatedContext(Long userId) {
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        Channel channel = mock(Channel.class);
+        ChannelId id = mock(ChannelId.class);
+        when(ctx.channel()).thenReturn(channel);
+        when(channel.id()).thenReturn(id);
+        when(id.asShortText()).thenReturn("s" + userId);
+        when(sessionManager.isAuthenticated("s" + userId)).thenReturn(true);
+        when(sessionManager.getUserId("s" + userId)).thenReturn(userId);
+        when(sessionManager.getUsername("s" + userId)).thenReturn("user" + userId);
+        return ctx;
+    }
+
+    private static WebSocketMessage signal(MessageType type, String callId) {
+        WebSocketMessage message = new WebSocketMessage();
+        message.setType(type);
+        message.setCallId(callId);
+        return message;
+    }
+}
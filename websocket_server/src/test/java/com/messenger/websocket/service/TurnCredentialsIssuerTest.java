@@ -0,0 +1,46 @@
+package com.messenger.websocket.service;
+
+import com.messenger.websocket.config.TurnProperties;
+import com.messenger.websocket.model.TurnCredentials;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TurnCredentialsIssuerTest {
+
+    @Test
+    void testCredentialIsCoturnHmacOfUsername() throws Exception {
+        TurnProperties properties = new TurnProperties();
+        properties.setSecret("secret");
+        properties.setHost("turn.example");
+        TurnCredentialsIssuer issuer = new TurnCredentialsIssuer(properties);
+
+        // Второй вызов на том же потоке переиспользует Mac и должен дать корректную подпись
+        issuer.issue("alice");
+        TurnCredentials credentials = issuer.issue("bob");
+
+        Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(new SecretKeySpec("secret".getBytes(StandardCharsets.UTF_8), "HmacSHA1"));
+        String expected = Base64.getEncoder().encodeToString(
+                mac.doFinal(credentials.getUsername().getBytes(StandardCharsets.UTF_8)));
+        assertEquals(expected, credentials.getCredential());
+        assertTrue(credentials.getUsername().endsWith(":bob"));
+        long expiresAt = Long.parseLong(credentials.getUsername().split(":")[0]);
+        assertTrue(expiresAt > System.currentTimeMillis() / 1000L + properties.getTtlSeconds() - 5);
+        assertTrue(credentials.getUrls().contains("turn:turn.example:3478?transport=tcp"));
+    }
+
+    @Test
+    void testRefreshHappensBeforeExpiry() {
+        TurnProperties properties = new TurnProperties();
+        properties.setTtlSeconds(600);
+        properties.setRefreshBeforeSeconds(120);
+
+        assertEquals(480, new TurnCredentialsIssuer(properties).refreshDelaySeconds());
+    }
+}
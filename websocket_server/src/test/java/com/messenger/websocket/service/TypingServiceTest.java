@@ -0,0 +1,135 @@
+package com.messenger.websocket.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.messenger.websocket.codec.WireCodec;
+import com.messenger.websocket.config.TypingProperties;
+import com.messenger.websocket.model.OutboundFrame;
+import com.messenger.websocket.relay.NodeRelay;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class TypingServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private SessionManager sessionManager;
+    private ChatParticipantService chatParticipantService;
+    private NodeRelay relay;
+    private TypingService typingService;
+    private EmbeddedChannel recipient;
+    /** Задачи пула запроса участников: выполняются тестом вручную */
+    private final List<Runnable> lookups = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        sessionManager = mock(SessionManager.class);
+        chatParticipantService = mock(ChatParticipantService.class);
+        relay = mock(NodeRelay.class);
+        recipient = new EmbeddedChannel();
+        when(chatParticipantService.getCachedParticipants(10L)).thenReturn(List.of(1L, 2L));
+        when(chatParticipantService.getChatParticipants(10L)).thenReturn(List.of(1L, 2L));
+        when(sessionManager.getUserChannel(2L)).thenReturn(recipient);
+        typingService = new TypingService(sessionManager, chatParticipantService,
+                new WireCodec(objectMapper), objectMapper, relay, new TypingProperties(), lookups::add);
+    }
+
+    @Test
+    void testStartIsThrottledPerUserAndChat() {
+        assertTrue(typingService.onTyping(1L, "alice", 10L, true));
+        assertFalse(typingService.onTyping(1L, "alice", 10L, true));
+
+        OutboundFrame frame = recipient.readOutbound();
+        assertTrue(frame.text().contains("TYPING_START"));
+        assertEquals(OutboundFrame.Priority.LOW, frame.getPriority());
+        assertEquals("typing:10:1", frame.getCoalesceKey());
+        frame.release();
+        assertNull(recipient.readOutbound());
+        verify(relay, times(1)).publish(eq("typing"), eq("10"), anyString());
+    }
+
+    @Test
+    void testStopDoesNotResetThrottle() {
+        typingService.onTyping(1L, "alice", 10L, true);
+
+        assertTrue(typingService.onTyping(1L, "alice", 10L, false));
+        assertFalse(typingService.onTyping(1L, "alice", 10L, false));
+        // Чередование START/STOP внутри окна не обходит троттлинг
+        assertFalse(typingService.onTyping(1L, "alice", 10L, true));
+        assertFalse(typingService.onTyping(1L, "alice", 10L, false));
+        assertEquals(1, typingService.trackedCount());
+        verify(relay, times(2)).publish(eq("typing"), eq("10"), anyString());
+    }
+
+    @Test
+    void testStartAfterThrottleWindowIsDelivered() {
+        TypingProperties properties = new TypingProperties();
+        properties.setThrottleMs(0);
+        typingService = new TypingService(sessionManager, chatParticipantService,
+                new WireCodec(objectMapper), objectMapper, relay, properties, lookups::add);
+
+        assertTrue(typingService.onTyping(1L, "alice", 10L, true));
+        assertTrue(typingService.onTyping(1L, "alice", 10L, false));
+        assertTrue(typingService.onTyping(1L, "alice", 10L, true));
+    }
+
+    @Test
+    void testNonParticipantIsIgnored() {
+        assertFalse(typingService.onTyping(3L, "mallory", 10L, true));
+
+        assertNull(recipient.readOutbound());
+        assertEquals(0, typingService.trackedCount());
+        verify(relay, never()).publish(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void testCacheMissIsResolvedOffCallerThread() {
+        when(chatParticipantService.getCachedParticipants(10L)).thenReturn(null);
+
+        assertTrue(typingService.onTyping(1L, "alice", 10L, true));
+        verify(chatParticipantService, never()).getChatParticipants(anyLong());
+        assertNull(recipient.readOutbound());
+
+        assertEquals(1, lookups.size());
+        lookups.get(0).run();
+        OutboundFrame frame = recipient.readOutbound();
+        assertTrue(frame.text().contains("TYPING_START"));
+        frame.release();
+        verify(relay).publish(eq("typing"), eq("10"), anyString());
+    }
+
+    @Test
+    void testRelayedEventIsDeliveredWithoutThrottle() throws Exception {
+        typingService.onTyping(1L, "alice", 10L, true);
+        ((OutboundFrame) recipient.readOutbound()).release();
+
+        String body = "{\"type\":\"TYPING_START\",\"chatId\":10,\"userId\":1,\"username\":\"alice\"}";
+        typingService.onRelayed(body);
+
+        OutboundFrame frame = recipient.readOutbound();
+        assertNotNull(frame);
+        frame.release();
+    }
+
+    @Test
+    void testRelayedCacheMissIsResolvedOffRelayThread() {
+        when(chatParticipantService.getCachedParticipants(10L)).thenReturn(null);
+
+        typingService.onRelayed("{\"type\":\"TYPING_START\",\"chatId\":10,\"userId\":1,\"username\":\"alice\"}");
+        verify(chatParticipantService, never()).getChatParticipants(anyLong());
+        assertNull(recipient.readOutbound());
+
+        assertEquals(1, lookups.size());
+        lookups.get(0).run();
+        OutboundFrame frame = recipient.readOutbound();
+        assertNotNull(frame);
+        frame.release();
+    }
+}